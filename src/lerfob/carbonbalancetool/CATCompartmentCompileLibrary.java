@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.List;
 
 import lerfob.carbonbalancetool.productionlines.CarbonUnit;
+import lerfob.carbonbalancetool.productionlines.CarbonUnitCohorts;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnit;
 import lerfob.carbonbalancetool.productionlines.LandfillCarbonUnit;
 import repicea.simulation.covariateproviders.samplelevel.ManagementTypeProvider.ManagementType;
@@ -95,14 +96,11 @@ class CATCompartmentCompileLibrary {
 		case LfillDeg:
 //			decayFunction = manager.getCarbonToolSettings().getDecayFunction();
 			
+			carbon = CarbonUnitCohorts.getCarbonStockArray(carbonCompartment.getCarbonUnitsArray(), timeTable);	// convolution of the inputs with the decay kernels
 			for (int i = 0; i < timeTable.size(); i++) {
 				carbonUnits = carbonCompartment.getCarbonUnitsArray()[i];
 				if (carbonUnits != null && !carbonUnits.isEmpty()) {
 					for (CarbonUnit carbonUnit : carbonUnits) {
-						double[] actualizedCarbon = carbonUnit.getCurrentCarbonArray();	
-						for (int j = 0; j < timeTable.size(); j++) {
-							carbon[j] += actualizedCarbon[j];
-						}
 						integratedCarbon += carbonUnit.getIntegratedCarbon(manager);
 					}
 				}
@@ -21,23 +21,31 @@
 package lerfob.carbonbalancetool;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 import lerfob.carbonbalancetool.CATCompartment.CompartmentInfo;
+import lerfob.carbonbalancetool.biomassparameters.BiomassCache;
+import lerfob.carbonbalancetool.interfaces.CATGroupableTree;
 import lerfob.carbonbalancetool.memsconnectors.MEMSCompatibleStand;
 import lerfob.carbonbalancetool.memsconnectors.MEMSCompatibleTree;
 import lerfob.carbonbalancetool.memsconnectors.MEMSWrapper;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
 import lerfob.carbonbalancetool.productionlines.CarbonUnitList;
+import lerfob.carbonbalancetool.productionlines.DecayKernelCache;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnit;
 import lerfob.carbonbalancetool.productionlines.ProductionLineManager;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import repicea.simulation.HierarchicalLevel;
 import repicea.simulation.MonteCarloSimulationCompliantObject;
 import repicea.simulation.covariateproviders.plotlevel.StochasticInformationProvider;
@@ -45,6 +53,8 @@ import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvide
 import repicea.simulation.covariateproviders.samplelevel.ManagementTypeProvider.ManagementType;
 import repicea.simulation.covariateproviders.treelevel.SamplingUnitIDProvider;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.treelogger.LoggableTree;
+import repicea.simulation.treelogger.WoodPiece;
 import repicea.util.REpiceaLogManager;
 import repicea.util.REpiceaTranslator;
 import repicea.util.REpiceaTranslator.TextableEnum;
@@ -114,6 +124,42 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 	protected CATSingleSimulationResult summary;
 	private boolean isMEMSEnabled;
 	private final MEMSWrapper memsWrapper; 
+	private final DecayKernelCache decayKernelCache;
+	private CATStageCache stageCache;
+	
+	/**
+	 * The key of the LOG_AND_BUCK_TREES stage of the current realization or null if 
+	 * the stage has not been cached.
+	 */
+	String logAndBuckStageKey;
+
+	/**
+	 * The configuration of the LOG_AND_BUCK_TREES stage of the current realization or null if 
+	 * the stage has not been cached.
+	 */
+	String logAndBuckStageConfiguration;
+	
+	/**
+	 * The wood pieces produced by a realization-invariant tree logger during the current run. The 
+	 * trees are compared by identity. The map is shared by the workers of the CATRealizationExecutor class.
+	 */
+	private Map<LoggableTree, Collection<WoodPiece>> sharedWoodPieces;
+	
+	private boolean isBasicTreeLoggerRealizationInvariant;
+	
+	/**
+	 * The number of trees sent to the tree logger during the current run. The counter is shared 
+	 * by the workers of the CATRealizationExecutor class.
+	 */
+	private LongAdder nbLoggedTrees;
+	
+	private boolean isTreeCompressionEnabled;
+	
+	/**
+	 * The trees of the stands once grouped into tree classes. The stands are compared by identity. 
+	 * The map is shared by the workers of the CATRealizationExecutor class.
+	 */
+	private Map<CATCompatibleStand, Map<StatusClass, Collection<CATCompatibleTree>>> compressedTrees;
 	
 	
 	/**
@@ -132,16 +178,156 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 		isSimulationValid = false;
 
 		memsWrapper = new MEMSWrapper(this);
+		decayKernelCache = new DecayKernelCache();
+		stageCache = new CATStageCache();
+		sharedWoodPieces = Collections.synchronizedMap(new IdentityHashMap<LoggableTree, Collection<WoodPiece>>());
+		nbLoggedTrees = new LongAdder();
+		compressedTrees = Collections.synchronizedMap(new IdentityHashMap<CATCompatibleStand, Map<StatusClass, Collection<CATCompatibleTree>>>());
 
 		initializeCompartments();
 	}
-		
+
+	/**
+	 * Constructor for the workers of the CATRealizationExecutor class. <p>
+	 * The worker manager relies on its own copy of the settings and of the time table. The
+	 * information set by the {@link CATCompartmentManager#init(List)} method is copied from
+	 * the original manager. The stage cache, the wood pieces of
+	 * the realization-invariant tree loggers and the tree classes are shared with the original manager.
+	 * @param original the CATCompartmentManager instance that has been initialized
+	 */
+	CATCompartmentManager(CATCompartmentManager original) {
+		this(original.caller, new CATSettings(original.carbonAccountingToolSettings));
+		this.completeStandList = original.completeStandList;
+		this.speciesList.addAll(original.speciesList);
+		this.managementType = original.managementType;
+		this.rotationLength = original.rotationLength;
+		this.isInfiniteSequenceAllowed = original.isInfiniteSequenceAllowed;
+		this.isMEMSEnabled = original.isMEMSEnabled;
+		this.timeTable = new CATTimeTable(original.timeTable);
+		this.stageCache = original.stageCache;
+		this.sharedWoodPieces = original.sharedWoodPieces;
+		this.isBasicTreeLoggerRealizationInvariant = original.isBasicTreeLoggerRealizationInvariant;
+		this.nbLoggedTrees = original.nbLoggedTrees;
+		this.isTreeCompressionEnabled = original.isTreeCompressionEnabled;
+		this.compressedTrees = original.compressedTrees;
+	}
+
 	/**
 	 * Indicate whether MEMS soil module is enabled. 
 	 * @return a boolean
 	 */
 	public boolean isMEMSEnabled() {return isMEMSEnabled;}
 	
+	/**
+	 * Indicate whether the wood pieces of the BasicTreeLogger class can be shared across the realizations. <p>
+	 * The BasicTreeLogger class cannot implement the CATRealizationInvariantTreeLogger interface. Its wood pieces 
+	 * only depend on the commercial volume of the trees, which remains the same across the realizations as long as
+	 * the trees do not change from one realization to another. Since this cannot be checked, each tree is logged 
+	 * once per realization unless this option is enabled.
+	 * @param enabled a boolean
+	 * @see lerfob.carbonbalancetool.interfaces.CATRealizationInvariantTreeLogger
+	 */
+	public void setBasicTreeLoggerRealizationInvariant(boolean enabled) {
+		isBasicTreeLoggerRealizationInvariant = enabled;
+		sharedWoodPieces.clear();
+	}
+
+	/**
+	 * Indicate whether the wood pieces of the BasicTreeLogger class are shared across the realizations.
+	 * @return a boolean (false by default)
+	 */
+	public boolean isBasicTreeLoggerRealizationInvariant() {return isBasicTreeLoggerRealizationInvariant;}
+	
+	/**
+	 * Enable or disable the tree compression. <p>
+	 * When the compression is enabled, the trees of a stand that implement the CATGroupableTree 
+	 * interface and that have the same status, the same sampling unit and the same tree class key 
+	 * are replaced by a single tree whose number is the sum of their numbers. The trees that do 
+	 * not implement this interface are left as is. The compression is carried out once per stand 
+	 * when the trees are registered.
+	 * @param enabled a boolean
+	 * @see CATGroupableTree
+	 */
+	public void setTreeCompressionEnabled(boolean enabled) {
+		isTreeCompressionEnabled = enabled;
+		compressedTrees.clear();
+	}
+
+	/**
+	 * Indicate whether the tree compression is enabled.
+	 * @return a boolean (false by default)
+	 */
+	public boolean isTreeCompressionEnabled() {return isTreeCompressionEnabled;}
+	
+	/**
+	 * Provide the trees of a particular status in a stand, once grouped into tree classes
+	 * if the tree compression is enabled.
+	 * @param stand a CATCompatibleStand instance
+	 * @param statusClass a StatusClass enum
+	 * @return a Collection of CATCompatibleTree instances
+	 */
+	@SuppressWarnings("unchecked")
+	Collection<CATCompatibleTree> getTreesToBeRegistered(CATCompatibleStand stand, StatusClass statusClass) {
+		Collection<CATCompatibleTree> trees = (Collection<CATCompatibleTree>) stand.getTrees(statusClass);
+		if (!isTreeCompressionEnabled) {
+			return trees;
+		}
+		Map<StatusClass, Collection<CATCompatibleTree>> innerMap;
+		synchronized(compressedTrees) {
+			innerMap = compressedTrees.get(stand);
+			if (innerMap == null) {
+				innerMap = new ConcurrentHashMap<StatusClass, Collection<CATCompatibleTree>>();
+				compressedTrees.put(stand, innerMap);
+			}
+		}
+		Collection<CATCompatibleTree> compressed = innerMap.get(statusClass);
+		if (compressed == null) {
+			compressed = compressTrees(trees);
+			Collection<CATCompatibleTree> former = innerMap.putIfAbsent(statusClass, compressed);
+			if (former != null) {	// another worker has been faster. The tree classes must be the same instances in all the realizations.
+				compressed = former;
+			}
+		}
+		return compressed;
+	}
+
+	private static Collection<CATCompatibleTree> compressTrees(Collection<CATCompatibleTree> trees) {
+		Map<List<Object>, List<CATCompatibleTree>> treeClasses = new LinkedHashMap<List<Object>, List<CATCompatibleTree>>();
+		List<Object> outputList = new ArrayList<Object>();	// either a tree or the key of a tree class
+		for (CATCompatibleTree t : trees) {
+			if (t instanceof CATGroupableTree) {
+				List<Object> key = Arrays.asList(getSamplingUnitID(t), ((CATGroupableTree) t).getTreeClassKey());
+				List<CATCompatibleTree> treeClass = treeClasses.get(key);
+				if (treeClass == null) {
+					treeClass = new ArrayList<CATCompatibleTree>();
+					treeClasses.put(key, treeClass);
+					outputList.add(key);
+				}
+				treeClass.add(t);
+			} else {
+				outputList.add(t);
+			}
+		}
+		List<CATCompatibleTree> output = new ArrayList<CATCompatibleTree>();
+		for (Object o : outputList) {
+			if (o instanceof CATCompatibleTree) {
+				output.add((CATCompatibleTree) o);
+			} else {
+				List<CATCompatibleTree> treeClass = treeClasses.get(o);
+				if (treeClass.size() == 1) {
+					output.add(treeClass.get(0));
+				} else {
+					double numberOfTrees = 0d;
+					for (CATCompatibleTree t : treeClass) {
+						numberOfTrees += t.getNumber();
+					}
+					output.add(((CATGroupableTree) treeClass.get(0)).createTreeClass(numberOfTrees));
+				}
+			}
+		}
+		return Collections.unmodifiableList(output);
+	}
+	
 	/**
 	 * Trees are registered in the treeCollections map and the treeRegister map immediately after the manager has been reset following
 	 * the triggering of the calculateCarbon action.
@@ -220,14 +406,17 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 	public void init(List<CATCompatibleStand> stands) {
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Setting stand list and creating last stand if needs be...");
 		this.completeStandList = stands;
+		stageCache.clear();		// the stage outputs depend on the trees
+		sharedWoodPieces.clear();
+		compressedTrees.clear();
 		if (stands != null) {
 			CATCompatibleStand lastStand = stands.get(stands.size() - 1);
 			managementType = lastStand.getManagementType();
 			int nRealizations = getNumberOfRealizations(lastStand);
 			isInfiniteSequenceAllowed = canBeRunInInfiniteSequence(lastStand, nRealizations);
 			boolean isStochastic = isStochastic(lastStand);
-			CATSensitivityAnalysisSettings.getInstance().setModelStochastic(isStochastic);
-			CATSensitivityAnalysisSettings.getInstance().setNumberOfMonteCarloRealizations(nRealizations);
+			getRunContext().getSensitivitySettings().setModelStochastic(isStochastic);
+			getRunContext().getSensitivitySettings().setNumberOfMonteCarloRealizations(nRealizations);
 			int nbExtraYears = 0;
 			int initialAgeYr = -999;
 			if (isInfiniteSequenceAllowed && lastStand.getManagementType() == ManagementType.EvenAged) {
@@ -325,6 +514,8 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 	protected void resetManager() {
 		carbonAccountingToolSettings.getCurrentBiomassParameters().clearCache();
 		clearTreeCollections();
+		logAndBuckStageKey = null;
+		logAndBuckStageConfiguration = null;
 		resetCompartments();
 
 		if (getCarbonToolSettings().formerImplementation) {
@@ -344,6 +535,14 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 	
 	public CATSettings getCarbonToolSettings() {return carbonAccountingToolSettings;}
 
+	/**
+	 * Provide the context of the CarbonAccountingTool instance that owns this manager.
+	 * @return a CATRunContext instance
+	 */
+	public CATRunContext getRunContext() {
+		return caller != null ? caller.getRunContext() : CATRunContext.getDefaultContext();
+	}
+
 	@SuppressWarnings({ "unchecked"})
 	protected void resetCompartmentsAndSetCarbonUnitCollections() {
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Resetting compartment...");
@@ -550,7 +749,8 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected void setRealization(int realizationId) {
-		getTimeTable().setMonteCarloRealization(realizationId);
+		decayKernelCache.clear();	// the lifetime modifiers and the time table may have changed
+		getTimeTable().setMonteCarloRealization(realizationId, getRunContext().getSensitivitySettings().isModelStochastic());
 		if (isMEMSEnabled()) {
 			memsWrapper.prepareSimulation((List) getTimeTable().getStandsForThisRealization());
 		}
@@ -583,6 +783,57 @@ public class CATCompartmentManager implements MonteCarloSimulationCompliantObjec
 		return memsWrapper;
 	}
 
+	/**
+	 * Provide the cache of the volume, biomass and carbon of the registered trees. <p>
+	 * The cache is held by the registry of trees and it is cleared when the manager is reset.
+	 * @return a BiomassCache instance
+	 */
+	public BiomassCache getBiomassCache() {
+		return treeCollManager.getBiomassCache();
+	}
+
+	/**
+	 * Provide the cache of the decay kernels for the current realization.
+	 * @return a DecayKernelCache instance
+	 */
+	public DecayKernelCache getDecayKernelCache() {
+		return decayKernelCache;
+	}
+
+	/**
+	 * Provide the wood pieces produced by a realization-invariant tree logger during the current run.
+	 * @return a synchronized Map whose keys are compared by identity
+	 * @see lerfob.carbonbalancetool.interfaces.CATRealizationInvariantTreeLogger
+	 */
+	Map<LoggableTree, Collection<WoodPiece>> getSharedWoodPieces() {
+		return sharedWoodPieces;
+	}
+
+	void addLoggedTrees(int nbTrees) {
+		nbLoggedTrees.add(nbTrees);
+	}
+
+	/**
+	 * Provide the number of trees sent to the tree logger since the beginning of the current run.
+	 * @return a long
+	 */
+	long getNbLoggedTrees() {
+		return nbLoggedTrees.sum();
+	}
+
+	void resetNbLoggedTrees() {
+		nbLoggedTrees.reset();
+	}
+
+	/**
+	 * Provide the cache of the LOG_AND_BUCK_TREES and GENERATE_WOODPRODUCTS stages. <p>
+	 * The cache is shared by the workers of the CATRealizationExecutor class.
+	 * @return a CATStageCache instance
+	 */
+	public CATStageCache getStageCache() {
+		return stageCache;
+	}
+
 }
 
 
@@ -72,7 +72,6 @@ import lerfob.carbonbalancetool.io.CATScaleManagementSelectorDialog;
 import lerfob.carbonbalancetool.io.CATSpeciesSelectionDialog;
 import lerfob.carbonbalancetool.io.CATYieldTableRecordReader;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManagerException;
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import repicea.app.SettingMemory;
 import repicea.app.UseModeProvider.UseMode;
 import repicea.gui.AutomatedHelper;
@@ -191,6 +190,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		GlobalWarmingPotential("Global Warming Potential", "Potentiel de r\u00E9chauffement global"),
 		ImportYieldTable("Yield table", "Table de production"),
 		ImportGrowthSimulation("Growth simulation", "Simulation de croissance"),
+		ImportGrowthSimulationByRealization("Growth simulation (one realization at a time)", "Simulation de croissance (une r\u00E9alisation \u00E0 la fois)"),
 		ErrorWhileLoadingData("An error occured while loading the data:", "Une erreur est survenue lors de lecture des donn\u00E9es :"),
 		LookAndFeel("Skin", "Pr\u00E9sentation"),
 		MEMSParameters("Soil Carbon Parameters", "Param\u00E8tres du carbone du sol");
@@ -231,6 +231,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 	private final JMenu importMenu;
 	private final JMenuItem yieldTable;
 	private final JMenuItem growthSimulation;
+	private final JMenuItem growthSimulationByRealization;
 	
 	private final JRadioButtonMenuItem calculateInCarbon;
 	protected final JRadioButtonMenuItem calculateInCO2;
@@ -278,8 +279,8 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		majorProgressBarMessage = UIControlManager.getLabel(MessageID.NumberOfRunsToDo.toString()); // default operation for now
 		minorProgressBar = new JProgressBar();
 		majorProgressBar = new JProgressBar();
-		if (CATSensitivityAnalysisSettings.getInstance().getNumberOfMonteCarloRealizations() > 0) {
-			majorProgressBar.setMaximum(CATSensitivityAnalysisSettings.getInstance().getNumberOfMonteCarloRealizations());
+		if (caller.getRunContext().getSensitivitySettings().getNumberOfMonteCarloRealizations() > 0) {
+			majorProgressBar.setMaximum(caller.getRunContext().getSensitivitySettings().getNumberOfMonteCarloRealizations());
 		}
 		JMenuBar menuBar = new JMenuBar();
 		setJMenuBar(menuBar);
@@ -295,6 +296,8 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		importMenu.add(yieldTable);
 		growthSimulation = UIControlManager.createCommonMenuItem(MessageID.ImportGrowthSimulation);
 		importMenu.add(growthSimulation);
+		growthSimulationByRealization = UIControlManager.createCommonMenuItem(MessageID.ImportGrowthSimulationByRealization);
+		importMenu.add(growthSimulationByRealization);
 		
 		close = UIControlManager.createCommonMenuItem(CommonControlID.Quit);
 		file.add(close);
@@ -344,7 +347,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		bg2.add(aR4);
 		bg2.add(aR5);
 		
-		switch(CATSettings.selectedAR) {
+		switch(caller.getRunContext().getAssessmentReport()) {
 		case Second:
 			aR2.setSelected(true);
 			break;
@@ -473,18 +476,20 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		} else if (evt.getSource().equals(stopMenuItem) || evt.getSource().equals(stopButton)) {
 			caller.cancelRunningTask();
 		} else if (evt.getSource().equals(sensitivityAnalysisMenuItem)) {
-			CATSensitivityAnalysisSettings.getInstance().showUI(this);
+			caller.getRunContext().getSensitivitySettings().showUI(this);
 			redefineProgressBar();
 		} else if (evt.getSource().equals(aR2)) {
-			CATSettings.setAssessmentReportForGWP(AssessmentReport.Second);
+			caller.getRunContext().setAssessmentReportForGWP(AssessmentReport.Second);
 		} else if (evt.getSource().equals(aR4)) {
-			CATSettings.setAssessmentReportForGWP(AssessmentReport.Fourth);
+			caller.getRunContext().setAssessmentReportForGWP(AssessmentReport.Fourth);
 		} else if (evt.getSource().equals(aR5)) {
-			CATSettings.setAssessmentReportForGWP(AssessmentReport.Fifth);
+			caller.getRunContext().setAssessmentReportForGWP(AssessmentReport.Fifth);
 		} else if (evt.getSource().equals(yieldTable)) {
 			constructYieldTable();
 		} else if (evt.getSource().equals(growthSimulation)) {
 			constructStandListFromGrowthSimulation();
+		} else if (evt.getSource().equals(growthSimulationByRealization)) {
+			calculateCarbonFromGrowthSimulationByRealization();
 		}
 	}
 	
@@ -567,6 +572,70 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		}
 	}
 
+	/*
+	 * The growth simulation is read one realization at a time and the carbon balance of each realization is
+	 * calculated as soon as it has been read. The file is scanned first so that the species can be associated
+	 * before the calculation starts.
+	 */
+	private void calculateCarbonFromGrowthSimulationByRealization() {
+		String growthSimulationFilename = getSettingMemory().getProperty("lerfobcat.growthSimulationFilename", "");
+		try {
+			REpiceaFileFilterList fileFilters = new REpiceaFileFilterList(REpiceaFileFilter.CSV);
+			FileChooserOutput fileChooserOutput = CommonGuiUtility.browseAction(this, 
+					JFileChooser.FILES_ONLY, 
+					growthSimulationFilename,
+					fileFilters,
+					JFileChooser.OPEN_DIALOG);
+			if (!fileChooserOutput.isValid()) {
+				return;
+			} 
+			growthSimulationFilename = fileChooserOutput.getFilename();
+			
+			CATScaleManagementSelectorDialog scaleManagDlg = new CATScaleManagementSelectorDialog(this);
+			scaleManagDlg.setVisible(true);
+			
+			if (scaleManagDlg.isCancelled()) {
+				return;
+			}
+			
+			final CATGrowthSimulationRecordReader catRecordReader = new CATGrowthSimulationRecordReader(scaleManagDlg);
+			catRecordReader.initGUIMode(this, UseMode.GUI_MODE, growthSimulationFilename);
+			
+			catRecordReader.scanSpecies();
+			catRecordReader.getSelector().showUI(this);
+			if (catRecordReader.getSelector().getUI(null).hasBeenCancelled()) {
+				return;
+			}
+			getSettingMemory().setProperty("lerfobcat.growthSimulationFilename", growthSimulationFilename);
+			setSimulationRunning(true);
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						caller.calculateCarbonByRealization(catRecordReader);
+					} catch (final Exception e) {
+						Runnable doRun = new Runnable() {
+							@Override
+							public void run() {
+								setSimulationRunning(false);
+								if (!(e instanceof CancellationException)) {
+									CommonGuiUtility.showErrorMessage(MessageID.ErrorWhileLoadingData.toString() + " " + e.getMessage(), CATFrame.this);
+								}
+							}
+						};
+						SwingUtilities.invokeLater(doRun);
+					}
+				}
+			}, "CAT realization reader");
+			t.start();
+		} catch (Exception e) {
+			if (e instanceof CancellationException) {
+				return;
+			} else {
+				CommonGuiUtility.showErrorMessage(MessageID.ErrorWhileLoadingData.toString() + " " + e.getMessage(), this);
+			}
+		}
+	}
 	
 	protected void setCalculateCarbonButtonsEnabled(boolean bool) {
 		boolean isStandListSet = caller.getCarbonCompartmentManager().completeStandList != null;
@@ -577,7 +646,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 	
 	protected void redefineProgressBar() {
 		majorProgressBar.setMinimum(0);
-		majorProgressBar.setMaximum(CATSensitivityAnalysisSettings.getInstance().getNumberOfMonteCarloRealizations());
+		majorProgressBar.setMaximum(caller.getRunContext().getSensitivitySettings().getNumberOfMonteCarloRealizations());
 		majorProgressBar.setValue(0);
 		majorProgressBar.setString(majorProgressBar.getValue() + " / " + majorProgressBar.getMaximum());
 		refreshInterface();
@@ -708,6 +777,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		aR5.addActionListener(this);
 		yieldTable.addActionListener(this);
 		growthSimulation.addActionListener(this);
+		growthSimulationByRealization.addActionListener(this);
 	}
 
 
@@ -730,6 +800,7 @@ public class CATFrame extends REpiceaFrame implements PropertyChangeListener,
 		aR5.removeActionListener(this);
 		yieldTable.removeActionListener(this);
 		growthSimulation.removeActionListener(this);
+		growthSimulationByRealization.removeActionListener(this);
 	}
 
 	@Override
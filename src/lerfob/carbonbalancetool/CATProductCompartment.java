@@ -27,11 +27,9 @@ import java.util.TreeMap;
 import lerfob.carbonbalancetool.CATUtilityMaps.CATSpeciesAmountMap;
 import lerfob.carbonbalancetool.CATUtilityMaps.CATUseClassSpeciesAmountMap;
 import lerfob.carbonbalancetool.biomassparameters.BiomassParameters;
-import lerfob.carbonbalancetool.productionlines.CarbonUnit;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.CarbonUnitList;
-import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnit;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
 import repicea.math.Matrix;
@@ -107,57 +105,14 @@ public class CATProductCompartment extends CATCompartment {
 			industrialLosses = getProductionProcessorManager().getCarbonUnits(CarbonUnitStatus.IndustrialLosses);
 		}
 		endUseProductList.addAll(industrialLosses);
-		return summarizeWoodProductEvolution(endUseProductList);
+		return CATUtilityMaps.convertToDateUseClassSpeciesMap(getCompartmentManager().getTimeTable(), 
+				getCompartmentManager().getSpeciesList(), 
+				endUseProductList);
 	}
 
 	
 	private CATUseClassSpeciesAmountMap summarizeWoodProductsInMap(CarbonUnitList carbonUnits) {
-		List<String> speciesList = getCompartmentManager().getSpeciesList();
-		CATUseClassSpeciesAmountMap outputMap = new CATUseClassSpeciesAmountMap(speciesList);
-		if (carbonUnits != null && !carbonUnits.isEmpty()) {
-			for (UseClass useClass : UseClass.values()) {
-				CarbonUnitList subList = carbonUnits.filterList(EndUseWoodProductCarbonUnit.class, "getUseClass", useClass);
-				CATSpeciesAmountMap oMap = CATUtilityMaps.convertToSpeciesMap(subList, speciesList);
-				if (!oMap.isEmpty()) {
-					outputMap.put(useClass, oMap);
-				}
-			}
-		}
-		return outputMap;
-	}
-
-	private Map<Integer, CATUseClassSpeciesAmountMap> summarizeWoodProductEvolution(CarbonUnitList carbonUnits) {
-		List<String> speciesList = getCompartmentManager().getSpeciesList();
-		CATTimeTable timeScale = getCompartmentManager().getTimeTable();
-		Map<Integer, CATUseClassSpeciesAmountMap> outputMap = new HashMap<Integer, CATUseClassSpeciesAmountMap>();
-		if (carbonUnits != null && !carbonUnits.isEmpty()) {
-			for (int i = 0; i < timeScale.size(); i++) {
-				int dateYr = timeScale.getDateYrAtThisIndex(i);
-				CarbonUnitList subList;
-				if (getCompartmentManager().getCarbonToolSettings().formerImplementation) {
-					subList = new CarbonUnitList();
-					for (CarbonUnit carbonUnit : carbonUnits) {
-						if (timeScale.getDateYrAtThisIndex(carbonUnit.getIndexInTimeScale()) == dateYr) {
-							subList.add(carbonUnit);
-						}
-					}
-				} else {
-					subList	= carbonUnits.filterList(CarbonUnit.class, "getCreationDate", dateYr);
-				}
-				for (UseClass useClass : UseClass.values()) {
-					CarbonUnitList subSubList = subList.filterList(EndUseWoodProductCarbonUnit.class, "getUseClass", useClass);
-					CATSpeciesAmountMap oMap = CATUtilityMaps.convertToSpeciesMap(subSubList, speciesList);
-					if (!oMap.isEmpty()) {
-						if (!outputMap.containsKey(dateYr)) {
-							outputMap.put(dateYr, new CATUseClassSpeciesAmountMap(speciesList));
-						}
-						CATUseClassSpeciesAmountMap innerMap = outputMap.get(dateYr);
-						innerMap.put(useClass, oMap);
-					}
-				}
-			}
-		}
-		return outputMap;
+		return CATUtilityMaps.convertToUseClassSpeciesMap(getCompartmentManager().getSpeciesList(), carbonUnits);
 	}
 
 	/**
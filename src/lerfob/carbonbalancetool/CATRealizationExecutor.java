@@ -0,0 +1,152 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import repicea.util.REpiceaLogManager;
+
+/**
+ * The CATRealizationExecutor class runs the Monte Carlo realizations in parallel. <p>
+ * Each worker thread has its own CATCompartmentManager instance, with its own copy of the
+ * settings and of the time table, and runs whole realizations independently. The worker that
+ * takes the last realization works with the original manager so that this manager is left
+ * in the same state as with the sequential implementation. <p>
+ * The results of the realizations are stored in the simulation summary of the original manager
+ * in the order of the realizations. Since the random deviates of the sensitivity analysis only
+ * depend on the seed and the realization id, the results are the same as those of the sequential
+ * implementation.
+ * @author Mathieu Fortin - March 2025
+ */
+class CATRealizationExecutor {
+
+	private final CarbonAccountingTool caller;
+	private final CATCompartmentManager manager;
+	private final int nbThreads;
+	private final int nbRealizations;
+	private final AtomicInteger nextRealization;
+
+	private CATSingleSimulationResult summary;
+	private int nextRealizationToBeStored;
+	private Exception failure;
+
+	/**
+	 * Constructor.
+	 * @param caller the CarbonAccountingTool instance
+	 * @param nbThreads the number of worker threads
+	 */
+	CATRealizationExecutor(CarbonAccountingTool caller, int nbThreads) {
+		this.caller = caller;
+		this.manager = caller.getCarbonCompartmentManager();
+		int nbReals = manager.getRunContext().getSensitivitySettings().getNumberOfMonteCarloRealizations();
+		this.nbRealizations = nbReals < 1 ? 1 : nbReals;
+		this.nbThreads = Math.max(1, Math.min(nbThreads, nbRealizations));
+		this.nextRealization = new AtomicInteger(0);
+	}
+
+	/**
+	 * Run all the realizations.
+	 * @throws Exception if a realization fails
+	 */
+	void run() throws Exception {
+		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINE, null, "Running " + nbRealizations + " realizations with " + nbThreads + " threads...");
+		manager.summary = null;
+		manager.setSimulationValid(true);
+		summary = manager.getSimulationSummary();	// the summary must be created with the original manager
+		nextRealizationToBeStored = 0;
+		failure = null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < nbThreads; i++) {
+				final CATCompartmentManager workerManager = new CATCompartmentManager(manager);	// created here since the worker copies must not be made while the original manager is running a realization
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						runWorker(workerManager);
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		if (failure != null) {
+			manager.setSimulationValid(false);
+			throw failure;
+		}
+		manager.setSimulationValid(true);
+	}
+
+	private void runWorker(CATCompartmentManager workerManager) {
+		int realizationID;
+		while (!isFailed() && (realizationID = nextRealization.getAndIncrement()) < nbRealizations) {
+			CATCompartmentManager currentManager = realizationID == nbRealizations - 1 ?
+					manager :
+						workerManager;
+			try {
+				CATTask.runRealization(caller, currentManager, realizationID);
+				storeResults(realizationID, currentManager);
+			} catch (Exception e) {
+				setFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Store the results of a realization in the summary. <p>
+	 * The method waits until the results of the previous realizations have been stored. It cannot
+	 * block indefinitely since the realizations are taken in increasing order by the workers.
+	 * @param realizationID the index of the realization
+	 * @param currentManager the manager that has run the realization
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private synchronized void storeResults(int realizationID, CATCompartmentManager currentManager) throws InterruptedException {
+		while (nextRealizationToBeStored != realizationID && failure == null) {
+			wait();
+		}
+		if (failure == null) {
+			summary.updateResult(currentManager);
+			nextRealizationToBeStored++;
+			notifyAll();
+		}
+	}
+
+	private synchronized void setFailure(Exception e) {
+		if (failure == null) {
+			failure = e;
+		}
+		notifyAll();
+	}
+
+	private synchronized boolean isFailed() {
+		return failure != null;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lerfob.carbonbalancetool.CATSettings.AssessmentReport;
+import lerfob.carbonbalancetool.CATSettings.GWP;
+import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
+import lerfob.mems.MEMSSite;
+import lerfob.mems.MEMSSite.SiteType;
+import lerfob.mems.MEMSSiteBinaryFormat;
+import lerfob.mems.SoilCarbonPredictorEquilibriumCache;
+import repicea.serial.UnmarshallingException;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.simulation.MonteCarloSimulationCompliantObject;
+
+/**
+ * The CATRunContext class holds the information that is shared by all the
+ * realizations of a CarbonAccountingTool instance. <p>
+ * This information includes the sensitivity analysis settings (and the seed of their
+ * random deviates), the MEMS sites, the initial soil carbon stocks and the assessment report for the global
+ * warming potential. Two CarbonAccountingTool instances with different contexts
+ * can run concurrently in the same JVM. The default context relies on the
+ * CATSensitivityAnalysisSettings singleton.
+ * @author Mathieu Fortin - March 2025
+ */
+public class CATRunContext {
+
+	private static CATRunContext DefaultContext;
+
+	private final CATSensitivityAnalysisSettings sensitivitySettings;
+	private final Map<SiteType, MEMSSite> memsSites;
+	private final SoilCarbonPredictorEquilibriumCache memsEquilibriumCache;
+	private AssessmentReport selectedAR;
+
+	/**
+	 * Constructor for an independent context.
+	 */
+	public CATRunContext() {
+		this(new CATSensitivityAnalysisSettings());
+	}
+
+	private CATRunContext(CATSensitivityAnalysisSettings sensitivitySettings) {
+		this.sensitivitySettings = sensitivitySettings;
+		memsSites = new ConcurrentHashMap<SiteType, MEMSSite>();
+		memsEquilibriumCache = new SoilCarbonPredictorEquilibriumCache();
+		selectedAR = AssessmentReport.Fifth;
+	}
+
+	/**
+	 * Provide the default context. <p>
+	 * This context is used by the CarbonAccountingTool instances that have not
+	 * been given a specific context.
+	 * @return a CATRunContext instance
+	 */
+	public static synchronized CATRunContext getDefaultContext() {
+		if (DefaultContext == null) {
+			DefaultContext = new CATRunContext(CATSensitivityAnalysisSettings.getInstance());
+		}
+		return DefaultContext;
+	}
+
+	/**
+	 * Provide the context of a subject.
+	 * @param subject a MonteCarloSimulationCompliantObject instance (typically a CATCompartmentManager instance)
+	 * @return the context of the subject if it is a CATCompartmentManager instance or the default context otherwise
+	 */
+	public static CATRunContext getContext(MonteCarloSimulationCompliantObject subject) {
+		return subject instanceof CATCompartmentManager ?
+				((CATCompartmentManager) subject).getRunContext() :
+					getDefaultContext();
+	}
+
+	/**
+	 * Provide the sensitivity analysis settings of this context.
+	 * @return a CATSensitivityAnalysisSettings instance
+	 */
+	public CATSensitivityAnalysisSettings getSensitivitySettings() {return sensitivitySettings;}
+
+	/**
+	 * Set the seed of the random deviates of the sensitivity analysis.
+	 * @param randomSeed a long
+	 * @see CATSensitivityAnalysisSettings#setRandomSeed(long)
+	 */
+	public void setRandomSeed(long randomSeed) {
+		sensitivitySettings.setRandomSeed(randomSeed);
+	}
+
+	/**
+	 * Provide the assessment report for the Global Warming Potential factors.
+	 * @return an AssessmentReport enum
+	 */
+	public AssessmentReport getAssessmentReport() {return selectedAR;}
+
+	/**
+	 * Set the assessment report for the Global Warming Potential factors.
+	 * @param aR an AssessmentReport enum
+	 */
+	public void setAssessmentReportForGWP(AssessmentReport aR) {
+		selectedAR = aR;
+	}
+
+	/**
+	 * Provide the Global Warming Potential according to the selected assessment report.
+	 * @return a GWP instance
+	 */
+	public GWP getGlobalWarmingPotential() {
+		return CATSettings.getGlobalWarmingPotential(selectedAR);
+	}
+
+	/**
+	 * Provide the MEMS site for a particular site type. <p>
+	 * The site is read from file the first time it is requested. The compact binary file is 
+	 * read if it exists. These files are generated from the zml files by the generateMEMSSiteBinaries 
+	 * task of the build. Otherwise, the site is deserialized from the zml file. The
+	 * MEMSSite instances should not be modified.
+	 * @param siteType a SiteType enum
+	 * @return a MEMSSite instance
+	 * @see MEMSSiteBinaryFormat
+	 */
+	public synchronized MEMSSite getMEMSSite(SiteType siteType) {
+		if (!memsSites.containsKey(siteType)) {
+			String filenameWithoutExtension = MEMSSiteBinaryFormat.getSiteFilenameWithoutExtension(siteType);
+			try {
+				if (MEMSSiteBinaryFormat.exists(filenameWithoutExtension + MEMSSiteBinaryFormat.FileExtension)) {
+					memsSites.put(siteType, MEMSSiteBinaryFormat.read(filenameWithoutExtension + MEMSSiteBinaryFormat.FileExtension));
+				} else {
+					XmlDeserializer dser = new XmlDeserializer(filenameWithoutExtension + ".zml");
+					memsSites.put(siteType, (MEMSSite) dser.readObject());
+				}
+			} catch (UnmarshallingException | IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return memsSites.get(siteType);
+	}
+
+	/**
+	 * Provide the cache of the initial soil carbon stocks. <p>
+	 * The MEMS spin-up is run only once for a given site, temperature and parameter vector.
+	 * @return a SoilCarbonPredictorEquilibriumCache instance
+	 */
+	public SoilCarbonPredictorEquilibriumCache getMEMSEquilibriumCache() {return memsEquilibriumCache;}
+}
@@ -202,8 +202,6 @@ public final class CATSettings {
 	public static final double CH4_C_FACTOR = 12d / 16;
 	public static final double C_CH4_FACTOR = 16d / 12;
 
-	protected static AssessmentReport selectedAR = AssessmentReport.Fifth;
-	
 	@Deprecated
 	private TreeLoggerWrapper treeLoggerWrapper;
 	@Deprecated
@@ -235,23 +233,58 @@ public final class CATSettings {
 		woodSupply = new WoodPieceDispatcher(treeLoggerWrapper, productionLines);
 		treeLoggerDescriptions = new Vector<TreeLoggerDescription>();
 	}
-	
+
+	/**
+	 * Constructor for the workers of the CATRealizationExecutor class.<p>
+	 * Only the current production processor manager and the current biomass parameters are
+	 * copied. These copies have their own carbon units, tree logger and caches so that
+	 * the realizations can be run in parallel.
+	 * @param original the original CATSettings instance
+	 */
+	CATSettings(CATSettings original) {
+		this.settings = original.settings;
+		this.formerImplementation = original.formerImplementation;
+		this.productionLines = original.productionLines;
+		this.treeLoggerWrapper = original.treeLoggerWrapper;
+		this.woodSupply = original.woodSupply;
+		this.treeLoggerDescriptions = original.treeLoggerDescriptions;
+		this.currentProcessorManager = original.currentProcessorManager;
+		this.currentBiomassParameters = original.currentBiomassParameters;
+		this.currentMemsParameters = original.currentMemsParameters;
+		productionManagerMap.put(currentProcessorManager,
+				new ProductionProcessorManagerWrapper(currentProcessorManager, original.getCurrentProductionProcessorManager().createWorkerCopy()));
+		biomassParametersMap.put(currentBiomassParameters,
+				new BiomassParametersWrapper(currentBiomassParameters, original.getCurrentBiomassParameters().createWorkerCopy()));
+	}
+
 
 	/**
 	 * This method returns the Global Warming Potential according
-	 * to the selected assessment report.
+	 * to the assessment report selected in the default context.
 	 * @return a GWP instance
+	 * @see CATRunContext#getGlobalWarmingPotential()
 	 */
 	public static GWP getGlobalWarmingPotential() {
-		return GlobalWarmingPotentialMap.get(selectedAR);
+		return CATRunContext.getDefaultContext().getGlobalWarmingPotential();
+	}
+	
+	/**
+	 * Provide the Global Warming Potential of a particular assessment report.
+	 * @param aR an AssessmentReport enum
+	 * @return a GWP instance
+	 */
+	static GWP getGlobalWarmingPotential(AssessmentReport aR) {
+		return GlobalWarmingPotentialMap.get(aR);
 	}
 	
 	/**
-	 * This method set the assessment report for the Global Warming Potential factors.
+	 * This method set the assessment report for the Global Warming Potential factors
+	 * in the default context.
 	 * @param aR an AssessmentReport enum variable
+	 * @see CATRunContext#setAssessmentReportForGWP(AssessmentReport)
 	 */
 	public static void setAssessmentReportForGWP(AssessmentReport aR) {
-		selectedAR = aR;
+		CATRunContext.getDefaultContext().setAssessmentReportForGWP(aR);
 	}
 	
 	private void readBiomassParameters() {
@@ -0,0 +1,574 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.InvalidParameterException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import lerfob.carbonbalancetool.CATTask.Task;
+import lerfob.carbonbalancetool.biomassparameters.BiomassParameters;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
+import lerfob.carbonbalancetool.productionlines.ElementVector;
+import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
+import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
+import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
+import repicea.serial.Memorizable;
+import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvider.ApplicationScale;
+import repicea.simulation.covariateproviders.treelevel.SpeciesTypeProvider.SpeciesType;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.treelogger.LogCategory;
+import repicea.simulation.treelogger.TreeLogger;
+
+/**
+ * The CATStageCache class stores the outputs of the LOG_AND_BUCK_TREES and GENERATE_WOODPRODUCTS
+ * stages so that they are not carried out again when a simulation is re-run with the same upstream
+ * inputs. <p>
+ * The outputs are identified by a hash of the realization id, the tree logger and its parameters, the 
+ * biomass parameters, the sensitivity analysis settings, the application scale and the trees. All these 
+ * inputs but the realization id and the trees make up the configuration of a stage. Only the outputs of 
+ * the last configuration are kept. <p>
+ * The LOG_AND_BUCK_TREES stage stores the wood pieces. The GENERATE_WOODPRODUCTS stage stores the amounts 
+ * that are sent to the production processors rather than the carbon units, because the carbon units 
+ * are modified when they are actualized. These amounts are accumulated by log category, date, sampling unit,
+ * species and status class and then replayed through the current processor manager, so that a change in 
+ * the production lines only requires the downstream stages to be carried out again. <p>
+ * The cache is disabled by default. It is shared by the workers of the CATRealizationExecutor class and
+ * it is cleared whenever a new stand list is set. The cache is thread-safe.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class CATStageCache {
+
+	/**
+	 * The wood pieces produced by the tree logger for a particular collection of cut trees.
+	 */
+	static final class LoggedWoodPieces {
+		private final Object[] cutTrees;
+		private final Map<?,?> woodPieces;
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private LoggedWoodPieces(Collection<CATCompatibleTree> cutTrees, Map woodPieces) {
+			this.cutTrees = cutTrees.toArray();
+			this.woodPieces = Collections.unmodifiableMap(new LinkedHashMap(woodPieces));
+		}
+
+		/**
+		 * Restore the wood pieces in the tree logger.
+		 * @param logger the TreeLogger instance
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		void restore(TreeLogger logger) {
+			logger.getWoodPieces().clear();
+			logger.getWoodPieces().putAll(woodPieces);
+		}
+	}
+
+	/**
+	 * The amounts sent to the production processor manager during the GENERATE_WOODPRODUCTS stage 
+	 * for a particular log category or woody debris type, date, sampling unit, species and status class. <p>
+	 * The requests that share these features and the same biomass types are accumulated into a 
+	 * single request. The processing and the actualization of the carbon units are linear with 
+	 * respect to the amounts, so that the replay produces far fewer carbon units with the same totals.
+	 */
+	static final class WoodProductRequest {
+		private final LogCategory logCategory;
+		private final WoodyDebrisProcessorID woodyDebrisType;
+		private final int dateIndex;
+		private final String samplingUnitID;
+		private final String speciesName;
+		private final SpeciesType speciesType;
+		private final StatusClass statusClass;
+		private final int biomassTypeMask;
+		private final CATCompatibleTree tree;
+		private ElementVector woodAmounts;
+		private ElementVector barkAmounts;
+
+		private WoodProductRequest(LogCategory logCategory, 
+				WoodyDebrisProcessorID woodyDebrisType, 
+				int dateIndex,
+				String samplingUnitID,
+				ElementVector woodAmounts,
+				ElementVector barkAmounts,
+				CATCompatibleTree tree,
+				StatusClass statusClass) {
+			this.logCategory = logCategory;
+			this.woodyDebrisType = woodyDebrisType;
+			this.dateIndex = dateIndex;
+			this.samplingUnitID = samplingUnitID;
+			this.speciesName = tree.getSpeciesName();
+			this.speciesType = tree.getSpeciesType();
+			this.statusClass = statusClass;
+			this.biomassTypeMask = getBiomassTypeMask(woodAmounts, barkAmounts);
+			this.tree = tree;
+		}
+
+		private static int getBiomassTypeMask(ElementVector woodAmounts, ElementVector barkAmounts) {
+			int mask = 0;
+			if (woodAmounts != null) {
+				mask |= 1 << BiomassType.Wood.ordinal();
+			}
+			if (barkAmounts != null) {
+				mask |= 1 << BiomassType.Bark.ordinal();
+			}
+			return mask;
+		}
+
+		private void add(ElementVector woodAmounts, ElementVector barkAmounts) {
+			if (woodAmounts != null) {
+				if (this.woodAmounts == null) {
+					this.woodAmounts = new ElementVector();
+				}
+				this.woodAmounts.add(woodAmounts);
+			}
+			if (barkAmounts != null) {
+				if (this.barkAmounts == null) {
+					this.barkAmounts = new ElementVector();
+				}
+				this.barkAmounts.add(barkAmounts);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof WoodProductRequest) {
+				WoodProductRequest that = (WoodProductRequest) obj;
+				return logCategory == that.logCategory &&
+						woodyDebrisType == that.woodyDebrisType &&
+						dateIndex == that.dateIndex &&
+						Objects.equals(samplingUnitID, that.samplingUnitID) &&
+						Objects.equals(speciesName, that.speciesName) &&
+						speciesType == that.speciesType &&
+						statusClass == that.statusClass &&
+						biomassTypeMask == that.biomassTypeMask;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(logCategory), 
+					woodyDebrisType, 
+					dateIndex, 
+					samplingUnitID, 
+					speciesName, 
+					speciesType, 
+					statusClass, 
+					biomassTypeMask);
+		}
+	}
+
+	/**
+	 * The accumulated requests sent to the production processor manager for a particular collection of trees.
+	 */
+	static final class WoodProducts {
+		private final Object[] trees;
+		private final List<WoodProductRequest> requests;
+
+		private WoodProducts(Collection<CATCompatibleTree> trees, Collection<WoodProductRequest> requests) {
+			this.trees = trees.toArray();
+			this.requests = Collections.unmodifiableList(new ArrayList<WoodProductRequest>(requests));
+		}
+
+		/**
+		 * Send the accumulated requests to a processor manager. <p>
+		 * Each accumulated request is processed once. The processor manager copies the 
+		 * vectors, so that the carbon units do not share their amounts with the cache. 
+		 * @param processorManager a ProductionProcessorManager instance
+		 */
+		void replay(ProductionProcessorManager processorManager) {
+			for (WoodProductRequest request : requests) {
+				if (request.logCategory != null) {
+					processorManager.processWoodPiece(request.logCategory, 
+							request.dateIndex, 
+							request.samplingUnitID, 
+							request.woodAmounts, 
+							request.barkAmounts, 
+							request.tree, 
+							request.statusClass);
+				} else {
+					processorManager.processWoodyDebris(request.dateIndex, 
+							request.samplingUnitID, 
+							request.woodAmounts, 
+							request.barkAmounts, 
+							request.tree, 
+							request.statusClass, 
+							request.woodyDebrisType);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A recorder of the requests sent to the production processor manager. <p>
+	 * The requests are accumulated as they are recorded.
+	 */
+	static final class WoodProductRecorder {
+		private final Map<WoodProductRequest, WoodProductRequest> requests;
+
+		WoodProductRecorder() {
+			requests = new LinkedHashMap<WoodProductRequest, WoodProductRequest>();
+		}
+
+		void recordWoodPiece(LogCategory logCategory, int dateIndex, String samplingUnitID, ElementVector woodAmounts, ElementVector barkAmounts, CATCompatibleTree tree, StatusClass statusClass) {
+			record(new WoodProductRequest(logCategory, null, dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass), woodAmounts, barkAmounts);
+		}
+
+		void recordWoodyDebris(WoodyDebrisProcessorID woodyDebrisType, int dateIndex, String samplingUnitID, ElementVector woodAmounts, ElementVector barkAmounts, CATCompatibleTree tree, StatusClass statusClass) {
+			record(new WoodProductRequest(null, woodyDebrisType, dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass), woodAmounts, barkAmounts);
+		}
+
+		private void record(WoodProductRequest newRequest, ElementVector woodAmounts, ElementVector barkAmounts) {
+			WoodProductRequest request = requests.get(newRequest);
+			if (request == null) {
+				request = newRequest;
+				requests.put(request, request);
+			}
+			request.add(woodAmounts, barkAmounts);
+		}
+	}
+
+	private final Map<String, LoggedWoodPieces> loggedWoodPiecesMap;
+	private final Map<String, WoodProducts> woodProductsMap;
+	private final Map<Task, LongAdder> nbHits;
+	private final Map<Task, LongAdder> nbMisses;
+	private volatile boolean enabled;
+	private String logAndBuckConfiguration;
+	private String woodProductsConfiguration;
+
+	/**
+	 * Constructor.
+	 */
+	CATStageCache() {
+		loggedWoodPiecesMap = new ConcurrentHashMap<String, LoggedWoodPieces>();
+		woodProductsMap = new ConcurrentHashMap<String, WoodProducts>();
+		nbHits = new EnumMap<Task, LongAdder>(Task.class);
+		nbMisses = new EnumMap<Task, LongAdder>(Task.class);
+		for (Task stage : new Task[] {Task.LOG_AND_BUCK_TREES, Task.GENERATE_WOODPRODUCTS}) {
+			nbHits.put(stage, new LongAdder());
+			nbMisses.put(stage, new LongAdder());
+		}
+	}
+
+	/**
+	 * Enable or disable the cache. <p>
+	 * Disabling the cache also clears it.
+	 * @param enabled a boolean
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	/**
+	 * Indicate whether the cache is enabled.
+	 * @return a boolean (false by default)
+	 */
+	public boolean isEnabled() {return enabled;}
+
+	/**
+	 * Provide the number of times the outputs of a stage have been retrieved from the cache.
+	 * @param stage either Task.LOG_AND_BUCK_TREES or Task.GENERATE_WOODPRODUCTS
+	 * @return a long
+	 */
+	public long getNbHits(Task stage) {
+		return getCounter(nbHits, stage).sum();
+	}
+
+	/**
+	 * Provide the number of times a stage has been carried out while the cache was enabled.
+	 * @param stage either Task.LOG_AND_BUCK_TREES or Task.GENERATE_WOODPRODUCTS
+	 * @return a long
+	 */
+	public long getNbMisses(Task stage) {
+		return getCounter(nbMisses, stage).sum();
+	}
+
+	private static LongAdder getCounter(Map<Task, LongAdder> counters, Task stage) {
+		LongAdder counter = counters.get(stage);
+		if (counter == null) {
+			throw new InvalidParameterException("The stage " + stage.name() + " is not cached!");
+		}
+		return counter;
+	}
+
+	/**
+	 * Provide the number of stage outputs in the cache.
+	 * @return an integer
+	 */
+	public int size() {return loggedWoodPiecesMap.size() + woodProductsMap.size();}
+
+	/**
+	 * Clear the stage outputs and reset the counts of hits and misses.
+	 */
+	public void clear() {
+		synchronized (loggedWoodPiecesMap) {
+			loggedWoodPiecesMap.clear();
+			logAndBuckConfiguration = null;
+		}
+		synchronized (woodProductsMap) {
+			woodProductsMap.clear();
+			woodProductsConfiguration = null;
+		}
+		for (LongAdder counter : nbHits.values()) {
+			counter.reset();
+		}
+		for (LongAdder counter : nbMisses.values()) {
+			counter.reset();
+		}
+	}
+
+	void recordMiss(Task stage) {
+		getCounter(nbMisses, stage).increment();
+	}
+
+	LoggedWoodPieces getLoggedWoodPieces(String key, Collection<CATCompatibleTree> cutTrees) {
+		LoggedWoodPieces entry = key == null ? null : loggedWoodPiecesMap.get(key);
+		if (entry != null && isSameCollection(entry.cutTrees, cutTrees)) {
+			nbHits.get(Task.LOG_AND_BUCK_TREES).increment();
+			return entry;
+		} else {
+			recordMiss(Task.LOG_AND_BUCK_TREES);
+			return null;
+		}
+	}
+
+	/*
+	 * Only the outputs of the last configuration are kept. The outputs of the former 
+	 * configuration are evicted as soon as an output of a new configuration is stored.
+	 */
+	@SuppressWarnings("rawtypes")
+	void putLoggedWoodPieces(String configuration, String key, Collection<CATCompatibleTree> cutTrees, Map woodPieces) {
+		if (configuration != null && key != null) {
+			synchronized (loggedWoodPiecesMap) {
+				if (!configuration.equals(logAndBuckConfiguration)) {
+					loggedWoodPiecesMap.clear();
+					logAndBuckConfiguration = configuration;
+				}
+				loggedWoodPiecesMap.put(key, new LoggedWoodPieces(cutTrees, woodPieces));
+			}
+		}
+	}
+
+	WoodProducts getWoodProducts(String key, Collection<CATCompatibleTree> trees) {
+		WoodProducts entry = key == null ? null : woodProductsMap.get(key);
+		if (entry != null && isSameCollection(entry.trees, trees)) {
+			nbHits.get(Task.GENERATE_WOODPRODUCTS).increment();
+			return entry;
+		} else {
+			recordMiss(Task.GENERATE_WOODPRODUCTS);
+			return null;
+		}
+	}
+
+	void putWoodProducts(String configuration, String key, Collection<CATCompatibleTree> trees, WoodProductRecorder recorder) {
+		if (configuration != null && key != null) {
+			synchronized (woodProductsMap) {
+				if (!configuration.equals(woodProductsConfiguration)) {
+					woodProductsMap.clear();
+					woodProductsConfiguration = configuration;
+				}
+				woodProductsMap.put(key, new WoodProducts(trees, recorder.requests.values()));
+			}
+		}
+	}
+
+	/*
+	 * The hash of the trees relies on their identity. The trees are checked on retrieval
+	 * to make sure two collections with the same hash are not confused.
+	 */
+	private static boolean isSameCollection(Object[] trees, Collection<CATCompatibleTree> otherTrees) {
+		if (trees.length != otherTrees.size()) {
+			return false;
+		}
+		int i = 0;
+		for (CATCompatibleTree t : otherTrees) {
+			if (trees[i++] != t) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Provide the configuration of the LOG_AND_BUCK_TREES stage. <p>
+	 * The configuration includes the identity of the tree logger parameters because the 
+	 * wood pieces refer to their log categories.
+	 * @param logger the TreeLogger instance
+	 * @return a String or null if the tree logger parameters cannot be hashed
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 * @throws IOException if the tree logger parameters cannot be written to the digest
+	 */
+	@SuppressWarnings("rawtypes")
+	static String getLogAndBuckConfiguration(TreeLogger logger) throws NoSuchAlgorithmException, IOException {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+		digest.update(Task.LOG_AND_BUCK_TREES.name().getBytes("UTF-8"));
+		digest.update(logger.getClass().getName().getBytes("UTF-8"));
+		update(digest, buffer, System.identityHashCode(logger.getTreeLoggerParameters()));
+		if (!updateWithObject(digest, logger.getTreeLoggerParameters())) {
+			return null;
+		}
+		return toHexString(digest);
+	}
+
+	/**
+	 * Provide the key of the LOG_AND_BUCK_TREES stage.
+	 * @param configuration the configuration of the stage
+	 * @param realizationID the Monte Carlo realization id
+	 * @param cutTrees the cut trees
+	 * @return a String or null if the configuration is null
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 * @throws IOException if the trees cannot be written to the digest
+	 * @see CATStageCache#getLogAndBuckConfiguration(TreeLogger)
+	 */
+	static String getLogAndBuckKey(String configuration, int realizationID, Collection<CATCompatibleTree> cutTrees) throws NoSuchAlgorithmException, IOException {
+		if (configuration == null) {
+			return null;
+		}
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+		digest.update(configuration.getBytes("UTF-8"));
+		update(digest, buffer, realizationID);
+		updateWithTrees(digest, buffer, cutTrees);
+		return toHexString(digest);
+	}
+
+	/**
+	 * Provide the configuration of the GENERATE_WOODPRODUCTS stage.
+	 * @param logAndBuckConfiguration the configuration of the LOG_AND_BUCK_TREES stage
+	 * @param biomassParameters the BiomassParameters instance
+	 * @param sensitivitySettings the CATSensitivityAnalysisSettings instance
+	 * @param applicationScale an ApplicationScale enum
+	 * @return a String or null if the upstream stage or the biomass parameters cannot be hashed
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 * @throws IOException if the biomass parameters cannot be written to the digest
+	 */
+	static String getWoodProductsConfiguration(String logAndBuckConfiguration, 
+			BiomassParameters biomassParameters, 
+			CATSensitivityAnalysisSettings sensitivitySettings,
+			ApplicationScale applicationScale) throws NoSuchAlgorithmException, IOException {
+		if (logAndBuckConfiguration == null) {
+			return null;
+		}
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(Task.GENERATE_WOODPRODUCTS.name().getBytes("UTF-8"));
+		digest.update(logAndBuckConfiguration.getBytes("UTF-8"));
+		if (!updateWithObject(digest, biomassParameters)) {
+			return null;
+		}
+		digest.update(sensitivitySettings.getSignature().getBytes("UTF-8"));
+		digest.update(String.valueOf(applicationScale).getBytes("UTF-8"));
+		return toHexString(digest);
+	}
+
+	/**
+	 * Provide the key of the GENERATE_WOODPRODUCTS stage.
+	 * @param configuration the configuration of the stage
+	 * @param logAndBuckKey the key of the LOG_AND_BUCK_TREES stage
+	 * @param trees the dead and windfall trees
+	 * @return a String or null if the configuration or the upstream key is null
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 * @throws IOException if the trees cannot be written to the digest
+	 * @see CATStageCache#getWoodProductsConfiguration(String, BiomassParameters, CATSensitivityAnalysisSettings, ApplicationScale)
+	 */
+	static String getWoodProductsKey(String configuration, String logAndBuckKey, Collection<CATCompatibleTree> trees) throws NoSuchAlgorithmException, IOException {
+		if (configuration == null || logAndBuckKey == null) {
+			return null;
+		}
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+		digest.update(configuration.getBytes("UTF-8"));
+		digest.update(logAndBuckKey.getBytes("UTF-8"));
+		updateWithTrees(digest, buffer, trees);
+		return toHexString(digest);
+	}
+
+	private static void updateWithTrees(MessageDigest digest, ByteBuffer buffer, Collection<CATCompatibleTree> trees) throws IOException {
+		update(digest, buffer, trees.size());
+		for (CATCompatibleTree t : trees) {
+			update(digest, buffer, System.identityHashCode(t));
+			update(digest, buffer, Double.doubleToLongBits(t.getNumber()));
+			update(digest, buffer, Double.doubleToLongBits(t.getPlotWeight()));
+			digest.update(String.valueOf(t.getSpeciesName()).getBytes("UTF-8"));
+		}
+	}
+
+	/*
+	 * Memorizable instances are hashed through their MemorizerPackage instance. Other instances 
+	 * must be serializable. Otherwise, the stage cannot be cached.
+	 */
+	private static boolean updateWithObject(MessageDigest digest, Object obj) throws IOException {
+		Object content;
+		if (obj instanceof Memorizable) {
+			content = ((Memorizable) obj).getMemorizerPackage();
+		} else if (obj instanceof Serializable) {
+			content = obj;
+		} else {
+			return false;
+		}
+		try (ObjectOutputStream oos = new ObjectOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+			oos.writeObject(content);
+			return true;
+		} catch (NotSerializableException e) {
+			return false;
+		}
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {}
+
+		@Override
+		public void write(byte[] b, int off, int len) {}
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer buffer, long value) {
+		buffer.clear();
+		buffer.putLong(value);
+		digest.update(buffer.array());
+	}
+
+	private static String toHexString(MessageDigest digest) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+}
@@ -22,7 +22,7 @@ package lerfob.carbonbalancetool;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -30,19 +30,23 @@ import java.util.logging.Level;
 import lerfob.carbonbalancetool.biomassparameters.BiomassParameters;
 import lerfob.carbonbalancetool.interfaces.CATAdditionalElementsProvider;
 import lerfob.carbonbalancetool.interfaces.CATDeadWoodProvider;
+import lerfob.carbonbalancetool.interfaces.CATRealizationInvariantTreeLogger;
+import lerfob.carbonbalancetool.interfaces.CATSapling;
 import lerfob.carbonbalancetool.interfaces.CATSaplingsProvider;
 import lerfob.carbonbalancetool.memsconnectors.MEMSCompatibleTree;
-import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.ElementVector;
 import lerfob.carbonbalancetool.productionlines.ProductionLineManager;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
 import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
+import lerfob.treelogger.basictreelogger.BasicTreeLogger;
 import repicea.app.AbstractGenericTask;
 import repicea.gui.REpiceaAWTEvent;
 import repicea.lang.MemoryWatchDog;
 import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvider.ApplicationScale;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 import repicea.simulation.processsystem.AmountMap;
+import repicea.simulation.treelogger.LogCategory;
 import repicea.simulation.treelogger.LoggableTree;
 import repicea.simulation.treelogger.TreeLogger;
 import repicea.simulation.treelogger.WoodPiece;
@@ -82,7 +86,12 @@ public class CATTask extends AbstractGenericTask {
 		REGISTER_TREES(false),
 		DISPLAY_RESULT(false),
 		SET_BIOMASS_PARMS(false),
-		SET_PRODUCTION_MANAGER(false);
+		SET_PRODUCTION_MANAGER(false),
+		/**
+		 * Run all the realizations in parallel.
+		 * @see CATRealizationExecutor
+		 */
+		RUN_REALIZATIONS(false);
 	
 		private boolean longTask;
 		private static int NumberOfLongTasks = -1;	
@@ -115,29 +124,99 @@ public class CATTask extends AbstractGenericTask {
 		
 	}
 	
+	/**
+	 * The tasks that are carried out for each realization, in this order.<p>
+	 * The RESET_MANAGER and SET_REALIZATION tasks are carried out before these tasks.
+	 */
+	private static final Task[] RealizationTasks = new Task[] {Task.REGISTER_TREES,
+			Task.LOG_AND_BUCK_TREES,
+			Task.GENERATE_WOODPRODUCTS,
+			Task.RETRIEVE_INITIAL_CONDITIONS,
+			Task.ACTUALIZE_CARBON,
+			Task.RETRIEVE_SOIL_CARBON_INPUT,
+			Task.COMPILE_CARBON};
+	
 	private Task currentTask;
 	
 	private CarbonAccountingTool caller;
 	
+	/**
+	 * The manager of a worker of the CATRealizationExecutor class or null if the task 
+	 * is run by the engine.
+	 */
+	private final CATCompartmentManager workerManager;
+	
+	/**
+	 * The recorder of the requests sent to the production processor manager or null if 
+	 * the GENERATE_WOODPRODUCTS stage is not being cached.
+	 */
+	private CATStageCache.WoodProductRecorder woodProductRecorder;
+	
+	/*
+	 * The amounts of each wood piece or woody debris are set in these vectors, which are cleared before each use. 
+	 * The processor manager and the recorder copy them.
+	 */
+	private final ElementVector woodAmounts = new ElementVector();
+	private final ElementVector barkAmounts = new ElementVector();
+	
+	private static final Collection<WoodPiece> NoWoodPiece = Collections.unmodifiableList(new ArrayList<WoodPiece>());
+	
 	public CATTask(Task currentTask, CarbonAccountingTool caller) {
+		this(currentTask, caller, null);
+	}
+
+	private CATTask(Task currentTask, CarbonAccountingTool caller, CATCompartmentManager workerManager) {
 		this.currentTask = currentTask;
 		this.setName(currentTask.name());
 		this.caller = caller;
-		if (caller.guiInterface != null) {	// if the interface is enabled then the interface listens to this worker (for the progress bar implementation)
+		this.workerManager = workerManager;
+		if (isListenedByInterface()) {	// if the interface is enabled then the interface listens to this worker (for the progress bar implementation)
 			super.addPropertyChangeListener(caller.guiInterface);
 		}
 	}
 
+	/**
+	 * Run all the tasks of a single realization with a particular manager. <p>
+	 * This method is called by the workers of the CATRealizationExecutor class. The tasks are 
+	 * carried out in the same order as in the CarbonAccountingTool#calculateCarbon method. The
+	 * results are not stored in the simulation summary.
+	 * @param caller the CarbonAccountingTool instance
+	 * @param manager the CATCompartmentManager instance of the worker
+	 * @param realizationID the index of the realization
+	 * @throws Exception if one of the tasks fails
+	 */
+	static void runRealization(CarbonAccountingTool caller, CATCompartmentManager manager, int realizationID) throws Exception {
+		manager.resetManager();
+		manager.setRealization(realizationID);
+		for (Task task : RealizationTasks) {
+			if (task != Task.RETRIEVE_SOIL_CARBON_INPUT || manager.isMEMSEnabled()) {
+				new CATTask(task, caller, manager).doThisJob();
+			}
+		}
+	}
+	
+	private boolean isListenedByInterface() {
+		return workerManager == null && caller.guiInterface != null;
+	}
+	
+	private CATCompartmentManager getCompartmentManager() {
+		return workerManager != null ? workerManager : caller.getCarbonCompartmentManager();
+	}
+	
+	private CATSettings getSettings() {
+		return getCompartmentManager().getCarbonToolSettings();
+	}
+	
 	
 	@Override
 	protected void doThisJob() throws Exception {
 //		long initialTime;
 		switch (currentTask) {
 		case RESET_MANAGER:
-			caller.getCarbonCompartmentManager().resetManager();
+			getCompartmentManager().resetManager();
 			break;
 		case SET_REALIZATION:
-			caller.getCarbonCompartmentManager().setRealization(((SetProperRealizationTask) this).realizationID);
+			getCompartmentManager().setRealization(((SetProperRealizationTask) this).realizationID);
 			break;
 		case REGISTER_TREES:
 			registerTrees();
@@ -200,23 +279,30 @@ public class CATTask extends AbstractGenericTask {
 			firePropertyChange("Setting production manager", null, currentTask);
 			caller.setProductionManager();
 			break;
+		case RUN_REALIZATIONS:
+			new CATRealizationExecutor(caller, caller.getNumberOfThreads()).run();
+			break;
 		}
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private void retrieveSoilInputFromLivingTreesAndSimulate() {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Adding soil carbon input from living trees...");
 		
 		BiomassParameters biomassParameters = manager.getCarbonToolSettings().getCurrentBiomassParameters();
 		CATIntermediateBiomassCarbonMap aboveGroundMap = new CATIntermediateBiomassCarbonMap(manager.getTimeTable(), manager.getMEMS().getInputFromLivingTreesAboveGroundMgHaArray());
 		CATIntermediateBiomassCarbonMap belowGroundMap = new CATIntermediateBiomassCarbonMap(manager.getTimeTable(), manager.getMEMS().getInputFromLivingTreesBelowGroundMgHaArray());
+		TreeCollectionManager treeCollManager = manager.treeCollManager;
 		for (CATCompatibleStand s : manager.getTimeTable().getStandsForThisRealization()) {
-			Collection<MEMSCompatibleTree> aliveTrees = (Collection) manager.treeCollManager.getTreeOfThisStatusInThisStand(StatusClass.alive, s);
-			double soilCarbonMgInputFromLitterFall = biomassParameters.getLitterFallAnnualCarbonMg(aliveTrees, manager);
+			double soilCarbonMgInputFromLitterFall = 0d;
+			double soilCargonMgInputFromFineRootTurnover = 0d;
+			for (int id : treeCollManager.getTreeIdsOfThisStatusInThisStand(StatusClass.alive, s)) {
+				MEMSCompatibleTree t = (MEMSCompatibleTree) treeCollManager.getTree(id);
+				soilCarbonMgInputFromLitterFall += biomassParameters.getLitterFallAnnualCarbonMg(t, manager);
+				soilCargonMgInputFromFineRootTurnover += biomassParameters.getFineRootDetritusAnnualCarbonMg(t, manager);
+			}
 			aboveGroundMap.put(s, soilCarbonMgInputFromLitterFall / s.getAreaHa());
-			double soilCargonMgInputFromFineRootTurnover = biomassParameters.getFineRootDetritusAnnualCarbonMg(aliveTrees, manager);
 			belowGroundMap.put(s, soilCargonMgInputFromFineRootTurnover / s.getAreaHa());
 		}
 		aboveGroundMap.interpolateIfNeeded();
@@ -224,25 +310,21 @@ public class CATTask extends AbstractGenericTask {
 		manager.getMEMS().simulate();
 	}
 
-	@SuppressWarnings("unchecked")
 	private void registerTrees() {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Registering trees...");
 
 		List<CATCompatibleStand> stands = manager.getTimeTable().getStandsForThisRealization();
 
-		final Collection<CATCompatibleTree> retrievedTreesFromStep = new ArrayList<CATCompatibleTree>();
 		for (CATCompatibleStand stand : stands) {
 			for (StatusClass statusClass : StatusClass.values()) {
-				retrievedTreesFromStep.clear();
-				retrievedTreesFromStep.addAll(stand.getTrees(statusClass));
-				if (statusClass == StatusClass.alive && stand instanceof CATSaplingsProvider) {
-					retrievedTreesFromStep.addAll(((CATSaplingsProvider) stand).getSaplings());
+				for (CATCompatibleTree t : manager.getTreesToBeRegistered(stand, statusClass)) {
+					manager.registerTree(statusClass, stand, t);
 				}
-				if (!retrievedTreesFromStep.isEmpty()) {
-					for (CATCompatibleTree t : retrievedTreesFromStep) {
-							manager.registerTree(statusClass, stand, t);
-					} 
+				if (statusClass == StatusClass.alive && stand instanceof CATSaplingsProvider) {
+					for (CATSapling t : ((CATSaplingsProvider) stand).getSaplings()) {
+						manager.registerTree(statusClass, stand, t);
+					}
 				}
 			}
 		}
@@ -250,7 +332,7 @@ public class CATTask extends AbstractGenericTask {
 
 
 	private void retrieveInitialConditions() {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Retrieving initial conditions if available...");
 
 		List<CATCompatibleStand> stands = manager.getTimeTable().getStandsForThisRealization();
@@ -267,21 +349,95 @@ public class CATTask extends AbstractGenericTask {
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void logAndBuckTrees() throws Exception {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null,"Bucking harvested trees into wood pieces...");
 
 		manager.setSimulationValid(false);
 
-		TreeLogger logger = caller.getCarbonToolSettings().getTreeLogger();
+		TreeLogger logger = getSettings().getTreeLogger();
 		Collection<CATCompatibleTree> cutTrees = manager.treeCollManager.getAllTreesOfThisStatus(StatusClass.cut);
+		CATStageCache stageCache = manager.getStageCache();
+		if (stageCache.isEnabled()) {
+			String configuration = CATStageCache.getLogAndBuckConfiguration(logger);
+			String key = CATStageCache.getLogAndBuckKey(configuration, manager.getMonteCarloRealizationId(), cutTrees);
+			manager.logAndBuckStageConfiguration = configuration;
+			manager.logAndBuckStageKey = key;
+			CATStageCache.LoggedWoodPieces loggedWoodPieces = stageCache.getLoggedWoodPieces(key, cutTrees);
+			if (loggedWoodPieces != null) {
+				loggedWoodPieces.restore(logger);
+				setProgress((int) (100 * (double) 1 / Task.getNumberOfLongTasks()));
+				return;
+			}
+			runTreeLogger(logger, cutTrees);
+			stageCache.putLoggedWoodPieces(configuration, key, cutTrees, logger.getWoodPieces());
+		} else {
+			runTreeLogger(logger, cutTrees);
+		}
+	}
+	
+	private void runTreeLogger(TreeLogger<?,?> logger, Collection<CATCompatibleTree> cutTrees) {
+		if (isRealizationInvariant(logger)) {
+			runRealizationInvariantTreeLogger(logger, cutTrees);
+		} else {
+			runTreeLoggerOnTheseTrees(logger, cutTrees);
+		}
+	}
+	
+	/*
+	 * The BasicTreeLogger class cannot implement the CATRealizationInvariantTreeLogger interface. 
+	 * Its wood pieces are shared only if the user has enabled this option.
+	 */
+	private boolean isRealizationInvariant(TreeLogger<?,?> logger) {
+		if (logger instanceof CATRealizationInvariantTreeLogger) {
+			return ((CATRealizationInvariantTreeLogger) logger).isRealizationInvariant();
+		} else {
+			return logger.getClass().equals(BasicTreeLogger.class) && getCompartmentManager().isBasicTreeLoggerRealizationInvariant();
+		}
+	}
+	
+	/**
+	 * Log the trees that have not been logged yet in this run and retrieve the wood pieces of 
+	 * the others from the shared map of the compartment manager. <p>
+	 * A tree that has not produced any wood piece is not in the map of the tree logger. It is 
+	 * recorded with the NoWoodPiece collection in the shared map.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void runRealizationInvariantTreeLogger(TreeLogger logger, Collection<CATCompatibleTree> cutTrees) {
+		Map<LoggableTree, Collection<WoodPiece>> sharedWoodPieces = getCompartmentManager().getSharedWoodPieces();
+		List<CATCompatibleTree> treesToBeLogged = new ArrayList<CATCompatibleTree>();
+		for (CATCompatibleTree t : cutTrees) {
+			if (!sharedWoodPieces.containsKey(t)) {
+				treesToBeLogged.add(t);
+			}
+		}
+		if (!treesToBeLogged.isEmpty()) {
+			runTreeLoggerOnTheseTrees(logger, treesToBeLogged);
+			Map<LoggableTree, Collection<WoodPiece>> woodPieces = logger.getWoodPieces();
+			for (CATCompatibleTree t : treesToBeLogged) {
+				Collection<WoodPiece> pieces = woodPieces.get(t);
+				sharedWoodPieces.put(t, pieces == null ? NoWoodPiece : Collections.unmodifiableCollection(pieces));
+			}
+		}
+		logger.getWoodPieces().clear();
+		for (CATCompatibleTree t : cutTrees) {
+			Collection<WoodPiece> pieces = sharedWoodPieces.get(t);
+			if (pieces != NoWoodPiece) {
+				logger.getWoodPieces().put(t, pieces);
+			}
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void runTreeLoggerOnTheseTrees(TreeLogger logger, Collection<CATCompatibleTree> cutTrees) {
 		if (!cutTrees.isEmpty()) {
-			if (caller.guiInterface != null) {
+			if (isListenedByInterface()) {
 				logger.addTreeLoggerListener(caller.getUI()); 
 			}
 //			logger.init(convertMapIntoCollectionOfLoggableTrees());		
 			logger.init(cutTrees);
+			getCompartmentManager().addLoggedTrees(cutTrees.size());
 			logger.run();		// woodPieces collection is cleared here
-			if (caller.guiInterface != null) {
+			if (isListenedByInterface()) {
 				logger.removeTreeLoggerListener(caller.getUI()); 
 			}			
 			if (!logger.isCorrectlyTerminated()) {
@@ -299,15 +455,48 @@ public class CATTask extends AbstractGenericTask {
 	}
 	
 
-	private ProductionProcessorManager getProcessorManager() {return caller.getCarbonToolSettings().getCurrentProductionProcessorManager();}
+	private ProductionProcessorManager getProcessorManager() {return getSettings().getCurrentProductionProcessorManager();}
 	
 	/**
 	 * Task: process the logs into end use wood products
 	 * @throws Exception
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes"})
 	private void createEndUseWoodProductsFromWoodPieces() throws Exception {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
+		CATStageCache stageCache = manager.getStageCache();
+		if (stageCache.isEnabled()) {
+			List<CATCompatibleTree> trees = new ArrayList<CATCompatibleTree>();
+			trees.addAll(manager.treeCollManager.getAllTreesOfThisStatus(StatusClass.dead));
+			trees.addAll(manager.treeCollManager.getAllTreesOfThisStatus(StatusClass.windfall));
+			String configuration = CATStageCache.getWoodProductsConfiguration(manager.logAndBuckStageConfiguration, 
+					manager.getCarbonToolSettings().getCurrentBiomassParameters(), 
+					manager.getRunContext().getSensitivitySettings(), 
+					manager.getApplicationScale());
+			String key = CATStageCache.getWoodProductsKey(configuration, manager.logAndBuckStageKey, trees);
+			CATStageCache.WoodProducts woodProducts = stageCache.getWoodProducts(key, trees);
+			if (woodProducts != null) {
+				getProcessorManager().resetCarbonUnitMap();
+				woodProducts.replay(getProcessorManager());
+				setProgress((int) ((double) (currentTask.ordinal() + 1) * 100 / Task.getNumberOfLongTasks()));
+				return;
+			}
+			woodProductRecorder = new CATStageCache.WoodProductRecorder();
+			try {
+				processWoodPiecesAndWoodyDebris();
+				if (!isCancelled()) {
+					stageCache.putWoodProducts(configuration, key, trees, woodProductRecorder);
+				}
+			} finally {
+				woodProductRecorder = null;
+			}
+		} else {
+			processWoodPiecesAndWoodyDebris();
+		}
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes"})
+	private void processWoodPiecesAndWoodyDebris() throws Exception {
+		CATCompartmentManager manager = getCompartmentManager();
 		ApplicationScale applicationScale = manager.getApplicationScale();
 
 		final StatusClass cutStatus = StatusClass.cut;
@@ -316,10 +505,10 @@ public class CATTask extends AbstractGenericTask {
 		
 		BiomassParameters biomassParameters = manager.getCarbonToolSettings().getCurrentBiomassParameters();
 		getProcessorManager().resetCarbonUnitMap();
-		if (!caller.getCarbonToolSettings().getTreeLogger().getWoodPieces().isEmpty()) {
+		if (!getSettings().getTreeLogger().getWoodPieces().isEmpty()) {
 			int numberOfTreesProcessed = 0;
-			double progressFactor = (double) 100 / caller.getCarbonToolSettings().getTreeLogger().getWoodPieces().size() / Task.values().length;
-			TreeLogger treeLogger = caller.getCarbonToolSettings().getTreeLogger();
+			double progressFactor = (double) 100 / getSettings().getTreeLogger().getWoodPieces().size() / Task.values().length;
+			TreeLogger treeLogger = getSettings().getTreeLogger();
 			outerLoop:
 				for (LoggableTree t : (Collection<LoggableTree>) treeLogger.getWoodPieces().keySet()) {
 
@@ -331,7 +520,7 @@ public class CATTask extends AbstractGenericTask {
 					int nbYearsToPreviousMeasurement = getNumberOfYearsBetweenStandOfThisTreeAndPreviousStand(manager, tree, cutStatus);
 					double annualBreakdownRatio = getAnnualBreakdownRatio(applicationScale, nbYearsToPreviousMeasurement);
 
-					double commercialVolumeM3 = biomassParameters.getCommercialVolumeM3(tree);
+					double commercialVolumeM3 = biomassParameters.getCommercialVolumeM3(tree, manager);
 					double volumeM3ToBiomassMgFactor = biomassParameters.getCommercialBiomassMg(tree, manager) / commercialVolumeM3;
 					double volumeM3ToCarbonMgFactor = biomassParameters.getCommercialCarbonMg(tree, manager) / commercialVolumeM3;
 					Collection<WoodPiece> woodPieces = (Collection<WoodPiece>) treeLogger.getWoodPieces().get(t);
@@ -367,7 +556,7 @@ public class CATTask extends AbstractGenericTask {
 								nutrientConcentrations = ((CATAdditionalElementsProvider) woodPiece).getAdditionalElementConcentrations();
 							}
 
-							AmountMap<Element> woodAmountMap = new AmountMap<Element>();
+							woodAmounts.clear();
 							double woodVolumeM3 = woodPiece.getWeightedWoodVolumeM3() * annualBreakdownRatio;
 							double woodBiomassMg = woodVolumeM3 * volumeM3ToBiomassMgFactor;
 							double woodCarbonMg = woodVolumeM3 * volumeM3ToCarbonMgFactor;
@@ -381,20 +570,15 @@ public class CATTask extends AbstractGenericTask {
 //							if (Double.isNaN(woodCarbonMg)) {
 //								int u = 0;
 //							}
-							woodAmountMap.put(Element.Volume, woodVolumeM3);
-							woodAmountMap.put(Element.Biomass, woodBiomassMg);
-							woodAmountMap.put(Element.C, woodCarbonMg);
+							woodAmounts.set(Element.Volume, woodVolumeM3);
+							woodAmounts.set(Element.Biomass, woodBiomassMg);
+							woodAmounts.set(Element.C, woodCarbonMg);
 
 							if (nutrientConcentrations != null) {
-								AmountMap nutrientAmounts = nutrientConcentrations.multiplyByAScalar(woodBiomassMg);	// the amounts are expressed here in kg
-								cleanAmountMapOfAdditionalElementsBeforeMerging(nutrientAmounts);	// To make sure volume biomass and carbon will not be double counted
-								woodAmountMap.putAll(nutrientAmounts);
+								setAdditionalElements(woodAmounts, nutrientConcentrations, woodBiomassMg);	// the amounts are expressed here in kg
 							}
 
-							Map<BiomassType, AmountMap<Element>> amountMaps = new HashMap<BiomassType, AmountMap<Element>>();
-							amountMaps.put(BiomassType.Wood, woodAmountMap);
-
-							AmountMap<Element> barkAmountMap = new AmountMap<Element>();
+							barkAmounts.clear();
 							double barkVolumeM3 = woodPiece.getWeightedBarkVolumeM3() * annualBreakdownRatio;
 							double barkBiomassMg = barkVolumeM3 * volumeM3ToBiomassMgFactor; // TODO should be the bark basic density here
 							double barkCarbonMg = barkVolumeM3 * volumeM3ToCarbonMgFactor;   // TODO should be the bark content ratio here
@@ -407,33 +591,32 @@ public class CATTask extends AbstractGenericTask {
 //							if (Double.isNaN(barkCarbonMg)) {
 //								int u = 0;
 //							}
-							barkAmountMap.put(Element.Volume, barkVolumeM3);
-							barkAmountMap.put(Element.Biomass, barkBiomassMg);
-							barkAmountMap.put(Element.C, barkCarbonMg);
+							barkAmounts.set(Element.Volume, barkVolumeM3);
+							barkAmounts.set(Element.Biomass, barkBiomassMg);
+							barkAmounts.set(Element.C, barkCarbonMg);
 
 							if (nutrientConcentrations != null) {
-								AmountMap nutrientAmounts = nutrientConcentrations.multiplyByAScalar(barkBiomassMg);	// the amounts are expressed here in kg
-								cleanAmountMapOfAdditionalElementsBeforeMerging(nutrientAmounts);	// To make sure volume biomass and carbon will not be double counted
-								barkAmountMap.putAll(nutrientAmounts);
+								setAdditionalElements(barkAmounts, nutrientConcentrations, barkBiomassMg);	// the amounts are expressed here in kg
 							}
-							amountMaps.put(BiomassType.Bark, barkAmountMap);
 							CATCompatibleTree treeOfThisWoodPiece = (CATCompatibleTree) woodPiece.getTreeFromWhichComesThisPiece();
 
 							if (shouldBeBrokenDownAnnually(applicationScale, nbYearsToPreviousMeasurement)) {
 								for (int i = 0; i < nbYearsToPreviousMeasurement; i++) {
-									getProcessorManager().processWoodPiece(woodPiece.getLogCategory(), 
+									processWoodPiece(woodPiece.getLogCategory(), 
 											currentDateIndex - i, 
 											samplingUnitID, 
-											amountMaps, 
+											woodAmounts, 
+											barkAmounts, 
 											treeOfThisWoodPiece,
 											cutStatus);
 
 								}
 							} else {
-								getProcessorManager().processWoodPiece(woodPiece.getLogCategory(), 
+								processWoodPiece(woodPiece.getLogCategory(), 
 										currentDateIndex, 
 										samplingUnitID, 
-										amountMaps, 
+										woodAmounts, 
+										barkAmounts, 
 										treeOfThisWoodPiece,
 										cutStatus);
 							}
@@ -514,10 +697,22 @@ public class CATTask extends AbstractGenericTask {
 		return applicationScale == ApplicationScale.FMU && nbYearsToPreviousMeasurement > 0;
 	}
 	
-	private void cleanAmountMapOfAdditionalElementsBeforeMerging(AmountMap<Element> additionalElement) {
-		additionalElement.remove(Element.Volume);
-		additionalElement.remove(Element.Biomass);
-		additionalElement.remove(Element.C);
+	/**
+	 * Set the amounts of the additional elements from their concentrations. <p>
+	 * The concentrations of volume, biomass and carbon are ignored to make sure they will not be double counted.
+	 * @param amounts the ElementVector instance to be completed
+	 * @param concentrations the concentrations provided by the CATAdditionalElementsProvider instance
+	 * @param biomassMg the biomass (Mg)
+	 */
+	private static void setAdditionalElements(ElementVector amounts, AmountMap<Element> concentrations, double biomassMg) {
+		for (Element e : concentrations.keySet()) {
+			if (e != Element.Volume && e != Element.Biomass && e != Element.C) {
+				Double concentration = concentrations.get(e);
+				if (concentration != null) {
+					amounts.set(e, concentration * biomassMg);
+				}
+			}
+		}
 	}
 	
 	
@@ -530,7 +725,7 @@ public class CATTask extends AbstractGenericTask {
 			String samplingUnitID, 
 			WoodyDebrisProcessorID WoodDebrisType,
 			ApplicationScale applicationScale) {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 		int nbYearsToPreviousMeasurement = getNumberOfYearsBetweenStandOfThisTreeAndPreviousStand(manager, tree, statusClass);
 		double annualBreakdownRatio = getAnnualBreakdownRatio(applicationScale, nbYearsToPreviousMeasurement);
 		
@@ -545,35 +740,34 @@ public class CATTask extends AbstractGenericTask {
 			double woodBiomassMg = brokenDownBiomassMg * propWood; 
 			double woodVolumeM3 = brokenDownVolumeM3 * propWood;
 			
-			AmountMap<Element> woodAmountMap = new AmountMap<Element>();		// No calculation for nutrients left in the forest here
-			woodAmountMap.put(Element.Volume, woodVolumeM3);
-			woodAmountMap.put(Element.Biomass, woodBiomassMg);
-			woodAmountMap.put(Element.C, woodCarbonMg);
-			Map<BiomassType, AmountMap<Element>> amountMaps = new HashMap<BiomassType, AmountMap<Element>>();
-			amountMaps.put(BiomassType.Wood, woodAmountMap);
+			woodAmounts.clear();		// No calculation for nutrients left in the forest here
+			woodAmounts.set(Element.Volume, woodVolumeM3);
+			woodAmounts.set(Element.Biomass, woodBiomassMg);
+			woodAmounts.set(Element.C, woodCarbonMg);
 			
 			double barkCarbonMg = brokenDownCarbonMg - woodCarbonMg;
 			double barkBiomassMg = brokenDownBiomassMg - woodBiomassMg; 
 			double barkVolumeM3 = brokenDownVolumeM3 - woodVolumeM3;
-			AmountMap<Element> barkAmountMap = new AmountMap<Element>();						// No calculation for nutrients left in the forest here
-			barkAmountMap.put(Element.Volume, barkVolumeM3);
-			barkAmountMap.put(Element.Biomass, barkBiomassMg);
-			barkAmountMap.put(Element.C, barkCarbonMg);
-			amountMaps.put(BiomassType.Bark, barkAmountMap);
+			barkAmounts.clear();						// No calculation for nutrients left in the forest here
+			barkAmounts.set(Element.Volume, barkVolumeM3);
+			barkAmounts.set(Element.Biomass, barkBiomassMg);
+			barkAmounts.set(Element.C, barkCarbonMg);
 			
 			if (shouldBeBrokenDownAnnually(applicationScale, nbYearsToPreviousMeasurement)) {
 				for (int i = 0; i < nbYearsToPreviousMeasurement; i++) {
-					getProcessorManager().processWoodyDebris(dateIndex - i, 
+					processWoodyDebris(dateIndex - i, 
 							samplingUnitID, 
-							amountMaps, 
+							woodAmounts, 
+							barkAmounts, 
 							tree,
 							statusClass,
 							WoodDebrisType);
 				}
 			} else {
-				getProcessorManager().processWoodyDebris(dateIndex, 
+				processWoodyDebris(dateIndex, 
 						samplingUnitID, 
-						amountMaps, 
+						woodAmounts, 
+						barkAmounts, 
 						tree,
 						statusClass,
 						WoodDebrisType);
@@ -581,42 +775,63 @@ public class CATTask extends AbstractGenericTask {
 		}
 	}
 
+	private void processWoodPiece(LogCategory logCategory,
+			int dateIndex,
+			String samplingUnitID,
+			ElementVector woodAmounts,
+			ElementVector barkAmounts,
+			CATCompatibleTree tree,
+			StatusClass statusClass) {
+		if (woodProductRecorder != null) {
+			woodProductRecorder.recordWoodPiece(logCategory, dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass);
+		}
+		getProcessorManager().processWoodPiece(logCategory, dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass);
+	}
+	
+	private void processWoodyDebris(int dateIndex,
+			String samplingUnitID,
+			ElementVector woodAmounts,
+			ElementVector barkAmounts,
+			CATCompatibleTree tree,
+			StatusClass statusClass,
+			WoodyDebrisProcessorID woodyDebrisType) {
+		if (woodProductRecorder != null) {
+			woodProductRecorder.recordWoodyDebris(woodyDebrisType, dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass);
+		}
+		getProcessorManager().processWoodyDebris(dateIndex, samplingUnitID, woodAmounts, barkAmounts, tree, statusClass, woodyDebrisType);
+	}
+
 	private void createWoodyDebris(StatusClass statusClass, WoodyDebrisProcessorID type) {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
-		Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> treeMap = manager.treeCollManager.getTrees(statusClass);
+		CATCompartmentManager manager = getCompartmentManager();
+		TreeCollectionManager treeCollManager = manager.treeCollManager;
 		BiomassParameters biomassParameters = manager.getCarbonToolSettings().getCurrentBiomassParameters();
-		for (CATCompatibleStand stand : treeMap.keySet()) {
+		for (CATCompatibleStand stand : treeCollManager.getStandsWithTreesOfThisStatus(statusClass)) {
 			if (isCancelled()) {
 				break;
 			}
-			int dateIndex = caller.getCarbonCompartmentManager().getTimeTable().getIndexOfThisStandOnTheTimeTable(stand);
-			Map<String, Map<String, Collection<CATCompatibleTree>>> oMap = treeMap.get(stand);
-			for (String samplingUnitID : oMap.keySet()) {
-				Map<String, Collection<CATCompatibleTree>> oInnerMap = oMap.get(samplingUnitID);
-				for (String speciesName : oInnerMap.keySet()) {
-					Collection<CATCompatibleTree> trees = oInnerMap.get(speciesName);
-					for (CATCompatibleTree t : trees) {
-						double carbonMg = 0d, biomassMg = 0d, volumeM3 = 0d;
-						switch(type) {
-						case FineWoodyDebris:
-							carbonMg = biomassParameters.getAboveGroundCarbonMg(t, manager) - biomassParameters.getCommercialCarbonMg(t, manager);
-							biomassMg = biomassParameters.getAboveGroundBiomassMg(t, manager) - biomassParameters.getCommercialBiomassMg(t, manager);
-							volumeM3 = biomassParameters.getAboveGroundVolumeM3(t, manager) - biomassParameters.getCommercialVolumeM3(t);
-							break;
-						case CommercialWoodyDebris:
-							carbonMg = biomassParameters.getCommercialCarbonMg(t, manager);
-							biomassMg = biomassParameters.getCommercialBiomassMg(t, manager);
-							volumeM3 = biomassParameters.getCommercialVolumeM3(t);
-							break;
-						case CoarseWoodyDebris:
-							carbonMg = biomassParameters.getBelowGroundCarbonMg(t, manager);
-							biomassMg = biomassParameters.getBelowGroundBiomassMg(t, manager);
-							volumeM3 = biomassParameters.getBelowGroundVolumeM3(t, manager);
-							break;
-						}
-						processUnaccountedCarbon(t, statusClass, carbonMg, biomassMg, volumeM3, dateIndex, samplingUnitID, type, manager.getApplicationScale());
-					}
-				}				
+			int dateIndex = manager.getTimeTable().getIndexOfThisStandOnTheTimeTable(stand);
+			for (int id : treeCollManager.getTreeIdsOfThisStatusInThisStand(statusClass, stand)) {
+				CATCompatibleTree t = treeCollManager.getTree(id);
+				String samplingUnitID = treeCollManager.getSamplingUnitID(id);
+				double carbonMg = 0d, biomassMg = 0d, volumeM3 = 0d;
+				switch(type) {
+				case FineWoodyDebris:
+					carbonMg = biomassParameters.getAboveGroundCarbonMg(t, manager) - biomassParameters.getCommercialCarbonMg(t, manager);
+					biomassMg = biomassParameters.getAboveGroundBiomassMg(t, manager) - biomassParameters.getCommercialBiomassMg(t, manager);
+					volumeM3 = biomassParameters.getAboveGroundVolumeM3(t, manager) - biomassParameters.getCommercialVolumeM3(t, manager);
+					break;
+				case CommercialWoodyDebris:
+					carbonMg = biomassParameters.getCommercialCarbonMg(t, manager);
+					biomassMg = biomassParameters.getCommercialBiomassMg(t, manager);
+					volumeM3 = biomassParameters.getCommercialVolumeM3(t, manager);
+					break;
+				case CoarseWoodyDebris:
+					carbonMg = biomassParameters.getBelowGroundCarbonMg(t, manager);
+					biomassMg = biomassParameters.getBelowGroundBiomassMg(t, manager);
+					volumeM3 = biomassParameters.getBelowGroundVolumeM3(t, manager);
+					break;
+				}
+				processUnaccountedCarbon(t, statusClass, carbonMg, biomassMg, volumeM3, dateIndex, samplingUnitID, type, manager.getApplicationScale());
 			}
 		}
 	}
@@ -627,11 +842,11 @@ public class CATTask extends AbstractGenericTask {
 	 */
 	private void actualizeCarbon() throws Exception {
 		setProgress((int) ((double) (currentTask.ordinal()) * 100d / Task.values().length));
-		if (!caller.getCarbonToolSettings().formerImplementation) {
-			getProcessorManager().actualizeCarbonUnits(caller.getCarbonCompartmentManager());
+		if (!getSettings().formerImplementation) {
+			getProcessorManager().actualizeCarbonUnits(getCompartmentManager());
 		} else {
-			ProductionLineManager marketManager = caller.getCarbonToolSettings().getProductionLines();
-			marketManager.actualizeCarbonUnits(caller.getCarbonCompartmentManager());
+			ProductionLineManager marketManager = getSettings().getProductionLines();
+			marketManager.actualizeCarbonUnits(getCompartmentManager());
 		}
 		setProgress((int) ((double) (currentTask.ordinal() + 1) * 100d / Task.getNumberOfLongTasks()));
 	}
@@ -642,7 +857,7 @@ public class CATTask extends AbstractGenericTask {
 	 * @throws Exception
 	 */
 	private void calculateCarbonInCompartments() throws Exception {
-		CATCompartmentManager manager = caller.getCarbonCompartmentManager();
+		CATCompartmentManager manager = getCompartmentManager();
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Calculating carbon in the different compartments...");
 		
 		manager.resetCompartmentsAndSetCarbonUnitCollections();
@@ -659,7 +874,9 @@ public class CATTask extends AbstractGenericTask {
 			REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, null, "Integrated carbon in compartment " + carbonCompartment.getCompartmentID().name() + " = " + carbonCompartment.getIntegratedCarbon());
 		}
 		manager.setSimulationValid(true);
-		manager.storeResults();
+		if (workerManager == null) {	// otherwise the results are stored by the CATRealizationExecutor instance
+			manager.storeResults();
+		}
 	}
 
 }
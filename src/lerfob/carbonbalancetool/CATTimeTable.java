@@ -25,7 +25,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import repicea.simulation.covariateproviders.plotlevel.StochasticInformationProvider;
 
 /**
@@ -107,6 +106,21 @@ public class CATTimeTable {
 		this.initialAgeYr = initialAgeYr;
 	}
 
+	/**
+	 * Copy constructor. <p>
+	 * The dates and the stands are copied but the current realization is not. This
+	 * constructor is used to provide each worker of the CATRealizationExecutor class
+	 * with its own time table.
+	 * @param original the original CATTimeTable instance
+	 */
+	CATTimeTable(CATTimeTable original) {
+		this.internalTimeTable = new ArrayList<Integer>(original.internalTimeTable);
+		this.standMap = new LinkedHashMap<CATCompatibleStand, Integer>(original.standMap);
+		this.realizationStandMap = new LinkedHashMap<CATCompatibleStand, Integer>();
+		this.currentStands = new ArrayList<CATCompatibleStand>();
+		this.lastStandDate = original.lastStandDate;
+		this.initialAgeYr = original.initialAgeYr;
+	}
 
 	int getIndexOfThisStandOnTheTimeTable(CATCompatibleStand stand) {
 		return realizationStandMap.get(stand);
@@ -152,10 +166,10 @@ public class CATTimeTable {
 	public int lastIndexOf(int dateYr) {return internalTimeTable.lastIndexOf(dateYr);}
 
 	@SuppressWarnings("unchecked")
-	void setMonteCarloRealization(int realizationId) {
+	void setMonteCarloRealization(int realizationId, boolean isStochastic) {
 		realizationStandMap.clear();
 		currentStands.clear();
-		if (CATSensitivityAnalysisSettings.getInstance().isModelStochastic()) {
+		if (isStochastic) {
 			for (CATCompatibleStand stand : standMap.keySet()) {
 				int indexOfThisStand = standMap.get(stand);
 				List<Integer> monteCarloIds = ((StochasticInformationProvider<? extends CATCompatibleStand>) stand).getRealizationIds();
@@ -27,6 +27,7 @@ import java.util.TreeMap;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.CarbonUnitList;
+import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnit;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
 import repicea.math.Matrix;
 import repicea.simulation.processsystem.AmountMap;
@@ -232,11 +233,87 @@ public class CATUtilityMaps {
 				outputMap.put(speciesName, new AmountMap<Element>());
 			}
 			AmountMap<Element> carrier = outputMap.get(speciesName);
-			carrier.putAll(carbonUnit.getAmountMap());
+			carbonUnit.getElementVector().addTo(carrier);
 		}
 		return outputMap;
 	}
 
+	/**
+	 * Provide a Map with the use classes and the species names as keys and the total amount maps as values. <p>
+	 * The carbon units are scanned only once. 
+	 * @param speciesList a List of strings, those being the species names
+	 * @param lists some CarbonUnitList instances. The carbon units that are not EndUseWoodProductCarbonUnit instances are skipped
+	 * @return a CATUseClassSpeciesAmountMap instance
+	 */
+	public static CATUseClassSpeciesAmountMap convertToUseClassSpeciesMap(List<String> speciesList, CarbonUnitList... lists) {
+		CATUseClassSpeciesAmountMap outputMap = new CATUseClassSpeciesAmountMap(speciesList);
+		for (CarbonUnitList list : lists) {
+			if (list != null) {
+				for (CarbonUnit carbonUnit : list) {
+					addToUseClassSpeciesMap(outputMap, carbonUnit);
+				}
+			}
+		}
+		return outputMap;
+	}
+
+	/**
+	 * Provide a Map with the creation dates, the use classes and the species names as keys and the total amount maps as values. <p>
+	 * The carbon units are retrieved through the creation date index of the lists. If at least one of the 
+	 * lists is not empty and the species list is not empty, there is an entry for each date of the time table, 
+	 * as in the former implementation based on the {@link CarbonUnitList#filterList(Class, String, Object)} method, 
+	 * since the CATSpeciesAmountMap instances contain all the species of the species list.
+	 * @param timeTable the CATTimeTable instance 
+	 * @param speciesList a List of strings, those being the species names
+	 * @param lists some CarbonUnitList instances. The carbon units that are not EndUseWoodProductCarbonUnit instances are skipped
+	 * @return a Map of dates (yr) and CATUseClassSpeciesAmountMap instances
+	 */
+	public static Map<Integer, CATUseClassSpeciesAmountMap> convertToDateUseClassSpeciesMap(CATTimeTable timeTable, List<String> speciesList, CarbonUnitList... lists) {
+		Map<Integer, CATUseClassSpeciesAmountMap> outputMap = new HashMap<Integer, CATUseClassSpeciesAmountMap>();
+		boolean isEmpty = true;
+		for (CarbonUnitList list : lists) {
+			if (list != null && !list.isEmpty()) {
+				isEmpty = false;
+			}
+		}
+		if (!isEmpty) {
+			for (int i = 0; i < timeTable.size(); i++) {
+				int dateYr = timeTable.getDateYrAtThisIndex(i);
+				for (CarbonUnitList list : lists) {
+					if (list != null) {
+						for (CarbonUnit carbonUnit : list.getCarbonUnitsCreatedAt(i)) {
+							if (!outputMap.containsKey(dateYr)) {
+								outputMap.put(dateYr, new CATUseClassSpeciesAmountMap(speciesList));
+							}
+							addToUseClassSpeciesMap(outputMap.get(dateYr), carbonUnit);
+						}
+					}
+				}
+				if (!speciesList.isEmpty() && !outputMap.containsKey(dateYr)) {	// the species maps are never empty
+					outputMap.put(dateYr, new CATUseClassSpeciesAmountMap(speciesList));
+				}
+			}
+		}
+		return outputMap;
+	}
+
+	/*
+	 * The carbon units that are not end use products have no use class and they are skipped.
+	 */
+	private static void addToUseClassSpeciesMap(CATUseClassSpeciesAmountMap outputMap, CarbonUnit carbonUnit) {
+		UseClass useClass = carbonUnit instanceof EndUseWoodProductCarbonUnit ?
+				((EndUseWoodProductCarbonUnit) carbonUnit).getUseClass() :
+					null;
+		if (useClass != null) {
+			CATSpeciesAmountMap innerMap = outputMap.get(useClass);
+			String speciesName = carbonUnit.getSpeciesName();
+			if (!innerMap.containsKey(speciesName)) {
+				innerMap.put(speciesName, new AmountMap<Element>());
+			}
+			carbonUnit.getElementVector().addTo(innerMap.get(speciesName));
+		}
+	}
+
 	/**
 	 * A Map with <br>
 	 * 1st key Element instances <br>
@@ -23,6 +23,8 @@ package lerfob.carbonbalancetool;
 import java.awt.Container;
 import java.awt.Window;
 import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -42,8 +44,9 @@ import lerfob.carbonbalancetool.CATUtility.BiomassParametersName;
 import lerfob.carbonbalancetool.CATUtility.ProductionManagerName;
 import lerfob.carbonbalancetool.catdiameterbasedtreelogger.CATDiameterBasedTreeLogger;
 import lerfob.carbonbalancetool.io.CATExportTool;
+import lerfob.carbonbalancetool.io.CATGrowthSimulationRealizationListener;
+import lerfob.carbonbalancetool.io.CATGrowthSimulationRecordReader;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManagerException;
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings.VariabilitySource;
 import lerfob.treelogger.basictreelogger.BasicTreeLogger;
 import lerfob.treelogger.douglasfirfcba.DouglasFCBATreeLogger;
@@ -174,6 +177,10 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 
 	private boolean isShuttedDown;
 	
+	private int numberOfThreads = 1;
+	
+	private final CATRunContext runContext;
+	
 	/**
 	 * Constructor for stand alone application.
 	 */
@@ -187,8 +194,23 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 	 * @param mode defines how CAT is to be used. See the CATMode enum variable.
 	 */
 	public CarbonAccountingTool(CATMode mode) {
+		this(mode, CATRunContext.getDefaultContext());
+	}
+
+	/**
+	 * Constructor with a specific context. <p>
+	 * Instances with different contexts do not share their sensitivity analysis settings,
+	 * their MEMS sites and their assessment report for the global warming potential.
+	 * @param mode defines how CAT is to be used. See the CATMode enum variable.
+	 * @param runContext a CATRunContext instance
+	 */
+	public CarbonAccountingTool(CATMode mode, CATRunContext runContext) {
 		super(true); // we start the internal worker at once
+		if (runContext == null) {
+			throw new InvalidParameterException("The runContext argument cannot be null!");
+		}
 		this.mode = mode;
+		this.runContext = runContext;
 		isShuttedDown = false;
 		setSettingMemory(new SettingMemory(REpiceaSystem.getJavaIOTmpDir() + "settingsCarbonTool.ser"));
 		
@@ -211,7 +233,7 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 	@Override
 	protected void shutdown(int shutdownCode) {
 		REpiceaLogManager.logMessage(LOGGER_NAME, Level.INFO, null, "Shutting down CAT...");
-		CATSensitivityAnalysisSettings.getInstance().clear();
+		runContext.getSensitivitySettings().clear();
 		isShuttedDown = true;
 		if (mode == CATMode.STANDALONE) {		// only the stand alone mode will shutdown the JVM
 			System.exit(shutdownCode);
@@ -375,21 +397,19 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 		}
 	}
 	
-	@SuppressWarnings("unchecked")
 	private void setReferentForBiomassParameters(List<CATCompatibleStand> stands) {
 		Object referent = null;
 		if (stands != null && !stands.isEmpty()) {
 			for (CATCompatibleStand stand : stands) {
 				referent = stand;
-				Collection<?> coll = null;
+				Collection<Object> coll = new ArrayList<Object>();	// the collections provided by the stand can be read-only
 				for (StatusClass statusClass : StatusClass.values()) {
-					if (coll == null) {
-						coll = stand.getTrees(statusClass);	// here we need a merchantable tree and not a sapling
-					} else {
-						coll.addAll(stand.getTrees(statusClass));
+					Collection<?> trees = stand.getTrees(statusClass);	// here we need a merchantable tree and not a sapling
+					if (trees != null) {
+						coll.addAll(trees);
 					}
 				}
-				if (coll != null && !coll.isEmpty()) {
+				if (!coll.isEmpty()) {
 					Object obj = coll.iterator().next();
 					if (obj instanceof CATCompatibleTree) {
 						referent = obj;
@@ -441,24 +461,8 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 	 */
 	public void calculateCarbon() throws ProductionProcessorManagerException, InterruptedException {
 		if (carbonCompartmentManager.getCarbonToolSettings().isValid()) {
-			int nbReals = CATSensitivityAnalysisSettings.getInstance().getNumberOfMonteCarloRealizations();
-			if (nbReals < 1) {
-				nbReals = 1;
-			}
 			carbonCompartmentManager.summary = null; // reset the summary before going on
-			for (int i = 0; i < nbReals; i++) {
-				addTask(new CATTask(Task.RESET_MANAGER, this));
-				addTask(new SetProperRealizationTask(this, i));
-				addTask(new CATTask(Task.REGISTER_TREES, this));
-				addTask(new CATTask(Task.LOG_AND_BUCK_TREES, this));
-				addTask(new CATTask(Task.GENERATE_WOODPRODUCTS, this));
-				addTask(new CATTask(Task.RETRIEVE_INITIAL_CONDITIONS, this));
-				addTask(new CATTask(Task.ACTUALIZE_CARBON, this));
-				if (carbonCompartmentManager.isMEMSEnabled()) {
-					addTask(new CATTask(Task.RETRIEVE_SOIL_CARBON_INPUT, this));
-				}
-				addTask(new CATTask(Task.COMPILE_CARBON, this));
-			} 
+			queueCalculationTasks();
 			addTask(new CATTask(Task.UNLOCK_ENGINE, this));
 			if (isGuiEnabled()) {
 				addTask(new CATTask(Task.DISPLAY_RESULT, this));
@@ -468,6 +472,151 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 		}
 	}
 
+	private void queueCalculationTasks() {
+		int nbReals = runContext.getSensitivitySettings().getNumberOfMonteCarloRealizations();
+		if (nbReals < 1) {
+			nbReals = 1;
+		}
+		runContext.getSensitivitySettings().clearDeviates();	// the deviates of the former runs are not needed anymore
+		carbonCompartmentManager.getSharedWoodPieces().clear();	// the tree logger parameters may have changed since the last run
+		carbonCompartmentManager.resetNbLoggedTrees();
+		if (isParallelExecutionEnabled(nbReals)) {
+			addTask(new CATTask(Task.RUN_REALIZATIONS, this));
+		} else {
+			queueRealizationTasks(nbReals);
+		}
+	}
+
+	/**
+	 * Read a growth simulation one realization at a time and calculate the carbon balance of each realization
+	 * as soon as it has been read.<p>
+	 * The stands of a realization are released once its carbon balance has been calculated, so that the memory
+	 * load is that of a single realization. The results of all the realizations are gathered in the same 
+	 * Monte Carlo summary, as if the whole growth simulation had been read at once. The records of a realization
+	 * must be contiguous in the file and the species selector of the reader must already contain all the species
+	 * (see {@link CATGrowthSimulationRecordReader#scanSpecies()}). The settings must be set before calling this 
+	 * method. In GUI mode, this method must not be called from the event dispatch thread.
+	 * @param reader a CATGrowthSimulationRecordReader instance ready to read the records
+	 * @throws Exception if the records cannot be read or if the settings are invalid
+	 * @see CATGrowthSimulationRecordReader#setRealizationListener(CATGrowthSimulationRealizationListener)
+	 */
+	public void calculateCarbonByRealization(CATGrowthSimulationRecordReader reader) throws Exception {
+		carbonCompartmentManager.summary = null;
+		reader.setRealizationListener(new CATGrowthSimulationRealizationListener() {
+			@Override
+			public void realizationRead(int realization, List<CATCompatibleStand> standList) throws Exception {
+				Collections.sort(standList, StandComparator);
+				waitingStandList = standList;
+				addTask(new CATTask(Task.SET_STANDLIST, CarbonAccountingTool.this));
+				addTask(new CATTask(Task.UNLOCK_ENGINE, CarbonAccountingTool.this));
+				lockEngine();
+				if (!carbonCompartmentManager.getCarbonToolSettings().isValid()) {
+					throw new InvalidParameterException("The settings are invalid!");
+				}
+				queueCalculationTasks();	// the summary is not reset so that it gathers all the realizations
+				addTask(new CATTask(Task.UNLOCK_ENGINE, CarbonAccountingTool.this));
+				lockEngine();
+			}
+		});
+		try {
+			reader.readAllRecords();
+		} finally {
+			reader.setRealizationListener(null);
+		}
+		if (isGuiEnabled()) {
+			addTask(new CATTask(Task.DISPLAY_RESULT, this));
+		}
+	}
+
+	private boolean isParallelExecutionEnabled(int nbReals) {
+		return numberOfThreads > 1 && nbReals > 1 && 
+				!carbonCompartmentManager.getCarbonToolSettings().formerImplementation &&
+				carbonCompartmentManager.getCarbonToolSettings().getCurrentProductionProcessorManager().areProcessorsShareable();
+	}
+	
+	private void queueRealizationTasks(int nbReals) {
+		for (int i = 0; i < nbReals; i++) {
+			addTask(new CATTask(Task.RESET_MANAGER, this));
+			addTask(new SetProperRealizationTask(this, i));
+			addTask(new CATTask(Task.REGISTER_TREES, this));
+			addTask(new CATTask(Task.LOG_AND_BUCK_TREES, this));
+			addTask(new CATTask(Task.GENERATE_WOODPRODUCTS, this));
+			addTask(new CATTask(Task.RETRIEVE_INITIAL_CONDITIONS, this));
+			addTask(new CATTask(Task.ACTUALIZE_CARBON, this));
+			if (carbonCompartmentManager.isMEMSEnabled()) {
+				addTask(new CATTask(Task.RETRIEVE_SOIL_CARBON_INPUT, this));
+			}
+			addTask(new CATTask(Task.COMPILE_CARBON, this));
+		} 
+	}
+
+	/**
+	 * Set the number of threads for the calculation of the carbon balance. <p>
+	 * If the number of threads is greater than 1, the Monte Carlo realizations are run in 
+	 * parallel. The results are the same as those obtained with a single thread. The 
+	 * former implementation of the production lines does not support this option and 
+	 * always runs on a single thread. The same goes for production lines with processors
+	 * that cannot be shared across threads (see {@link lerfob.carbonbalancetool.productionlines.ProductionProcessorManager#areProcessorsShareable()}).
+	 * @param numberOfThreads an integer (must be equal to or greater than 1)
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new InvalidParameterException("The numberOfThreads argument must be equal to or greater than 1!");
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Provide the number of threads for the calculation of the carbon balance.
+	 * @return an integer (1 by default)
+	 */
+	public int getNumberOfThreads() {return numberOfThreads;}
+
+	/**
+	 * Enable or disable the cache of the LOG_AND_BUCK_TREES and GENERATE_WOODPRODUCTS stages. <p>
+	 * When the cache is enabled, the wood pieces and the wood products of a realization are reused
+	 * in subsequent calculations as long as the trees, the tree logger parameters, the biomass parameters
+	 * and the sensitivity analysis settings are unchanged. The cache is cleared whenever a new stand list 
+	 * is set. The tool must have been initialized beforehand.
+	 * @param enabled a boolean
+	 * @see CATStageCache
+	 */
+	public void setStageCacheEnabled(boolean enabled) {
+		getCarbonCompartmentManager().getStageCache().setEnabled(enabled);
+	}
+
+	/**
+	 * Indicate whether the cache of the LOG_AND_BUCK_TREES and GENERATE_WOODPRODUCTS stages is enabled.
+	 * @return a boolean (false by default)
+	 */
+	public boolean isStageCacheEnabled() {return getCarbonCompartmentManager().getStageCache().isEnabled();}
+
+	/**
+	 * Enable or disable the grouping of identical trees into weighted tree classes. <p>
+	 * The tool must have been initialized beforehand.
+	 * @param enabled a boolean
+	 * @see CATCompartmentManager#setTreeCompressionEnabled(boolean)
+	 */
+	public void setTreeCompressionEnabled(boolean enabled) {
+		getCarbonCompartmentManager().setTreeCompressionEnabled(enabled);
+	}
+
+	/**
+	 * Enable or disable the sharing of the wood pieces of the BasicTreeLogger class across the realizations. <p>
+	 * The tool must have been initialized beforehand.
+	 * @param enabled a boolean
+	 * @see CATCompartmentManager#setBasicTreeLoggerRealizationInvariant(boolean)
+	 */
+	public void setBasicTreeLoggerRealizationInvariant(boolean enabled) {
+		getCarbonCompartmentManager().setBasicTreeLoggerRealizationInvariant(enabled);
+	}
+
+	/**
+	 * Provide the context of this CarbonAccountingTool instance.
+	 * @return a CATRunContext instance
+	 */
+	public CATRunContext getRunContext() {return runContext;}
+
 	
 	protected boolean isGuiEnabled() {
 		return mode == CATMode.STANDALONE || mode == CATMode.FROM_OTHER_APP;
@@ -597,7 +746,7 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 	 * @param enabled true to enable or false to disable
 	 */
 	public void setVariabilitySource(VariabilitySource source, Distribution.Type type, boolean enabled) {
-		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(source, type, enabled, source.getSuggestedIPCCValue() * .01);
+		runContext.getSensitivitySettings().setVariabilitySource(source, type, enabled, source.getSuggestedIPCCValue() * .01);
 	}	
 
 	/**
@@ -608,7 +757,7 @@ public class CarbonAccountingTool extends AbstractGenericEngine implements REpic
 	 * @param multiplier a value between 0.0 and 0.5 (50%)
 	 */
 	public void setVariabilitySource(VariabilitySource source, Distribution.Type type, boolean enabled, double multiplier) {
-		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(source, type, enabled, multiplier);
+		runContext.getSensitivitySettings().setVariabilitySource(source, type, enabled, multiplier);
 	}
 
 	/**
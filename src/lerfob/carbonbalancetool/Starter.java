@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import lerfob.app.LerfobForesttoolsAppVersion;
+import lerfob.carbonbalancetool.pythonaccess.CATComputeServer;
 import lerfob.carbonbalancetool.pythonaccess.PythonAccessPoint;
 import repicea.app.REpiceaAppVersion;
 import repicea.lang.REpiceaSystem;
@@ -54,7 +55,9 @@ public class Starter {
 			String application = argumentList.get(argumentList.indexOf(APPLICATION) + 1);
 			if (application.toLowerCase().equals("python")) {
 				PythonAccessPoint.main(args);
-			} 
+			} else if (application.toLowerCase().equals("server")) {
+				CATComputeServer.main(args);
+			}
 		} else {
 			CarbonAccountingTool.main(args);
 		}
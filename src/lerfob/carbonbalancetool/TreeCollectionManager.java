@@ -19,43 +19,163 @@
  */
 package lerfob.carbonbalancetool;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import lerfob.carbonbalancetool.biomassparameters.BiomassCache;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 
 /**
- * A class to handle different collections of trees.
+ * A class to handle different collections of trees.<p>
+ * The trees are stored in a columnar registry. Each registration of a tree with a particular
+ * status receives a dense integer id and the registry holds primitive arrays for the stand, the status,
+ * the species and the sampling unit of each id. The ids of the trees of a particular status in a particular
+ * stand are stored as a range, so that the iterations over these trees are array scans. The registry also 
+ * holds the BiomassCache instance in which the volume, biomass and carbon of the registered trees are stored. 
+ * A tree registered with two different statuses has a single entry in this cache.
  * @author Mathieu Fortin - August 2025
  */
 public class TreeCollectionManager {
 
 	/**
-	 * The treeCollections member is a four-level map.<p>
-	 * The keys are:<ol>
-	 * <li> the StatusClass enum
-	 * <li> the CATCompatibleStand instance
-	 * <li> the samplingUnitId (String)
-	 * <li> the species (String)
-	 * </ol>
-	 * The value is a Collection of CATCompatibleTree instances
+	 * The ids of the trees of a particular status in a particular stand.<p>
+	 * The ids are stored as a range as long as they are contiguous, which is the case when the
+	 * trees are registered stand by stand and status by status.
 	 */
-	private final Map<StatusClass, Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>>> completeCollections;
+	private static final class TreeIdRange {
+
+		private final int firstId;
+		private int size;
+		private int[] ids;	// null as long as the ids are contiguous
+
+		private TreeIdRange(int firstId) {
+			this.firstId = firstId;
+			size = 1;
+		}
+
+		private void add(int id) {
+			if (ids == null) {
+				if (id == firstId + size) {
+					size++;
+					return;
+				}
+				ids = new int[Math.max(8, size * 2)];
+				for (int i = 0; i < size; i++) {
+					ids[i] = firstId + i;
+				}
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		private int get(int i) {
+			return ids == null ? firstId + i : ids[i];
+		}
+	}
 
 	/**
-	 * A map whose keys are the trees and values are the corresponding stands.<p>
-	 * This map is used to provide a date index in conjunction with the timeTable member.
+	 * A read-only view on the trees of a TreeIdRange instance.
 	 */
-	private final Map<StatusClass, Map<CATCompatibleTree, CATCompatibleStand>> treeToStandMap;
+	private final class TreeView extends AbstractList<CATCompatibleTree> {
+
+		private final TreeIdRange range;
+
+		private TreeView(TreeIdRange range) {
+			this.range = range;
+		}
+
+		@Override
+		public CATCompatibleTree get(int index) {
+			if (index < 0 || index >= range.size) {
+				throw new IndexOutOfBoundsException("Index " + index + " is out of bounds!");
+			}
+			return trees.get(range.get(index));
+		}
+
+		@Override
+		public int size() {return range.size;}
+	}
+
+	private final List<CATCompatibleTree> trees;
+	private int[] standIndices;
+	private byte[] statusOrdinals;
+	private int[] speciesIds;
+	private int[] samplingUnitIds;
+
+	private final List<CATCompatibleStand> stands;
+	private final Map<CATCompatibleStand, Integer> standIndexMap;
+	private final List<String> speciesNames;
+	private final Map<String, Integer> speciesIdMap;
+	private final List<String> samplingUnitIDs;
+	private final Map<String, Integer> samplingUnitIdMap;
+
+	/**
+	 * A map whose keys are the trees and values are their ids.<p>
+	 * This map is used to avoid storing a tree several times with the same status and to provide
+	 * the stand of a tree.
+	 */
+	private final Map<StatusClass, Map<CATCompatibleTree, Integer>> treeIdMap;
+
+	/**
+	 * The ranges of ids by status and stand. The stands are stored in the order of registration.
+	 */
+	private final Map<StatusClass, Map<CATCompatibleStand, TreeIdRange>> idRanges;
+
+	private final BiomassCache biomassCache;
 
 	TreeCollectionManager() {
-		completeCollections = new HashMap<StatusClass, Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>>>();
-		treeToStandMap = new HashMap<StatusClass, Map<CATCompatibleTree, CATCompatibleStand>>();
+		trees = new ArrayList<CATCompatibleTree>();
+		stands = new ArrayList<CATCompatibleStand>();
+		standIndexMap = new HashMap<CATCompatibleStand, Integer>();
+		speciesNames = new ArrayList<String>();
+		speciesIdMap = new HashMap<String, Integer>();
+		samplingUnitIDs = new ArrayList<String>();
+		samplingUnitIdMap = new HashMap<String, Integer>();
+		treeIdMap = new HashMap<StatusClass, Map<CATCompatibleTree, Integer>>();
+		idRanges = new HashMap<StatusClass, Map<CATCompatibleStand, TreeIdRange>>();
+		biomassCache = new BiomassCache();
+		clear();
+	}
+
+	private static int getDictionaryId(String value, List<String> values, Map<String, Integer> idMap) {
+		Integer id = idMap.get(value);
+		if (id == null) {
+			id = values.size();
+			values.add(value);
+			idMap.put(value, id);
+		}
+		return id;
+	}
+
+	private int getStandIndex(CATCompatibleStand stand) {
+		Integer index = standIndexMap.get(stand);
+		if (index == null) {
+			index = stands.size();
+			stands.add(stand);
+			standIndexMap.put(stand, index);
+		}
+		return index;
 	}
-	
-	
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > standIndices.length) {
+			int newCapacity = Math.max(capacity, standIndices.length * 2);
+			standIndices = Arrays.copyOf(standIndices, newCapacity);
+			statusOrdinals = Arrays.copyOf(statusOrdinals, newCapacity);
+			speciesIds = Arrays.copyOf(speciesIds, newCapacity);
+			samplingUnitIds = Arrays.copyOf(samplingUnitIds, newCapacity);
+		}
+	}
+
 	/**
 	 * Trees are registered in the treeCollections map and the treeRegister map immediately after the manager has been reset following
 	 * the triggering of the calculateCarbon action.
@@ -64,79 +184,194 @@ public class TreeCollectionManager {
 	 * @param tree a CATCompatibleTree instance
 	 */
 	void add(StatusClass statusClass, CATCompatibleStand stand, CATCompatibleTree tree) {
-		if (!treeToStandMap.get(statusClass).containsKey(tree)) { // this way we avoid storing several time dead, cut, or windfall trees
-			treeToStandMap.get(statusClass).put(tree, stand);
-			Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> innerMap = completeCollections.get(statusClass);
-			if (!innerMap.containsKey(stand)) {
-				innerMap.put(stand, new HashMap<String, Map<String, Collection<CATCompatibleTree>>>());
-			}
-			
-			Map<String, Map<String, Collection<CATCompatibleTree>>> innerInnerMap = innerMap.get(stand);
-			
-			String samplingUnitID = CATCompartmentManager.getSamplingUnitID(tree); 
-			
-			if (!innerInnerMap.containsKey(samplingUnitID)) {
-				innerInnerMap.put(samplingUnitID, new HashMap<String, Collection<CATCompatibleTree>>());
-			}
-			
-			Map<String, Collection<CATCompatibleTree>> mostInsideMap = innerInnerMap.get(samplingUnitID);
-			if (!mostInsideMap.containsKey(tree.getSpeciesName())) {
-				mostInsideMap.put(tree.getSpeciesName(), new ArrayList<CATCompatibleTree>());
-			}
-			
-			Collection<CATCompatibleTree> trees = mostInsideMap.get(tree.getSpeciesName());
+		Map<CATCompatibleTree, Integer> idsOfThisStatus = treeIdMap.get(statusClass);
+		if (!idsOfThisStatus.containsKey(tree)) { // this way we avoid storing several time dead, cut, or windfall trees
+			int id = trees.size();
+			ensureCapacity(id + 1);
 			trees.add(tree);
-		} 
+			standIndices[id] = getStandIndex(stand);
+			statusOrdinals[id] = (byte) statusClass.ordinal();
+			speciesIds[id] = getDictionaryId(tree.getSpeciesName(), speciesNames, speciesIdMap);
+			samplingUnitIds[id] = getDictionaryId(CATCompartmentManager.getSamplingUnitID(tree), samplingUnitIDs, samplingUnitIdMap);
+			idsOfThisStatus.put(tree, id);
+			biomassCache.getIndex(tree);
+
+			Map<CATCompatibleStand, TreeIdRange> rangesOfThisStatus = idRanges.get(statusClass);
+			TreeIdRange range = rangesOfThisStatus.get(stand);
+			if (range == null) {
+				rangesOfThisStatus.put(stand, new TreeIdRange(id));
+			} else {
+				range.add(id);
+			}
+		}
 	}
 
+	/**
+	 * Provide the trees of a particular status in a particular stand.<p>
+	 * The collection is a read-only view on the registry. It is not a copy and it includes
+	 * the trees that are registered afterwards in this stand with this status. 
+	 * @param statusClass a StatusClass enum
+	 * @param stand a CATCompatibleStand instance
+	 * @return a read-only Collection of CATCompatibleTree instances in the order of registration
+	 */
 	Collection<CATCompatibleTree> getTreeOfThisStatusInThisStand(StatusClass statusClass, CATCompatibleStand stand) {
-		Collection<CATCompatibleTree> outputColl = new ArrayList<CATCompatibleTree>();
-		Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> innerMap = completeCollections.get(statusClass);
-		if (innerMap.containsKey(stand)) {
-			Map<String, Map<String, Collection<CATCompatibleTree>>> mostInnerMap = innerMap.get(stand);
-			for (Map<String, Collection<CATCompatibleTree>> oMap : mostInnerMap.values()) {
-				for (Collection<CATCompatibleTree> trees : oMap.values()) {
-					outputColl.addAll(trees);
-				}
-			}
+		TreeIdRange range = idRanges.get(statusClass).get(stand);
+		if (range == null) {
+			return Collections.emptyList();
+		} else {
+			return new TreeView(range);
 		}
-		return outputColl;
 	}
-	
+
 	/**
-	 * Return the second-level Map from the treeCollections member.<p>
-	 * These second-level map are needed for the logging, bucking and transformation of trees into
+	 * Provide the ids of the trees of a particular status in a particular stand.
+	 * @param statusClass a StatusClass enum
+	 * @param stand a CATCompatibleStand instance
+	 * @return an array of integers
+	 */
+	int[] getTreeIdsOfThisStatusInThisStand(StatusClass statusClass, CATCompatibleStand stand) {
+		TreeIdRange range = idRanges.get(statusClass).get(stand);
+		if (range == null) {
+			return new int[0];
+		}
+		int[] ids = new int[range.size];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = range.get(i);
+		}
+		return ids;
+	}
+
+	/**
+	 * Provide the stands that contain trees of a particular status.<p>
+	 * These stands are needed for the logging, bucking and transformation of trees into
 	 * harvest wood products.
 	 * @param statusClass a StatusClass enum
+	 * @return a Collection of CATCompatibleStand instances in the order of registration
+	 */
+	Collection<CATCompatibleStand> getStandsWithTreesOfThisStatus(StatusClass statusClass) {
+		return Collections.unmodifiableCollection(idRanges.get(statusClass).keySet());
+	}
+
+	/**
+	 * Return the trees of a particular status in a four-level map.<p>
+	 * The keys are:<ol>
+	 * <li> the CATCompatibleStand instance
+	 * <li> the samplingUnitId (String)
+	 * <li> the species (String)
+	 * </ol>
+	 * The value is a Collection of CATCompatibleTree instances. The map is built from the registry 
+	 * at each call and it is not updated if other trees are registered.
+	 * @param statusClass a StatusClass enum
 	 * @return a Map instance
 	 */
 	protected Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> getTrees(StatusClass statusClass) {
-		return completeCollections.get(statusClass);
+		Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> outputMap = new HashMap<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>>();
+		for (CATCompatibleStand stand : idRanges.get(statusClass).keySet()) {
+			Map<String, Map<String, Collection<CATCompatibleTree>>> innerMap = new HashMap<String, Map<String, Collection<CATCompatibleTree>>>();
+			outputMap.put(stand, innerMap);
+			for (int id : getTreeIdsOfThisStatusInThisStand(statusClass, stand)) {
+				String samplingUnitID = getSamplingUnitID(id);
+				if (!innerMap.containsKey(samplingUnitID)) {
+					innerMap.put(samplingUnitID, new HashMap<String, Collection<CATCompatibleTree>>());
+				}
+				Map<String, Collection<CATCompatibleTree>> mostInsideMap = innerMap.get(samplingUnitID);
+				String speciesName = getSpeciesName(id);
+				if (!mostInsideMap.containsKey(speciesName)) {
+					mostInsideMap.put(speciesName, new ArrayList<CATCompatibleTree>());
+				}
+				mostInsideMap.get(speciesName).add(getTree(id));
+			}
+		}
+		return outputMap;
 	}
 
 	/**
-	 * Return a single level map with all the trees pooled.
+	 * Provide the cache of the volume, biomass and carbon of the registered trees.
+	 * @return a BiomassCache instance
+	 */
+	BiomassCache getBiomassCache() {return biomassCache;}
+
+	/**
+	 * Provide the tree with a particular id.
+	 * @param id the id of the tree
+	 * @return a CATCompatibleTree instance
+	 */
+	CATCompatibleTree getTree(int id) {return trees.get(id);}
+
+	/**
+	 * Provide the sampling unit of the tree with a particular id.
+	 * @param id the id of the tree
+	 * @return the sampling unit id
+	 */
+	String getSamplingUnitID(int id) {return samplingUnitIDs.get(samplingUnitIds[id]);}
+
+	/**
+	 * Provide the species name of the tree with a particular id.
+	 * @param id the id of the tree
+	 * @return the species name
+	 */
+	String getSpeciesName(int id) {return speciesNames.get(speciesIds[id]);}
+
+	/**
+	 * Provide the status of the tree with a particular id.
+	 * @param id the id of the tree
+	 * @return a StatusClass enum
+	 */
+	StatusClass getStatusClass(int id) {return StatusClass.values()[statusOrdinals[id]];}
+
+	/**
+	 * Provide the stand of the tree with a particular id.
+	 * @param id the id of the tree
+	 * @return a CATCompatibleStand instance
+	 */
+	CATCompatibleStand getStand(int id) {return stands.get(standIndices[id]);}
+
+	/**
+	 * Return all the trees of a particular status.
 	 * @param statusClass a StatusClass enum
-	 * @return a Map instance
+	 * @return a read-only Collection of CATCompatibleTree instances in the order of registration
 	 */
 	Collection<CATCompatibleTree> getAllTreesOfThisStatus(StatusClass statusClass) {
-		return treeToStandMap.get(statusClass).keySet();
+		List<CATCompatibleTree> outputList = new ArrayList<CATCompatibleTree>(treeIdMap.get(statusClass).size());
+		for (TreeIdRange range : idRanges.get(statusClass).values()) {
+			outputList.addAll(new TreeView(range));
+		}
+		return Collections.unmodifiableList(outputList);
 	}
 
 	CATCompatibleStand getStandOfThisTree(CATCompatibleTree tree, StatusClass statusClass) {
-		return treeToStandMap.get(statusClass).get(tree);
+		Integer id = treeIdMap.get(statusClass).get(tree);
+		return id == null ? null : getStand(id);
 	}
-	
-	
+
+	/**
+	 * Provide the number of registered trees. <p>
+	 * A tree that is registered with two different statuses is counted twice.
+	 * @return an integer
+	 */
+	int size() {return trees.size();}
+
 	void clear() {
-		completeCollections.clear();
-		treeToStandMap.clear();
+		trees.clear();
+		stands.clear();
+		standIndexMap.clear();
+		speciesNames.clear();
+		speciesIdMap.clear();
+		samplingUnitIDs.clear();
+		samplingUnitIdMap.clear();
+		standIndices = new int[16];
+		statusOrdinals = new byte[16];
+		speciesIds = new int[16];
+		samplingUnitIds = new int[16];
+		treeIdMap.clear();
+		idRanges.clear();
+		biomassCache.clear();
 
 		for (StatusClass sc : StatusClass.values()) {
-			completeCollections.put(sc, new HashMap<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>>());
-			treeToStandMap.put(sc, new HashMap<CATCompatibleTree, CATCompatibleStand>());
+			treeIdMap.put(sc, new HashMap<CATCompatibleTree, Integer>());
+			idRanges.put(sc, new LinkedHashMap<CATCompatibleStand, TreeIdRange>());
 		}
 	}
-	
-	
+
+
 }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.biomassparameters;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.CATCompatibleTree;
+
+/**
+ * The BiomassCache class stores the quantities calculated by the BiomassParameters class in
+ * primitive arrays. <p>
+ * Each tree receives a dense index. The trees are identified by reference and not through 
+ * their equals and hashCode methods, which the CATCompatibleTree implementations may override. 
+ * The nine quantities of the tree with index i are stored
+ * in slots 9i to 9i + 8 of a single array and a bit mask keeps track of the quantities that have
+ * been calculated, so that no sentinel value is needed.
+ * @author Mathieu Fortin - March 2025
+ * @see lerfob.carbonbalancetool.TreeCollectionManager
+ */
+public final class BiomassCache {
+
+	/**
+	 * The quantities cached for each tree.
+	 */
+	public static enum BiomassQuantity {
+		AboveGroundVolumeM3,
+		AboveGroundBiomassMg,
+		AboveGroundCarbonMg,
+		BelowGroundVolumeM3,
+		BelowGroundBiomassMg,
+		BelowGroundCarbonMg,
+		CommercialVolumeM3,
+		CommercialBiomassMg,
+		CommercialCarbonMg;
+	}
+
+	private static final int NbQuantities = BiomassQuantity.values().length;
+
+	private final Map<CATCompatibleTree, Integer> indices;
+	private double[] values;
+	private short[] definedMasks;
+
+	/**
+	 * Constructor.
+	 */
+	public BiomassCache() {
+		indices = new IdentityHashMap<CATCompatibleTree, Integer>();
+		values = new double[16 * NbQuantities];
+		definedMasks = new short[16];
+	}
+
+	/**
+	 * Provide the index of a tree in this cache. <p>
+	 * The tree is given the next index if it is not in the cache yet.
+	 * @param tree a CATCompatibleTree instance
+	 * @return an integer
+	 */
+	public int getIndex(CATCompatibleTree tree) {
+		Integer index = indices.get(tree);
+		if (index == null) {
+			index = indices.size();
+			if (index == definedMasks.length) {
+				definedMasks = Arrays.copyOf(definedMasks, index * 2);
+				values = Arrays.copyOf(values, index * 2 * NbQuantities);
+			}
+			definedMasks[index] = 0;
+			indices.put(tree, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Indicate whether a quantity has been calculated for a tree.
+	 * @param index the index of the tree
+	 * @param quantity a BiomassQuantity enum
+	 * @return a boolean
+	 */
+	public boolean isDefined(int index, BiomassQuantity quantity) {
+		return (definedMasks[index] & (1 << quantity.ordinal())) != 0;
+	}
+
+	/**
+	 * Provide a quantity of a tree.
+	 * @param index the index of the tree
+	 * @param quantity a BiomassQuantity enum
+	 * @return a double
+	 */
+	public double get(int index, BiomassQuantity quantity) {
+		return values[index * NbQuantities + quantity.ordinal()];
+	}
+
+	/**
+	 * Set a quantity of a tree.
+	 * @param index the index of the tree
+	 * @param quantity a BiomassQuantity enum
+	 * @param value the value of this quantity
+	 */
+	public void set(int index, BiomassQuantity quantity, double value) {
+		values[index * NbQuantities + quantity.ordinal()] = value;
+		definedMasks[index] |= 1 << quantity.ordinal();
+	}
+
+	/**
+	 * Provide the number of trees in this cache.
+	 * @return an integer
+	 */
+	public int size() {return indices.size();}
+
+	/**
+	 * Remove all the trees from this cache.
+	 */
+	public void clear() {
+		indices.clear();
+	}
+}
@@ -31,8 +31,11 @@ import java.util.logging.Level;
 
 import javax.swing.filechooser.FileFilter;
 
+import lerfob.carbonbalancetool.CATCompartmentManager;
 import lerfob.carbonbalancetool.CATCompatibleTree;
+import lerfob.carbonbalancetool.CATRunContext;
 import lerfob.carbonbalancetool.CarbonAccountingTool;
+import lerfob.carbonbalancetool.biomassparameters.BiomassCache.BiomassQuantity;
 import lerfob.carbonbalancetool.biomassparameters.BiomassParametersDialog.MessageID;
 import lerfob.carbonbalancetool.interfaces.CATAboveGroundBiomassProvider;
 import lerfob.carbonbalancetool.interfaces.CATAboveGroundCarbonProvider;
@@ -170,15 +173,10 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	
 	protected transient REpiceaGUIPermission permissions = new DefaultREpiceaGUIPermission(true);
 
-	private transient Map<CATCompatibleTree, Double> aboveGroundVolumeM3Cache;
-	private transient Map<CATCompatibleTree, Double> aboveGroundBiomassMgCache;
-	private transient Map<CATCompatibleTree, Double> aboveGroundCarbonMgCache;
-	private transient Map<CATCompatibleTree, Double> belowGroundVolumeM3Cache;
-	private transient Map<CATCompatibleTree, Double> belowGroundBiomassMgCache;
-	private transient Map<CATCompatibleTree, Double> belowGroundCarbonMgCache;
-	private transient Map<CATCompatibleTree, Double> commercialVolumeM3Cache;
-	private transient Map<CATCompatibleTree, Double> commercialBiomassMgCache;
-	private transient Map<CATCompatibleTree, Double> commercialCarbonMgCache;
+	/**
+	 * The cache of the calls that are not made through a CATCompartmentManager instance. 
+	 */
+	private transient BiomassCache localCache;
 
 	
 	/**
@@ -196,67 +194,20 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 		reset();
 	}
 
-	private Map<CATCompatibleTree, Double> getAboveGroundVolumeM3Cache() {
-		if (aboveGroundVolumeM3Cache == null) {
-			aboveGroundVolumeM3Cache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return aboveGroundVolumeM3Cache;
-	}
-	
-	private Map<CATCompatibleTree, Double> getAboveGroundBiomassMgCache() {
-		if (aboveGroundBiomassMgCache == null) {
-			aboveGroundBiomassMgCache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return aboveGroundBiomassMgCache;
-	}
-
-	private Map<CATCompatibleTree, Double> getAboveGroundCarbonMgCache() {
-		if (aboveGroundCarbonMgCache == null) {
-			aboveGroundCarbonMgCache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return aboveGroundCarbonMgCache;
-	}
-
-	private Map<CATCompatibleTree, Double> getBelowGroundVolumeM3Cache() {
-		if (belowGroundVolumeM3Cache == null) {
-			belowGroundVolumeM3Cache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return belowGroundVolumeM3Cache;
-	}
-
-	private Map<CATCompatibleTree, Double> getBelowGroundBiomassMgCache() {
-		if (belowGroundBiomassMgCache == null) {
-			belowGroundBiomassMgCache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return belowGroundBiomassMgCache;
-	}
-
-	private Map<CATCompatibleTree, Double> getBelowGroundCarbonMgCache() {
-		if (belowGroundCarbonMgCache == null) {
-			belowGroundCarbonMgCache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return belowGroundCarbonMgCache;
-	}
-
-	private Map<CATCompatibleTree, Double> getCommercialVolumeM3Cache() {
-		if (commercialVolumeM3Cache == null) {
-			commercialVolumeM3Cache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return commercialVolumeM3Cache;
-	}
-	
-	private Map<CATCompatibleTree, Double> getCommercialBiomassMgCache() {
-		if (commercialBiomassMgCache == null) {
-			commercialBiomassMgCache = new HashMap<CATCompatibleTree, Double>();
-		}
-		return commercialBiomassMgCache;
-	}
-
-	private Map<CATCompatibleTree, Double> getCommercialCarbonMgCache() {
-		if (commercialCarbonMgCache == null) {
-			commercialCarbonMgCache = new HashMap<CATCompatibleTree, Double>();
+	/*
+	 * The quantities of the trees registered in a CATCompartmentManager instance are stored in the
+	 * columnar registry of this manager, which is cleared when the manager is reset. The other calls
+	 * rely on the local cache.
+	 */
+	private BiomassCache getBiomassCache(MonteCarloSimulationCompliantObject subject) {
+		if (subject instanceof CATCompartmentManager) {
+			return ((CATCompartmentManager) subject).getBiomassCache();
+		} else {
+			if (localCache == null) {
+				localCache = new BiomassCache();
+			}
+			return localCache;
 		}
-		return commercialCarbonMgCache;
 	}
 
 	/**
@@ -523,7 +474,7 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 			value = tree.getREpiceaSpecies().getBasicWoodDensity(tree.getSpeciesLocale());
 		}
 		if (subject != null && !isStochastic) {	// isStochastic = false if the provider is not stochastic or if the tree does not implement the provider
-			return value * CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+			return value * CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
 		} else {
 			return value;
 		}
@@ -547,7 +498,7 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 			value = carbonContentFactors.get(tree.getREpiceaSpecies().getSpeciesType());
 		}
 		if (subject != null && !isStochastic) {	// isStochastic = false if the provider is not stochastic or if the tree does not implement the provider
-			return value * CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
+			return value * CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
 		} else {
 			return value;
 		}
@@ -561,24 +512,27 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the carbon content (Mg)
 	 */
 	public double getBelowGroundCarbonMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getBelowGroundCarbonMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.BelowGroundCarbonMg)) {
 			boolean tier2Implementation = rootExpansionFactorFromModel && CATBelowGroundCarbonProvider.checkEligibility(tree);
 			double value;
 			if (tier2Implementation) {
 				CATBelowGroundCarbonProvider t = (CATBelowGroundCarbonProvider) tree;
 				value = t.getBelowGroundCarbonMg() * getExpansionFactor(tree);
 				if (!t.isBelowGroundCarbonPredictorStochastic()) {	// will rely on sensitivity analysis instead
-					double biomassModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
-					double carbonModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
+					CATSensitivityAnalysisSettings sensitivitySettings = CATRunContext.getContext(subject).getSensitivitySettings();
+					double biomassModifier = sensitivitySettings.getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
+					double woodDensityModifier = sensitivitySettings.getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					double carbonModifier = sensitivitySettings.getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
 					value *= biomassModifier * woodDensityModifier * carbonModifier;
 				}
 			} else {
 				value = getBelowGroundBiomassMg(tree, subject) * getCarbonContentFromThisTree(tree, subject);
 			}
-			getBelowGroundCarbonMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.BelowGroundCarbonMg, value);
 		}
-		return getBelowGroundCarbonMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.BelowGroundCarbonMg);
 	}
 	
 	/**
@@ -588,39 +542,55 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the biomass (Mg)
 	 */
 	public double getBelowGroundBiomassMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getBelowGroundBiomassMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.BelowGroundBiomassMg)) {
 			boolean tier2Implementation = rootExpansionFactorFromModel && CATBelowGroundBiomassProvider.checkEligibility(tree);
 			double value;
 			if (tier2Implementation) {
 				CATBelowGroundBiomassProvider t = (CATBelowGroundBiomassProvider) tree;
 				value = t.getBelowGroundBiomassMg() * getExpansionFactor(tree);
 				if (!t.isBelowGroundBiomassPredictorStochastic() && subject != null) { // will rely on sensitivity analysis instead
-					double biomassModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					CATSensitivityAnalysisSettings sensitivitySettings = CATRunContext.getContext(subject).getSensitivitySettings();
+					double biomassModifier = sensitivitySettings.getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
+					double woodDensityModifier = sensitivitySettings.getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
 					value *= biomassModifier * woodDensityModifier;
 				}
 			} else {
 				value = getAboveGroundBiomassMg(tree, subject) * (rootExpansionFactors.get(tree.getREpiceaSpecies().getSpeciesType()) - 1);		// minus 1 is required because we want to get only the belowground part;
-				value *= CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
+				value *= CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
 			}
-			getBelowGroundBiomassMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.BelowGroundBiomassMg, value);
 		}
-		return getBelowGroundBiomassMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.BelowGroundBiomassMg);
 	}
 
 	/**
-	 * Clear all the caches.
+	 * Clear the cache of the calls that are not made through a CATCompartmentManager instance. <p>
+	 * The quantities of the trees registered in a CATCompartmentManager instance are cleared 
+	 * with the registry of this manager.
 	 */
 	public void clearCache() {
-		getBelowGroundVolumeM3Cache().clear();
-		getBelowGroundBiomassMgCache().clear();
-		getBelowGroundCarbonMgCache().clear();
-		getAboveGroundVolumeM3Cache().clear();
-		getAboveGroundBiomassMgCache().clear();
-		getAboveGroundCarbonMgCache().clear();
-		getCommercialVolumeM3Cache().clear();
-		getCommercialBiomassMgCache().clear();
-		getCommercialCarbonMgCache().clear();
+		if (localCache != null) {
+			localCache.clear();
+		}
+	}
+
+	/**
+	 * Create a copy of these parameters for a worker thread. <p>
+	 * The factors and the Tier 2 options are copied but not the caches, so that
+	 * the copy can be used concurrently with the original instance.
+	 * @return a BiomassParameters instance
+	 */
+	public BiomassParameters createWorkerCopy() {
+		BiomassParameters copy = new BiomassParameters(new DefaultREpiceaGUIPermission(false));
+		copy.unpackMemorizerPackage(getMemorizerPackage());
+		copy.referent = referent;
+		copy.rootExpansionFactorFromModelEnabled = rootExpansionFactorFromModelEnabled;
+		copy.branchExpansionFactorFromModelEnabled = branchExpansionFactorFromModelEnabled;
+		copy.basicWoodDensityFromModelEnabled = basicWoodDensityFromModelEnabled;
+		copy.carbonContentFromModelEnabled = carbonContentFromModelEnabled;
+		return copy;
 	}
 
 	
@@ -632,7 +602,9 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the volume (m3)
 	 */
 	public double getBelowGroundVolumeM3(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getBelowGroundVolumeM3Cache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.BelowGroundVolumeM3)) {
 			boolean tier2Implementation = rootExpansionFactorFromModel && CATBelowGroundVolumeProvider.checkEligibility(tree);
 			double value;
 			boolean isStochastic = false;
@@ -646,11 +618,11 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 			
 			if (subject != null && !isStochastic) {	// isStochastic = false if the provider is not stochastic or if the tree does not implement the provider
 				String groupId = getGroupId(VariabilitySource.BiomassExpansionFactor, tree);
-				value *= CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, groupId);
+				value *= CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BiomassExpansionFactor, subject, groupId);
 			} 
-			getBelowGroundVolumeM3Cache().put(tree, value);
+			cache.set(index, BiomassQuantity.BelowGroundVolumeM3, value);
 		}
-		return getBelowGroundVolumeM3Cache().get(tree);
+		return cache.get(index, BiomassQuantity.BelowGroundVolumeM3);
 	}
 
 	
@@ -661,24 +633,27 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return a double (Mg)
 	 */
 	public double getAboveGroundCarbonMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getAboveGroundCarbonMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.AboveGroundCarbonMg)) {
 			boolean tier2Implementation = branchExpansionFactorFromModel && CATAboveGroundCarbonProvider.checkEligibility(tree); 
 			double value;
 			if (tier2Implementation) {
 				CATAboveGroundCarbonProvider t = (CATAboveGroundCarbonProvider) tree;
 				value = t.getAboveGroundCarbonMg() * getExpansionFactor(tree);
 				if (!t.isAboveGroundCarbonPredictorStochastic() && subject != null) {	// then rely on sensitivity analysis if enabled
-					double biomassModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
-					double carbonModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
+					CATSensitivityAnalysisSettings sensitivitySettings = CATRunContext.getContext(subject).getSensitivitySettings();
+					double biomassModifier = sensitivitySettings.getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
+					double woodDensityModifier = sensitivitySettings.getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					double carbonModifier = sensitivitySettings.getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
 					value *= biomassModifier * woodDensityModifier * carbonModifier;
 				}
 			} else {
 				value = getAboveGroundBiomassMg(tree, subject) * getCarbonContentFromThisTree(tree, subject);
 			}
-			getAboveGroundCarbonMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.AboveGroundCarbonMg, value);
 		}
-		return getAboveGroundCarbonMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.AboveGroundCarbonMg);
 	}
 	
 	/**
@@ -688,7 +663,9 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the aboveground biomass (Mg)
 	 */
 	public double getAboveGroundBiomassMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getAboveGroundBiomassMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.AboveGroundBiomassMg)) {
 			boolean tier2Implementation = (branchExpansionFactorFromModel && CATAboveGroundBiomassProvider.checkEligibility(tree)) || 
 					tree instanceof CATSapling; // saplings automatically provide their own biomass
 			double value;
@@ -696,22 +673,23 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 				CATAboveGroundBiomassProvider t = (CATAboveGroundBiomassProvider) tree;
 				value = t.getAboveGroundBiomassMg() * getExpansionFactor(tree);
 				if (!t.isAboveGroundBiomassPredictorStochastic() && subject != null) { // then rely on sensitivity analysis if enabled
-					double biomassModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					CATSensitivityAnalysisSettings sensitivitySettings = CATRunContext.getContext(subject).getSensitivitySettings();
+					double biomassModifier = sensitivitySettings.getModifier(VariabilitySource.BiomassExpansionFactor, subject, getGroupId(VariabilitySource.BiomassExpansionFactor, tree));
+					double woodDensityModifier = sensitivitySettings.getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
 					value *= biomassModifier * woodDensityModifier;
 				}
 			} else if (tree instanceof CATCommercialBiomassProvider) {		
 				value = getCommercialBiomassMg(tree, subject) * branchExpansionFactors.get(tree.getREpiceaSpecies().getSpeciesType());
 				if (subject != null) {	
 					String subjectId = getGroupId(VariabilitySource.BiomassExpansionFactor, tree);
-					value *= CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, subjectId);
+					value *= CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BiomassExpansionFactor, subject, subjectId);
 				} 
 			} else {
 				value = getAboveGroundVolumeM3(tree, subject) * getBasicWoodDensityFromThisTree(tree, subject);
 			}
-			getAboveGroundBiomassMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.AboveGroundBiomassMg, value);
 		} 
-		return getAboveGroundBiomassMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.AboveGroundBiomassMg);
 	}
 
 	
@@ -723,7 +701,9 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the aboveground volume (m3)
 	 */
 	public double getAboveGroundVolumeM3(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getAboveGroundVolumeM3Cache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.AboveGroundVolumeM3)) {
 			boolean tier2Implementation = branchExpansionFactorFromModel && CATAboveGroundVolumeProvider.checkEligibility(tree);
 			boolean isStochastic = false;
 			double value;
@@ -732,16 +712,16 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 				value = t.getAboveGroundVolumeM3() * getExpansionFactor(tree);
 				isStochastic = t.isAboveGroundVolumePredictorStochastic();
 			} else {
-				value = getCommercialVolumeM3(tree) * branchExpansionFactors.get(tree.getREpiceaSpecies().getSpeciesType());
+				value = getCommercialVolumeM3(tree, subject) * branchExpansionFactors.get(tree.getREpiceaSpecies().getSpeciesType());
 			}
 			
 			if (subject != null && !isStochastic) {	// isStochastic = false if the provider is not stochastic or if the tree does not implement the provider
 				String subjectId = getGroupId(VariabilitySource.BiomassExpansionFactor, tree);
-				value *= CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BiomassExpansionFactor, subject, subjectId);
+				value *= CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BiomassExpansionFactor, subject, subjectId);
 			} 
-			getAboveGroundVolumeM3Cache().put(tree, value);
+			cache.set(index, BiomassQuantity.AboveGroundVolumeM3, value);
 		}
-		return getAboveGroundVolumeM3Cache().get(tree);
+		return cache.get(index, BiomassQuantity.AboveGroundVolumeM3);
 	}
 
 	/**
@@ -787,11 +767,23 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the overbark commercial volume (m3)
 	 */
 	public double getCommercialVolumeM3(CATCompatibleTree tree) {
-		if (!getCommercialVolumeM3Cache().containsKey(tree)) {
+		return getCommercialVolumeM3(tree, null);
+	}
+
+	/**
+	 * Provide the overbark commercial volume of the tree weighted by the expansion factor.
+	 * @param tree a CATCompatibleTree instance
+	 * @param subject a MonteCarloSimulationCompliantObject instance (typically the CATCompartmentManager instance)
+	 * @return the overbark commercial volume (m3)
+	 */
+	public double getCommercialVolumeM3(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.CommercialVolumeM3)) {
 			double value = getOverbarkCommercialVolumeM3(tree) * getExpansionFactor(tree);
-			getCommercialVolumeM3Cache().put(tree, value);
+			cache.set(index, BiomassQuantity.CommercialVolumeM3, value);
 		}
-		return getCommercialVolumeM3Cache().get(tree);
+		return cache.get(index, BiomassQuantity.CommercialVolumeM3);
 	}
 	
 
@@ -815,22 +807,24 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the commercial biomass (Mg)
 	 */
 	public double getCommercialBiomassMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getCommercialBiomassMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.CommercialBiomassMg)) {
 			boolean tier2Implementation = CATCommercialBiomassProvider.checkEligibility(tree);
 			double value;
 			if (tier2Implementation) {
 				CATCommercialBiomassProvider t = (CATCommercialBiomassProvider) tree;
 				value = t.getCommercialBiomassMg() * getExpansionFactor(tree);
 				if (!t.isCommercialBiomassPredictorStochastic() && subject != null) { // then rely on sensitivity analysis if enabled
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					double woodDensityModifier = CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
 					value *= woodDensityModifier;
 				} 
 			} else {
-				value = getCommercialVolumeM3(tree) * getBasicWoodDensityFromThisTree(tree, subject);
+				value = getCommercialVolumeM3(tree, subject) * getBasicWoodDensityFromThisTree(tree, subject);
 			}
-			getCommercialBiomassMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.CommercialBiomassMg, value);
 		}
-		return getCommercialBiomassMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.CommercialBiomassMg);
 	}
 
 	/**
@@ -840,23 +834,26 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 	 * @return the carbon in the commercial part of the tree (Mg)
 	 */
 	public double getCommercialCarbonMg(CATCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
-		if (!getCommercialCarbonMgCache().containsKey(tree)) {
+		BiomassCache cache = getBiomassCache(subject);
+		int index = cache.getIndex(tree);
+		if (!cache.isDefined(index, BiomassQuantity.CommercialCarbonMg)) {
 			boolean tier2Implementation = CATCommercialCarbonProvider.checkEligibility(tree); 
 			double value;
 			if (tier2Implementation) {
 				CATCommercialCarbonProvider t = (CATCommercialCarbonProvider) tree;
 				value = t.getCommercialCarbonMg() * getExpansionFactor(tree);
 				if (!t.isCommercialCarbonPredictorStochastic() && subject != null) {	// then rely on sensitivity analysis if enabled
-					double woodDensityModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
-					double carbonModifier = CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
+					CATSensitivityAnalysisSettings sensitivitySettings = CATRunContext.getContext(subject).getSensitivitySettings();
+					double woodDensityModifier = sensitivitySettings.getModifier(VariabilitySource.BasicDensity, subject, getGroupId(VariabilitySource.BasicDensity, tree));
+					double carbonModifier = sensitivitySettings.getModifier(VariabilitySource.CarbonContent, subject, getGroupId(VariabilitySource.CarbonContent, tree));
 					value *= woodDensityModifier * carbonModifier;
 				}
 			} else {
 				value = getCommercialBiomassMg(tree, subject) * getCarbonContentFromThisTree(tree, subject);
 			}
-			getCommercialCarbonMgCache().put(tree, value);
+			cache.set(index, BiomassQuantity.CommercialCarbonMg, value);
 		}
-		return getCommercialCarbonMgCache().get(tree);
+		return cache.get(index, BiomassQuantity.CommercialCarbonMg);
 	}
 	
 	/**
@@ -918,13 +915,22 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 		double totalCarbonMg = 0d;
 		if (trees != null) {
 			for (MEMSCompatibleTree tree : trees) {
-				double treeContribution = tree.getAnnualFoliarDetritusCarbonProductionMgYr() + tree.getAnnualBranchDetritusCarbonProductionMgYr();
-				totalCarbonMg += treeContribution * getExpansionFactor(tree);
+				totalCarbonMg += getLitterFallAnnualCarbonMg(tree, subject);
 			}
 		}
 		return totalCarbonMg;
 	}
 
+	/**
+	 * Provide the annual carbon from litter fall of a single tree weighted by the expansion factor.
+	 * @param tree a MEMSCompatibleTree instance
+	 * @param subject a MonteCarloSimulationCompliantObject instance
+	 * @return the amount of carbon (Mg)
+	 */
+	public double getLitterFallAnnualCarbonMg(MEMSCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
+		double treeContribution = tree.getAnnualFoliarDetritusCarbonProductionMgYr() + tree.getAnnualBranchDetritusCarbonProductionMgYr();
+		return treeContribution * getExpansionFactor(tree);
+	}
 	
 	/**
 	 * Provide the annual carbon from fine root turnover.
@@ -936,13 +942,22 @@ public class BiomassParameters implements REpiceaShowableUIWithParent,
 		double totalCarbonMg = 0d;
 		if (trees != null) {
 			for (MEMSCompatibleTree tree : trees) {
-				double treeContribution = tree.getAnnualFineRootDetritusCarbonProductionMgYr();
-				totalCarbonMg += treeContribution * getExpansionFactor(tree);
+				totalCarbonMg += getFineRootDetritusAnnualCarbonMg(tree, subject);
 			}
 		}
 		return totalCarbonMg;
 	}
 
+	/**
+	 * Provide the annual carbon from fine root turnover of a single tree weighted by the expansion factor.
+	 * @param tree a MEMSCompatibleTree instance
+	 * @param subject a MonteCarloSimulationCompliantObject instance
+	 * @return the amount of carbon (Mg)
+	 */
+	public double getFineRootDetritusAnnualCarbonMg(MEMSCompatibleTree tree, MonteCarloSimulationCompliantObject subject) {
+		return tree.getAnnualFineRootDetritusCarbonProductionMgYr() * getExpansionFactor(tree);
+	}
+
 
 	@Override
 	public boolean isVisible() {
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 
 import lerfob.carbonbalancetool.CATCompatibleTree;
+import lerfob.carbonbalancetool.interfaces.CATRealizationInvariantTreeLogger;
 import lerfob.treelogger.diameterbasedtreelogger.DiameterBasedTreeLogCategory;
 import lerfob.treelogger.diameterbasedtreelogger.DiameterBasedTreeLogger;
 import lerfob.treelogger.diameterbasedtreelogger.DiameterBasedWoodPiece;
@@ -37,7 +38,7 @@ import repicea.simulation.treelogger.TreeLoggerCompatibilityCheck;
  * for some species.
  * @author Mathieu Fortin - December 2018
  */
-public class CATDiameterBasedTreeLogger extends DiameterBasedTreeLogger {
+public class CATDiameterBasedTreeLogger extends DiameterBasedTreeLogger implements CATRealizationInvariantTreeLogger {
 
 
 	static List<Species> EligibleSpecies = Collections.unmodifiableList(Arrays.asList(Species.values()));
@@ -74,6 +75,12 @@ public class CATDiameterBasedTreeLogger extends DiameterBasedTreeLogger {
 	}
 	
 	
+	/*
+	 * The log categories only depend on the diameter of the tree and on the parameters.
+	 */
+	@Override
+	public boolean isRealizationInvariant() {return true;}
+	
 	@Override
 	protected void logThisTree(LoggableTree tree) {
 		Species species = ((CATCompatibleTree) tree).getREpiceaSpecies();
@@ -0,0 +1,49 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service 
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.interfaces;
+
+import lerfob.carbonbalancetool.CATCompatibleTree;
+
+/**
+ * An interface that ensures that identical trees can be grouped into a single 
+ * weighted tree class.<p>
+ * The grouping is carried out by the CATCompartmentManager class if the tree 
+ * compression is enabled. The trees of a tree class must belong to the same stand,
+ * the same status class and the same sampling unit.
+ * @author Mathieu Fortin - March 2025
+ */
+public interface CATGroupableTree {
+
+	/**
+	 * Provide the key of the tree class.<p>
+	 * Two trees with equal keys must provide the same inputs to the biomass 
+	 * parameters and to the tree logger, except for their number.
+	 * @return an Object that implements the equals and hashCode methods
+	 */
+	public Object getTreeClassKey();
+	
+	/**
+	 * Create a tree identical to this one but with a different number of trees.
+	 * @param numberOfTrees the sum of the numbers of the trees in the tree class
+	 * @return a CATCompatibleTree instance
+	 */
+	public CATCompatibleTree createTreeClass(double numberOfTrees);
+	
+}
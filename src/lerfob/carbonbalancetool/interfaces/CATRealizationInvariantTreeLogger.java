@@ -0,0 +1,40 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service 
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.interfaces;
+
+/**
+ * An interface that ensures that the tree logger can tell whether its
+ * output depends on the Monte Carlo realization.<p>
+ * If the wood pieces of a tree depend neither on the realization nor on the
+ * draws of the biomass parameters, CAT logs each tree once per run and shares 
+ * the wood pieces across the realizations. 
+ * @author Mathieu Fortin - March 2025
+ */
+public interface CATRealizationInvariantTreeLogger {
+
+	/**
+	 * Indicate whether the wood pieces of a tree are the same in all the realizations.<p>
+	 * The wood pieces must not be modified once they have been produced since they are 
+	 * shared across the realizations.
+	 * @return true if the output only depends on the tree and the tree logger parameters
+	 */
+	public boolean isRealizationInvariant();
+	
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.security.InvalidParameterException;
+
+/**
+ * The AbstractCATExportRowWriter class holds the values of the current row in 
+ * primitive arrays that are reused from one row to the next.
+ * @author Mathieu Fortin - March 2025
+ */
+abstract class AbstractCATExportRowWriter implements CATExportRowWriter {
+
+	protected String[] fieldNames;
+	protected FieldType[] fieldTypes;
+	protected String[] stringValues;
+	protected int[] intValues;
+	protected double[] doubleValues;
+	
+	@Override
+	public void writeHeader(String[] fieldNames, FieldType[] fieldTypes) throws Exception {
+		if (this.fieldNames != null) {
+			throw new UnsupportedOperationException("The header has already been written!");
+		}
+		if (fieldNames == null || fieldTypes == null || fieldNames.length == 0 || fieldNames.length != fieldTypes.length) {
+			throw new InvalidParameterException("The fieldNames and fieldTypes arguments must be non empty arrays of the same length!");
+		}
+		this.fieldNames = fieldNames.clone();
+		this.fieldTypes = fieldTypes.clone();
+		stringValues = new String[fieldNames.length];
+		intValues = new int[fieldNames.length];
+		doubleValues = new double[fieldNames.length];
+		headerSet();
+	}
+
+	/**
+	 * Called once the field names and types have been set.
+	 * @throws Exception if the header cannot be written
+	 */
+	protected abstract void headerSet() throws Exception;
+	
+	private void checkField(int fieldIndex, FieldType type) {
+		if (fieldTypes == null) {
+			throw new UnsupportedOperationException("The header has not been written yet!");
+		}
+		if (fieldIndex < 0 || fieldIndex >= fieldTypes.length) {
+			throw new InvalidParameterException("The field index " + fieldIndex + " is out of range!");
+		}
+		if (fieldTypes[fieldIndex] != type) {
+			throw new InvalidParameterException("Field " + fieldNames[fieldIndex] + " is not of type " + type.name() + "!");
+		}
+	}
+	
+	@Override
+	public void setString(int fieldIndex, String value) {
+		checkField(fieldIndex, FieldType.String);
+		stringValues[fieldIndex] = value;
+	}
+
+	@Override
+	public void setInt(int fieldIndex, int value) {
+		checkField(fieldIndex, FieldType.Integer);
+		intValues[fieldIndex] = value;
+	}
+
+	@Override
+	public void setDouble(int fieldIndex, double value) {
+		checkField(fieldIndex, FieldType.Double);
+		doubleValues[fieldIndex] = value;
+	}
+
+	@Override
+	public void writeRow() throws Exception {
+		if (fieldTypes == null) {
+			throw new UnsupportedOperationException("The header has not been written yet!");
+		}
+		rowSet();
+	}
+
+	/**
+	 * Called once all the values of the current row have been set.
+	 * @throws Exception if the row cannot be written
+	 */
+	protected abstract void rowSet() throws Exception;
+
+}
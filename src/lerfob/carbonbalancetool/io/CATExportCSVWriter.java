@@ -0,0 +1,125 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+
+/**
+ * The CATExportCSVWriter class writes the rows of an export directly to a CSV file. <p>
+ * Each row is written as soon as it is complete so that the memory footprint does not
+ * depend on the number of rows. The strings that contain the separator, a quote or a line break
+ * are enclosed in quotes.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class CATExportCSVWriter extends AbstractCATExportRowWriter {
+
+	private final Writer writer;
+	private final char separator;
+	private final StringBuilder line;
+	
+	/**
+	 * Constructor with a comma as separator.
+	 * @param file the output file
+	 * @throws IOException if the file cannot be created
+	 */
+	public CATExportCSVWriter(File file) throws IOException {
+		this(file, ',');
+	}
+
+	/**
+	 * Constructor.
+	 * @param file the output file
+	 * @param separator the field separator
+	 * @throws IOException if the file cannot be created
+	 */
+	public CATExportCSVWriter(File file, char separator) throws IOException {
+		if (file == null) {
+			throw new InvalidParameterException("The file argument cannot be null!");
+		}
+		if (separator == '"' || separator == '\n' || separator == '\r') {
+			throw new InvalidParameterException("The separator cannot be a quote or a line break!");
+		}
+		this.separator = separator;
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		line = new StringBuilder();
+	}
+
+	@Override
+	protected void headerSet() throws IOException {
+		line.setLength(0);
+		for (int i = 0; i < fieldNames.length; i++) {
+			if (i > 0) {
+				line.append(separator);
+			}
+			appendString(fieldNames[i]);
+		}
+		writeLine();
+	}
+
+	@Override
+	protected void rowSet() throws IOException {
+		line.setLength(0);
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (i > 0) {
+				line.append(separator);
+			}
+			switch(fieldTypes[i]) {
+			case String:
+				appendString(stringValues[i]);
+				break;
+			case Integer:
+				line.append(intValues[i]);
+				break;
+			case Double:
+				line.append(doubleValues[i]);
+				break;
+			}
+		}
+		writeLine();
+	}
+
+	private void appendString(String value) {
+		if (value != null) {
+			if (value.indexOf(separator) >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+				line.append('"').append(value.replace("\"", "\"\"")).append('"');
+			} else {
+				line.append(value);
+			}
+		}
+	}
+	
+	private void writeLine() throws IOException {
+		line.append(System.lineSeparator());
+		writer.write(line.toString());
+	}
+	
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lerfob.carbonbalancetool.io.CATExportRowWriter.FieldType;
+
+/**
+ * The CATExportColumnarReader class reads the files produced by the {@link CATExportColumnarWriter} class. <p>
+ * The file is read block by block so that only one block is in memory at a time.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class CATExportColumnarReader implements Closeable {
+
+	private final DataInputStream dis;
+	private final String[] fieldNames;
+	private final FieldType[] fieldTypes;
+	private final List<String> dictionary;
+	private int[][] intColumns;
+	private double[][] doubleColumns;
+	private int nbRowsInBlock;
+	private int currentRow;
+	private boolean endReached;
+	
+	/**
+	 * Constructor.
+	 * @param file a file produced by a CATExportColumnarWriter instance
+	 * @throws IOException if the file cannot be read or if it is not a columnar export file
+	 */
+	public CATExportColumnarReader(File file) throws IOException {
+		if (file == null) {
+			throw new InvalidParameterException("The file argument cannot be null!");
+		}
+		dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (dis.readInt() != CATExportColumnarWriter.MagicNumber || dis.readInt() != CATExportColumnarWriter.Version) {
+				throw new IOException("The file " + file.getAbsolutePath() + " is not a columnar export file!");
+			}
+			int nbFields = dis.readInt();
+			fieldNames = new String[nbFields];
+			fieldTypes = new FieldType[nbFields];
+			intColumns = new int[nbFields][];
+			doubleColumns = new double[nbFields][];
+			for (int i = 0; i < nbFields; i++) {
+				fieldNames[i] = dis.readUTF();
+				fieldTypes[i] = FieldType.values()[dis.readByte()];
+			}
+		} catch (IOException | RuntimeException e) {
+			dis.close();
+			throw e;
+		}
+		dictionary = new ArrayList<String>();
+		currentRow = -1;
+	}
+
+	/**
+	 * Provide the names of the fields.
+	 * @return an array of String
+	 */
+	public String[] getFieldNames() {return fieldNames.clone();}
+
+	/**
+	 * Provide the types of the fields.
+	 * @return an array of FieldType enums
+	 */
+	public FieldType[] getFieldTypes() {return fieldTypes.clone();}
+	
+	/**
+	 * Move to the next row.
+	 * @return true if there is a next row or false if the end of the file has been reached
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean next() throws IOException {
+		if (endReached) {
+			return false;
+		}
+		currentRow++;
+		if (currentRow == nbRowsInBlock) {
+			readBlock();
+		}
+		return !endReached;
+	}
+	
+	private void readBlock() throws IOException {
+		nbRowsInBlock = dis.readInt();
+		currentRow = 0;
+		if (nbRowsInBlock == 0) {
+			endReached = true;
+			return;
+		}
+		int nbNewStrings = dis.readInt();
+		for (int i = 0; i < nbNewStrings; i++) {
+			dictionary.add(dis.readUTF());
+		}
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (fieldTypes[i] == FieldType.Double) {
+				if (doubleColumns[i] == null || doubleColumns[i].length < nbRowsInBlock) {
+					doubleColumns[i] = new double[nbRowsInBlock];
+				}
+				for (int j = 0; j < nbRowsInBlock; j++) {
+					doubleColumns[i][j] = dis.readDouble();
+				}
+			} else {
+				if (intColumns[i] == null || intColumns[i].length < nbRowsInBlock) {
+					intColumns[i] = new int[nbRowsInBlock];
+				}
+				for (int j = 0; j < nbRowsInBlock; j++) {
+					intColumns[i][j] = dis.readInt();
+				}
+			}
+		}
+	}
+
+	private void checkField(int fieldIndex, FieldType type) {
+		if (currentRow < 0 || endReached) {
+			throw new UnsupportedOperationException("There is no current row!");
+		}
+		if (fieldTypes[fieldIndex] != type) {
+			throw new InvalidParameterException("Field " + fieldNames[fieldIndex] + " is not of type " + type.name() + "!");
+		}
+	}
+	
+	/**
+	 * Provide the value of a string field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @return a String
+	 */
+	public String getString(int fieldIndex) {
+		checkField(fieldIndex, FieldType.String);
+		int index = intColumns[fieldIndex][currentRow];
+		return index == -1 ? null : dictionary.get(index);
+	}
+
+	/**
+	 * Provide the value of an integer field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @return an int
+	 */
+	public int getInt(int fieldIndex) {
+		checkField(fieldIndex, FieldType.Integer);
+		return intColumns[fieldIndex][currentRow];
+	}
+
+	/**
+	 * Provide the value of a double field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @return a double
+	 */
+	public double getDouble(int fieldIndex) {
+		checkField(fieldIndex, FieldType.Double);
+		return doubleColumns[fieldIndex][currentRow];
+	}
+
+	@Override
+	public void close() throws IOException {
+		dis.close();
+	}
+	
+}
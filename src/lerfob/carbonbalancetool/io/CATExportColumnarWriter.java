@@ -0,0 +1,185 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CATExportColumnarWriter class writes the rows of an export to a compact columnar 
+ * binary file. <p>
+ * The rows are buffered in blocks of a fixed number of rows. When a block is full, it is 
+ * written column by column and the buffers are reused. The strings are stored in a dictionary 
+ * and the columns only contain their index in this dictionary. The new entries of the 
+ * dictionary are written just before the block in which they first appear. The memory footprint 
+ * therefore depends on the number of distinct strings but not on the number of rows. The file
+ * can be read with the {@link CATExportColumnarReader} class.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class CATExportColumnarWriter extends AbstractCATExportRowWriter {
+
+	static final int MagicNumber = 0x43415458;	// CATX
+	static final int Version = 1;
+	static final int DefaultBlockSize = 4096;
+	
+	private final DataOutputStream dos;
+	private final int blockSize;
+	private final Map<String, Integer> dictionary;
+	private final List<String> newStrings;
+	private int[][] intColumns;
+	private double[][] doubleColumns;
+	private int nbRowsInBlock;
+	private boolean closed;
+	
+	/**
+	 * Constructor with blocks of 4096 rows.
+	 * @param file the output file
+	 * @throws IOException if the file cannot be created
+	 */
+	public CATExportColumnarWriter(File file) throws IOException {
+		this(file, DefaultBlockSize);
+	}
+
+	/**
+	 * Constructor.
+	 * @param file the output file
+	 * @param blockSize the number of rows in a block
+	 * @throws IOException if the file cannot be created
+	 */
+	public CATExportColumnarWriter(File file, int blockSize) throws IOException {
+		if (file == null) {
+			throw new InvalidParameterException("The file argument cannot be null!");
+		}
+		if (blockSize < 1) {
+			throw new InvalidParameterException("The blockSize argument must be strictly positive!");
+		}
+		this.blockSize = blockSize;
+		dictionary = new HashMap<String, Integer>();
+		newStrings = new ArrayList<String>();
+		dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+	}
+
+	@Override
+	protected void headerSet() throws IOException {
+		dos.writeInt(MagicNumber);
+		dos.writeInt(Version);
+		dos.writeInt(fieldNames.length);
+		for (int i = 0; i < fieldNames.length; i++) {
+			dos.writeUTF(fieldNames[i]);
+			dos.writeByte(fieldTypes[i].ordinal());
+		}
+		intColumns = new int[fieldTypes.length][];
+		doubleColumns = new double[fieldTypes.length][];
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (fieldTypes[i] == FieldType.Double) {
+				doubleColumns[i] = new double[blockSize];
+			} else {
+				intColumns[i] = new int[blockSize];
+			}
+		}
+	}
+
+	@Override
+	protected void rowSet() throws IOException {
+		for (int i = 0; i < fieldTypes.length; i++) {
+			switch(fieldTypes[i]) {
+			case String:
+				intColumns[i][nbRowsInBlock] = getStringIndex(stringValues[i]);
+				break;
+			case Integer:
+				intColumns[i][nbRowsInBlock] = intValues[i];
+				break;
+			case Double:
+				doubleColumns[i][nbRowsInBlock] = doubleValues[i];
+				break;
+			}
+		}
+		nbRowsInBlock++;
+		if (nbRowsInBlock == blockSize) {
+			writeBlock();
+		}
+	}
+
+	/*
+	 * The index -1 stands for a null string.
+	 */
+	private int getStringIndex(String value) {
+		if (value == null) {
+			return -1;
+		}
+		Integer index = dictionary.get(value);
+		if (index == null) {
+			index = dictionary.size();
+			dictionary.put(value, index);
+			newStrings.add(value);
+		}
+		return index;
+	}
+	
+	private void writeBlock() throws IOException {
+		dos.writeInt(nbRowsInBlock);
+		dos.writeInt(newStrings.size());
+		for (String value : newStrings) {
+			dos.writeUTF(value);
+		}
+		newStrings.clear();
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (fieldTypes[i] == FieldType.Double) {
+				for (int j = 0; j < nbRowsInBlock; j++) {
+					dos.writeDouble(doubleColumns[i][j]);
+				}
+			} else {
+				for (int j = 0; j < nbRowsInBlock; j++) {
+					dos.writeInt(intColumns[i][j]);
+				}
+			}
+		}
+		nbRowsInBlock = 0;
+	}
+	
+	/**
+	 * Write the last block and close the file. The end of the file is marked by an empty block.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				if (fieldTypes != null) {
+					if (nbRowsInBlock > 0) {
+						writeBlock();
+					}
+					dos.writeInt(0);
+				}
+			} finally {
+				dos.close();
+			}
+		}
+	}
+
+}
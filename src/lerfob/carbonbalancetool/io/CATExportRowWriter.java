@@ -0,0 +1,88 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.Closeable;
+
+/**
+ * The CATExportRowWriter interface makes it possible to stream the rows of an export
+ * without storing them in memory. <p>
+ * The header is written first. Then, the values of each row are set field by field 
+ * through primitive types before calling the writeRow method. All the fields should 
+ * be set for each row. 
+ * @author Mathieu Fortin - March 2025
+ * @see CATExportTool#exportRows(lerfob.carbonbalancetool.io.CATExportTool.ExportOption, CATExportRowWriter)
+ */
+public interface CATExportRowWriter extends Closeable {
+
+	/**
+	 * The types of the fields.
+	 */
+	public static enum FieldType {
+		/**
+		 * A field of strings.
+		 */
+		String,
+		/**
+		 * A field of integers.
+		 */
+		Integer,
+		/**
+		 * A field of doubles.
+		 */
+		Double;
+	}
+	
+	/**
+	 * Write the header. This method is called once before the first row.
+	 * @param fieldNames the names of the fields
+	 * @param fieldTypes the types of the fields
+	 * @throws Exception if the header cannot be written
+	 */
+	public void writeHeader(String[] fieldNames, FieldType[] fieldTypes) throws Exception;
+	
+	/**
+	 * Set the value of a string field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @param value a String
+	 */
+	public void setString(int fieldIndex, String value);
+
+	/**
+	 * Set the value of an integer field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @param value an int
+	 */
+	public void setInt(int fieldIndex, int value);
+
+	/**
+	 * Set the value of a double field in the current row.
+	 * @param fieldIndex the index of the field
+	 * @param value a double
+	 */
+	public void setDouble(int fieldIndex, double value);
+	
+	/**
+	 * Write the current row.
+	 * @throws Exception if the row cannot be written
+	 */
+	public void writeRow() throws Exception;
+	
+}
@@ -36,6 +36,7 @@ import lerfob.carbonbalancetool.CATUtilityMaps.MonteCarloEstimateMap;
 import lerfob.carbonbalancetool.CATUtilityMaps.SpeciesMonteCarloEstimateMap;
 import lerfob.carbonbalancetool.CATUtilityMaps.UseClassSpeciesMonteCarloEstimateMap;
 import lerfob.carbonbalancetool.CarbonAccountingTool;
+import lerfob.carbonbalancetool.io.CATExportRowWriter.FieldType;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
@@ -93,434 +94,51 @@ public class CATExportTool extends REpiceaExportTool {
 	
 	private static class InternalSwingWorker extends InternalSwingWorkerForRecordSet {
 
-		private CATExportTool caller;
-		
-		@SuppressWarnings("rawtypes")
-		protected InternalSwingWorker(CATExportTool caller, Enum selectedOption, REpiceaRecordSet recordSet) {
-			super(selectedOption, recordSet);
-			this.caller = caller;
-		}
-
-		@Override
-		protected void doThisJob() throws Exception {
-			switch ((ExportOption) getExportOption()) {
-			case CarbonStockAndFluxEvolution:
-				createCarbonStockAndFluxEvolutionRecordSet();
-				break;
-			case AverageCarbonStocksAndFluxes:
-				createAverageCarbonStocksAndFluxesRecordSet();
-				break;
-			case DifferenceCarbonStocksAndFluxes:
-				createAverageCarbonStocksAndFluxesRecordSet();
-				break;
-			case TotalHWPbyCategories:
-				createTotalHWPbyCategoriesRecordSet();
-				break;
-			case AnnualVolumeNutrientFluxes:
-				createAnnualVolumeNutrientFluxesRecordSet();
-				break;
-			case TotalLogVolumeByCategories:
-				createTotalLogVolumeByCategoriesRecordSet();
-				break;
-			case HWPEvolution:
-				createHWPEvolutionRecordSet();
-				break;
-			case HeatProduction:
-				createCumulativeHeatProductionRecordSet();
-				break;
-			case SoilCarbonInput:
-				createSoilCarbonInputRecordSet();
-				break;
-			default:
-				throw new Exception("Unrecognized Export Format");
-			}
-			
-		}
-		
-		private void createSoilCarbonInputRecordSet() throws Exception {
-			GExportRecord r;
-			CATTimeTable timeTable = caller.summary.getTimeTable();			
-			
-			Matrix meanHumus = caller.summary.getHumusCarbonInputMgHa().getMean();
-			Matrix meanMineralSoil = caller.summary.getMineralSoilCarbonInputMgHa().getMean();
-			
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			int lastDateYr = -1;
-			for (int i = 0; i < timeTable.size(); i++) {
-				int currentDateYr = timeTable.getDateYrAtThisIndex(i);
-				if (currentDateYr != lastDateYr) {
-					r = new GExportRecord();
-					r.addField(standIDField);
-					r.addField(new GExportFieldDetails("DateYr", currentDateYr));
-					r.addField(new GExportFieldDetails("HumusCMgHa", meanHumus.getValueAt(i, 0)));
-					r.addField(new GExportFieldDetails("MineralSoilCMgHa", meanMineralSoil.getValueAt(i, 0)));
-					addRecord(r);
-					lastDateYr = currentDateYr;
-				}
-			}
-		}
-
-		
-		private void createCumulativeHeatProductionRecordSet() throws Exception {
-			GExportRecord r;
-			
-			CATTimeTable timeScale = caller.summary.getTimeTable();
-			
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			MonteCarloEstimate estimate = caller.summary.getHeatProductionEvolutionKWhPerHa();
-			int nbRealizations = estimate.getNumberOfRealizations();
-			for (int i = 0; i < timeScale.size(); i++) {
-				for (int j = 0; j < nbRealizations; j++) {
-					double value = estimate.getRealizations().get(j).getValueAt(i, 0);
-					if (caller.summary.isEvenAged() && i == 0) {
-						r = new GExportRecord();
-						r.addField(standIDField);
-						r.addField(new GExportFieldDetails(MessageID.Year.toString(), (Integer) 0));
-						r.addField(new GExportFieldDetails(MessageID.HeatMgWhPerHa.toString(), (Double) 0d));
-						if (nbRealizations > 0) {
-							r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-						}
-						addRecord(r);
-					}
-					r = new GExportRecord();
-					r.addField(standIDField);
-					r.addField(new GExportFieldDetails(MessageID.Year.toString(), timeScale.getDateYrAtThisIndex(i)));
-					r.addField(new GExportFieldDetails(MessageID.HeatMgWhPerHa.toString(), value));
-					if (nbRealizations > 0) {
-						r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-					}
+		/**
+		 * This writer converts the rows into GExportRecord instances and adds them to the record set.<p>
+		 * The record sets of REpiceaExportTool hold all their records in memory before they are saved or 
+		 * returned. The boxed fields therefore cannot be avoided on this path. The exportRows method is 
+		 * the streamed alternative.
+		 */
+		private class RecordSetRowWriter extends AbstractCATExportRowWriter {
 
-					addRecord(r);
-				}
-			}
-		}
+			@Override
+			protected void headerSet() {}
 
-		private void createHWPEvolutionRecordSet() throws Exception {
-			GExportRecord r;
-						
-			Map<Integer, UseClassSpeciesMonteCarloEstimateMap> productMap = caller.summary.getProductEvolutionPerHa();
-			
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			List<Integer> dates = new ArrayList<Integer>();
-			dates.addAll(productMap.keySet());
-			Collections.sort(dates);
-			
-			for (Integer date : dates) {
-				GExportFieldDetails dateIDField = new GExportFieldDetails("Date", date);
-				UseClassSpeciesMonteCarloEstimateMap innerMap = productMap.get(date);
-				for (UseClass useClass : UseClass.values()) {
-					if (innerMap.containsKey(useClass)) {
-						SpeciesMonteCarloEstimateMap smcem = innerMap.get(useClass);
-						for (String speciesName : getSpeciesList(smcem)) {
-							MonteCarloEstimateMap carrier;
-							if (speciesName.equals(AllSpecies)) {
-								carrier = smcem.getSumAcrossSpecies();
-							} else {
-								carrier = smcem.get(speciesName);
-							}
-							MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
-							if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
-								MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
-								int nbRealizations = volumeEstimate.getNumberOfRealizations();
-								for (int j = 0; j < nbRealizations; j++) {
-									r = new GExportRecord();
-									r.addField(standIDField);
-									r.addField(dateIDField);
-									r.addField(new GExportFieldDetails("UseClass", useClass.name()));
-									r.addField(new GExportFieldDetails("Species", speciesName));
-									r.addField(new GExportFieldDetails("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
-									r.addField(new GExportFieldDetails("Biomass_kgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000));
-									if (nbRealizations > 0) {
-										r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-									}
-									addRecord(r);
-								}
-							}
-						}
+			@Override
+			protected void rowSet() throws Exception {
+				GExportRecord r = new GExportRecord();
+				for (int i = 0; i < fieldTypes.length; i++) {
+					switch(fieldTypes[i]) {
+					case String:
+						r.addField(new GExportFieldDetails(fieldNames[i], stringValues[i]));
+						break;
+					case Integer:
+						r.addField(new GExportFieldDetails(fieldNames[i], (Integer) intValues[i]));
+						break;
+					case Double:
+						r.addField(new GExportFieldDetails(fieldNames[i], (Double) doubleValues[i]));
+						break;
 					}
 				}
+				addRecord(r);
 			}
-		}
 
-		private boolean shouldCompartmentBeIncludedInExport(CompartmentInfo compartmentInfo) {
-			return caller.summary.isSoilModuleEnabled() || !SOIL_COMPARTMENTS.contains(compartmentInfo);
+			@Override
+			public void close() {}
 		}
 		
-		private void createCarbonStockAndFluxEvolutionRecordSet() throws Exception {
-			GExportRecord r;
-			
-			CATTimeTable timeScale = caller.summary.getTimeTable();
-			
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
-				if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
-					MonteCarloEstimate estimate = caller.summary.getEvolutionMap().get(compartmentInfo);
-					int nbRealizations = estimate.getNumberOfRealizations();
-					for (int i = 0; i < timeScale.size(); i++) {
-						for (int j = 0; j < nbRealizations; j++) {
-							double value = estimate.getRealizations().get(j).getValueAt(i, 0);
-							if (caller.summary.isEvenAged() && i == 0) {
-								r = new GExportRecord();
-								r.addField(standIDField);
-								r.addField(new GExportFieldDetails(MessageID.Year.toString(), (Integer) 0));
-								r.addField(new GExportFieldDetails(MessageID.Compartment.toString(), compartmentInfo.toString()));
-								r.addField(new GExportFieldDetails(MessageID.CarbonHaMean.toString(), (Double) 0d));
-								if (nbRealizations > 0) {
-									r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-								}
-								addRecord(r);
-							}
-							r = new GExportRecord();
-							r.addField(standIDField);
-							r.addField(new GExportFieldDetails(MessageID.Year.toString(), timeScale.getDateYrAtThisIndex(i)));
-							r.addField(new GExportFieldDetails(MessageID.Compartment.toString(), compartmentInfo.toString()));
-							r.addField(new GExportFieldDetails(MessageID.CarbonHaMean.toString(), value));
-							if (nbRealizations > 0) {
-								r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-							}
-					
-							addRecord(r);
-						}
-					}
-				}
-			}
-		}
-		
-		
-		private void createAverageCarbonStocksAndFluxesRecordSet() throws Exception {
-			GExportRecord r;
-
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-
-			for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
-				if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
-					Estimate<Matrix, SymmetricMatrix, ?> estimate = caller.summary.getBudgetMap().get(compartmentInfo);
-					if (estimate instanceof MonteCarloEstimate) {
-						int nbRealizations = ((MonteCarloEstimate) estimate).getNumberOfRealizations();
-						for (int j = 0; j < nbRealizations; j++) {
-							double value = ((MonteCarloEstimate) estimate).getRealizations().get(j).getValueAt(0, 0);
-							r = new GExportRecord();
-							r.addField(standIDField);
-							r.addField(new GExportFieldDetails(MessageID.Compartment.toString(), compartmentInfo.toString()));
-							r.addField(new GExportFieldDetails(MessageID.CarbonHaMean.toString(), value));
-							if (nbRealizations > 0) {
-								r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-							}
-							addRecord(r);
-						}
-					} else {
-						r = new GExportRecord();
-						r.addField(standIDField);
-						r.addField(new GExportFieldDetails(MessageID.Compartment.toString(), compartmentInfo.toString()));
-						r.addField(new GExportFieldDetails(MessageID.CarbonHaMean.toString(), estimate.getMean().getValueAt(0, 0)));
-						r.addField(new GExportFieldDetails(MessageID.Variance.toString(), estimate.getVariance().getValueAt(0, 0)));
-					}
-				}
-			}
-		}
-		
-		
-		private List<String> getSpeciesList(SpeciesMonteCarloEstimateMap smcem) {
-			List<String> speciesList = new ArrayList<String>(smcem.keySet());
-			Collections.sort(speciesList);
-			speciesList.add(AllSpecies);
-			return speciesList;
-		}
-		
-		/**
-		 * Sum the different wood products by category over the simulation period. THe output is in terms of volume (m3/ha),
-		 * biomass (kg/ha) and C (kg/ha). 
-		 * @throws Exception
-		 */
-		private void createTotalHWPbyCategoriesRecordSet() throws Exception {
-			GExportRecord r;
-			Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = caller.summary.getHWPPerHaByUseClass();		// no recycling
-			
-			double nutrientKg;
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			
-			for (CarbonUnitStatus type : CarbonUnitStatus.values()) {
-				if (volumeProducts.containsKey(type)) {
-					UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
-					SpeciesMonteCarloEstimateMap smcem;
-					for (UseClass useClass : UseClass.values()) {
-						if (innerVolumeMap.containsKey(useClass)) {
-							smcem = innerVolumeMap.get(useClass);
-							List<String> speciesList = getSpeciesList(smcem);
-							MonteCarloEstimateMap carrier;
-							for (String speciesName : speciesList) {
-								if (speciesName.equals(AllSpecies)) {
-									carrier = smcem.getSumAcrossSpecies();
-								} else {
-									carrier = smcem.get(speciesName);
-								}
-								MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
-								if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
-									MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
-									int nbRealizations = volumeEstimate.getNumberOfRealizations();
-									for (int j = 0; j < nbRealizations; j++) {
-										r = new GExportRecord();
-										r.addField(standIDField);
-										r.addField(new GExportFieldDetails("Type", type.name()));
-										r.addField(new GExportFieldDetails("Class", useClass.toString()));
-										r.addField(new GExportFieldDetails("Species", speciesName));
-										r.addField(new GExportFieldDetails("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
-										r.addField(new GExportFieldDetails("Biomass_Mgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0)));
-										for (Element nutrient : Element.getNutrients()) {
-											nutrientKg = 0d;
-											if (carrier != null && carrier.containsKey(nutrient)) {
-												nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
-											}
-											if (nutrient.equals(Element.C)) {
-												nutrientKg *= 1000;
-											}
-											r.addField(new GExportFieldDetails(nutrient.name() + "_kg_ha", (Double) nutrientKg));
-										}
-										if (nbRealizations > 0) {
-											r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-										}
-										addRecord(r);
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-		}
-
+		private CATExportTool caller;
 		
-		private void createAnnualVolumeNutrientFluxesRecordSet() throws Exception {
-			GExportRecord r;
-			double annualFactor = 1d / caller.summary.getRotationLength();
-			
-			Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = caller.summary.getHWPPerHaByUseClass();
-			
-			double nutrientKg;
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			
-			for (CarbonUnitStatus type : CarbonUnitStatus.values()) { 
-				if (volumeProducts.containsKey(type)) {
-					UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
-					for (UseClass useClass : UseClass.values()) {
-						if (innerVolumeMap.containsKey(useClass)) {
-							SpeciesMonteCarloEstimateMap smcem = innerVolumeMap.get(useClass);
-							for (String speciesName : getSpeciesList(smcem)) {
-								MonteCarloEstimateMap carrier;
-								if (speciesName.equals(AllSpecies)) {
-									carrier = smcem.getSumAcrossSpecies();
-								} else {
-									carrier = smcem.get(speciesName);
-								}
-								MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
-								if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
-									MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
-									int nbRealizations = volumeEstimate.getNumberOfRealizations();
-									for (int j = 0; j < nbRealizations; j++) {
-										r = new GExportRecord();
-										r.addField(standIDField);
-										r.addField(new GExportFieldDetails("Type", type.name()));
-										r.addField(new GExportFieldDetails("Class", useClass.toString()));
-										r.addField(new GExportFieldDetails("Species", speciesName));
-										r.addField(new GExportFieldDetails("Volume_m3hayr", volumeEstimate.getRealizations().get(j).getValueAt(0, 0) * annualFactor));
-										r.addField(new GExportFieldDetails("Biomass_kghayr", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000 * annualFactor));
-										for (Element nutrient : Element.getNutrients()) {
-											nutrientKg = 0d;
-											if (carrier != null && carrier.containsKey(nutrient)) {
-												nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
-											}
-											if (nutrient.equals(Element.C)) {
-												nutrientKg *= 1000;
-											}
-											r.addField(new GExportFieldDetails(nutrient.name() + "_kghayr", (Double) (nutrientKg * annualFactor)));
-										}
-										if (nbRealizations > 0) {
-											r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-										}
-										addRecord(r);
-									}
-								}
-							}
-						}
-					}
-				}
-			}
+		@SuppressWarnings("rawtypes")
+		protected InternalSwingWorker(CATExportTool caller, Enum selectedOption, REpiceaRecordSet recordSet) {
+			super(selectedOption, recordSet);
+			this.caller = caller;
 		}
 
-		private void createTotalLogVolumeByCategoriesRecordSet() throws Exception {
-			GExportRecord r;
-			
-			String standID = caller.summary.getStandID();
-			if (standID == null || standID.isEmpty()) {
-				standID = "Unknown";
-			}
-			GExportFieldDetails standIDField = new GExportFieldDetails("StandID", standID);
-			
-			List<String> logNames = new ArrayList<String>(caller.summary.getLogGradePerHa().keySet());
-			Collections.sort(logNames);
-			
-			for (String logName : logNames) {
-				SpeciesMonteCarloEstimateMap smcem = caller.summary.getLogGradePerHa().get(logName);
-				List<String> speciesList = getSpeciesList(smcem);
-				for (String speciesName : speciesList) {
-					MonteCarloEstimateMap carrier;
-					if (speciesName.equals(AllSpecies)) {
-						carrier = smcem.getSumAcrossSpecies();
-					} else {
-						carrier = smcem.get(speciesName);
-					}
-					MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
-					if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
-						MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
-						int nbRealizations = volumeEstimate.getNumberOfRealizations();
-						for (int j = 0; j < nbRealizations; j++) {
-							r = new GExportRecord();
-							r.addField(standIDField);
-							r.addField(new GExportFieldDetails("LogCategory", logName));
-							r.addField(new GExportFieldDetails("Species", speciesName));
-							r.addField(new GExportFieldDetails("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
-							r.addField(new GExportFieldDetails("Biomass_kgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000));
-							if (nbRealizations > 0) {
-								r.addField(new GExportFieldDetails("RealizationID", (Integer) j+1));
-							}
-					
-							addRecord(r);
-						}
-					}
-				}
-			}
+		@Override
+		protected void doThisJob() throws Exception {
+			caller.writeRows((ExportOption) getExportOption(), new RecordSetRowWriter());
 		}
 	}
 	
@@ -586,6 +204,13 @@ public class CATExportTool extends REpiceaExportTool {
 	}
 	
 
+	/**
+	 * Export the selected options in record sets and save them if the save file option is enabled.<p>
+	 * All the records of an option are held in memory as GExportRecord instances until the record 
+	 * set is complete, so that the memory load grows with the number of realizations. For large 
+	 * stochastic simulations, the {@link #exportRows(ExportOption, CATExportRowWriter)} method writes
+	 * each row as soon as it is complete.
+	 */
 	@SuppressWarnings("rawtypes")
 	@Override
 	public Map<Enum, REpiceaRecordSet> exportRecordSets() throws Exception {
@@ -668,4 +293,416 @@ public class CATExportTool extends REpiceaExportTool {
 		setSelectedOptions(availableOptions);
 		return availableOptions;
 	}
+
+	/**
+	 * Export the rows of an option directly into a CATExportRowWriter instance.<p>
+	 * Contrary to the {@link #exportRecordSets()} method, the rows are not stored in memory 
+	 * before being written. The writer is closed at the end of the export.
+	 * @param option an ExportOption enum
+	 * @param writer a CATExportRowWriter instance (e.g. a CATExportCSVWriter or a CATExportColumnarWriter instance)
+	 * @throws Exception if the option is not available or if the rows cannot be written
+	 */
+	public void exportRows(ExportOption option, CATExportRowWriter writer) throws Exception {
+		if (option == null || writer == null) {
+			throw new InvalidParameterException("The option and writer arguments cannot be null!");
+		}
+		try {
+			if (!getAvailableExportOptions().contains(option)) {
+				throw new InvalidParameterException("Export option " + option.name() + " cannot be selected with this CATSimulationResult instance!");
+			}
+			writeRows(option, writer);
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private void writeRows(ExportOption option, CATExportRowWriter writer) throws Exception {
+		switch (option) {
+		case CarbonStockAndFluxEvolution:
+			writeCarbonStockAndFluxEvolutionRows(writer);
+			break;
+		case AverageCarbonStocksAndFluxes:
+			writeAverageCarbonStocksAndFluxesRows(writer);
+			break;
+		case DifferenceCarbonStocksAndFluxes:
+			writeAverageCarbonStocksAndFluxesRows(writer);
+			break;
+		case TotalHWPbyCategories:
+			writeTotalHWPbyCategoriesRows(writer);
+			break;
+		case AnnualVolumeNutrientFluxes:
+			writeAnnualVolumeNutrientFluxesRows(writer);
+			break;
+		case TotalLogVolumeByCategories:
+			writeTotalLogVolumeByCategoriesRows(writer);
+			break;
+		case HWPEvolution:
+			writeHWPEvolutionRows(writer);
+			break;
+		case HeatProduction:
+			writeCumulativeHeatProductionRows(writer);
+			break;
+		case SoilCarbonInput:
+			writeSoilCarbonInputRows(writer);
+			break;
+		default:
+			throw new Exception("Unrecognized Export Format");
+		}
+	}
+
+	private String getStandIDForExport() {
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		return standID;
+	}
+	
+	private void writeSoilCarbonInputRows(CATExportRowWriter writer) throws Exception {
+		CATTimeTable timeTable = summary.getTimeTable();			
+		
+		Matrix meanHumus = summary.getHumusCarbonInputMgHa().getMean();
+		Matrix meanMineralSoil = summary.getMineralSoilCarbonInputMgHa().getMean();
+		
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", "DateYr", "HumusCMgHa", "MineralSoilCMgHa"},
+				new FieldType[] {FieldType.String, FieldType.Integer, FieldType.Double, FieldType.Double});
+		int lastDateYr = -1;
+		for (int i = 0; i < timeTable.size(); i++) {
+			int currentDateYr = timeTable.getDateYrAtThisIndex(i);
+			if (currentDateYr != lastDateYr) {
+				writer.setString(0, standID);
+				writer.setInt(1, currentDateYr);
+				writer.setDouble(2, meanHumus.getValueAt(i, 0));
+				writer.setDouble(3, meanMineralSoil.getValueAt(i, 0));
+				writer.writeRow();
+				lastDateYr = currentDateYr;
+			}
+		}
+	}
+
+	private void writeCumulativeHeatProductionRows(CATExportRowWriter writer) throws Exception {
+		CATTimeTable timeScale = summary.getTimeTable();
+		
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", MessageID.Year.toString(), MessageID.HeatMgWhPerHa.toString(), "RealizationID"},
+				new FieldType[] {FieldType.String, FieldType.Integer, FieldType.Double, FieldType.Integer});
+		MonteCarloEstimate estimate = summary.getHeatProductionEvolutionKWhPerHa();
+		int nbRealizations = estimate.getNumberOfRealizations();
+		for (int i = 0; i < timeScale.size(); i++) {
+			for (int j = 0; j < nbRealizations; j++) {
+				double value = estimate.getRealizations().get(j).getValueAt(i, 0);
+				if (summary.isEvenAged() && i == 0) {
+					writer.setString(0, standID);
+					writer.setInt(1, 0);
+					writer.setDouble(2, 0d);
+					writer.setInt(3, j+1);
+					writer.writeRow();
+				}
+				writer.setString(0, standID);
+				writer.setInt(1, timeScale.getDateYrAtThisIndex(i));
+				writer.setDouble(2, value);
+				writer.setInt(3, j+1);
+				writer.writeRow();
+			}
+		}
+	}
+
+	private void writeHWPEvolutionRows(CATExportRowWriter writer) throws Exception {
+		Map<Integer, UseClassSpeciesMonteCarloEstimateMap> productMap = summary.getProductEvolutionPerHa();
+		
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", "Date", "UseClass", "Species", "Volume_m3ha", "Biomass_kgha", "RealizationID"},
+				new FieldType[] {FieldType.String, FieldType.Integer, FieldType.String, FieldType.String, FieldType.Double, FieldType.Double, FieldType.Integer});
+		List<Integer> dates = new ArrayList<Integer>();
+		dates.addAll(productMap.keySet());
+		Collections.sort(dates);
+		
+		for (Integer date : dates) {
+			UseClassSpeciesMonteCarloEstimateMap innerMap = productMap.get(date);
+			for (UseClass useClass : UseClass.values()) {
+				if (innerMap.containsKey(useClass)) {
+					SpeciesMonteCarloEstimateMap smcem = innerMap.get(useClass);
+					for (String speciesName : getSpeciesList(smcem)) {
+						MonteCarloEstimateMap carrier;
+						if (speciesName.equals(AllSpecies)) {
+							carrier = smcem.getSumAcrossSpecies();
+						} else {
+							carrier = smcem.get(speciesName);
+						}
+						MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+						if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+							MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+							int nbRealizations = volumeEstimate.getNumberOfRealizations();
+							for (int j = 0; j < nbRealizations; j++) {
+								writer.setString(0, standID);
+								writer.setInt(1, date);
+								writer.setString(2, useClass.name());
+								writer.setString(3, speciesName);
+								writer.setDouble(4, volumeEstimate.getRealizations().get(j).getValueAt(0, 0));
+								writer.setDouble(5, biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000);
+								writer.setInt(6, j+1);
+								writer.writeRow();
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private boolean shouldCompartmentBeIncludedInExport(CompartmentInfo compartmentInfo) {
+		return summary.isSoilModuleEnabled() || !SOIL_COMPARTMENTS.contains(compartmentInfo);
+	}
+	
+	private void writeCarbonStockAndFluxEvolutionRows(CATExportRowWriter writer) throws Exception {
+		CATTimeTable timeScale = summary.getTimeTable();
+		
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", MessageID.Year.toString(), MessageID.Compartment.toString(), MessageID.CarbonHaMean.toString(), "RealizationID"},
+				new FieldType[] {FieldType.String, FieldType.Integer, FieldType.String, FieldType.Double, FieldType.Integer});
+		for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
+			if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
+				MonteCarloEstimate estimate = summary.getEvolutionMap().get(compartmentInfo);
+				String compartmentName = compartmentInfo.toString();
+				int nbRealizations = estimate.getNumberOfRealizations();
+				for (int i = 0; i < timeScale.size(); i++) {
+					for (int j = 0; j < nbRealizations; j++) {
+						double value = estimate.getRealizations().get(j).getValueAt(i, 0);
+						if (summary.isEvenAged() && i == 0) {
+							writer.setString(0, standID);
+							writer.setInt(1, 0);
+							writer.setString(2, compartmentName);
+							writer.setDouble(3, 0d);
+							writer.setInt(4, j+1);
+							writer.writeRow();
+						}
+						writer.setString(0, standID);
+						writer.setInt(1, timeScale.getDateYrAtThisIndex(i));
+						writer.setString(2, compartmentName);
+						writer.setDouble(3, value);
+						writer.setInt(4, j+1);
+						writer.writeRow();
+					}
+				}
+			}
+		}
+	}
+	
+	/*
+	 * The estimates that are not Monte Carlo estimates have never been exported. 
+	 */
+	private void writeAverageCarbonStocksAndFluxesRows(CATExportRowWriter writer) throws Exception {
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", MessageID.Compartment.toString(), MessageID.CarbonHaMean.toString(), "RealizationID"},
+				new FieldType[] {FieldType.String, FieldType.String, FieldType.Double, FieldType.Integer});
+
+		for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
+			if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
+				Estimate<Matrix, SymmetricMatrix, ?> estimate = summary.getBudgetMap().get(compartmentInfo);
+				if (estimate instanceof MonteCarloEstimate) {
+					int nbRealizations = ((MonteCarloEstimate) estimate).getNumberOfRealizations();
+					for (int j = 0; j < nbRealizations; j++) {
+						double value = ((MonteCarloEstimate) estimate).getRealizations().get(j).getValueAt(0, 0);
+						writer.setString(0, standID);
+						writer.setString(1, compartmentInfo.toString());
+						writer.setDouble(2, value);
+						writer.setInt(3, j+1);
+						writer.writeRow();
+					}
+				} 
+			}
+		}
+	}
+	
+	private List<String> getSpeciesList(SpeciesMonteCarloEstimateMap smcem) {
+		List<String> speciesList = new ArrayList<String>(smcem.keySet());
+		Collections.sort(speciesList);
+		speciesList.add(AllSpecies);
+		return speciesList;
+	}
+	
+	private static String[] getHWPFieldNames(String firstField, String volumeField, String biomassField, String nutrientSuffix) {
+		List<Element> nutrients = Element.getNutrients();
+		String[] fieldNames = new String[nutrients.size() + 7];
+		fieldNames[0] = "StandID";
+		fieldNames[1] = firstField;
+		fieldNames[2] = "Class";
+		fieldNames[3] = "Species";
+		fieldNames[4] = volumeField;
+		fieldNames[5] = biomassField;
+		for (int k = 0; k < nutrients.size(); k++) {
+			fieldNames[k + 6] = nutrients.get(k).name() + nutrientSuffix;
+		}
+		fieldNames[fieldNames.length - 1] = "RealizationID";
+		return fieldNames;
+	}
+
+	private static FieldType[] getHWPFieldTypes(int nbFields) {
+		FieldType[] fieldTypes = new FieldType[nbFields];
+		fieldTypes[0] = FieldType.String;
+		fieldTypes[1] = FieldType.String;
+		fieldTypes[2] = FieldType.String;
+		fieldTypes[3] = FieldType.String;
+		for (int k = 4; k < nbFields - 1; k++) {
+			fieldTypes[k] = FieldType.Double;
+		}
+		fieldTypes[nbFields - 1] = FieldType.Integer;
+		return fieldTypes;
+	}
+	
+	/**
+	 * Sum the different wood products by category over the simulation period. THe output is in terms of volume (m3/ha),
+	 * biomass (kg/ha) and C (kg/ha). 
+	 * @throws Exception
+	 */
+	private void writeTotalHWPbyCategoriesRows(CATExportRowWriter writer) throws Exception {
+		Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = summary.getHWPPerHaByUseClass();		// no recycling
+		
+		double nutrientKg;
+		String standID = getStandIDForExport();
+		String[] fieldNames = getHWPFieldNames("Type", "Volume_m3ha", "Biomass_Mgha", "_kg_ha");
+		writer.writeHeader(fieldNames, getHWPFieldTypes(fieldNames.length));
+		List<Element> nutrients = Element.getNutrients();
+		
+		for (CarbonUnitStatus type : CarbonUnitStatus.values()) {
+			if (volumeProducts.containsKey(type)) {
+				UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
+				SpeciesMonteCarloEstimateMap smcem;
+				for (UseClass useClass : UseClass.values()) {
+					if (innerVolumeMap.containsKey(useClass)) {
+						smcem = innerVolumeMap.get(useClass);
+						List<String> speciesList = getSpeciesList(smcem);
+						MonteCarloEstimateMap carrier;
+						for (String speciesName : speciesList) {
+							if (speciesName.equals(AllSpecies)) {
+								carrier = smcem.getSumAcrossSpecies();
+							} else {
+								carrier = smcem.get(speciesName);
+							}
+							MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+							if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+								MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+								int nbRealizations = volumeEstimate.getNumberOfRealizations();
+								for (int j = 0; j < nbRealizations; j++) {
+									writer.setString(0, standID);
+									writer.setString(1, type.name());
+									writer.setString(2, useClass.toString());
+									writer.setString(3, speciesName);
+									writer.setDouble(4, volumeEstimate.getRealizations().get(j).getValueAt(0, 0));
+									writer.setDouble(5, biomassEstimate.getRealizations().get(j).getValueAt(0, 0));
+									for (int k = 0; k < nutrients.size(); k++) {
+										Element nutrient = nutrients.get(k);
+										nutrientKg = 0d;
+										if (carrier != null && carrier.containsKey(nutrient)) {
+											nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
+										}
+										if (nutrient.equals(Element.C)) {
+											nutrientKg *= 1000;
+										}
+										writer.setDouble(k + 6, nutrientKg);
+									}
+									writer.setInt(fieldNames.length - 1, j+1);
+									writer.writeRow();
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void writeAnnualVolumeNutrientFluxesRows(CATExportRowWriter writer) throws Exception {
+		double annualFactor = 1d / summary.getRotationLength();
+		
+		Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = summary.getHWPPerHaByUseClass();
+		
+		double nutrientKg;
+		String standID = getStandIDForExport();
+		String[] fieldNames = getHWPFieldNames("Type", "Volume_m3hayr", "Biomass_kghayr", "_kghayr");
+		writer.writeHeader(fieldNames, getHWPFieldTypes(fieldNames.length));
+		List<Element> nutrients = Element.getNutrients();
+		
+		for (CarbonUnitStatus type : CarbonUnitStatus.values()) { 
+			if (volumeProducts.containsKey(type)) {
+				UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
+				for (UseClass useClass : UseClass.values()) {
+					if (innerVolumeMap.containsKey(useClass)) {
+						SpeciesMonteCarloEstimateMap smcem = innerVolumeMap.get(useClass);
+						for (String speciesName : getSpeciesList(smcem)) {
+							MonteCarloEstimateMap carrier;
+							if (speciesName.equals(AllSpecies)) {
+								carrier = smcem.getSumAcrossSpecies();
+							} else {
+								carrier = smcem.get(speciesName);
+							}
+							MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+							if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+								MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+								int nbRealizations = volumeEstimate.getNumberOfRealizations();
+								for (int j = 0; j < nbRealizations; j++) {
+									writer.setString(0, standID);
+									writer.setString(1, type.name());
+									writer.setString(2, useClass.toString());
+									writer.setString(3, speciesName);
+									writer.setDouble(4, volumeEstimate.getRealizations().get(j).getValueAt(0, 0) * annualFactor);
+									writer.setDouble(5, biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000 * annualFactor);
+									for (int k = 0; k < nutrients.size(); k++) {
+										Element nutrient = nutrients.get(k);
+										nutrientKg = 0d;
+										if (carrier != null && carrier.containsKey(nutrient)) {
+											nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
+										}
+										if (nutrient.equals(Element.C)) {
+											nutrientKg *= 1000;
+										}
+										writer.setDouble(k + 6, nutrientKg * annualFactor);
+									}
+									writer.setInt(fieldNames.length - 1, j+1);
+									writer.writeRow();
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void writeTotalLogVolumeByCategoriesRows(CATExportRowWriter writer) throws Exception {
+		String standID = getStandIDForExport();
+		writer.writeHeader(new String[] {"StandID", "LogCategory", "Species", "Volume_m3ha", "Biomass_kgha", "RealizationID"},
+				new FieldType[] {FieldType.String, FieldType.String, FieldType.String, FieldType.Double, FieldType.Double, FieldType.Integer});
+		
+		List<String> logNames = new ArrayList<String>(summary.getLogGradePerHa().keySet());
+		Collections.sort(logNames);
+		
+		for (String logName : logNames) {
+			SpeciesMonteCarloEstimateMap smcem = summary.getLogGradePerHa().get(logName);
+			List<String> speciesList = getSpeciesList(smcem);
+			for (String speciesName : speciesList) {
+				MonteCarloEstimateMap carrier;
+				if (speciesName.equals(AllSpecies)) {
+					carrier = smcem.getSumAcrossSpecies();
+				} else {
+					carrier = smcem.get(speciesName);
+				}
+				MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+				if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+					MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+					int nbRealizations = volumeEstimate.getNumberOfRealizations();
+					for (int j = 0; j < nbRealizations; j++) {
+						writer.setString(0, standID);
+						writer.setString(1, logName);
+						writer.setString(2, speciesName);
+						writer.setDouble(3, volumeEstimate.getRealizations().get(j).getValueAt(0, 0));
+						writer.setDouble(4, biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000);
+						writer.setInt(5, j+1);
+						writer.writeRow();
+					}
+				}
+			}
+		}
+	}
 }
@@ -20,9 +20,11 @@ package lerfob.carbonbalancetool.io;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lerfob.carbonbalancetool.CATCompatibleStand;
 import lerfob.carbonbalancetool.io.CATGrowthSimulationRecordReader.CATGrowthSimulationFieldID;
@@ -45,6 +47,7 @@ public class CATGrowthSimulationCompositeStand implements CATCompatibleStand, St
 	private final boolean isInterventionResult;
 	private final Map<CATGrowthSimulationFieldID, Boolean> interfaceEnabledMap;
 	private final SpeciesLocale locale;
+	private final Map<StatusClass, Collection<CATGrowthSimulationTree>> treeViews;	// cached until a realization, a plot or a tree is added
 	
 	protected CATGrowthSimulationCompositeStand(int dateYr, String standIdentification, CATGrowthSimulationRecordReader reader, 
 			boolean isInterventionResult, 
@@ -60,19 +63,44 @@ public class CATGrowthSimulationCompositeStand implements CATCompatibleStand, St
 		this.isInterventionResult = isInterventionResult;
 		this.interfaceEnabledMap = interfaceEnabledMap;
 		this.locale = locale;
+		treeViews = new ConcurrentHashMap<StatusClass, Collection<CATGrowthSimulationTree>>();
 	}
 	
+	/**
+	 * Provide the area of the first realization.<p>
+	 * The first realization is that whose id is 0 or, if there is no such realization, 
+	 * as is the case when the realizations are read one at a time, the single realization of this stand.
+	 */
 	@Override
-	public double getAreaHa() {return getRealization(0).getAreaHa();}
+	public double getAreaHa() {
+		CATGrowthSimulationPlotSample plotSample = getRealization(0);
+		if (plotSample == null && !realizationMap.isEmpty()) {
+			plotSample = realizationMap.values().iterator().next();
+		}
+		return plotSample.getAreaHa();
+	}
 
+	/**
+	 * Provide the trees of all the realizations.<p>
+	 * The collection is read-only. It is computed once and then reused until a realization, a plot or a tree is added.
+	 */
 	@Override
 	public Collection<CATGrowthSimulationTree> getTrees(StatusClass statusClass) {
-		Collection<CATGrowthSimulationTree> coll = new ArrayList<CATGrowthSimulationTree>();
-		for (CATGrowthSimulationPlotSample plotSample : realizationMap.values()) {
-			coll.addAll(plotSample.getTrees(statusClass));
+		Collection<CATGrowthSimulationTree> coll = treeViews.get(statusClass);
+		if (coll == null) {
+			Collection<CATGrowthSimulationTree> trees = new ArrayList<CATGrowthSimulationTree>();
+			for (CATGrowthSimulationPlotSample plotSample : realizationMap.values()) {
+				trees.addAll(plotSample.getTrees(statusClass));
+			}
+			coll = Collections.unmodifiableCollection(trees);
+			treeViews.put(statusClass, coll);
 		}
 		return coll;
 	}
+
+	void clearCachedViews() {
+		treeViews.clear();
+	}
 		
 	@Override
 	public boolean isInterventionResult() {return isInterventionResult;}
@@ -99,6 +127,7 @@ public class CATGrowthSimulationCompositeStand implements CATCompatibleStand, St
 	void createRealizationIfNeeded(int realization) {	
 		if (!realizationMap.containsKey(realization)) {
 			realizationMap.put(realization, createPlotSample());
+			clearCachedViews();
 		}
 	}
 	
@@ -2,6 +2,7 @@ package lerfob.carbonbalancetool.io;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +34,12 @@ public class CATGrowthSimulationPlot implements CATCompatibleStand {
 	@Override
 	public double getAreaHa() {return areaHa;}
 
+	/**
+	 * Provide the trees of this plot.<p>
+	 * The collection is read-only. The trees are added through the addTree method.
+	 */
 	@Override
-	public Collection<CATGrowthSimulationTree> getTrees(StatusClass statusClass) {return statusMap.get(statusClass);}
+	public Collection<CATGrowthSimulationTree> getTrees(StatusClass statusClass) {return Collections.unmodifiableList(statusMap.get(statusClass));}
 
 	@Override
 	public boolean isInterventionResult() {return isInterventionResult;}
@@ -46,7 +51,8 @@ public class CATGrowthSimulationPlot implements CATCompatibleStand {
 	public int getDateYr() {return plotSample.getDateYr();}
 
 	protected void addTree(CATGrowthSimulationTree tree) {
-		getTrees(tree.getStatusClass()).add(tree);
+		statusMap.get(tree.getStatusClass()).add(tree);
+		plotSample.clearCachedViews();
 	}
 
 
@@ -22,8 +22,10 @@ package lerfob.carbonbalancetool.io;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lerfob.carbonbalancetool.CATCompatibleStand;
 import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvider.ApplicationScale;
@@ -36,30 +38,56 @@ public class CATGrowthSimulationPlotSample implements CATCompatibleStand {
 	
 	private final Map<String, CATGrowthSimulationPlot> plotMap;
 	
+	private volatile Double areaHa;		// cached until a plot or a tree is added
+	private final Map<StatusClass, Collection<CATGrowthSimulationTree>> treeViews;	// cached until a plot or a tree is added
 	
 	protected CATGrowthSimulationPlotSample(CATGrowthSimulationCompositeStand compositeStand) {
 		this.compositeStand = compositeStand;
 		this.plotMap = new HashMap<String, CATGrowthSimulationPlot>();
+		this.treeViews = new ConcurrentHashMap<StatusClass, Collection<CATGrowthSimulationTree>>();
 	}
 	
 	@Override
 	public double getAreaHa() {
-		double areaHa = 0d;
-		for (CATGrowthSimulationPlot plot : plotMap.values()) {
-			areaHa += plot.getAreaHa();
+		Double areaHa = this.areaHa;
+		if (areaHa == null) {
+			double sum = 0d;
+			for (CATGrowthSimulationPlot plot : plotMap.values()) {
+				sum += plot.getAreaHa();
+			}
+			areaHa = sum;
+			this.areaHa = areaHa;
 		}
 		return areaHa;
 	}
 
+	/**
+	 * Provide the trees of all the plots.<p>
+	 * The collection is read-only. It is computed once and then reused until a plot or a tree is added.
+	 */
 	@Override
 	public Collection<CATGrowthSimulationTree> getTrees(StatusClass statusClass) {
-		Collection<CATGrowthSimulationTree> coll = new ArrayList<CATGrowthSimulationTree>();
-		for (CATGrowthSimulationPlot plot : getPlotMap().values()) {
-			coll.addAll(plot.getTrees(statusClass));
+		Collection<CATGrowthSimulationTree> coll = treeViews.get(statusClass);
+		if (coll == null) {
+			Collection<CATGrowthSimulationTree> trees = new ArrayList<CATGrowthSimulationTree>();
+			for (CATGrowthSimulationPlot plot : getPlotMap().values()) {
+				trees.addAll(plot.getTrees(statusClass));
+			}
+			coll = Collections.unmodifiableCollection(trees);
+			treeViews.put(statusClass, coll);
 		}
 		return coll;
 	}
 
+	/*
+	 * Clear the cached area and trees of this sample and of its composite stand.
+	 */
+	void clearCachedViews() {
+		areaHa = null;
+		treeViews.clear();
+		compositeStand.clearCachedViews();
+	}
+
 	@Override
 	public boolean isInterventionResult() {return false;}
 
@@ -72,6 +100,7 @@ public class CATGrowthSimulationPlotSample implements CATCompatibleStand {
 	void createPlot(String plotID, double plotAreaHa, boolean isInterventionResult) {
 		if (!getPlotMap().containsKey(plotID)) {
 			getPlotMap().put(plotID, new CATGrowthSimulationPlot(plotID, plotAreaHa, isInterventionResult, this));
+			clearCachedViews();
 		}
 	}
 	
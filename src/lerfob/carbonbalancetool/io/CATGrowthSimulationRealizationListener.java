@@ -0,0 +1,47 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.util.List;
+
+import lerfob.carbonbalancetool.CATCompatibleStand;
+
+/**
+ * The CATGrowthSimulationRealizationListener interface makes it possible to read a 
+ * growth simulation one realization at a time. <p>
+ * Once a listener has been set (see {@link CATGrowthSimulationRecordReader#setRealizationListener(CATGrowthSimulationRealizationListener)}),
+ * the record reader passes on the stands of each realization as soon as all its records have
+ * been read and then releases them.
+ * @author Mathieu Fortin - March 2025
+ * @see lerfob.carbonbalancetool.CarbonAccountingTool#calculateCarbonByRealization(CATGrowthSimulationRecordReader)
+ */
+public interface CATGrowthSimulationRealizationListener {
+
+	/**
+	 * Receive the stands of a realization.<p>
+	 * The stands are deterministic. They contain a single realization whose id is the
+	 * realization argument.
+	 * @param realization the realization id as found in the file
+	 * @param standList a list of CATCompatibleStand instances sorted by date
+	 * @throws Exception if the stands cannot be processed, in which case the reading is aborted
+	 */
+	public void realizationRead(int realization, List<CATCompatibleStand> standList) throws Exception;
+
+}
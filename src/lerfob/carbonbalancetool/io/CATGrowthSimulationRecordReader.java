@@ -20,14 +20,21 @@
  */
 package lerfob.carbonbalancetool.io;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.logging.Level;
 
 import lerfob.carbonbalancetool.CATCompatibleStand;
+import lerfob.carbonbalancetool.CarbonAccountingTool;
 import repicea.io.tools.ImportFieldElement;
 import repicea.io.tools.ImportFieldElement.FieldType;
 import repicea.io.tools.LevelProviderEnum;
@@ -36,6 +43,7 @@ import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvide
 import repicea.simulation.covariateproviders.samplelevel.ManagementTypeProvider.ManagementType;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.util.REpiceaLogManager;
 import repicea.util.REpiceaTranslator;
 import repicea.util.REpiceaTranslator.TextableEnum;
 
@@ -90,6 +98,8 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 		InconsistentGrowthSimulation("The number of realizations is inconsistent along the projection!", "Le nombre de r\u00E9alisations n'est pas constant tout au long de la simulation!"),
 		TreeCommercialBiomassDescription("Tree overbark commercial biomass (Mg)", "Biomasse commerciale sur \u00E9corce (Mg)"),
 		TreeCommercialBiomassHelp("This field contains the overbark commercial biomass (Mg) for a single tree. It is a double.", "Ce champ contient la biomasse commerciale sur \u00E9corce (Mg) d'un arbre individuel. Il s'agit d'un double."),
+		NonContiguousRealization("The records of a realization must be contiguous when the realizations are read one at a time!", 
+				"Les enregistrements d'une r\u00E9alisation doivent \u00EAtre contigus lorsque les r\u00E9alisations sont lues une \u00E0 la fois!"),
 		;
 		
 		MessageID(String englishText, String frenchText) {
@@ -153,6 +163,22 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 	protected final ManagementType management;
 	protected final SpeciesLocale locale;
 
+	/*
+	 * The integer columns of the import cache are the stand, the date, the realization, the plot, the intervention result, the species, 
+	 * the status and the flags of the optional values. The double columns are the plot area, the volume, the number of trees and the
+	 * optional values, i.e. the DBH and the volumes, biomasses and carbon contents. 
+	 */
+	private static final int CacheNbIntColumns = 8;
+	private static final int CacheNbDoubleColumns = 11;
+
+	private File importCacheDirectory;
+	private transient CATImportCache importCacheBeingWritten;
+	private transient CATGrowthSimulationRealizationListener realizationListener;
+	private Integer currentRealization;
+	private final Set<Integer> completedRealizations;
+	private List<String> referenceStandKeys;
+	private final Map<String, Double> plotIDAndAreaHaAcrossRealizations;
+
 	/**
 	 * Constructor in GUI mode.
 	 * @param dlg a CATScaleManagementSelectorDialog instance
@@ -185,6 +211,61 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 		setPopUpWindowEnabled(true);
 		standMap = new TreeMap<Integer, Map<Boolean, CATGrowthSimulationCompositeStand>>();
 		speciesList = new ArrayList<String>();
+		completedRealizations = new HashSet<Integer>();
+		plotIDAndAreaHaAcrossRealizations = new HashMap<String, Double>();
+	}
+
+	/**
+	 * Set the directory of the import cache.<p>
+	 * When a directory is set, the first reading of a file writes the records in a compact binary file 
+	 * in this directory. The following readings of the same file with the same field matches then 
+	 * read this binary file instead of parsing the imported file. The import cache is disabled by default.
+	 * A cache file that cannot be written is reported in the log but does not prevent the reading.
+	 * @param importCacheDirectory an existing directory or null to disable the import cache
+	 */
+	public void setImportCacheDirectory(File importCacheDirectory) {
+		if (importCacheDirectory != null && !importCacheDirectory.isDirectory()) {
+			throw new InvalidParameterException("The import cache directory " + importCacheDirectory.getAbsolutePath() + " does not exist!");
+		}
+		this.importCacheDirectory = importCacheDirectory;
+	}
+
+	/**
+	 * Set a listener that receives the stands one realization at a time.<p>
+	 * A non null listener enables the streaming mode. In this mode, the records of a realization must 
+	 * be contiguous in the file, as is the case when the file is sorted by realization and date. The stands
+	 * of a realization are passed on to the listener as soon as the first record of the next realization
+	 * is read and they are released afterwards, so that the memory load is that of a single realization.
+	 * The {@link #getStandList()} method then returns an empty list after the reading. Since the trees
+	 * are processed before the end of the file, the species selector should be complete before reading 
+	 * the records (see {@link #scanSpecies()}). A plot that only appears in later realizations is not added 
+	 * to the stands of the realizations that have already been passed on.
+	 * @param realizationListener a CATGrowthSimulationRealizationListener instance or null to disable the streaming mode
+	 * @see lerfob.carbonbalancetool.CarbonAccountingTool#calculateCarbonByRealization(CATGrowthSimulationRecordReader)
+	 */
+	public void setRealizationListener(CATGrowthSimulationRealizationListener realizationListener) {
+		this.realizationListener = realizationListener;
+	}
+
+	/**
+	 * Read all the records one realization at a time only to find the species.<p>
+	 * The stands are released as soon as a realization has been read. This method makes it possible to 
+	 * load or show the species selector before reading the records with a realization listener. The 
+	 * records of a realization must be contiguous in the file. The former selector, if any, is discarded.
+	 * @throws Exception if the records cannot be read
+	 */
+	public void scanSpecies() throws Exception {
+		CATGrowthSimulationRealizationListener formerListener = realizationListener;
+		realizationListener = new CATGrowthSimulationRealizationListener() {
+			@Override
+			public void realizationRead(int realization, List<CATCompatibleStand> standList) {}
+		};
+		try {
+			readAllRecords();
+		} finally {
+			realizationListener = formerListener;
+		}
+		selector = null;	// the selector is created with the species found so far
 	}
 
 	
@@ -384,7 +465,7 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 		Double belowgroundCarbonM3 = this.getNonEmptyOptionalFieldValue(CATGrowthSimulationFieldID.BelowGroundCarbon, oArray);
 		Double commercialBiomassMg = this.getNonEmptyOptionalFieldValue(CATGrowthSimulationFieldID.CommercialBiomass, oArray);
 		
-		instantiatePlotAndTree(getImportFieldManager().getFileSpecifications()[0], 
+		processRecord(getImportFieldManager().getFileSpecifications()[0], 
 				dateYr, 
 				realization, 
 				plotID, 
@@ -404,6 +485,143 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 				commercialBiomassMg);
 	}
 
+	/*
+	 * A record is either a line of the file or a record of the import cache.
+	 */
+	private void processRecord(String standIdentification, 
+			int dateYr, 
+			int realization, 
+			String plotID, 
+			double plotAreaHa,
+			boolean isInterventionResult, 
+			StatusClass statusClass, 
+			double treeOverbarkVolumeM3, 
+			double numberOfTrees, 
+			String originalSpeciesName, 
+			Double dbhCm,
+			Double aboveGroundVolumeM3,
+			Double aboveGroundBiomassMg,
+			Double aboveGroundCarbonMg,
+			Double belowGroundVolumeM3,
+			Double belowGroundBiomassMg,
+			Double belowGroundCarbonMg,
+			Double commercialBiomassMg) throws Exception {
+		CATImportCache importCache = importCacheBeingWritten;
+		if (importCache != null) {
+			Double[] optionalValues = new Double[] {dbhCm, aboveGroundVolumeM3, aboveGroundBiomassMg, aboveGroundCarbonMg, 
+					belowGroundVolumeM3, belowGroundBiomassMg, belowGroundCarbonMg, commercialBiomassMg};
+			int optionalValueFlags = 0;
+			double[] doubleValues = new double[CacheNbDoubleColumns];
+			doubleValues[0] = plotAreaHa;
+			doubleValues[1] = treeOverbarkVolumeM3;
+			doubleValues[2] = numberOfTrees;
+			for (int k = 0; k < optionalValues.length; k++) {
+				if (optionalValues[k] != null) {
+					optionalValueFlags |= 1 << k;
+					doubleValues[3 + k] = optionalValues[k];
+				}
+			}
+			importCache.addRecord(new int[] {importCache.getStringIndex(standIdentification),
+					dateYr,
+					realization,
+					importCache.getStringIndex(plotID),
+					isInterventionResult ? 1 : 0,
+					importCache.getStringIndex(originalSpeciesName),
+					statusClass.ordinal(),
+					optionalValueFlags},
+					doubleValues);
+		}
+		if (realizationListener != null) {
+			checkRealizationBlock(realization);
+		}
+		instantiatePlotAndTree(standIdentification, 
+				dateYr, 
+				realization, 
+				plotID, 
+				plotAreaHa, 
+				isInterventionResult, 
+				statusClass, 
+				treeOverbarkVolumeM3, 
+				numberOfTrees, 
+				originalSpeciesName, 
+				dbhCm,
+				aboveGroundVolumeM3,
+				aboveGroundBiomassMg,
+				aboveGroundCarbonMg,
+				belowGroundVolumeM3,
+				belowGroundBiomassMg,
+				belowGroundCarbonMg,
+				commercialBiomassMg);
+	}
+
+	/*
+	 * The records are read from the import cache if it is enabled and up to date. Otherwise, they are read from 
+	 * the file and the import cache is written if it is enabled. 
+	 */
+	private void readAllRecordsThroughImportCache() throws Exception {
+		if (importCacheDirectory == null) {
+			super.readAllRecords();
+			return;
+		}
+		File importedFile = new File(getImportFieldManager().getFileSpecifications()[0]);
+		String signature = getImportCacheSignature();
+		File cacheFile = CATImportCache.getCacheFile(importCacheDirectory, importedFile);
+		CATImportCache importCache = CATImportCache.read(cacheFile, importedFile, signature, CacheNbIntColumns, CacheNbDoubleColumns);
+		if (importCache != null) {
+			StatusClass[] statusClasses = StatusClass.values();
+			Double[] optionalValues = new Double[8];
+			for (int i = 0; i < importCache.getNbRecords(); i++) {
+				int optionalValueFlags = importCache.getInt(7, i);
+				for (int k = 0; k < optionalValues.length; k++) {
+					optionalValues[k] = (optionalValueFlags & 1 << k) != 0 ? importCache.getDouble(3 + k, i) : null;
+				}
+				processRecord(importCache.getString(importCache.getInt(0, i)), 
+						importCache.getInt(1, i), 
+						importCache.getInt(2, i), 
+						importCache.getString(importCache.getInt(3, i)), 
+						importCache.getDouble(0, i), 
+						importCache.getInt(4, i) == 1, 
+						statusClasses[importCache.getInt(6, i)], 
+						importCache.getDouble(1, i), 
+						importCache.getDouble(2, i), 
+						importCache.getString(importCache.getInt(5, i)), 
+						optionalValues[0], 
+						optionalValues[1], 
+						optionalValues[2], 
+						optionalValues[3], 
+						optionalValues[4], 
+						optionalValues[5], 
+						optionalValues[6], 
+						optionalValues[7]);
+			}
+		} else {
+			importCache = new CATImportCache(CacheNbIntColumns, CacheNbDoubleColumns);
+			importCacheBeingWritten = importCache;
+			try {
+				super.readAllRecords();
+			} finally {
+				importCacheBeingWritten = null;
+			}
+			try {
+				importCache.write(cacheFile, importedFile, signature);
+			} catch (IOException e) {
+				REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.WARNING, getClass().getSimpleName(), "Unable to write the import cache " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * The signature changes whenever the fields are matched to other columns.
+	 */
+	private String getImportCacheSignature() {
+		StringBuilder sb = new StringBuilder(getClass().getName());
+		sb.append(Arrays.toString(getImportFieldManager().getFileSpecifications()));
+		for (CATGrowthSimulationFieldID f : CATGrowthSimulationFieldID.values()) {
+			sb.append(";" + f.name() + "=" + getImportFieldManager().getField(f).getMatchingFieldIndex());
+		}
+		return sb.toString();
+	}
+
 	private Double getNonEmptyOptionalFieldValue(CATGrowthSimulationFieldID f, Object[] oArray) throws Exception {
 		int index = getImportFieldManager().getIndexOfThisField(f);
 		ImportFieldElement field = getImportFieldManager().getField(f);
@@ -549,13 +767,60 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 
 	@Override 
 	public void readAllRecords() throws Exception {
-		super.readAllRecords();
-		ensureValidityInCasesOfEmptyPlots();
+		if (realizationListener != null) {
+			standMap.clear();
+			currentRealization = null;
+			completedRealizations.clear();
+			referenceStandKeys = null;
+			plotIDAndAreaHaAcrossRealizations.clear();
+			readAllRecordsThroughImportCache();
+			if (currentRealization != null) {
+				releaseCurrentRealization();
+			}
+		} else {
+			readAllRecordsThroughImportCache();
+			ensureValidityInCasesOfEmptyPlots(new HashMap<String, Double>());
+		}
+	}
+
+	/*
+	 * The stands of the current realization are released when the first record of another realization is read.
+	 */
+	private void checkRealizationBlock(int realization) throws Exception {
+		if (currentRealization == null || currentRealization != realization) {
+			if (currentRealization != null) {
+				releaseCurrentRealization();
+			}
+			if (completedRealizations.contains(realization)) {
+				throw new Exception(MessageID.NonContiguousRealization.toString());
+			}
+			currentRealization = realization;
+		}
+	}
+
+	private void releaseCurrentRealization() throws Exception {
+		ensureValidityInCasesOfEmptyPlots(plotIDAndAreaHaAcrossRealizations);
+		List<CATCompatibleStand> standList = getStandList();
+		List<String> standKeys = new ArrayList<String>();
+		for (CATCompatibleStand stand : standList) {
+			standKeys.add(stand.getDateYr() + (stand.isInterventionResult() ? "*" : ""));
+		}
+		if (referenceStandKeys == null) {
+			referenceStandKeys = standKeys;
+		} else if (!referenceStandKeys.equals(standKeys)) {	// all the realizations must have the same stands
+			throw new Exception(MessageID.InconsistentGrowthSimulation.toString());
+		}
+		standMap.clear();
+		int realization = currentRealization;
+		completedRealizations.add(realization);
+		currentRealization = null;
+		realizationListener.realizationRead(realization, standList);
 	}
 	
-	
-	private void ensureValidityInCasesOfEmptyPlots() throws Exception {
-		Map<String, Double> plotIDAndAreaHa = new HashMap<String, Double>();
+	/*
+	 * The plotIDAndAreaHa map contains the plots found so far. It is completed with the plots of the stands in the standMap member.
+	 */
+	private void ensureValidityInCasesOfEmptyPlots(Map<String, Double> plotIDAndAreaHa) throws Exception {
 		List<Integer> refList = null;
 		for (Map<Boolean, CATGrowthSimulationCompositeStand> oMap : standMap.values()) {
 			for (CATGrowthSimulationCompositeStand stand : oMap.values()) {
@@ -591,7 +856,8 @@ public class CATGrowthSimulationRecordReader extends REpiceaRecordReader {
 	}
 
 	/**
-	 * This method returns the stand list that was last read.
+	 * This method returns the stand list that was last read.<p>
+	 * The list is empty if the stands have been read one realization at a time.
 	 * @return a list of CATCompatibleStand instances
 	 */
 	public List<CATCompatibleStand> getStandList() {
@@ -18,6 +18,10 @@
  */
 package lerfob.carbonbalancetool.io;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import lerfob.carbonbalancetool.CATCompatibleTree;
 import lerfob.carbonbalancetool.interfaces.CATAboveGroundBiomassProvider;
 import lerfob.carbonbalancetool.interfaces.CATAboveGroundCarbonProvider;
@@ -26,6 +30,7 @@ import lerfob.carbonbalancetool.interfaces.CATBelowGroundBiomassProvider;
 import lerfob.carbonbalancetool.interfaces.CATBelowGroundCarbonProvider;
 import lerfob.carbonbalancetool.interfaces.CATBelowGroundVolumeProvider;
 import lerfob.carbonbalancetool.interfaces.CATCommercialBiomassProvider;
+import lerfob.carbonbalancetool.interfaces.CATGroupableTree;
 import lerfob.carbonbalancetool.io.CATGrowthSimulationRecordReader.CATGrowthSimulationFieldID;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider;
 import repicea.simulation.species.REpiceaSpecies.Species;
@@ -43,12 +48,13 @@ class CATGrowthSimulationTree implements CATCompatibleTree,
 										CATBelowGroundVolumeProvider,
 										CATBelowGroundBiomassProvider,
 										CATBelowGroundCarbonProvider,
-										CATCommercialBiomassProvider {
+										CATCommercialBiomassProvider,
+										CATGroupableTree {
 
 	private final double commercialVolumeM3;
 	private final double numberOfTrees;
 	private StatusClass statusClass;
-	private final String originalSpeciesName;
+	final String originalSpeciesName;
 	protected final CATGrowthSimulationPlot plot;
 	final Double aboveGroundVolumeM3;
 	final Double aboveGroundBiomassMg;
@@ -189,6 +195,40 @@ class CATGrowthSimulationTree implements CATCompatibleTree,
 				commercialBiomassMg);
 	}
 
+	@Override
+	public Object getTreeClassKey() {
+		List<Object> key = new ArrayList<Object>();
+		key.add(getClass());
+		key.add(plot);
+		key.add(statusClass);
+		key.add(originalSpeciesName);
+		key.add(commercialVolumeM3);
+		key.addAll(Arrays.asList(aboveGroundVolumeM3, 
+				aboveGroundBiomassMg, 
+				aboveGroundCarbonMg, 
+				belowGroundVolumeM3, 
+				belowGroundBiomassMg, 
+				belowGroundCarbonMg, 
+				commercialBiomassMg));
+		return key;
+	}
+
+	@Override
+	public CATGrowthSimulationTree createTreeClass(double numberOfTrees) {
+		return new CATGrowthSimulationTree(plot, 
+				statusClass, 
+				commercialVolumeM3, 
+				numberOfTrees, 
+				originalSpeciesName,
+				aboveGroundVolumeM3,
+				aboveGroundBiomassMg,
+				aboveGroundCarbonMg,
+				belowGroundVolumeM3,
+				belowGroundBiomassMg,
+				belowGroundCarbonMg,
+				commercialBiomassMg);
+	}
+
 	@Override
 	public SpeciesLocale getSpeciesLocale() {
 		return plot.plotSample.compositeStand.getSpeciesLocale();
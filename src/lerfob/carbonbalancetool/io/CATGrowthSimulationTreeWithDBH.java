@@ -18,6 +18,8 @@
  */
 package lerfob.carbonbalancetool.io;
 
+import java.util.List;
+
 import repicea.simulation.covariateproviders.treelevel.DbhCmProvider;
 
 public class CATGrowthSimulationTreeWithDBH extends CATGrowthSimulationTree implements DbhCmProvider {
@@ -55,4 +57,29 @@ public class CATGrowthSimulationTreeWithDBH extends CATGrowthSimulationTree impl
 	@Override
 	public double getDbhCm() {return dbhCm;}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object getTreeClassKey() {
+		List<Object> key = (List<Object>) super.getTreeClassKey();
+		key.add(dbhCm);
+		return key;
+	}
+
+	@Override
+	public CATGrowthSimulationTreeWithDBH createTreeClass(double numberOfTrees) {
+		return new CATGrowthSimulationTreeWithDBH(plot, 
+				getStatusClass(), 
+				getCommercialVolumeM3(), 
+				numberOfTrees, 
+				originalSpeciesName, 
+				dbhCm,
+				aboveGroundVolumeM3,
+				aboveGroundBiomassMg,
+				aboveGroundCarbonMg,
+				belowGroundVolumeM3,
+				belowGroundBiomassMg,
+				belowGroundCarbonMg,
+				commercialBiomassMg);
+	}
+
 }
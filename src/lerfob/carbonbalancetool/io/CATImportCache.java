@@ -0,0 +1,332 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CATImportCache class stores the records of an imported file in a compact columnar 
+ * binary file. <p>
+ * Each record is made of a fixed number of integer and double values. The strings are stored 
+ * in a dictionary and the records only contain their index in this dictionary. The cache files are 
+ * saved in a directory chosen by the caller. A cache file is identified by a SHA-256 hash of a signature 
+ * of the reader, which typically contains the class of the reader and the columns matched to its fields. 
+ * It also records the size, the last modification time and a SHA-256 hash of the content of the imported 
+ * file. The content is hashed only if the size or the last modification time has changed. A cache file 
+ * that does not match is ignored and overwritten. The cache file is read in memory and closed right away.
+ * @author Mathieu Fortin - March 2025
+ */
+final class CATImportCache {
+
+	static final String FileExtension = ".catcache";
+
+	private static final int MagicNumber = 0x43415443;	// CATC
+	private static final int Version = 2;
+	private static final int HashLength = 32;	// SHA-256
+	private static final int HeaderLength = 4 + 4 + HashLength + 8 + 8 + HashLength + 4 * 5;
+	private static final int InitialCapacity = 1024;
+
+	private final int nbIntColumns;
+	private final int nbDoubleColumns;
+	private final List<String> dictionary;
+	private final Map<String, Integer> dictionaryIndices;
+	private int nbRecords;
+	private int[][] intColumns;
+	private double[][] doubleColumns;
+
+	/**
+	 * Constructor for a new cache in which records are added.
+	 * @param nbIntColumns the number of integer values in a record
+	 * @param nbDoubleColumns the number of double values in a record
+	 */
+	CATImportCache(int nbIntColumns, int nbDoubleColumns) {
+		this.nbIntColumns = nbIntColumns;
+		this.nbDoubleColumns = nbDoubleColumns;
+		dictionary = new ArrayList<String>();
+		dictionaryIndices = new HashMap<String, Integer>();
+		intColumns = new int[nbIntColumns][InitialCapacity];
+		doubleColumns = new double[nbDoubleColumns][InitialCapacity];
+	}
+
+	private CATImportCache(int nbRecords, List<String> dictionary, int[][] intColumns, double[][] doubleColumns) {
+		this.nbIntColumns = intColumns.length;
+		this.nbDoubleColumns = doubleColumns.length;
+		this.nbRecords = nbRecords;
+		this.dictionary = dictionary;
+		dictionaryIndices = null;
+		this.intColumns = intColumns;
+		this.doubleColumns = doubleColumns;
+	}
+	/**
+	 * Provide the index of a string in the dictionary. The string is added to the dictionary if needed.
+	 * @param str a String instance
+	 * @return an integer
+	 */
+	int getStringIndex(String str) {
+		Integer index = dictionaryIndices.get(str);
+		if (index == null) {
+			index = dictionary.size();
+			dictionary.add(str);
+			dictionaryIndices.put(str, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Provide a string of the dictionary.
+	 * @param index the index of the string
+	 * @return a String instance
+	 */
+	String getString(int index) {return dictionary.get(index);}
+
+	/**
+	 * Add a record.
+	 * @param intValues an array of nbIntColumns integers
+	 * @param doubleValues an array of nbDoubleColumns doubles
+	 */
+	void addRecord(int[] intValues, double[] doubleValues) {
+		if (nbRecords == getCapacity()) {
+			int newCapacity = getCapacity() * 2;
+			for (int j = 0; j < nbIntColumns; j++) {
+				intColumns[j] = Arrays.copyOf(intColumns[j], newCapacity);
+			}
+			for (int j = 0; j < nbDoubleColumns; j++) {
+				doubleColumns[j] = Arrays.copyOf(doubleColumns[j], newCapacity);
+			}
+		}
+		for (int j = 0; j < nbIntColumns; j++) {
+			intColumns[j][nbRecords] = intValues[j];
+		}
+		for (int j = 0; j < nbDoubleColumns; j++) {
+			doubleColumns[j][nbRecords] = doubleValues[j];
+		}
+		nbRecords++;
+	}
+
+	private int getCapacity() {
+		return nbIntColumns > 0 ? intColumns[0].length : doubleColumns[0].length;
+	}
+
+	/**
+	 * Provide the number of records.
+	 * @return an integer
+	 */
+	int getNbRecords() {return nbRecords;}
+
+	/**
+	 * Provide an integer value.
+	 * @param j the index of the column
+	 * @param i the index of the record
+	 * @return an integer
+	 */
+	int getInt(int j, int i) {
+		return intColumns[j][i];
+	}
+
+	/**
+	 * Provide a double value.
+	 * @param j the index of the column
+	 * @param i the index of the record
+	 * @return a double
+	 */
+	double getDouble(int j, int i) {
+		return doubleColumns[j][i];
+	}
+
+	/**
+	 * Provide the cache file of an imported file.<p>
+	 * The name of the cache file contains a hash code of the absolute path of the imported file, so 
+	 * that files with the same name in different folders do not share the same cache file.
+	 * @param cacheDirectory the directory of the cache files
+	 * @param importedFile the imported file
+	 * @return a File instance
+	 */
+	static File getCacheFile(File cacheDirectory, File importedFile) {
+		String pathHashCode = Integer.toHexString(importedFile.getAbsolutePath().hashCode());
+		return new File(cacheDirectory, importedFile.getName() + "." + pathHashCode + FileExtension);
+	}
+
+	private static byte[] getSignatureHash(String readerSignature) throws NoSuchAlgorithmException {
+		return MessageDigest.getInstance("SHA-256").digest(readerSignature.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] getContentHash(File importedFile) throws IOException, NoSuchAlgorithmException {
+		try (InputStream is = new FileInputStream(importedFile)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[65536];
+			int nbBytes;
+			while ((nbBytes = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, nbBytes);
+			}
+			return digest.digest();
+		}
+	}
+
+	/**
+	 * Write the cache to file. The file is first written to a temporary file and then moved.
+	 * @param cacheFile the cache file (see {@link CATImportCache#getCacheFile(File, File)})
+	 * @param importedFile the imported file
+	 * @param readerSignature a String that changes whenever the reader would interpret the file differently
+	 * @throws IOException if the imported file has been modified in the meantime or if the cache file cannot be written
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 */
+	void write(File cacheFile, File importedFile, String readerSignature) throws IOException, NoSuchAlgorithmException {
+		long fileSize = importedFile.length();
+		long lastModified = importedFile.lastModified();
+		byte[] contentHash = getContentHash(importedFile);
+		if (importedFile.length() != fileSize || importedFile.lastModified() != lastModified) {
+			throw new IOException("The file " + importedFile.getAbsolutePath() + " has been modified while being cached!");
+		}
+		List<byte[]> encodedDictionary = new ArrayList<byte[]>();
+		int dictionaryLength = 0;
+		for (String str : dictionary) {
+			byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+			encodedDictionary.add(bytes);
+			dictionaryLength += 4 + bytes.length;
+		}
+		File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+		try {
+			try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				dos.writeInt(MagicNumber);
+				dos.writeInt(Version);
+				dos.write(getSignatureHash(readerSignature));
+				dos.writeLong(fileSize);
+				dos.writeLong(lastModified);
+				dos.write(contentHash);
+				dos.writeInt(nbRecords);
+				dos.writeInt(nbIntColumns);
+				dos.writeInt(nbDoubleColumns);
+				dos.writeInt(dictionary.size());
+				dos.writeInt(dictionaryLength);
+				for (byte[] bytes : encodedDictionary) {
+					dos.writeInt(bytes.length);
+					dos.write(bytes);
+				}
+				for (int j = 0; j < nbIntColumns; j++) {
+					for (int i = 0; i < nbRecords; i++) {
+						dos.writeInt(intColumns[j][i]);
+					}
+				}
+				for (int j = 0; j < nbDoubleColumns; j++) {
+					for (int i = 0; i < nbRecords; i++) {
+						dos.writeDouble(doubleColumns[j][i]);
+					}
+				}
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());		// in case the move has failed
+		}
+	}
+
+	/**
+	 * Read a cache file.<p>
+	 * The content of the imported file is hashed only if its size or its last modification time differs from 
+	 * those recorded in the cache file. A cache file that is truncated or corrupted is ignored.
+	 * @param cacheFile the cache file (see {@link CATImportCache#getCacheFile(File, File)})
+	 * @param importedFile the imported file
+	 * @param readerSignature a String that changes whenever the reader would interpret the file differently
+	 * @param nbIntColumns the expected number of integer values in a record
+	 * @param nbDoubleColumns the expected number of double values in a record
+	 * @return a CATImportCache instance or null if the file does not exist or does not match
+	 * @throws IOException if the imported file cannot be read
+	 * @throws NoSuchAlgorithmException if the SHA-256 algorithm is not available
+	 */
+	static CATImportCache read(File cacheFile, File importedFile, String readerSignature, int nbIntColumns, int nbDoubleColumns) throws IOException, NoSuchAlgorithmException {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		byte[] signatureHash = getSignatureHash(readerSignature);
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = readFully(channel, HeaderLength);
+			if (header.getInt() != MagicNumber || header.getInt() != Version) {
+				return null;
+			}
+			byte[] storedSignatureHash = new byte[HashLength];
+			header.get(storedSignatureHash);
+			if (!Arrays.equals(signatureHash, storedSignatureHash)) {
+				return null;
+			}
+			long storedFileSize = header.getLong();
+			long storedLastModified = header.getLong();
+			byte[] storedContentHash = new byte[HashLength];
+			header.get(storedContentHash);
+			int nbRecords = header.getInt();
+			if (header.getInt() != nbIntColumns || header.getInt() != nbDoubleColumns) {
+				return null;
+			}
+			if (storedFileSize != importedFile.length() || storedLastModified != importedFile.lastModified()) {	// the file may have been copied or touched without being modified
+				if (!Arrays.equals(storedContentHash, getContentHash(importedFile))) {
+					return null;
+				}
+			}
+			int dictionarySize = header.getInt();
+			ByteBuffer dictionaryBuffer = readFully(channel, header.getInt());
+			List<String> dictionary = new ArrayList<String>(dictionarySize);
+			for (int k = 0; k < dictionarySize; k++) {
+				byte[] bytes = new byte[dictionaryBuffer.getInt()];
+				dictionaryBuffer.get(bytes);
+				dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+			int[][] intColumns = new int[nbIntColumns][nbRecords];
+			for (int j = 0; j < nbIntColumns; j++) {
+				readFully(channel, nbRecords * Integer.BYTES).asIntBuffer().get(intColumns[j]);
+			}
+			double[][] doubleColumns = new double[nbDoubleColumns][nbRecords];
+			for (int j = 0; j < nbDoubleColumns; j++) {
+				readFully(channel, nbRecords * Double.BYTES).asDoubleBuffer().get(doubleColumns[j]);
+			}
+			return new CATImportCache(nbRecords, dictionary, intColumns, doubleColumns);
+		} catch (EOFException | RuntimeException e) {	// a corrupted file may throw a BufferUnderflowException or a NegativeArraySizeException
+			return null;
+		}
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, int nbBytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(nbBytes);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -18,10 +18,16 @@
  */
 package lerfob.carbonbalancetool.io;
 
+import java.io.File;
+import java.io.IOException;
+import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 
 import lerfob.carbonbalancetool.CATCompatibleStand;
+import lerfob.carbonbalancetool.CarbonAccountingTool;
 import lerfob.carbonbalancetool.io.CATGrowthSimulationRecordReader.CATGrowthSimulationFieldID;
 import repicea.io.tools.ImportFieldElement;
 import repicea.io.tools.ImportFieldElement.FieldType;
@@ -31,6 +37,7 @@ import repicea.serial.SerializerChangeMonitor;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 import repicea.simulation.species.REpiceaSpecies.Species;
 import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.util.REpiceaLogManager;
 import repicea.util.REpiceaTranslator;
 import repicea.util.REpiceaTranslator.TextableEnum;
 
@@ -86,7 +93,15 @@ public class CATYieldTableRecordReader extends REpiceaRecordReader {
 	}
 
 	
+	/*
+	 * The integer columns of the import cache are the date and the measure type. The double columns are the standing and the harvested volumes.
+	 */
+	private static final int CacheNbIntColumns = 2;
+	private static final int CacheNbDoubleColumns = 2;
+
 	private final List<CATCompatibleStand> standList;
+	private File importCacheDirectory;
+	private transient CATImportCache importCacheBeingWritten;
 	
 	private final Species catSpecies;
 	private final SpeciesLocale locale;
@@ -169,6 +184,17 @@ public class CATYieldTableRecordReader extends REpiceaRecordReader {
 		} else {
 			overBark = true;
 		}
+		processRecord(dateYr, standingVolumeM3, harvestedVolumeM3, overBark);
+	}
+
+	/*
+	 * A record is either a line of the file or a record of the import cache.
+	 */
+	private void processRecord(int dateYr, double standingVolumeM3, double harvestedVolumeM3, boolean overBark) {
+		CATImportCache importCache = importCacheBeingWritten;
+		if (importCache != null) {
+			importCache.addRecord(new int[] {dateYr, overBark ? 1 : 0}, new double[] {standingVolumeM3, harvestedVolumeM3});
+		}
 
 		CATYieldTableCompatibleStand stand;
 		if (harvestedVolumeM3 > 0d) {
@@ -217,6 +243,71 @@ public class CATYieldTableRecordReader extends REpiceaRecordReader {
 		super.readRecordsForThisGroupId(groupId);
 	}
 
+	/**
+	 * Read all the records.<p>
+	 * If the import cache is enabled and up to date, the records are read from the cache instead of the file.
+	 * @see CATYieldTableRecordReader#setImportCacheDirectory(File)
+	 */
+	@Override 
+	public void readAllRecords() throws Exception {
+		if (importCacheDirectory == null) {
+			super.readAllRecords();
+			return;
+		}
+		File importedFile = new File(getImportFieldManager().getFileSpecifications()[0]);
+		String signature = getImportCacheSignature();
+		File cacheFile = CATImportCache.getCacheFile(importCacheDirectory, importedFile);
+		CATImportCache importCache = CATImportCache.read(cacheFile, importedFile, signature, CacheNbIntColumns, CacheNbDoubleColumns);
+		if (importCache != null) {
+			for (int i = 0; i < importCache.getNbRecords(); i++) {
+				processRecord(importCache.getInt(0, i), 
+						importCache.getDouble(0, i), 
+						importCache.getDouble(1, i), 
+						importCache.getInt(1, i) == 1);
+			}
+		} else {
+			importCache = new CATImportCache(CacheNbIntColumns, CacheNbDoubleColumns);
+			importCacheBeingWritten = importCache;
+			try {
+				super.readAllRecords();
+			} finally {
+				importCacheBeingWritten = null;
+			}
+			try {
+				importCache.write(cacheFile, importedFile, signature);
+			} catch (IOException e) {
+				REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.WARNING, getClass().getSimpleName(), "Unable to write the import cache " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * The signature changes whenever the fields are matched to other columns.
+	 */
+	private String getImportCacheSignature() {
+		StringBuilder sb = new StringBuilder(getClass().getName());
+		sb.append(Arrays.toString(getImportFieldManager().getFileSpecifications()));
+		for (CATYieldTableFieldID f : CATYieldTableFieldID.values()) {
+			sb.append(";" + f.name() + "=" + getImportFieldManager().getField(f).getMatchingFieldIndex());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Set the directory of the import cache.<p>
+	 * When a directory is set, the first reading of a file writes the records in a compact binary file 
+	 * in this directory. The following readings of the same file with the same field matches then 
+	 * read this binary file instead of parsing the imported file. The import cache is disabled by default.
+	 * A cache file that cannot be written is reported in the log but does not prevent the reading.
+	 * @param importCacheDirectory an existing directory or null to disable the import cache
+	 */
+	public void setImportCacheDirectory(File importCacheDirectory) {
+		if (importCacheDirectory != null && !importCacheDirectory.isDirectory()) {
+			throw new InvalidParameterException("The import cache directory " + importCacheDirectory.getAbsolutePath() + " does not exist!");
+		}
+		this.importCacheDirectory = importCacheDirectory;
+	}
+
 	/**
 	 * This method returns the stand list that was last read.
 	 * @return a list of CATCompatibleStand instances
@@ -19,10 +19,11 @@
  */
 package lerfob.carbonbalancetool.memsconnectors;
 
+import java.security.InvalidParameterException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import lerfob.carbonbalancetool.CATCompartmentManager;
 import lerfob.carbonbalancetool.CATTimeTable;
@@ -30,11 +31,10 @@ import lerfob.carbonbalancetool.CarbonArray;
 import lerfob.mems.MEMSSite;
 import lerfob.mems.SoilCarbonPredictor;
 import lerfob.mems.SoilCarbonPredictorCompartments;
+import lerfob.mems.SoilCarbonPredictorEquilibriumCache;
 import lerfob.mems.SoilCarbonPredictorInput;
+import lerfob.mems.SoilCarbonPredictorTemperatureModifiers;
 import repicea.math.Matrix;
-import repicea.serial.UnmarshallingException;
-import repicea.serial.xml.XmlDeserializer;
-import repicea.util.ObjectUtility;
 
 /**
  * A wrapper of the original MEMS model for easier implementation in CAT.
@@ -112,17 +112,16 @@ public class MEMSWrapper {
     private CarbonArray inputFromLivingTreesAboveGroundMgHa;
     private CarbonArray inputFromLivingTreesBelowGroundMgHa;
     
-    private double[][] dailyTemperatureAcrossSimulation;
-    private boolean isFromAir;
+    private SoilCarbonPredictorTemperatureModifiers[] temperatureModifiersAcrossSimulation;
     
     SoilCarbonPredictor predictor;
     SoilCarbonPredictorCompartments compartments;
     
-    static ConcurrentHashMap<MEMSSite.SiteType, MEMSSite> sites = new ConcurrentHashMap<MEMSSite.SiteType, MEMSSite>();
-
     MEMSSite.SiteType currentSiteName;
+    SoilCarbonPredictorInput inputs;
     
     private final CATCompartmentManager manager;
+    private double adaptiveTolerance;
 
     /**
      * Constructor.
@@ -133,6 +132,29 @@ public class MEMSWrapper {
     }
     
     
+    /**
+     * Set the tolerance of the exponential integrator of MEMS.<p>
+     * A strictly positive tolerance enables steps of variable length in the annual predictions. The initial 
+     * stocks, which are retrieved from the equilibrium cache, are not affected.
+     * @param adaptiveTolerance the tolerance on the relative error of a step (0 by default)
+     * @see SoilCarbonPredictor#setAdaptiveTolerance(double)
+     */
+    public void setAdaptiveTolerance(double adaptiveTolerance) {
+    	if (adaptiveTolerance < 0d) {
+    		throw new InvalidParameterException("The adaptiveTolerance argument must be equal to or greater than 0!");
+    	}
+    	this.adaptiveTolerance = adaptiveTolerance;
+    	if (predictor != null) {
+    		predictor.setAdaptiveTolerance(adaptiveTolerance);
+    	}
+    }
+
+    /**
+     * Provide the tolerance of the exponential integrator of MEMS.
+     * @return a double (0 means that the stocks are integrated on a daily basis)
+     */
+    public double getAdaptiveTolerance() {return adaptiveTolerance;}
+
     public CarbonArray getInputFromLivingTreesAboveGroundMgHaArray() {
     	return inputFromLivingTreesAboveGroundMgHa;
     }
@@ -143,7 +165,8 @@ public class MEMSWrapper {
 
     /**
      * Initialize MEMS with appropriate parameters.<p>
-     * This method is called as the carbon compartment manager is reset.
+     * This method is called as the carbon compartment manager is reset. The daily temperature
+     * modifiers are computed here once for the whole simulation.
      * @param memsStands a List of MEMSCompatibleStand instances
      */
     public void prepareSimulation(List<MEMSCompatibleStand> memsStands) {
@@ -161,14 +184,15 @@ public class MEMSWrapper {
         // prepare the carbon stock array
         inputAnnualStocksGCm2 = new InputCarbonStock[nbYears];
         outputAnnualStocksMgHa = new CarbonStockForReporting[nbYears];
-        dailyTemperatureAcrossSimulation = new double[nbYears][];
+        temperatureModifiersAcrossSimulation = new SoilCarbonPredictorTemperatureModifiers[nbYears];
+        Map<double[], SoilCarbonPredictorTemperatureModifiers> temperatureModifiersMap = new IdentityHashMap<double[], SoilCarbonPredictorTemperatureModifiers>();
         inputFromLivingTreesAboveGroundMgHa = new CarbonArray(nbYears);
         inputFromLivingTreesBelowGroundMgHa = new CarbonArray(nbYears);
 
         int maxDateYr = memsStands.get(memsStands.size() -1).getDateYr();
         int j = 0;
         MEMSCompatibleStand memsStand = memsStands.get(j);
-        isFromAir = memsStand.isInterventionResult();
+        boolean isFromAir = memsStand.isInterventionResult();
         for (Integer i : indices) {
             inputAnnualStocksGCm2[i] = new InputCarbonStock();
             outputAnnualStocksMgHa[i] = new CarbonStockForReporting();
@@ -179,7 +203,13 @@ public class MEMSWrapper {
             		memsStand = memsStands.get(j);
             	} 
             }
-            dailyTemperatureAcrossSimulation[i] = memsStand.getMeanDailyTemperatureCForThisYear(dateYr);
+            double[] dailyTemperatureC = memsStand.getMeanDailyTemperatureCForThisYear(dateYr);
+            if (dailyTemperatureC != null) {	// the modifiers are computed only once for a given temperature array
+            	if (!temperatureModifiersMap.containsKey(dailyTemperatureC)) {
+            		temperatureModifiersMap.put(dailyTemperatureC, new SoilCarbonPredictorTemperatureModifiers(dailyTemperatureC, isFromAir));
+            	}
+            	temperatureModifiersAcrossSimulation[i] = temperatureModifiersMap.get(dailyTemperatureC);
+            }
         }
 
         setSiteAndEstimateInitialCarbon(memsStands.get(0));	// the initial stand
@@ -187,40 +217,29 @@ public class MEMSWrapper {
    
     /**
      * Set the initial carbon.<p>
-     * A 1000-year simulation is run using the mean annual temperature and range from the initial stand.
+     * The initial stocks are those at equilibrium under the mean annual temperature and range from the initial stand.
+     * They are retrieved from the cache of the run context, so that the spin-up is run only once for 
+     * a given site, temperature and parameter vector.
      * @param stand a MEMSCompatibleStand instance that is the initial stand
+     * @see SoilCarbonPredictorEquilibriumCache
      */
     private void setSiteAndEstimateInitialCarbon(MEMSCompatibleStand stand) {
         currentSiteName = stand.getSiteType();
 
-        if (!sites.containsKey(currentSiteName)) {
-            String sitesPath = ObjectUtility.getRelativePackagePath(SoilCarbonPredictor.class) + "data" + ObjectUtility.PathSeparator + "sites" + ObjectUtility.PathSeparator;
-
-            // load the site params
-            String filename = sitesPath + "mcmcMems_" + currentSiteName.name() + ".zml";
-            XmlDeserializer dser = new XmlDeserializer(filename);
-
-            try {
-                sites.put(currentSiteName, (MEMSSite) dser.readObject());
-            } catch (UnmarshallingException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        MEMSSite currentSite = sites.get(currentSiteName);
-        currentSite.getInputs().reset();
+        MEMSSite currentSite = manager.getRunContext().getMEMSSite(currentSiteName);
+        inputs = new SoilCarbonPredictorInput(currentSite.getInputs());	// each wrapper has its own inputs so that realizations can be run in parallel
         
-        compartments = new SoilCarbonPredictorCompartments(1.0, 
+        SoilCarbonPredictorCompartments initialCompartments = new SoilCarbonPredictorCompartments(1.0, 
         		stand.getMeanDailyTemperatureCForThisYear(stand.getDateYr()),
         		stand.isTemperatureFromAir());
 
         predictor = new SoilCarbonPredictor(false);
-        // read the fit params from mha and set them to the Predictor
-        predictor.setParms(currentSite.getMetropolisHastingsAlgorithm().getFinalParameterEstimates());
+        // read the fit params from the site and set them to the Predictor
+        Matrix parms = currentSite.getFinalParameterEstimates();
+        predictor.setParms(parms);
+        predictor.setAdaptiveTolerance(adaptiveTolerance);
 
-        for (int i = 0; i < 1000; i++) {		
-            predictor.predictAnnualCStocks(compartments, currentSite.getInputs());
-        }
+        compartments = manager.getRunContext().getMEMSEquilibriumCache().getInitialCompartments(parms, initialCompartments, inputs);
         
         outputAnnualStocksMgHa[0].setCarbon(compartments);
     }
@@ -257,9 +276,8 @@ public class MEMSWrapper {
         			false); // false add to soil
         }
     	
-        MEMSSite currentSite = sites.get(currentSiteName);
         CATTimeTable timeTable = manager.getTimeTable();
-        SoilCarbonPredictorInput inputParameters = currentSite.getInputs();
+        SoilCarbonPredictorInput inputParameters = inputs;
         inputParameters.reset();
         
         for (int i = 1; i < inputAnnualStocksGCm2.length; i++) {
@@ -271,7 +289,7 @@ public class MEMSWrapper {
             } else {
                 InputCarbonStock inputStock = inputAnnualStocksGCm2[i]; 
                 inputParameters.setDailyInput(inputStock.humus, inputStock.soil);
-            	compartments.setSoilTemperature(dailyTemperatureAcrossSimulation[i], isFromAir);
+            	compartments.setSoilTemperature(temperatureModifiersAcrossSimulation[i]);
                 for (int y = 0; y < deltaYear; y++) {
                     predictor.predictAnnualCStocks(compartments, inputParameters);
                 }
@@ -282,7 +300,6 @@ public class MEMSWrapper {
         }
     }
 
-
 	/**
      * Provide the carbon stock in the soil for a particular year.<p>
      * If the yearIndex exceeds that of the last stand, the carbon stock of the
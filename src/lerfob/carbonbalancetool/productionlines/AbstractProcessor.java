@@ -33,7 +33,9 @@ import repicea.simulation.processsystem.Processor;
 
 /**
  * An abstract class derived from the original {@link repicea.simulation.processsystem.Processor} class to ensure
- * common methods for all the processors in CAT.
+ * common methods for all the processors in CAT. <p>
+ * The state of the processors is limited to their configuration. It must not be modified during a simulation 
+ * since the processors are shared by the worker threads (see {@link ProductionProcessorManager#createWorkerCopy()}).
  * @author Mathieu Fortin - 2015
  */
 @SuppressWarnings("serial")
@@ -58,7 +60,11 @@ public abstract class AbstractProcessor extends Processor {
 	public Collection<ProcessUnit> doProcess(List<ProcessUnit> inputUnits) {
 		if (usesEmissionsAndFunctionalUnitFromAbstractProcessorClass()) {
 			for (ProcessUnit processUnit : inputUnits) {
-				AbstractProcessor.updateProcessEmissions(processUnit.getAmountMap(), functionUnitBiomass, emissionsByFunctionalUnit);
+				if (processUnit instanceof CarbonUnit) {
+					AbstractProcessor.updateProcessEmissions(((CarbonUnit) processUnit).getElementVector(), functionUnitBiomass, emissionsByFunctionalUnit);
+				} else {
+					AbstractProcessor.updateProcessEmissions(processUnit.getAmountMap(), functionUnitBiomass, emissionsByFunctionalUnit);
+				}
 			}
 		}
 		return super.doProcess(inputUnits);
@@ -102,6 +108,17 @@ public abstract class AbstractProcessor extends Processor {
 			amountMap.add(Element.EmissionsCO2Eq, emissions);
 		}
 	}
+
+	/*
+	 * Same as above for the amounts of a carbon unit. 
+	 */
+	protected static void updateProcessEmissions(ElementVector amounts, double functionalUnitBiomassMg, double emissionsMgCO2ByFunctionalUnit) {
+		if (amounts.isDefined(Element.Biomass) && functionalUnitBiomassMg > 0) {
+			double fonctionalUnits = amounts.get(Element.Biomass) / functionalUnitBiomassMg;
+			double emissions = fonctionalUnits * emissionsMgCO2ByFunctionalUnit;
+			amounts.add(Element.EmissionsCO2Eq, emissions);
+		}
+	}
 	
 	/**
 	 * Create a Processor instance from a LinkedHashMap instance.<p>
@@ -75,6 +75,16 @@ public abstract class AbstractProductionLineProcessor extends AbstractProcessor
 	@SuppressWarnings("rawtypes")
 	@Override
 	protected abstract List<ProcessUnit> createProcessUnitsFromThisProcessor(ProcessUnit unit, Number intake);
+
+	/**
+	 * Create the carbon units of this processor from amounts that have already been
+	 * scaled to the intake of this processor.
+	 * @param carbonUnit the original CarbonUnit instance
+	 * @param processedAmounts the amounts of the new carbon units. The vector is not copied.
+	 * @return a List of ProcessUnit instances
+	 */
+	@SuppressWarnings("rawtypes")
+	abstract List<ProcessUnit> createCarbonUnits(CarbonUnit carbonUnit, ElementVector processedAmounts);
 	
 	@Override
 	public List<MemberInformation> getInformationsOnMembers() {
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lerfob.carbonbalancetool.CATCompartmentManager;
+import lerfob.carbonbalancetool.CATRunContext;
 import lerfob.carbonbalancetool.CATTimeTable;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
@@ -115,6 +116,7 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 	}
 	
 	private CATTimeTable timeTable;
+	private CATRunContext runContext;
 	
 	protected final int dateIndex;
 	protected final String samplingUnitID;
@@ -127,10 +129,17 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 	private final StatusClass statusClass;
 	private final WoodyDebrisProcessorID woodyDebrisType; // can be null
 	
+	/**
+	 * The amounts of the different elements. The map of the ProcessUnit class remains empty. 
+	 */
+	private final ElementVector amounts;
+	
 	/**
 	 * Initial carbon in this product (Mg)
 	 */
 	private double[] currentCarbonArray;
+	private double[] releasedCarbonArray;
+	private double[] survivalKernel;
 	
 	private boolean actualized;
 
@@ -155,7 +164,41 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 			StatusClass statusClass,
 			BiomassType biomassType,
 			WoodyDebrisProcessorID woodyDebrisType) {
-		super(initialAmounts);
+		this(dateIndex, 
+				samplingUnitID, 
+				carbonUnitFeature, 
+				ElementVector.fromAmountMap(initialAmounts), 
+				speciesName, 
+				speciesType, 
+				statusClass, 
+				biomassType, 
+				woodyDebrisType);
+	}
+
+	/**
+	 * General constructor.
+	 * @param dateIndex the creation date index of the time scale
+	 * @param samplingUnitID the id of the sample unit
+	 * @param carbonUnitFeature a CarbonUnitFeature instance
+	 * @param initialAmounts an ElementVector instance that contains the amount of each element to be processed. 
+	 * The vector is not copied and it should not be used elsewhere.
+	 * @param speciesName the name of the species
+	 * @param speciesType the type of species (Broadleaved or Coniferous)
+	 * @param statusClass the status class of the tree (dead, cut, windfall)
+	 * @param biomassType the type of biomass (wood or bark)
+	 * @param woodyDebrisType a WoodyDebrisProcessorID enum
+	 */
+	protected CarbonUnit(int dateIndex, 
+			String samplingUnitID, 
+			CarbonUnitFeature carbonUnitFeature, 
+			ElementVector initialAmounts,
+			String speciesName,
+			SpeciesType speciesType,
+			StatusClass statusClass,
+			BiomassType biomassType,
+			WoodyDebrisProcessorID woodyDebrisType) {
+		super();
+		amounts = initialAmounts;
 		this.dateIndex = dateIndex;
 		this.carbonUnitFeature = carbonUnitFeature;
 		this.samplingUnitID = samplingUnitID;
@@ -180,7 +223,24 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 			CarbonUnitFeature carbonUnitFeature, 
 			AmountMap<Element> initialAmounts,
 			CarbonUnit originalCarbonUnit) {
-		super(initialAmounts);
+		this(dateIndex, carbonUnitFeature, ElementVector.fromAmountMap(initialAmounts), originalCarbonUnit);
+	}
+
+	/**
+	 * Constructor for intermediate processing in the flux configuration. 
+	 * 
+	 * @param dateIndex the creation date index of the time scale
+	 * @param carbonUnitFeature a CarbonUnitFeature instance
+	 * @param initialAmounts an ElementVector instance that contains the amount of each element to be processed. 
+	 * The vector is not copied and it should not be used elsewhere.
+	 * @param originalCarbonUnit the original CarbonUnit instance from which this CarbonUnit instance is created
+	 */
+	protected CarbonUnit(int dateIndex, 
+			CarbonUnitFeature carbonUnitFeature, 
+			ElementVector initialAmounts,
+			CarbonUnit originalCarbonUnit) {
+		super();
+		amounts = initialAmounts;
 		this.dateIndex = dateIndex;
 		this.carbonUnitFeature = carbonUnitFeature;
 		this.samplingUnitID = originalCarbonUnit.samplingUnitID;
@@ -206,9 +266,31 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 
 	@Override
 	protected void addProcessUnit(ProcessUnit<Element> unit) {
-		super.addProcessUnit(unit);
+		if (unit instanceof CarbonUnit) {
+			amounts.add(((CarbonUnit) unit).amounts);
+		} else {
+			amounts.add(ElementVector.fromAmountMap(unit.getAmountMap()));
+		}
 	}
 
+	/**
+	 * Provide the amounts of the different elements. <p>
+	 * The vector is that of the carbon unit and not a copy. Only the processors should modify it.
+	 * @return an ElementVector instance
+	 */
+	public ElementVector getElementVector() {return amounts;}
+
+	/**
+	 * Provide a copy of the amounts of the different elements. <p>
+	 * The amounts are stored in an ElementVector instance. This method is meant for 
+	 * the classes that only know about the ProcessUnit class. Modifying the map does 
+	 * not change the amounts of this carbon unit. The {@link CarbonUnit#getElementVector()} 
+	 * method does not allocate any map.
+	 * @return a new AmountMap instance
+	 */
+	@Override
+	public AmountMap<Element> getAmountMap() {return amounts.toAmountMap();}
+
 	
 	protected boolean isActualized() {return actualized;}
 	
@@ -229,14 +311,18 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 	 * the degradable organic carbon is considered.
 	 * @return a double 
 	 */
-	public double getInitialCarbon() {return getAmountMap().get(Element.C);}
+	public double getInitialCarbon() {return amounts.get(Element.C);}
 
 	/**
-	 * This method returns an array that contains the current carbon (tC) or null if the carbon unit has not been actualized.
+	 * This method returns an array that contains the current carbon (tC) or null if the carbon unit has not been actualized. <p>
+	 * The array is computed the first time it is requested and it should not be modified.
 	 * @return an array of double
 	 */
 	public double[] getCurrentCarbonArray() {
 		if (isActualized()) {
+			if (currentCarbonArray == null) {
+				computeCarbonArrays();
+			}
 			return currentCarbonArray;
 		} else {
 			return null;
@@ -259,16 +345,43 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 
 
 	/**
-	 * This method actualizes the carbon content of this carbon unit.
+	 * Provide the context of the run in which this carbon unit has been actualized.
+	 * @return a CATRunContext instance or the default context if the carbon unit has not been actualized yet
+	 */
+	protected CATRunContext getRunContext() {
+		return runContext != null ? runContext : CATRunContext.getDefaultContext();
+	}
+
+	/**
+	 * This method actualizes the carbon content of this carbon unit. <p>
+	 * The survival fractions of the decay function are taken from the kernel cache of the 
+	 * compartment manager. The arrays of current and released carbon are only computed when 
+	 * they are requested since the carbon stocks of the compartments can be computed from 
+	 * the kernels (see the {@link CarbonUnitCohorts} class).
 	 * @param compartmentManager a CATCompartmentManager instance
 	 */
 	protected void actualizeCarbon(CATCompartmentManager compartmentManager) {
 		DecayFunction decayFunction = getCarbonUnitFeature().getDecayFunction();
 		CATTimeTable incomingTimeTable = compartmentManager.getTimeTable();
 		setTimeTable(incomingTimeTable);
+		runContext = compartmentManager.getRunContext();
+		currentCarbonArray = null;
+		releasedCarbonArray = null;
+		if (decayFunction.getInfiniteIntegral() > 0) {	// calculate the proportion only if lifetime is greater than 0
+			int horizonYr = timeTable.getDateYrAtThisIndex(timeTable.size() - 1) - timeTable.getDateYrAtThisIndex(0);
+			survivalKernel = compartmentManager.getDecayKernelCache().getKernel(decayFunction, compartmentManager, horizonYr);
+		} else {
+			survivalKernel = null;
+		}
+		actualized = true;
+	}
+	
+	private void computeCarbonArrays() {
 		currentCarbonArray = new double[timeTable.size()];
+		releasedCarbonArray = new double[timeTable.size()];
 
 		double currentCarbon = getInitialCarbon();
+		int creationDate = getCreationDate();
 
 		double formerCarbon;
 		double factor;
@@ -276,38 +389,41 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 		
 		for (int i = dateIndex; i < timeTable.size(); i++) {
 			date = timeTable.getDateYrAtThisIndex(i);
-			if (date > getCreationDate() && currentCarbon > ProductionProcessorManager.VERY_SMALL) {
-				if (decayFunction.getInfiniteIntegral() > 0) {	// calculate the proportion only if lifetime is greater than 0
-					double thisRemains = decayFunction.getValueAtTime(date - getCreationDate(), compartmentManager);
-					double thatRemained = decayFunction.getValueAtTime(timeTable.getDateYrAtThisIndex(i - 1) - getCreationDate(), compartmentManager);
-					factor = thisRemains / thatRemained;	
+			if (date > creationDate && currentCarbon > ProductionProcessorManager.VERY_SMALL) {
+				if (survivalKernel != null) {	
+					factor = survivalKernel[date - creationDate] / survivalKernel[timeTable.getDateYrAtThisIndex(i - 1) - creationDate];	
 				} else { // otherwise all the carbon is gone
 					factor = 0d;
 				}
 				formerCarbon = currentCarbonArray[i - 1];
 				currentCarbon =  formerCarbon * factor;
 				currentCarbonArray[i] = currentCarbon;
-			} else if (date == getCreationDate()) {
+			} else if (date == creationDate) {
 				currentCarbonArray[i] = getInitialCarbon();
 			}
 		}
-		actualized = true;
+		for (int i = dateIndex + 1; i < timeTable.size(); i++) {
+			if (timeTable.getDateYrAtThisIndex(i) > creationDate) {
+				releasedCarbonArray[i] = currentCarbonArray[i - 1] - currentCarbonArray[i];
+			}
+		}
 	}
-	
+
+	/**
+	 * Provide the survival fractions of the decay function at integer ages.
+	 * @return an array of double or null if the lifetime is 0 or if the carbon unit has not been actualized
+	 */
+	double[] getSurvivalKernel() {return survivalKernel;}
 
 	/**
 	 * This method returns the released carbon along in time given the product has been actualized. Otherwise it returns null.
+	 * The array is computed the first time it is requested and it should not be modified.
 	 * @return an array of double that contains the released carbon (tC)
 	 */
 	public double[] getReleasedCarbonArray() {
 		if (isActualized()) {
-			double[] releasedCarbonArray = new double[currentCarbonArray.length];
-			int date;
-			for (int i = 1; i < currentCarbonArray.length; i++) {
-				date = getTimeTable().getDateYrAtThisIndex(i);
-				if (date > getCreationDate()) {
-					releasedCarbonArray[i] = currentCarbonArray[i - 1] - currentCarbonArray[i];
-				}
+			if (releasedCarbonArray == null) {
+				computeCarbonArrays();
 			}
 			return releasedCarbonArray;
 		} else {
@@ -359,7 +475,7 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 	@Override
 	public String toString() {
 		return "Code : " + this.hashCode() 
-				+ "; Volume = " + this.getAmountMap().get(Element.Volume) 
+				+ "; Volume = " + amounts.get(Element.Volume) 
 				+ "; Carbon : " + getInitialCarbon();
 	}
 	
@@ -374,11 +490,10 @@ public class CarbonUnit extends ProcessUnit<Element> implements BiomassTypeProvi
 	 * @return a double
 	 */
 	public double getTotalNonRenewableCarbonEmissionsMgCO2Eq() {
-		Double emissions = getAmountMap().get(Element.EmissionsCO2Eq);
-		if (emissions == null) {
-			return 0d;
+		if (amounts.isDefined(Element.EmissionsCO2Eq)) {
+			return - amounts.get(Element.EmissionsCO2Eq);
 		} else {
-			return - emissions;
+			return 0d;
 		}
 	}
 	
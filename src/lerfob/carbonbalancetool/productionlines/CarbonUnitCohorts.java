@@ -0,0 +1,245 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.CATTimeTable;
+
+/**
+ * The CarbonUnitCohorts class computes the carbon stock of a collection of carbon units
+ * without relying on the array of current carbon of each unit. <p>
+ * The carbon units that share the same decay kernel (see the {@link DecayKernelCache} class)
+ * only differ in their creation date and their initial carbon. The initial carbon is then
+ * accumulated by creation date in an input series for each kernel and the carbon stock
+ * is the sum of the discrete convolutions of these series with their kernel. The convolutions
+ * are carried out through a fast Fourier transform when the time table is long. <p>
+ * The per-unit carbon arrays are truncated once the carbon falls below {@link ProductionProcessorManager#VERY_SMALL}.
+ * The age at which a carbon unit is truncated depends on its initial carbon. The cohorts are then 
+ * identified by their kernel and their truncation age so that the carbon stocks are the same as the 
+ * sum of the per-unit carbon arrays.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class CarbonUnitCohorts {
+
+	/**
+	 * The length of the time table beyond which the convolutions are carried out through a fast Fourier transform.
+	 */
+	static final int FFTThreshold = 128;
+
+	/**
+	 * A cohort of carbon units that share the same kernel and the same truncation age.
+	 */
+	static final class Cohort {
+		final double[] kernel;
+		final int lastAge;
+		final double[] input;
+
+		Cohort(double[] kernel, int lastAge, int size) {
+			this.kernel = kernel;
+			this.lastAge = lastAge;
+			this.input = new double[size];
+		}
+	}
+
+	private CarbonUnitCohorts() {}
+
+	/**
+	 * Compute the carbon stock of carbon units.
+	 * @param carbonUnitsArray an array of collections of actualized carbon units (typically one collection per date index)
+	 * @param timeTable the CATTimeTable instance on which the carbon units have been actualized
+	 * @return an array of double that contains the carbon stock (tC) at each date of the time table
+	 */
+	public static double[] getCarbonStockArray(Collection<? extends CarbonUnit>[] carbonUnitsArray, CATTimeTable timeTable) {
+		int size = timeTable.size();
+		double[] carbon = new double[size];
+		boolean annualTimeTable = isAnnual(timeTable);
+		Map<double[], Map<Integer, Cohort>> cohortMap = new IdentityHashMap<double[], Map<Integer, Cohort>>();
+		List<Cohort> cohorts = new ArrayList<Cohort>();
+		for (Collection<? extends CarbonUnit> carbonUnits : carbonUnitsArray) {
+			if (carbonUnits != null) {
+				for (CarbonUnit carbonUnit : carbonUnits) {
+					double[] kernel = carbonUnit.getSurvivalKernel();
+					if (!annualTimeTable || !carbonUnit.isActualized()) {
+						addToStock(carbon, carbonUnit.getCurrentCarbonArray());
+					} else if (kernel == null) {	// the carbon is entirely released after the creation date
+						carbon[carbonUnit.dateIndex] += carbonUnit.getInitialCarbon();
+					} else {
+						double initialCarbon = carbonUnit.getInitialCarbon();
+						int lastAge = getLastAge(kernel, initialCarbon, size - 1);
+						Map<Integer, Cohort> innerMap = cohortMap.get(kernel);
+						if (innerMap == null) {
+							innerMap = new HashMap<Integer, Cohort>();
+							cohortMap.put(kernel, innerMap);
+						}
+						Cohort cohort = innerMap.get(lastAge);
+						if (cohort == null) {
+							cohort = new Cohort(kernel, lastAge, size);
+							innerMap.put(lastAge, cohort);
+							cohorts.add(cohort);
+						}
+						cohort.input[carbonUnit.dateIndex] += initialCarbon;
+					}
+				}
+			}
+		}
+		if (!cohorts.isEmpty()) {
+			if (size > FFTThreshold) {
+				convolveWithFFT(carbon, cohorts);
+			} else {
+				for (Cohort cohort : cohorts) {
+					convolve(carbon, cohort.input, cohort.kernel, cohort.lastAge);
+				}
+			}
+		}
+		return carbon;
+	}
+
+	/*
+	 * Mirrors the truncation of the CarbonUnit.computeCarbonArrays method: the carbon is computed
+	 * as long as the carbon of the previous year is greater than VERY_SMALL. The last age is then
+	 * the first age at which the carbon is smaller than or equal to VERY_SMALL. Since the kernel
+	 * is decreasing, it is found through a binary search.
+	 */
+	static int getLastAge(double[] kernel, double initialCarbon, int maxAge) {
+		if (initialCarbon * kernel[maxAge] > ProductionProcessorManager.VERY_SMALL) {
+			return maxAge;
+		}
+		int lower = 0;
+		int upper = maxAge;
+		while (lower < upper) {
+			int middle = (lower + upper) >>> 1;
+			if (initialCarbon * kernel[middle] > ProductionProcessorManager.VERY_SMALL) {
+				lower = middle + 1;
+			} else {
+				upper = middle;
+			}
+		}
+		return lower;
+	}
+
+	private static boolean isAnnual(CATTimeTable timeTable) {
+		int firstDateYr = timeTable.getDateYrAtThisIndex(0);
+		for (int i = 1; i < timeTable.size(); i++) {
+			if (timeTable.getDateYrAtThisIndex(i) - firstDateYr != i) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void addToStock(double[] carbon, double[] actualizedCarbon) {
+		for (int j = 0; j < carbon.length; j++) {
+			carbon[j] += actualizedCarbon[j];
+		}
+	}
+
+	/*
+	 * Direct convolution, which skips the dates without input.
+	 */
+	static void convolve(double[] carbon, double[] input, double[] kernel, int lastAge) {
+		for (int i = 0; i < input.length; i++) {
+			if (input[i] != 0d) {
+				int lastIndex = Math.min(carbon.length - 1, i + lastAge);
+				for (int j = i; j <= lastIndex; j++) {
+					carbon[j] += input[i] * kernel[j - i];
+				}
+			}
+		}
+	}
+
+	/*
+	 * The products of the transforms are summed over the kernels so that a single inverse transform is needed.
+	 */
+	static void convolveWithFFT(double[] carbon, Collection<Cohort> cohorts) {
+		int size = carbon.length;
+		int fftSize = Integer.highestOneBit(2 * size - 1) << 1;	// avoids the circular wrap-around
+		double[] sumRe = new double[fftSize];
+		double[] sumIm = new double[fftSize];
+		int firstInputIndex = size;
+		for (Cohort cohort : cohorts) {
+			double[] input = cohort.input;
+			double[] kernel = cohort.kernel;
+			double[] inputRe = new double[fftSize];
+			double[] inputIm = new double[fftSize];
+			double[] kernelRe = new double[fftSize];
+			double[] kernelIm = new double[fftSize];
+			for (int i = 0; i < size; i++) {
+				inputRe[i] = input[i];
+				if (i <= cohort.lastAge) {
+					kernelRe[i] = kernel[i];
+				}
+				if (input[i] != 0d && i < firstInputIndex) {
+					firstInputIndex = i;
+				}
+			}
+			transform(inputRe, inputIm, false);
+			transform(kernelRe, kernelIm, false);
+			for (int k = 0; k < fftSize; k++) {
+				sumRe[k] += inputRe[k] * kernelRe[k] - inputIm[k] * kernelIm[k];
+				sumIm[k] += inputRe[k] * kernelIm[k] + inputIm[k] * kernelRe[k];
+			}
+		}
+		transform(sumRe, sumIm, true);
+		for (int j = firstInputIndex; j < size; j++) {	// the values before the first input are round-off errors
+			carbon[j] += sumRe[j] / fftSize;
+		}
+	}
+
+	/*
+	 * In-place iterative radix-2 fast Fourier transform. The inverse transform is not scaled.
+	 */
+	static void transform(double[] re, double[] im, boolean inverse) {
+		int n = re.length;
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double tmp = re[i]; re[i] = re[j]; re[j] = tmp;
+				tmp = im[i]; im[i] = im[j]; im[j] = tmp;
+			}
+		}
+		for (int length = 2; length <= n; length <<= 1) {
+			int half = length >> 1;
+			double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+			for (int k = 0; k < half; k++) {
+				double wRe = Math.cos(angle * k);
+				double wIm = Math.sin(angle * k);
+				for (int i = k; i < n; i += length) {
+					int l = i + half;
+					double tRe = re[l] * wRe - im[l] * wIm;
+					double tIm = re[l] * wIm + im[l] * wRe;
+					re[l] = re[i] - tRe;
+					im[l] = im[i] - tIm;
+					re[i] += tRe;
+					im[i] += tIm;
+				}
+			}
+		}
+	}
+}
@@ -20,18 +20,28 @@ package lerfob.carbonbalancetool.productionlines;
 
 import java.lang.reflect.Method;
 import java.security.InvalidParameterException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 
 /**
  * This class handles the addition of carbon units in its own list. If a similar carbon unit is found in the
  * list, then the carbon unit that was supposed to be added is merged instead. This makes it possible to save
- * memory space. The equals() method serves to define if two carbon units can be merged.
+ * memory space. The equals() method serves to define if two carbon units can be merged. <p>
+ * The list also maintains secondary indexes by creation date index, use class, species, status class and
+ * biomass type. These indexes are updated through the add, addAll and clear methods. The other modifications 
+ * (e.g. remove, set, removeIf or the remove method of the iterators) are supported as in any list. The indexes
+ * are then rebuilt the next time they are needed.
  * @author Mathieu Fortin - April  2011
  */
 @SuppressWarnings("serial")
@@ -41,13 +51,28 @@ public class CarbonUnitList extends ArrayList<CarbonUnit> {
 
 	final Map<String, Map<Integer, List<CarbonUnit>>> speciesMap;
 	
+	private final Map<Integer, List<CarbonUnit>> dateIndexIndex;
+	private final Map<UseClass, List<CarbonUnit>> useClassIndex;
+	private final Map<String, List<CarbonUnit>> speciesIndex;
+	private final Map<StatusClass, List<CarbonUnit>> statusClassIndex;
+	private final Map<BiomassType, List<CarbonUnit>> biomassTypeIndex;
+	
+	private int indexedModCount;
+	private boolean indexesOutdated;
+	
 	public CarbonUnitList() {
 		speciesMap = new HashMap<String, Map<Integer, List<CarbonUnit>>>();
+		dateIndexIndex = new HashMap<Integer, List<CarbonUnit>>();
+		useClassIndex = new EnumMap<UseClass, List<CarbonUnit>>(UseClass.class);
+		speciesIndex = new HashMap<String, List<CarbonUnit>>();
+		statusClassIndex = new EnumMap<StatusClass, List<CarbonUnit>>(StatusClass.class);
+		biomassTypeIndex = new EnumMap<BiomassType, List<CarbonUnit>>(BiomassType.class);
 	}
 	
 	
 	@Override
 	public boolean add(CarbonUnit carbonUnit) {
+		checkIndexes();
 		String speciesName = carbonUnit.getSpeciesName();
 		int dateIndex = carbonUnit.dateIndex;
 		if (!speciesMap.containsKey(speciesName)) {
@@ -56,6 +81,7 @@ public class CarbonUnitList extends ArrayList<CarbonUnit> {
 			speciesMap.put(speciesName, new HashMap<Integer, List<CarbonUnit>>());
 			speciesMap.get(speciesName).put(dateIndex, cuList);
 			super.add(carbonUnit);
+			index(carbonUnit);
 		} else {
 			Map<Integer, List<CarbonUnit>> innerMap = speciesMap.get(speciesName);
 			if (!innerMap.containsKey(dateIndex)) {
@@ -68,11 +94,120 @@ public class CarbonUnitList extends ArrayList<CarbonUnit> {
 			} else {
 				innerList.add(carbonUnit);
 				super.add(carbonUnit);
+				index(carbonUnit);
 			}
 		}
+		indexedModCount = modCount;
 		return true;
 	}
 
+	/*
+	 * The structural modifications that do not go through the add method change the modCount 
+	 * field. The set method does not and it rather sets the indexesOutdated flag.
+	 */
+	private void checkIndexes() {
+		if (indexesOutdated || modCount != indexedModCount) {
+			clearIndexes();
+			for (CarbonUnit carbonUnit : this) {
+				String speciesName = carbonUnit.getSpeciesName();
+				if (!speciesMap.containsKey(speciesName)) {
+					speciesMap.put(speciesName, new HashMap<Integer, List<CarbonUnit>>());
+				}
+				Map<Integer, List<CarbonUnit>> innerMap = speciesMap.get(speciesName);
+				if (!innerMap.containsKey(carbonUnit.dateIndex)) {
+					innerMap.put(carbonUnit.dateIndex, new ArrayList<CarbonUnit>());
+				}
+				innerMap.get(carbonUnit.dateIndex).add(carbonUnit);
+				index(carbonUnit);
+			}
+			indexedModCount = modCount;
+			indexesOutdated = false;
+		}
+	}
+
+	private void clearIndexes() {
+		speciesMap.clear();
+		dateIndexIndex.clear();
+		useClassIndex.clear();
+		speciesIndex.clear();
+		statusClassIndex.clear();
+		biomassTypeIndex.clear();
+	}
+
+	private void index(CarbonUnit carbonUnit) {
+		addToIndex(dateIndexIndex, carbonUnit.dateIndex, carbonUnit);
+		if (carbonUnit instanceof EndUseWoodProductCarbonUnit) {
+			addToIndex(useClassIndex, ((EndUseWoodProductCarbonUnit) carbonUnit).getUseClass(), carbonUnit);
+		}
+		addToIndex(speciesIndex, carbonUnit.getSpeciesName(), carbonUnit);
+		addToIndex(statusClassIndex, carbonUnit.getStatusClass(), carbonUnit);
+		addToIndex(biomassTypeIndex, carbonUnit.getBiomassType(), carbonUnit);
+	}
+
+	private static <K> void addToIndex(Map<K, List<CarbonUnit>> index, K key, CarbonUnit carbonUnit) {
+		if (key != null) {
+			List<CarbonUnit> units = index.get(key);
+			if (units == null) {
+				units = new ArrayList<CarbonUnit>();
+				index.put(key, units);
+			}
+			units.add(carbonUnit);
+		}
+	}
+
+	private <K> List<CarbonUnit> getFromIndex(Map<K, List<CarbonUnit>> index, K key) {
+		checkIndexes();
+		List<CarbonUnit> units = index.get(key);
+		return units == null ? 
+				Collections.<CarbonUnit>emptyList() : 
+					Collections.unmodifiableList(units);
+	}
+
+	/**
+	 * Provide the carbon units created at a particular date index.
+	 * @param dateIndex the index of the creation date in the time table
+	 * @return an unmodifiable List of CarbonUnit instances in the order of the list
+	 */
+	public List<CarbonUnit> getCarbonUnitsCreatedAt(int dateIndex) {
+		return getFromIndex(dateIndexIndex, dateIndex);
+	}
+
+	/**
+	 * Provide the end use products of a particular use class.
+	 * @param useClass a UseClass enum
+	 * @return an unmodifiable List of CarbonUnit instances in the order of the list
+	 */
+	public List<CarbonUnit> getCarbonUnitsOfThisUseClass(UseClass useClass) {
+		return getFromIndex(useClassIndex, useClass);
+	}
+
+	/**
+	 * Provide the carbon units of a particular species.
+	 * @param speciesName the name of the species
+	 * @return an unmodifiable List of CarbonUnit instances in the order of the list
+	 */
+	public List<CarbonUnit> getCarbonUnitsOfThisSpecies(String speciesName) {
+		return getFromIndex(speciesIndex, speciesName);
+	}
+
+	/**
+	 * Provide the carbon units of a particular status class.
+	 * @param statusClass a StatusClass enum
+	 * @return an unmodifiable List of CarbonUnit instances in the order of the list
+	 */
+	public List<CarbonUnit> getCarbonUnitsOfThisStatusClass(StatusClass statusClass) {
+		return getFromIndex(statusClassIndex, statusClass);
+	}
+
+	/**
+	 * Provide the carbon units of a particular biomass type.
+	 * @param biomassType a BiomassType enum
+	 * @return an unmodifiable List of CarbonUnit instances in the order of the list
+	 */
+	public List<CarbonUnit> getCarbonUnitsOfThisBiomassType(BiomassType biomassType) {
+		return getFromIndex(biomassTypeIndex, biomassType);
+	}
+
 	@Override
 	public boolean addAll(Collection<? extends CarbonUnit> coll) {
 		if (!coll.isEmpty()) {
@@ -90,16 +225,18 @@ public class CarbonUnitList extends ArrayList<CarbonUnit> {
 		double carbon = 0d;
 		
 		for (CarbonUnit unit : this) {
-			volume += unit.getAmountMap().get(Element.Volume);
-			biomass += unit.getAmountMap().get(Element.Biomass);
-			carbon += unit.getAmountMap().get(Element.C);
+			volume += unit.getElementVector().get(Element.Volume);
+			biomass += unit.getElementVector().get(Element.Biomass);
+			carbon += unit.getElementVector().get(Element.C);
 		}
 		return "Volume (m3) = " + volume + "; Biomass (Mg) = " +  biomass + "; Carbon (Mg) = " + carbon;
 	}
 	
 
 	/**
-	 * Filter the CarbonUnitList instance.
+	 * Filter the CarbonUnitList instance. <p>
+	 * This method relies on reflection. The typed indexes (e.g. {@link CarbonUnitList#getCarbonUnitsCreatedAt(int)}) 
+	 * are much faster.
 	 * @param clazz a Class of CarbonUnit
 	 * @param methodName the method name
 	 * @param expectedValue the expected value
@@ -122,11 +259,46 @@ public class CarbonUnitList extends ArrayList<CarbonUnit> {
 	}
 	
 
+	@Override
 	public void clear() {
-		speciesMap.clear();
 		super.clear();
+		clearIndexes();
+		indexedModCount = modCount;
+		indexesOutdated = false;
 	}
-	
 
+	@Override
+	public CarbonUnit set(int index, CarbonUnit carbonUnit) {
+		indexesOutdated = true;
+		return super.set(index, carbonUnit);
+	}
+
+	/*
+	 * The set method of the sublists of the ArrayList class bypasses the set method of 
+	 * the list. It is redirected here so that the indexes are rebuilt.
+	 */
+	@Override
+	public List<CarbonUnit> subList(int fromIndex, int toIndex) {
+		final List<CarbonUnit> subList = super.subList(fromIndex, toIndex);
+		return new AbstractList<CarbonUnit>() {
+			@Override
+			public CarbonUnit get(int index) {return subList.get(index);}
+
+			@Override
+			public int size() {return subList.size();}
+
+			@Override
+			public CarbonUnit set(int index, CarbonUnit carbonUnit) {
+				indexesOutdated = true;
+				return subList.set(index, carbonUnit);
+			}
+
+			@Override
+			public void add(int index, CarbonUnit carbonUnit) {subList.add(index, carbonUnit);}
+
+			@Override
+			public CarbonUnit remove(int index) {return subList.remove(index);}
+		};
+	}
 	
 }
@@ -27,7 +27,7 @@ import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.List;
 
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
+import lerfob.carbonbalancetool.CATRunContext;
 import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings.VariabilitySource;
 import repicea.gui.REpiceaUIObject;
 import repicea.gui.components.NumberFormatFieldFactory.NumberFieldDocument.NumberFieldEvent;
@@ -107,6 +107,7 @@ class DecayFunction implements Serializable, REpiceaUIObject, NumberFieldListene
 	protected DecayFunctionType functionType;
 	protected LifetimeMode lifetimeMode;
 	protected final CarbonUnitFeature feature;
+	private transient String lifetimeModifierId;
 	
 	DecayFunction(CarbonUnitFeature feature, LifetimeMode lifetimeMode, DecayFunctionType functionType, double lifetimeYrValue) {
 		this.feature = feature;
@@ -185,14 +186,66 @@ class DecayFunction implements Serializable, REpiceaUIObject, NumberFieldListene
 	}
 
 	double getValueAtTime(double timeYr, MonteCarloSimulationCompliantObject subject) {
+		return getValueAtTime(timeYr, getAverageLifetimeYr(subject));
+	}
+
+	/**
+	 * Provide the average lifetime once the modifier of the sensitivity analysis has been applied.
+	 * @param subject a MonteCarloSimulationCompliantObject instance or null
+	 * @return the average lifetime (yr)
+	 */
+	double getAverageLifetimeYr(MonteCarloSimulationCompliantObject subject) {
 		double avgLifetimeYr = subject != null ?
-				averageLifetimeYr * CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.Lifetime, 
+				averageLifetimeYr * CATRunContext.getContext(subject).getSensitivitySettings().getModifier(VariabilitySource.Lifetime, 
 						subject, 
-						feature.getClass().getCanonicalName() + feature.hashCode()) :
+						getLifetimeModifierId()) :
 					averageLifetimeYr;
 		if (avgLifetimeYr < 0d) {
 			avgLifetimeYr = 0.01; // protection against negative values
 		}
+		return avgLifetimeYr;
+	}
+
+	/*
+	 * The id only depends on the feature, which is final. It is built once instead of 
+	 * at each actualization of the carbon units.
+	 */
+	String getLifetimeModifierId() {
+		if (lifetimeModifierId == null) {
+			lifetimeModifierId = feature.getClass().getCanonicalName() + feature.hashCode();
+		}
+		return lifetimeModifierId;
+	}
+
+	/**
+	 * Provide the survival fractions at integer ages. <p>
+	 * The values are the same as those of the {@link DecayFunction#getValueAtTime(double, MonteCarloSimulationCompliantObject)} 
+	 * method.
+	 * @param avgLifetimeYr the average lifetime (yr) as provided by the {@link DecayFunction#getAverageLifetimeYr(MonteCarloSimulationCompliantObject)} method
+	 * @param horizonYr the maximum age (yr)
+	 * @return an array of horizonYr + 1 values
+	 */
+	double[] getSurvivalKernel(double avgLifetimeYr, int horizonYr) {
+		double[] kernel = new double[horizonYr + 1];
+		switch(functionType) {
+		case Exponential:
+			for (int age = 0; age <= horizonYr; age++) {
+				kernel[age] = Math.exp(- age / avgLifetimeYr);
+			}
+			break;
+		case Weibull:
+			double wblLambda = getWeibullLambdaFromAverageLifetime(avgLifetimeYr);
+			for (int age = 0; age <= horizonYr; age++) {
+				kernel[age] = Math.exp(- Math.pow(age / wblLambda, weibullBeta));
+			}
+			break;
+		default:
+			throw new InvalidParameterException("Decay function type " + functionType.name() + " has not been implemented yet!");
+		}
+		return kernel;
+	}
+
+	private double getValueAtTime(double timeYr, double avgLifetimeYr) {
 		switch(functionType) {
 		case Exponential:
 			return Math.exp(- timeYr / avgLifetimeYr);
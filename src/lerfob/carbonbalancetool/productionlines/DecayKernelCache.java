@@ -0,0 +1,114 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.productionlines.DecayFunction.DecayFunctionType;
+import lerfob.carbonbalancetool.productionlines.DecayFunction.LifetimeMode;
+import repicea.simulation.MonteCarloSimulationCompliantObject;
+
+/**
+ * The DecayKernelCache class stores the survival fractions of the decay functions
+ * at integer ages. <p>
+ * The kernels are identified by the decay function, its lifetime mode, its type and
+ * its average lifetime once the modifier of the current realization has been applied.
+ * The carbon units that share the same carbon unit feature can then be actualized by
+ * indexing the same array instead of evaluating the decay function at each time step. <p>
+ * Each CATCompartmentManager instance has its own cache, which is cleared at the beginning
+ * of each realization.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class DecayKernelCache {
+
+	private static final class KernelKey {
+
+		private final DecayFunction decayFunction;
+		private final DecayFunctionType functionType;
+		private final LifetimeMode lifetimeMode;
+		private final double averageLifetimeYr;
+
+		private KernelKey(DecayFunction decayFunction, double averageLifetimeYr) {
+			this.decayFunction = decayFunction;
+			this.functionType = decayFunction.functionType;
+			this.lifetimeMode = decayFunction.lifetimeMode;
+			this.averageLifetimeYr = averageLifetimeYr;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof KernelKey) {
+				KernelKey that = (KernelKey) obj;
+				return decayFunction == that.decayFunction &&
+						functionType == that.functionType &&
+						lifetimeMode == that.lifetimeMode &&
+						Double.doubleToLongBits(averageLifetimeYr) == Double.doubleToLongBits(that.averageLifetimeYr);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(averageLifetimeYr);
+			return 31 * System.identityHashCode(decayFunction) + (int) (bits ^ (bits >>> 32));
+		}
+	}
+
+	private final Map<KernelKey, double[]> kernels;
+
+	/**
+	 * Constructor.
+	 */
+	public DecayKernelCache() {
+		kernels = new HashMap<KernelKey, double[]>();
+	}
+
+	/**
+	 * Clear the kernels. <p>
+	 * This method must be called whenever the lifetime modifiers or the time table may have changed.
+	 */
+	public void clear() {
+		kernels.clear();
+	}
+
+	/**
+	 * Provide the survival fractions of a decay function at ages 0, 1, ..., horizonYr.
+	 * @param decayFunction a DecayFunction instance
+	 * @param subject a MonteCarloSimulationCompliantObject instance (typically a CATCompartmentManager instance)
+	 * @param horizonYr the maximum age (yr)
+	 * @return an array of double whose length is at least horizonYr + 1. It should not be modified.
+	 */
+	double[] getKernel(DecayFunction decayFunction, MonteCarloSimulationCompliantObject subject, int horizonYr) {
+		KernelKey key = new KernelKey(decayFunction, decayFunction.getAverageLifetimeYr(subject));
+		double[] kernel = kernels.get(key);
+		if (kernel == null || kernel.length <= horizonYr) {
+			kernel = decayFunction.getSurvivalKernel(key.averageLifetimeYr, horizonYr);
+			kernels.put(key, kernel);
+		}
+		return kernel;
+	}
+
+	/**
+	 * Provide the number of kernels in the cache.
+	 * @return an integer
+	 */
+	int size() {return kernels.size();}
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.ProcessorGraphCompiler.TransferVector;
+import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
+import repicea.simulation.covariateproviders.treelevel.SpeciesTypeProvider.SpeciesType;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.processsystem.ProcessUnit;
+
+/**
+ * The DisposalCascade class collects the wood products that are disposed at the end of their
+ * useful lifetime. <p>
+ * The end use products are grouped into cohorts, that is the products that share the same disposal
+ * processor and the same profile (sampling unit, species, status class, biomass type and woody debris
+ * type). Each cohort holds one vector of disposed amounts per date index, to which the released 
+ * amounts of its products are added. No carbon unit is created for each product and each year of 
+ * disposal. When the {@link DisposalCascade#flush(ProcessorGraphCompiler)} method is called, the 
+ * disposed amounts of each cohort and date are sent through the compiled disposal graph once.
+ * @author Mathieu Fortin - March 2025
+ */
+class DisposalCascade {
+
+	/**
+	 * The key of a cohort. It contains the members that the CarbonUnit.equals method checks for
+	 * the carbon units that are created from a disposed product.
+	 */
+	private static final class CohortKey {
+		private final AbstractProductionLineProcessor disposedToProcessor;
+		private final String samplingUnitID;
+		private final String speciesName;
+		private final SpeciesType speciesType;
+		private final StatusClass statusClass;
+		private final WoodyDebrisProcessorID woodyDebrisType;
+		private final BiomassType biomassType;
+
+		private CohortKey(AbstractProductionLineProcessor disposedToProcessor, CarbonUnit product) {
+			this.disposedToProcessor = disposedToProcessor;
+			this.samplingUnitID = product.samplingUnitID;
+			this.speciesName = product.getSpeciesName();
+			this.speciesType = product.getSpeciesType();
+			this.statusClass = product.getStatusClass();
+			this.woodyDebrisType = product.getWoodyDebrisType();
+			this.biomassType = product.getBiomassType();
+		}
+
+		private static boolean areEqual(Object o1, Object o2) {
+			return o1 == null ? o2 == null : o1.equals(o2);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof CohortKey) {
+				CohortKey that = (CohortKey) obj;
+				return disposedToProcessor == that.disposedToProcessor &&
+						areEqual(samplingUnitID, that.samplingUnitID) &&
+						areEqual(speciesName, that.speciesName) &&
+						speciesType == that.speciesType &&
+						statusClass == that.statusClass &&
+						woodyDebrisType == that.woodyDebrisType &&
+						biomassType == that.biomassType;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int hashCode = System.identityHashCode(disposedToProcessor);
+			hashCode = 31 * hashCode + (samplingUnitID == null ? 0 : samplingUnitID.hashCode());
+			hashCode = 31 * hashCode + (speciesName == null ? 0 : speciesName.hashCode());
+			hashCode = 31 * hashCode + (statusClass == null ? 0 : statusClass.hashCode());
+			return 31 * hashCode + biomassType.hashCode();
+		}
+	}
+
+	/**
+	 * A cohort of disposed products. The first product of the cohort provides the profile of
+	 * the carbon units that are created when the cohort is flushed.
+	 */
+	private static final class Cohort {
+		private final CarbonUnit profile;
+		private final ElementVector[] disposedAmounts;
+
+		private Cohort(CarbonUnit profile, int size) {
+			this.profile = profile;
+			disposedAmounts = new ElementVector[size];
+		}
+	}
+
+	private final Map<CohortKey, Cohort> cohorts;
+
+	DisposalCascade() {
+		cohorts = new LinkedHashMap<CohortKey, Cohort>();
+	}
+
+	/**
+	 * Add the disposed amounts of an end use product to the cascade. <p>
+	 * The amounts disposed at date index i are the amounts of the product multiplied by 
+	 * releasedCarbonArray[i] * factor.
+	 * @param disposedToProcessor the processor that receives the disposed product
+	 * @param product the CarbonUnit instance that is disposed
+	 * @param releasedCarbonArray the carbon released by the product at each date index
+	 * @param factor the disposable proportion divided by the initial carbon of the product
+	 */
+	void add(AbstractProductionLineProcessor disposedToProcessor, CarbonUnit product, double[] releasedCarbonArray, double factor) {
+		ElementVector productAmounts = product.getElementVector();
+		double volume = productAmounts.get(Element.Volume);
+		CohortKey key = new CohortKey(disposedToProcessor, product);
+		Cohort cohort = cohorts.get(key);
+		for (int i = product.getIndexInTimeScale(); i < releasedCarbonArray.length; i++) {
+			double proportion = releasedCarbonArray[i] * factor;
+			if (volume * proportion > 0) {
+				if (cohort == null) {
+					cohort = new Cohort(product, releasedCarbonArray.length);
+					cohorts.put(key, cohort);
+				}
+				if (cohort.disposedAmounts[i] == null) {
+					cohort.disposedAmounts[i] = new ElementVector();
+				}
+				cohort.disposedAmounts[i].addScaled(productAmounts, proportion);
+			}
+		}
+	}
+
+	/**
+	 * Indicate whether there are disposed units that have not been processed yet.
+	 * @return a boolean
+	 */
+	boolean isEmpty() {
+		return cohorts.isEmpty();
+	}
+
+	/**
+	 * Process the disposed amounts. <p>
+	 * The end use products that result from this processing are flagged as recycled.
+	 * @param graphCompiler a ProcessorGraphCompiler instance or null if the compilation is disabled
+	 * @return the processed carbon units
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	Collection<CarbonUnit> flush(ProcessorGraphCompiler graphCompiler) {
+		List<CarbonUnit> processedUnits = new ArrayList<CarbonUnit>();
+		for (CohortKey key : cohorts.keySet()) {
+			Cohort cohort = cohorts.get(key);
+			for (int i = 0; i < cohort.disposedAmounts.length; i++) {
+				ElementVector amounts = cohort.disposedAmounts[i];
+				if (amounts != null) {
+					amounts.set(Element.EmissionsCO2Eq, 0d);		// reset the emissions to 0 after useful lifetime - otherwise there is a double count
+					CarbonUnit disposedUnit = new CarbonUnit(i, null, amounts, cohort.profile);	// the cohorts are cleared below
+					TransferVector transferVector = graphCompiler == null ? null : graphCompiler.getDisposalTransferVector(key.disposedToProcessor, disposedUnit);
+					if (transferVector != null) {
+						processedUnits.addAll(transferVector.emit(disposedUnit));
+					} else {		// the disposal graph cannot be compiled
+						List<ProcessUnit> disposedUnits = key.disposedToProcessor.createProcessUnitsFromThisProcessor(disposedUnit, 100);
+						processedUnits.addAll((Collection) key.disposedToProcessor.doProcess(disposedUnits));
+					}
+				}
+			}
+		}
+		cohorts.clear();
+		for (CarbonUnit carbonUnit : processedUnits) {
+			if (carbonUnit.getLastStatus().equals(CarbonUnitStatus.EndUseWoodProduct)) {
+				carbonUnit.addStatus(CarbonUnitStatus.Recycled);
+			}
+		}
+		return processedUnits;
+	}
+
+	/**
+	 * Discard the disposed amounts that have not been processed.
+	 */
+	void clear() {
+		cohorts.clear();
+	}
+}
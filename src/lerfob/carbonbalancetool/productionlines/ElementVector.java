@@ -0,0 +1,229 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.Arrays;
+
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import repicea.simulation.processsystem.AmountMap;
+
+/**
+ * The ElementVector class stores the amounts of the different elements in an array of
+ * primitive doubles indexed by the ordinal of the Element enum. <p>
+ * Unlike the AmountMap class, the scaling and the addition are carried out in place and
+ * do not box the amounts. The vector keeps track of the elements that have been defined so
+ * that the conversion to an AmountMap instance produces the same keys as the equivalent
+ * sequence of operations on AmountMap instances. <p>
+ * The CarbonUnit instances store their amounts in ElementVector instances. The conversion from 
+ * and to AmountMap instances boxes every amount. It is therefore kept at the boundary with the 
+ * repicea classes, for instance in the CarbonUnit.getAmountMap method.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class ElementVector {
+
+	private static final Element[] Elements = Element.values();
+
+	private final double[] amounts;
+	private int definedMask;
+
+	/**
+	 * Constructor for an empty vector.
+	 */
+	public ElementVector() {
+		amounts = new double[Elements.length];
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param vector the ElementVector instance to be copied
+	 */
+	public ElementVector(ElementVector vector) {
+		amounts = vector.amounts.clone();
+		definedMask = vector.definedMask;
+	}
+
+	/**
+	 * Create a vector from an AmountMap instance.
+	 * @param amountMap an AmountMap instance (can be null)
+	 * @return an ElementVector instance
+	 */
+	public static ElementVector fromAmountMap(AmountMap<Element> amountMap) {
+		ElementVector vector = new ElementVector();
+		if (amountMap != null) {
+			for (Element e : amountMap.keySet()) {
+				Double value = amountMap.get(e);
+				if (value != null) {
+					vector.set(e, value);
+				}
+			}
+		}
+		return vector;
+	}
+
+	/**
+	 * Convert this vector into an AmountMap instance. <p>
+	 * Only the elements that have been defined are put in the map.
+	 * @return a new AmountMap instance
+	 */
+	public AmountMap<Element> toAmountMap() {
+		AmountMap<Element> amountMap = new AmountMap<Element>();
+		for (int i = 0; i < amounts.length; i++) {
+			if ((definedMask & (1 << i)) != 0) {
+				amountMap.put(Elements[i], amounts[i]);
+			}
+		}
+		return amountMap;
+	}
+
+	/**
+	 * Add the defined amounts of this vector to an AmountMap instance. <p>
+	 * This is equivalent to amountMap.putAll(this.toAmountMap()) without creating the intermediate map.
+	 * @param amountMap the AmountMap instance that receives the amounts
+	 */
+	public void addTo(AmountMap<Element> amountMap) {
+		for (int i = 0; i < amounts.length; i++) {
+			if ((definedMask & (1 << i)) != 0) {
+				amountMap.add(Elements[i], amounts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Indicate whether an element has been defined in this vector.
+	 * @param e an Element enum
+	 * @return a boolean
+	 */
+	public boolean isDefined(Element e) {
+		return (definedMask & (1 << e.ordinal())) != 0;
+	}
+
+	/**
+	 * Provide the amount of an element.
+	 * @param e an Element enum
+	 * @return a double (0 if the element has not been defined)
+	 */
+	public double get(Element e) {
+		return amounts[e.ordinal()];
+	}
+
+	/**
+	 * Set the amount of an element.
+	 * @param e an Element enum
+	 * @param value the amount
+	 * @return this instance
+	 */
+	public ElementVector set(Element e, double value) {
+		int i = e.ordinal();
+		amounts[i] = value;
+		definedMask |= 1 << i;
+		return this;
+	}
+
+	/**
+	 * Copy the amounts of another vector into this vector.
+	 * @param vector an ElementVector instance
+	 * @return this instance
+	 */
+	public ElementVector set(ElementVector vector) {
+		System.arraycopy(vector.amounts, 0, amounts, 0, amounts.length);
+		definedMask = vector.definedMask;
+		return this;
+	}
+
+	/**
+	 * Reset all the amounts to 0 and mark all the elements as undefined.
+	 * @return this instance
+	 */
+	public ElementVector clear() {
+		Arrays.fill(amounts, 0d);
+		definedMask = 0;
+		return this;
+	}
+
+	/**
+	 * Remove an element from this vector.
+	 * @param e an Element enum
+	 * @return this instance
+	 */
+	public ElementVector remove(Element e) {
+		int i = e.ordinal();
+		amounts[i] = 0d;
+		definedMask &= ~(1 << i);
+		return this;
+	}
+
+	/**
+	 * Add an amount to an element.
+	 * @param e an Element enum
+	 * @param value the amount to be added
+	 * @return this instance
+	 */
+	public ElementVector add(Element e, double value) {
+		int i = e.ordinal();
+		amounts[i] += value;
+		definedMask |= 1 << i;
+		return this;
+	}
+
+	/**
+	 * Add the amounts of another vector to this vector.
+	 * @param vector an ElementVector instance
+	 * @return this instance
+	 */
+	public ElementVector add(ElementVector vector) {
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] += vector.amounts[i];
+		}
+		definedMask |= vector.definedMask;
+		return this;
+	}
+
+	/**
+	 * Multiply the amounts of this vector by a scalar.
+	 * @param scalar a double
+	 * @return this instance
+	 */
+	public ElementVector scale(double scalar) {
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] *= scalar;
+		}
+		return this;
+	}
+
+	/**
+	 * Add the amounts of another vector multiplied by a scalar to this vector, that is
+	 * this = this + vector * scalar.
+	 * @param vector an ElementVector instance
+	 * @param scalar a double
+	 * @return this instance
+	 */
+	public ElementVector addScaled(ElementVector vector, double scalar) {
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] += vector.amounts[i] * scalar;
+		}
+		definedMask |= vector.definedMask;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return toAmountMap().toString();
+	}
+}
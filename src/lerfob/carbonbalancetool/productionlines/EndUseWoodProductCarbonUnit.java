@@ -67,7 +67,7 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	
 	
 	/**
-	 * Official constructor for this class.
+	 * Constructor with an AmountMap instance.
 	 * @param dateIndex the date index
 	 * @param carbonUnitFeature an EndUseWoodProductCarbonUnitFeature instance
 	 * @param amountMap an AmountMap instance
@@ -77,22 +77,36 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 			EndUseWoodProductCarbonUnitFeature carbonUnitFeature,
 			AmountMap<Element> amountMap,
 			CarbonUnit originalCarbonUnit) {
-		super(dateIndex, carbonUnitFeature, amountMap, originalCarbonUnit);
+		this(dateIndex, carbonUnitFeature, ElementVector.fromAmountMap(amountMap), originalCarbonUnit);
+	}
+
+	/**
+	 * Official constructor for this class.
+	 * @param dateIndex the date index
+	 * @param carbonUnitFeature an EndUseWoodProductCarbonUnitFeature instance
+	 * @param amounts an ElementVector instance, which is not copied
+	 * @param originalCarbonUnit the original CarbonUnit instance from which this EndUseWoodProductCarbonUnit instance is created
+	 */
+	protected EndUseWoodProductCarbonUnit(int dateIndex,
+			EndUseWoodProductCarbonUnitFeature carbonUnitFeature,
+			ElementVector amounts,
+			CarbonUnit originalCarbonUnit) {
+		super(dateIndex, carbonUnitFeature, amounts, originalCarbonUnit);
 		addStatus(CarbonUnitStatus.EndUseWoodProduct);
-		AbstractProcessor.updateProcessEmissions(getAmountMap(), carbonUnitFeature.getBiomassOfFunctionalUnitMg(), carbonUnitFeature.getEmissionsMgCO2EqByFunctionalUnit());
+		AbstractProcessor.updateProcessEmissions(amounts, carbonUnitFeature.getBiomassOfFunctionalUnitMg(), carbonUnitFeature.getEmissionsMgCO2EqByFunctionalUnit());
 	}
 
 	/**
 	 * This method returns the volume of the product as it was created.
 	 * @return a double
 	 */
-	public double getProcessedVolumeAtCreationDate() {return getAmountMap().get(Element.Volume);}
+	public double getProcessedVolumeAtCreationDate() {return getElementVector().get(Element.Volume);}
 	
 	/**
 	 * This method returns the dry biomass of the product as it was created.
 	 * @return a double
 	 */
-	public double getBiomassMgAtCreationDate() {return getAmountMap().get(Element.Biomass);}
+	public double getBiomassMgAtCreationDate() {return getElementVector().get(Element.Biomass);}
 	
 	/**
 	 * This method returns the number of functional units in this carbon unit.
@@ -127,25 +141,30 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 
 		if (getCarbonUnitFeature().isDisposed()) {
 			double[] releasedCarbonArray = getReleasedCarbonArray();
-			double proportion;
-			for (int i = getIndexInTimeScale(); i < getTimeTable().size(); i++) {
-				proportion = releasedCarbonArray[i] / getInitialCarbon();
-				AmountMap<Element> updatedMap = getAmountMap().multiplyByAScalar(proportion * getCarbonUnitFeature().getDisposableProportion());
-				AbstractProductionLineProcessor disposedToProcessor = (AbstractProductionLineProcessor) ((ProductionLineProcessor) getCarbonUnitFeature().getProcessor()).getDisposedToProcess();
-				if (updatedMap.get(Element.Volume) > 0) {
-					if (disposedToProcessor != null) { // new implementation
-						CarbonUnit newUnit = new CarbonUnit(i, null, updatedMap, this);
-						newUnit.getAmountMap().put(Element.EmissionsCO2Eq, 0d);		// reset the emissions to 0 after useful lifetime - otherwise there is a double count
-						List<ProcessUnit> disposedUnits = disposedToProcessor.createProcessUnitsFromThisProcessor(newUnit, 100);
-						Collection<CarbonUnit> processedUnits = (Collection) disposedToProcessor.doProcess(disposedUnits);
-						for (CarbonUnit carbonUnit : processedUnits) {
-							if (carbonUnit.getLastStatus().equals(CarbonUnitStatus.EndUseWoodProduct)) {
-								carbonUnit.addStatus(CarbonUnitStatus.Recycled);
+			AbstractProductionLineProcessor disposedToProcessor = (AbstractProductionLineProcessor) ((ProductionLineProcessor) getCarbonUnitFeature().getProcessor()).getDisposedToProcess();
+			ProductionProcessorManager manager = compartmentManager.getCarbonToolSettings().getCurrentProductionProcessorManager();
+			if (disposedToProcessor != null && manager.isGraphCompilationEnabled()) {	// the disposed amounts are added to the cohort of this product and processed once all the products have been actualized
+				manager.getDisposalCascade().add(disposedToProcessor, this, releasedCarbonArray, getCarbonUnitFeature().getDisposableProportion() / getInitialCarbon());
+			} else {
+				double proportion;
+				for (int i = getIndexInTimeScale(); i < getTimeTable().size(); i++) {
+					proportion = releasedCarbonArray[i] / getInitialCarbon();
+					ElementVector updatedAmounts = new ElementVector(getElementVector()).scale(proportion * getCarbonUnitFeature().getDisposableProportion());
+					if (updatedAmounts.get(Element.Volume) > 0) {
+						if (disposedToProcessor != null) { // new implementation
+							updatedAmounts.set(Element.EmissionsCO2Eq, 0d);		// reset the emissions to 0 after useful lifetime - otherwise there is a double count
+							CarbonUnit newUnit = new CarbonUnit(i, null, updatedAmounts, this);
+							List<ProcessUnit> disposedUnits = disposedToProcessor.createProcessUnitsFromThisProcessor(newUnit, 100);
+							Collection<CarbonUnit> processedUnits = (Collection) disposedToProcessor.doProcess(disposedUnits);
+							for (CarbonUnit carbonUnit : processedUnits) {
+								if (carbonUnit.getLastStatus().equals(CarbonUnitStatus.EndUseWoodProduct)) {
+									carbonUnit.addStatus(CarbonUnitStatus.Recycled);
+								}
 							}
+							manager.getCarbonUnitMap().add(processedUnits);
+						} else {	// former implementation
+							((ProductionLineProcessor) getCarbonUnitFeature().getProcessor()).getProductionLine().getManager().sendToTheLandfill(i, getSpeciesName(), getSpeciesType(), getStatusClass(), updatedAmounts.toAmountMap());	
 						}
-						compartmentManager.getCarbonToolSettings().getCurrentProductionProcessorManager().getCarbonUnitMap().add(processedUnits);
-					} else {	// former implementation
-						((ProductionLineProcessor) getCarbonUnitFeature().getProcessor()).getProductionLine().getManager().sendToTheLandfill(i, getSpeciesName(), getSpeciesType(), getStatusClass(), updatedMap);	
 					}
 				}
 			}
@@ -217,12 +236,12 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	@SuppressWarnings("deprecation")
 	@Override
 	public double getTotalNonRenewableCarbonEmissionsMgCO2Eq() {
-		if (getAmountMap().containsKey(Element.EmissionsCO2Eq)) {		// new implementation
+		if (getElementVector().isDefined(Element.EmissionsCO2Eq)) {		// new implementation
 			return super.getTotalNonRenewableCarbonEmissionsMgCO2Eq();
 		} else {			// former implementation
 			double emission = 0d;
 			if (getCarbonUnitFeature().getLCA() != null) {		// lca is supposed to be instantiated at creation date
-				emission = - getCarbonUnitFeature().getLCA().getCarbonEmissionPerM3() * rawRoundWoodVolume;
+				emission = - getCarbonUnitFeature().getLCA().getCarbonEmissionPerM3(getRunContext().getGlobalWarmingPotential()) * rawRoundWoodVolume;
 			}
 			return emission;
 		}
@@ -256,7 +275,7 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	
 	
 	private double getCombustionEmissionsInCO2EqForAParticularAmountOfDryBiomass(double dryBiomassMg) {
-		double emissionFactor = getCarbonUnitFeature().getCombustionEmissionFactorsInCO2Eq();
+		double emissionFactor = getCarbonUnitFeature().getCombustionEmissionFactorsInCO2Eq(getRunContext().getGlobalWarmingPotential());
 		if (emissionFactor > 0) {
 			return - dryBiomassMg * emissionFactor;
 		} else {
@@ -275,7 +294,7 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	 * @return a double
 	 */
 	public double getTotalCombustionEmissionsCO2Eq() {
-		return getCombustionEmissionsInCO2EqForAParticularAmountOfDryBiomass(getAmountMap().get(Element.Biomass));
+		return getCombustionEmissionsInCO2EqForAParticularAmountOfDryBiomass(getElementVector().get(Element.Biomass));
 	}
 
 	
@@ -287,7 +306,7 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	public double[] getCombustionEmissionsArrayCO2Eq() {
 		double[] releasedCarbonArray = getReleasedCarbonArray();
 		if (releasedCarbonArray != null) {
-			double carbonToBiomassFactor = getAmountMap().get(Element.Biomass) / getInitialCarbon(); 
+			double carbonToBiomassFactor = getElementVector().get(Element.Biomass) / getInitialCarbon(); 
 			double[] releasedBiomass = ObjectUtility.multiplyArrayByScalar(releasedCarbonArray, carbonToBiomassFactor);
 			double[] combustionEmissionsCO2Eq = new double[releasedBiomass.length];
 			for (int i = 0; i < releasedBiomass.length; i++) {
@@ -307,7 +326,7 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	public double[] getHeatProductionArrayMgWh() {
 		double[] releasedCarbonArray = getReleasedCarbonArray();
 		if (releasedCarbonArray != null) {
-			double carbonToBiomassFactor = getAmountMap().get(Element.Biomass) / getInitialCarbon(); 
+			double carbonToBiomassFactor = getElementVector().get(Element.Biomass) / getInitialCarbon(); 
 			double[] releasedBiomass = ObjectUtility.multiplyArrayByScalar(releasedCarbonArray, carbonToBiomassFactor);
 			double[] heatProductionArrayMgWh = new double[releasedBiomass.length];
 			for (int i = 0; i < releasedBiomass.length; i++) {
@@ -325,6 +344,6 @@ public class EndUseWoodProductCarbonUnit extends CarbonUnit {
 	 * @return a double
 	 */
 	public double getTotalHeatProductionMgWh() {
-		return getHeatProductionForAParticularAmountOfDryBiomass(getAmountMap().get(Element.Biomass));
+		return getHeatProductionForAParticularAmountOfDryBiomass(getElementVector().get(Element.Biomass));
 	}
 }
\ No newline at end of file
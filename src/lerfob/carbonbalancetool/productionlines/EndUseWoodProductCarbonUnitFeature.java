@@ -28,10 +28,10 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import lerfob.carbonbalancetool.CATCompartmentManager;
+import lerfob.carbonbalancetool.CATSettings.GWP;
 import lerfob.carbonbalancetool.productionlines.DecayFunction.LifetimeMode;
 import lerfob.carbonbalancetool.productionlines.combustion.CombustionEmissions;
 import lerfob.carbonbalancetool.productionlines.combustion.CombustionEmissions.CombustionProcess;
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings.VariabilitySource;
 import repicea.gui.components.NumberFormatFieldFactory.NumberFieldDocument.NumberFieldEvent;
 import repicea.gui.components.NumberFormatFieldFactory.NumberFieldListener;
@@ -172,7 +172,7 @@ public class EndUseWoodProductCarbonUnitFeature extends CarbonUnitFeature implem
 
 	protected double getSubstitutionMgCO2EqByFunctionalUnit(CATCompartmentManager manager) {
 		if (manager != null) {
-			return relativeSubstitutionCO2EqFonctionalUnit * CATSensitivityAnalysisSettings.getInstance().getModifier(VariabilitySource.SubstitutionFactors, manager, toString());
+			return relativeSubstitutionCO2EqFonctionalUnit * manager.getRunContext().getSensitivitySettings().getModifier(VariabilitySource.SubstitutionFactors, manager, toString());
 		} else {
 			return relativeSubstitutionCO2EqFonctionalUnit;
 		}
@@ -216,11 +216,12 @@ public class EndUseWoodProductCarbonUnitFeature extends CarbonUnitFeature implem
 	
 	/**
 	 * Returns the combustion emission factors in CO2 eq. for one Mg of dry biomass.
+	 * @param gwp the Global Warming Potential factors
 	 * @return a double
 	 */
-	protected double getCombustionEmissionFactorsInCO2Eq() {
+	protected double getCombustionEmissionFactorsInCO2Eq(GWP gwp) {
 		if (getCombustionProcess() != null && getCombustionProcess() != CombustionProcess.None) {
-			return CombustionEmissions.CombustionEmissionsMap.get(getCombustionProcess()).getEmissionFactorInCO2EqForOneMgOfDryBiomass();
+			return CombustionEmissions.CombustionEmissionsMap.get(getCombustionProcess()).getEmissionFactorInCO2EqForOneMgOfDryBiomass(gwp);
 		} else {
 			return 0d;
 		}
@@ -52,7 +52,7 @@ public class LandfillCarbonUnit extends CarbonUnit {
 	}
 	
 	/**
-	 * Official constructor
+	 * Constructor with an AmountMap instance.
 	 * @param dateIndex the date index
 	 * @param landfillCarbonUnitFeature a LandfillCarbonUnitFeature instance
 	 * @param amountMap an AmountMap instance
@@ -64,7 +64,23 @@ public class LandfillCarbonUnit extends CarbonUnit {
 			AmountMap<Element> amountMap,
 			CarbonUnit originalCarbonUnit,
 			CarbonUnitStatus landfillStatus) {
-		super(dateIndex, landfillCarbonUnitFeature, amountMap, originalCarbonUnit);
+		this(dateIndex, landfillCarbonUnitFeature, ElementVector.fromAmountMap(amountMap), originalCarbonUnit, landfillStatus);
+	}
+
+	/**
+	 * Official constructor
+	 * @param dateIndex the date index
+	 * @param landfillCarbonUnitFeature a LandfillCarbonUnitFeature instance
+	 * @param amounts an ElementVector instance, which is not copied
+	 * @param originalCarbonUnit the original CarbonUnit instance from which this LandfillCarbonUnit instance is created
+	 * @param landfillStatus a CarbonUnitStatus enum (either LandFillDegradable or LandFillNonDegradable)
+	 */
+	protected LandfillCarbonUnit(int dateIndex,
+			LandfillCarbonUnitFeature landfillCarbonUnitFeature,
+			ElementVector amounts,
+			CarbonUnit originalCarbonUnit,
+			CarbonUnitStatus landfillStatus) {
+		super(dateIndex, landfillCarbonUnitFeature, amounts, originalCarbonUnit);
 		addStatus(landfillStatus);
 	}
 	
@@ -103,7 +119,7 @@ public class LandfillCarbonUnit extends CarbonUnit {
 		final double CH4_part = .5;
 //		final double CH4_C_conversion = 16d / 12;		// see Eq.3.6 IPCC guidelines 2006 v.5 Waste p. 3.10 
 		double methaneCorrectionFactor = getCarbonUnitFeature().getLandfillType().getMethaneCorrectionFactor();
-		return - carbon * methaneCorrectionFactor * CH4_part * CATSettings.C_CH4_FACTOR * (CATSettings.getGlobalWarmingPotential().getCH4Factor() - 1);
+		return - carbon * methaneCorrectionFactor * CH4_part * CATSettings.C_CH4_FACTOR * (getRunContext().getGlobalWarmingPotential().getCH4Factor() - 1);
 	}
 	
 }
@@ -23,8 +23,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
-import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
-import repicea.simulation.processsystem.AmountMap;
 import repicea.simulation.processsystem.ProcessUnit;
 import repicea.simulation.processsystem.ProcessorButton;
 import repicea.simulation.processsystem.SystemPanel;
@@ -72,23 +70,27 @@ public class LandfillProcessor extends AbstractProductionLineProcessor {
 	@SuppressWarnings({ "rawtypes"})
 	@Override
 	protected List<ProcessUnit> createProcessUnitsFromThisProcessor(ProcessUnit unit, Number intake) {
-		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
-
 		CarbonUnit carbonUnit = (CarbonUnit) unit;
-		int dateIndex = carbonUnit.getIndexInTimeScale();
-		AmountMap<Element> processedAmountMap = carbonUnit.getAmountMap().multiplyByAScalar(intake.doubleValue() * .01);
+		ElementVector processedAmounts = new ElementVector(carbonUnit.getElementVector()).scale(intake.doubleValue() * .01);
+		return createCarbonUnits(carbonUnit, processedAmounts);
+	}
 
+	@SuppressWarnings({ "rawtypes"})
+	@Override
+	List<ProcessUnit> createCarbonUnits(CarbonUnit carbonUnit, ElementVector processedAmounts) {
+		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
+		int dateIndex = carbonUnit.getIndexInTimeScale();
 		CarbonUnit woodProduct;
 
 		LandfillCarbonUnitFeature lfcuf = (LandfillCarbonUnitFeature) woodProductFeature;
 		double docf = lfcuf.getDegradableOrganicCarbonFraction();
 
-		AmountMap<Element> landFillMapTmp = processedAmountMap.multiplyByAScalar(docf);
-		woodProduct = new LandfillCarbonUnit(dateIndex, lfcuf, landFillMapTmp, carbonUnit, CarbonUnitStatus.LandFillDegradable);
+		ElementVector degradableAmounts = new ElementVector(processedAmounts).scale(docf);
+		woodProduct = new LandfillCarbonUnit(dateIndex, lfcuf, degradableAmounts, carbonUnit, CarbonUnitStatus.LandFillDegradable);
 		outputUnits.add(woodProduct);
 
-		landFillMapTmp = processedAmountMap.multiplyByAScalar(1 - docf);
-		woodProduct = new LandfillCarbonUnit(dateIndex, lfcuf, landFillMapTmp, carbonUnit, CarbonUnitStatus.LandFillNonDegradable); 
+		ElementVector nonDegradableAmounts = processedAmounts.scale(1 - docf);	// the vector is not used elsewhere
+		woodProduct = new LandfillCarbonUnit(dateIndex, lfcuf, nonDegradableAmounts, carbonUnit, CarbonUnitStatus.LandFillNonDegradable); 
 		outputUnits.add(woodProduct);
 		return outputUnits;
 	}
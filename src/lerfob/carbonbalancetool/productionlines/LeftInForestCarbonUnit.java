@@ -31,7 +31,7 @@ import repicea.simulation.processsystem.ProcessUnit;
 public class LeftInForestCarbonUnit extends CarbonUnit {
 
 	/**
-	 * Official constructor for this class.
+	 * Constructor with an AmountMap instance.
 	 * @param dateIndex the date index
 	 * @param carbonUnitFeature an EndUseWoodProductCarbonUnitFeature instance
 	 * @param amountMap an AmountMap instance
@@ -41,7 +41,21 @@ public class LeftInForestCarbonUnit extends CarbonUnit {
                                      CarbonUnitFeature carbonUnitFeature,
                                      AmountMap<Element> amountMap,
                                      CarbonUnit originalCarbonUnit) {
-		super(dateIndex, carbonUnitFeature, amountMap, originalCarbonUnit);
+		this(dateIndex, carbonUnitFeature, ElementVector.fromAmountMap(amountMap), originalCarbonUnit);
+	}
+
+	/**
+	 * Official constructor for this class.
+	 * @param dateIndex the date index
+	 * @param carbonUnitFeature an EndUseWoodProductCarbonUnitFeature instance
+	 * @param amounts an ElementVector instance, which is not copied
+	 * @param originalCarbonUnit the original CarbonUnit instance from which this EndUseWoodProductCarbonUnit instance is created
+	 */
+	protected LeftInForestCarbonUnit(int dateIndex,
+                                     CarbonUnitFeature carbonUnitFeature,
+                                     ElementVector amounts,
+                                     CarbonUnit originalCarbonUnit) {
+		super(dateIndex, carbonUnitFeature, amounts, originalCarbonUnit);
 		addStatus(CarbonUnitStatus.DeadWood);
 	}
 
@@ -49,13 +63,13 @@ public class LeftInForestCarbonUnit extends CarbonUnit {
 	 * This method returns the volume of the product as it was created.
 	 * @return a double
 	 */
-	public double getProcessedVolumeAtCreationDate() {return getAmountMap().get(Element.Volume);}
+	public double getProcessedVolumeAtCreationDate() {return getElementVector().get(Element.Volume);}
 	
 	/**
 	 * This method returns the dry biomass of the product as it was created.
 	 * @return a double
 	 */
-	public double getBiomassMgAtCreationDate() {return getAmountMap().get(Element.Biomass);}
+	public double getBiomassMgAtCreationDate() {return getElementVector().get(Element.Biomass);}
 	
 	/**
 	 * This method actualizes the EndProduct instance on a basis that is specified through the time scale parameter. Landfill products are retrieved 
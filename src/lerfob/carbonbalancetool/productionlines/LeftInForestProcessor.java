@@ -23,8 +23,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
-import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
-import repicea.simulation.processsystem.AmountMap;
 import repicea.simulation.processsystem.ProcessUnit;
 import repicea.simulation.processsystem.ProcessorButton;
 import repicea.simulation.processsystem.SystemPanel;
@@ -75,14 +73,18 @@ public class LeftInForestProcessor extends AbstractProductionLineProcessor {
 	@SuppressWarnings({ "rawtypes"})
 	@Override
 	protected List<ProcessUnit> createProcessUnitsFromThisProcessor(ProcessUnit unit, Number intake) {
-		
-		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
-		
 		CarbonUnit carbonUnit = (CarbonUnit) unit;
+		ElementVector processedAmounts = new ElementVector(carbonUnit.getElementVector()).scale(intake.doubleValue() * .01);
+		return createCarbonUnits(carbonUnit, processedAmounts);
+	}
+
+	@SuppressWarnings({ "rawtypes"})
+	@Override
+	List<ProcessUnit> createCarbonUnits(CarbonUnit carbonUnit, ElementVector processedAmounts) {
+		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
 		int dateIndex = carbonUnit.getIndexInTimeScale();
-		AmountMap<Element> processedAmountMap = carbonUnit.getAmountMap().multiplyByAScalar(intake.doubleValue() * .01);
 
-		LeftInForestCarbonUnit deadWood =  new LeftInForestCarbonUnit(dateIndex, woodProductFeature, processedAmountMap, carbonUnit);
+		LeftInForestCarbonUnit deadWood =  new LeftInForestCarbonUnit(dateIndex, woodProductFeature, processedAmounts, carbonUnit);
 		outputUnits.add(deadWood);
 		return outputUnits;
 	}
@@ -21,6 +21,7 @@ package lerfob.carbonbalancetool.productionlines;
 import java.io.Serializable;
 
 import lerfob.carbonbalancetool.CATSettings;
+import lerfob.carbonbalancetool.CATSettings.GWP;
 
 /**
  * This class handles the life cycle analysis. The lca are embedded in an enum variable 
@@ -124,18 +125,28 @@ public class LifeCycleAnalysis implements Serializable {
 
 	/**
 	 * This method returns the carbon equivalent emissions per m3 of before-process material.
+	 * @param gwp the Global Warming Potential factors
 	 * @return the carbon equivalent emissions per m3 (double)
 	 */
-	private double getCarbonEquivalentEmissionPerM3() {
+	private double getCarbonEquivalentEmissionPerM3(GWP gwp) {
 		double CO2 = dCO2EmissionPerUnit 
-		 		+ (dCH4EmissionPerUnit * CATSettings.getGlobalWarmingPotential().getCH4Factor())
-				+ (dN2OEmissionPerUnit * CATSettings.getGlobalWarmingPotential().getN2OFactor())
+		 		+ (dCH4EmissionPerUnit * gwp.getCH4Factor())
+				+ (dN2OEmissionPerUnit * gwp.getN2OFactor())
 				;
 		return CO2 * CATSettings.CO2_C_FACTOR;
 	}
 
 	public double getCarbonEmissionPerM3() {
-		return getCarbonEquivalentEmissionPerM3();
+		return getCarbonEmissionPerM3(CATSettings.getGlobalWarmingPotential());
+	}
+
+	/**
+	 * This method returns the carbon equivalent emissions per m3 of before-process material.
+	 * @param gwp the Global Warming Potential factors
+	 * @return the carbon equivalent emissions per m3 (double)
+	 */
+	public double getCarbonEmissionPerM3(GWP gwp) {
+		return getCarbonEquivalentEmissionPerM3(gwp);
 	}
 	
 	/**
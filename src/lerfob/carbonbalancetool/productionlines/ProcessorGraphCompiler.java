@@ -0,0 +1,296 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import repicea.simulation.covariateproviders.treelevel.SpeciesTypeProvider.SpeciesType;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.processsystem.ProcessUnit;
+import repicea.simulation.processsystem.Processor;
+
+/**
+ * The ProcessorGraphCompiler class compiles the flux configuration into transfer vectors. <p>
+ * A transfer vector contains the fractions of the input amounts that follow each path from a 
+ * left-hand side processor to a terminal processor (end use products, landfill sites and left in forest).
+ * The processing of a wood piece then consists of scaling its amount map once for each path, instead 
+ * of splitting the amount map and creating intermediate carbon units at each node of the graph. Like
+ * the recursive implementation, there is one terminal carbon unit per path, even if several paths reach
+ * the same terminal processor. <p>
+ * Since the extraction processors select the carbon units according to their biomass type, species
+ * type and status class, there is a transfer vector for each combination of these. The emissions of
+ * the intermediate processors are proportional to the biomass and they are compiled as emissions
+ * per Mg of input biomass. <p>
+ * The graphs that cannot be compiled (e.g. a non terminal processor without sub processors) are
+ * processed through the original recursive implementation.
+ * @author Mathieu Fortin - March 2025
+ */
+class ProcessorGraphCompiler {
+
+	/**
+	 * A path from a left-hand side processor to a terminal processor.
+	 */
+	private static class Path {
+		private final AbstractProductionLineProcessor sink;
+		private final double fraction;
+		private final double emissionsMgCO2EqByMgBiomass;
+
+		private Path(AbstractProductionLineProcessor sink, double fraction, double emissionsMgCO2EqByMgBiomass) {
+			this.sink = sink;
+			this.fraction = fraction;
+			this.emissionsMgCO2EqByMgBiomass = emissionsMgCO2EqByMgBiomass;
+		}
+	}
+
+	/**
+	 * The TransferVector class holds the fractions of the input amounts that follow each path
+	 * to a terminal processor.
+	 */
+	static class TransferVector {
+
+		private final AbstractProductionLineProcessor[] sinks;
+		private final double[] fractions;
+		private final double[] emissionsMgCO2EqByMgBiomass;
+
+		private TransferVector(List<Path> paths) {
+			int size = paths.size();
+			sinks = new AbstractProductionLineProcessor[size];
+			fractions = new double[size];
+			emissionsMgCO2EqByMgBiomass = new double[size];
+			for (int i = 0; i < size; i++) {
+				Path path = paths.get(i);
+				sinks[i] = path.sink;
+				fractions[i] = path.fraction;
+				emissionsMgCO2EqByMgBiomass[i] = path.emissionsMgCO2EqByMgBiomass;
+			}
+		}
+
+		/**
+		 * Provide the number of paths of this vector.
+		 * @return an integer
+		 */
+		int size() {return sinks.length;}
+
+		/**
+		 * Provide the fraction of the input amounts that reaches a particular terminal processor.
+		 * @param p a Processor instance
+		 * @return a double (0 if the processor is not reached)
+		 */
+		double getFraction(Processor p) {
+			double fraction = 0d;
+			for (int i = 0; i < sinks.length; i++) {
+				if (sinks[i] == p) {
+					fraction += fractions[i];
+				}
+			}
+			return fraction;
+		}
+
+		/**
+		 * Create the terminal carbon units from an input carbon unit.
+		 * @param inputUnit the CarbonUnit instance that enters the left-hand side processor
+		 * @return a Collection of CarbonUnit instances
+		 */
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		Collection<CarbonUnit> emit(CarbonUnit inputUnit) {
+			List<CarbonUnit> outputUnits = new ArrayList<CarbonUnit>();
+			ElementVector inputAmounts = inputUnit.getElementVector();
+			boolean hasBiomass = inputAmounts.isDefined(Element.Biomass);
+			double biomassMg = inputAmounts.get(Element.Biomass);
+			for (int i = 0; i < sinks.length; i++) {
+				ElementVector processedAmounts = new ElementVector(inputAmounts).scale(fractions[i]);
+				if (hasBiomass && emissionsMgCO2EqByMgBiomass[i] != 0d) {
+					processedAmounts.add(Element.EmissionsCO2Eq, biomassMg * emissionsMgCO2EqByMgBiomass[i]);
+				}
+				AbstractProductionLineProcessor sink = sinks[i];
+				List<ProcessUnit> units = sink.createCarbonUnits(inputUnit, processedAmounts);
+				if (sink.usesEmissionsAndFunctionalUnitFromAbstractProcessorClass()) {	// as in AbstractProcessor.doProcess
+					for (ProcessUnit unit : units) {
+						AbstractProcessor.updateProcessEmissions(((CarbonUnit) unit).getElementVector(), sink.functionUnitBiomass, sink.emissionsByFunctionalUnit);
+					}
+				}
+				outputUnits.addAll((Collection) units);
+			}
+			return outputUnits;
+		}
+	}
+
+	/**
+	 * A marker for the graphs that cannot be compiled.
+	 */
+	private static final TransferVector NotCompilable = new TransferVector(new ArrayList<Path>());
+
+	private static final int NbSpeciesTypes = SpeciesType.values().length + 1;
+	private static final int NbStatusClasses = StatusClass.values().length + 1;
+
+	private final Map<Processor, TransferVector[]> transferVectors;
+	private final Map<Processor, TransferVector[]> disposalTransferVectors;
+
+	ProcessorGraphCompiler() {
+		transferVectors = new HashMap<Processor, TransferVector[]>();
+		disposalTransferVectors = new HashMap<Processor, TransferVector[]>();
+	}
+
+	/**
+	 * Clear the compiled transfer vectors. <p>
+	 * This method must be called whenever the flux configuration may have changed.
+	 */
+	void clear() {
+		transferVectors.clear();
+		disposalTransferVectors.clear();
+	}
+
+	/**
+	 * Provide the transfer vector of a left-hand side processor for a carbon unit.
+	 * @param processor the left-hand side processor
+	 * @param inputUnit the CarbonUnit instance that enters the processor
+	 * @return a TransferVector instance or null if the graph cannot be compiled
+	 */
+	TransferVector getTransferVector(Processor processor, CarbonUnit inputUnit) {
+		return getTransferVector(transferVectors, processor, inputUnit, false);
+	}
+
+	/**
+	 * Provide the transfer vector of a disposal processor for a carbon unit. <p>
+	 * The disposed carbon unit is sent to the disposal processor as a sub processor 
+	 * with an intake of 100%. 
+	 * @param disposedToProcessor the processor that receives the disposed wood products
+	 * @param disposedUnit the CarbonUnit instance that is disposed
+	 * @return a TransferVector instance or null if the graph cannot be compiled
+	 */
+	TransferVector getDisposalTransferVector(Processor disposedToProcessor, CarbonUnit disposedUnit) {
+		return getTransferVector(disposalTransferVectors, disposedToProcessor, disposedUnit, true);
+	}
+
+	private static TransferVector getTransferVector(Map<Processor, TransferVector[]> vectorMap, Processor processor, CarbonUnit inputUnit, boolean isDisposal) {
+		TransferVector[] vectors = vectorMap.get(processor);
+		if (vectors == null) {
+			vectors = new TransferVector[BiomassType.values().length * NbSpeciesTypes * NbStatusClasses];
+			vectorMap.put(processor, vectors);
+		}
+		int index = getProfileIndex(inputUnit);
+		if (vectors[index] == null) {
+			vectors[index] = compile(processor, inputUnit, isDisposal);
+		}
+		return vectors[index] == NotCompilable ? null : vectors[index];
+	}
+
+	private static int getProfileIndex(CarbonUnit unit) {
+		int speciesTypeIndex = unit.getSpeciesType() == null ? 0 : unit.getSpeciesType().ordinal() + 1;
+		int statusClassIndex = unit.getStatusClass() == null ? 0 : unit.getStatusClass().ordinal() + 1;
+		return (unit.getBiomassType().ordinal() * NbSpeciesTypes + speciesTypeIndex) * NbStatusClasses + statusClassIndex;
+	}
+
+	private static TransferVector compile(Processor processor, CarbonUnit probe, boolean isDisposal) {
+		List<Path> paths = new ArrayList<Path>();
+		boolean compiled = isDisposal ?
+				visitSubProcessor(processor, 100d, probe, 1d, 0d, paths) :
+					visit(processor, probe, 1d, 0d, paths);
+		if (compiled) {
+			return new TransferVector(paths);
+		} else {
+			return NotCompilable;
+		}
+	}
+
+	/*
+	 * Mirrors the doProcess method of the processor.
+	 */
+	private static boolean visit(Processor node, CarbonUnit probe, double fraction, double emissions, List<Path> paths) {
+		if (node instanceof ProductionLineProcessor) {
+			AbstractExtractionProcessor extractionProcessor = ((ProductionLineProcessor) node).getExtractionProcessor();
+			if (extractionProcessor != null && isExtracted(extractionProcessor, probe)) {
+				return visitSubProcessors(extractionProcessor, probe, fraction, addEmissions(extractionProcessor, fraction, emissions), paths);
+			}
+		}
+		return visitSubProcessors(node, probe, fraction, addEmissions(node, fraction, emissions), paths);
+	}
+
+	/*
+	 * Mirrors the doProcess method of the Processor class.
+	 */
+	private static boolean visitSubProcessors(Processor node, CarbonUnit probe, double fraction, double emissions, List<Path> paths) {
+		if (!node.hasSubProcessors()) {
+			return false;	// the units would be returned as is
+		}
+		for (Processor subProcessor : node.getSubProcessors()) {
+			Number intake = node.getSubProcessorIntakes().get(subProcessor);
+			if (intake == null) {
+				return false;
+			}
+			if (!visitSubProcessor(subProcessor, intake.doubleValue(), probe, fraction, emissions, paths)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Mirrors the processing of the units sent to a sub processor.
+	 */
+	private static boolean visitSubProcessor(Processor subProcessor, double intake, CarbonUnit probe, double fraction, double emissions, List<Path> paths) {
+		double subFraction = fraction * intake * .01;
+		if (isSink(subProcessor)) {
+			paths.add(new Path((AbstractProductionLineProcessor) subProcessor, subFraction, emissions * intake * .01));	// one carbon unit per path as in the recursive implementation
+			return true;
+		} else if (subProcessor instanceof ProductionLineProcessor) {
+			return visit(subProcessor, probe, subFraction, emissions * intake * .01, paths);
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean isSink(Processor p) {
+		if (p instanceof LandfillProcessor || p instanceof LeftInForestProcessor) {
+			return !p.hasSubProcessors();
+		} else if (p instanceof ProductionLineProcessor) {
+			ProductionLineProcessor plp = (ProductionLineProcessor) p;
+			return plp.isFinalProcessor() && plp.getExtractionProcessor() == null;
+		} else {
+			return false;
+		}
+	}
+
+	/*
+	 * The emissions are expressed in Mg CO2 Eq. by Mg of input biomass.
+	 */
+	private static double addEmissions(Processor p, double fraction, double emissions) {
+		if (p instanceof AbstractProcessor) {
+			AbstractProcessor ap = (AbstractProcessor) p;
+			if (ap.usesEmissionsAndFunctionalUnitFromAbstractProcessorClass() && ap.functionUnitBiomass > 0) {
+				return emissions + fraction * ap.emissionsByFunctionalUnit / ap.functionUnitBiomass;
+			}
+		}
+		return emissions;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static boolean isExtracted(AbstractExtractionProcessor extractionProcessor, CarbonUnit probe) {
+		List<ProcessUnit> units = new ArrayList<ProcessUnit>();
+		units.add(probe);
+		return !extractionProcessor.extract(units).isEmpty();
+	}
+}
@@ -263,22 +263,25 @@ public final class ProductionLineProcessor extends AbstractProductionLineProcess
 	@SuppressWarnings({ "rawtypes"})
 	@Override
 	protected List<ProcessUnit> createProcessUnitsFromThisProcessor(ProcessUnit unit, Number intake) {
-		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
-
 		CarbonUnit carbonUnit = (CarbonUnit) unit;
-		int dateIndex = carbonUnit.getIndexInTimeScale();
-
-		AmountMap<Element> processedAmountMap = carbonUnit.getAmountMap().multiplyByAScalar(intake.doubleValue() * .01);
+		ElementVector processedAmounts = new ElementVector(carbonUnit.getElementVector()).scale(intake.doubleValue() * .01);
+		return createCarbonUnits(carbonUnit, processedAmounts);
+	}
 
+	@SuppressWarnings({ "rawtypes"})
+	@Override
+	List<ProcessUnit> createCarbonUnits(CarbonUnit carbonUnit, ElementVector processedAmounts) {
+		List<ProcessUnit> outputUnits = new ArrayList<ProcessUnit>();
+		int dateIndex = carbonUnit.getIndexInTimeScale();
 		CarbonUnit woodProduct;
 
 		if (!isFinalProcessor()) {
-			woodProduct = new CarbonUnit(dateIndex, null, processedAmountMap, carbonUnit);
+			woodProduct = new CarbonUnit(dateIndex, null, processedAmounts, carbonUnit);
 			outputUnits.add(woodProduct);
 			return outputUnits;
 		} else {
 			woodProduct = new EndUseWoodProductCarbonUnit(dateIndex, (EndUseWoodProductCarbonUnitFeature) woodProductFeature, 
-					processedAmountMap,	carbonUnit);
+					processedAmounts, carbonUnit);
 			outputUnits.add(woodProduct);
 			return outputUnits;
 		}
@@ -46,6 +46,7 @@ import lerfob.carbonbalancetool.interfaces.CATDeadWoodProvider;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.ProcessorGraphCompiler.TransferVector;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManagerDialog.MessageID;
 import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
 import lerfob.carbonbalancetool.productionlines.affiliere.AffiliereImportReader;
@@ -260,6 +261,12 @@ public final class ProductionProcessorManager extends SystemManager implements M
 
 	private transient LeftInForestProcessor deadWoodProcessor;
 	
+	private transient ProcessorGraphCompiler graphCompiler;
+	
+	private transient boolean graphCompilationDisabled;
+	
+	private transient DisposalCascade disposalCascade;
+	
 	boolean enableLogCategoryAggregation;
 	/**
 	 * Constructor.
@@ -333,9 +340,78 @@ public final class ProductionProcessorManager extends SystemManager implements M
 		return treeLogger;
 	}
 
+	/**
+	 * Check whether the processors of this manager can be shared by several worker threads. <p>
+	 * This is the case if all the processors are AbstractProcessor instances, whose state is 
+	 * limited to their configuration and is not modified during a simulation. 
+	 * @return a boolean
+	 */
+	public boolean areProcessorsShareable() {
+		for (Processor p : getList()) {
+			if (!(p instanceof AbstractProcessor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Create a copy of this manager for a worker thread. <p>
+	 * The processors and the tree logger parameters are shared with the original
+	 * manager since they are not modified during a simulation. The carbon unit map,
+	 * the log category indices and the tree logger instance are proper to the copy.
+	 * @return a ProductionProcessorManager instance
+	 * @throws UnsupportedOperationException if the processors cannot be shared (see {@link ProductionProcessorManager#areProcessorsShareable()})
+	 */
+	public ProductionProcessorManager createWorkerCopy() {
+		if (!areProcessorsShareable()) {
+			throw new UnsupportedOperationException("Some processors cannot be shared across threads!");
+		}
+		ProductionProcessorManager copy = new ProductionProcessorManager(new DefaultREpiceaGUIPermission(false));
+		for (Processor p : getList()) {
+			copy.registerObject(p);
+		}
+		copy.logCategoryProcessors.addAll(logCategoryProcessors);
+		copy.selectedTreeLoggerParameters = selectedTreeLoggerParameters;	// not through setSelectedTreeLogger to avoid changing the permissions of the original parameters
+		copy.enableLogCategoryAggregation = enableLogCategoryAggregation;
+		copy.graphCompilationDisabled = graphCompilationDisabled;
+		return copy;
+	}
+
 	public void resetCarbonUnitMap() {
 		logCategoryProcessorIndices.clear();
 		getCarbonUnitMap().clear();
+		getGraphCompiler().clear();		// the flux configuration is compiled again for each realization
+		getDisposalCascade().clear();
+	}
+
+	private ProcessorGraphCompiler getGraphCompiler() {
+		if (graphCompiler == null) {
+			graphCompiler = new ProcessorGraphCompiler();
+		}
+		return graphCompiler;
+	}
+
+	DisposalCascade getDisposalCascade() {
+		if (disposalCascade == null) {
+			disposalCascade = new DisposalCascade();
+		}
+		return disposalCascade;
+	}
+
+	/**
+	 * Enable or disable the compilation of the flux configuration into transfer vectors. <p>
+	 * The compilation is enabled by default. When it is disabled, the wood pieces are processed 
+	 * through the recursive doProcess method of the processors and the disposed end use products 
+	 * are processed product by product and year by year instead of going through the disposal cascade.
+	 * @param enabled a boolean
+	 */
+	void setGraphCompilationEnabled(boolean enabled) {
+		graphCompilationDisabled = !enabled;
+	}
+
+	boolean isGraphCompilationEnabled() {
+		return !graphCompilationDisabled;
 	}
 
 	protected TreeLoggerParameters<?> getSelectedTreeLoggerParameters() {
@@ -591,17 +667,54 @@ public final class ProductionProcessorManager extends SystemManager implements M
 			Map<BiomassType, AmountMap<Element>> amountMaps, 
 			CATCompatibleTree tree,
 			StatusClass statusClass) {
+		processWoodPiece(logCategory, 
+				dateIndex, 
+				samplingUnitID, 
+				getElementVector(amountMaps, BiomassType.Wood), 
+				getElementVector(amountMaps, BiomassType.Bark), 
+				tree, 
+				statusClass);
+	}
+
+	/**
+	 * Process the wood pieces into wood products.<p>
+	 * 
+	 * This method does the same as the processWoodPiece(LogCategory, int, String, Map, CATCompatibleTree, StatusClass) 
+	 * method without the amount maps. The vectors are copied and they can be reused by the caller.
+	 * 
+	 * @param logCategory a TreeLogCategory instance
+	 * @param dateIndex   the index of the date in the time scale
+	 * @param samplingUnitID a String that stands for the sampling unit, typically the plot
+	 * @param woodAmounts an ElementVector instance with the amounts of wood (can be null)
+	 * @param barkAmounts an ElementVector instance with the amounts of bark (can be null)
+	 * @param tree a CATCompatibleTree instance
+	 * @param statusClass the status class of the tree instance (see repicea.simulation.covariateproviders.treelevel.TreeStatusProvider interface)
+	 */
+	public void processWoodPiece(LogCategory logCategory, 
+			int dateIndex, 
+			String samplingUnitID,
+			ElementVector woodAmounts,
+			ElementVector barkAmounts,
+			CATCompatibleTree tree,
+			StatusClass statusClass) {
 		Processor processor = findLeftHandSideProcessor(logCategory);
-		processAmountMap(processor, 
+		processAmounts(processor, 
 				dateIndex, 
 				samplingUnitID, 
-				amountMaps, 
+				woodAmounts,
+				barkAmounts, 
 				tree.getSpeciesName(), 
 				tree.getSpeciesType(), 
 				statusClass, 
 				null); // woodyDebrisType is set to null
 	}
 
+	private static ElementVector getElementVector(Map<BiomassType, AmountMap<Element>> amountMaps, BiomassType biomassType) {
+		return amountMaps.containsKey(biomassType) ? 
+				ElementVector.fromAmountMap(amountMaps.get(biomassType)) : 
+					null;
+	}
+
 	/**
 	 * Create dead wood for the first stand if it is available
 	 * @param deadWoodProvider a CATDeadWoodProvide instance
@@ -626,17 +739,17 @@ public final class ProductionProcessorManager extends SystemManager implements M
 		}
 
 		
-		AmountMap<Element> woodAmountMap = new AmountMap<Element>();
 		Map<String, Double> biomasses = deadWoodProvider.getDeadWoodBiomassMgForTheseSamplingUnits();
 		for (String samplingUnitID : biomasses.keySet()) {
 			double biomassMg = biomasses.get(samplingUnitID);
-			woodAmountMap.put(Element.Volume, biomassMg / 0.45); // 0.45 an arbitrary factor to get some volume
-			woodAmountMap.put(Element.Biomass, biomassMg);
-			woodAmountMap.put(Element.C, biomassMg * 0.5); // 0.5 we use the average here because we do not know the species
+			ElementVector woodAmounts = new ElementVector();
+			woodAmounts.set(Element.Volume, biomassMg / 0.45); // 0.45 an arbitrary factor to get some volume
+			woodAmounts.set(Element.Biomass, biomassMg);
+			woodAmounts.set(Element.C, biomassMg * 0.5); // 0.5 we use the average here because we do not know the species
 			CarbonUnit cu = new CarbonUnit(dateIndex, 
 					samplingUnitID, 
 					null, // no CarbonUnitFeature instance at this point
-					woodAmountMap,
+					woodAmounts,
 					"Unknown", // unknown species
 					null, // unknown species type
 					StatusClass.dead,
@@ -664,21 +777,51 @@ public final class ProductionProcessorManager extends SystemManager implements M
 			CATCompatibleTree tree,
 			StatusClass statusClass,
 			WoodyDebrisProcessorID woodyDebrisType) {
+		processWoodyDebris(dateIndex, 
+				samplingUnitID, 
+				getElementVector(amountMaps, BiomassType.Wood), 
+				getElementVector(amountMaps, BiomassType.Bark), 
+				tree, 
+				statusClass, 
+				woodyDebrisType);
+	}
+
+	/**
+	 * Process the carbon unit as woody debris.
+	 * 
+	 * This method does the same as the processWoodyDebris(int, String, Map, CATCompatibleTree, StatusClass, WoodyDebrisProcessorID) 
+	 * method without the amount maps. The vectors are copied and they can be reused by the caller.
+	 * 
+	 * @param dateIndex the index of the date in the time scale
+	 * @param samplingUnitID a String that stands for the sampling unit, typically the plot
+	 * @param woodAmounts an ElementVector instance with the amounts of wood (can be null)
+	 * @param barkAmounts an ElementVector instance with the amounts of bark (can be null)
+	 * @param tree a CATCompatibleTree instance
+	 * @param statusClass the status class of the tree instance (see repicea.simulation.covariateproviders.treelevel.TreeStatusProvider interface)
+	 * @param woodyDebrisType a WoodyDebrisProcessorID enum variable
+	 */
+	public void processWoodyDebris(int dateIndex, 
+			String samplingUnitID,
+			ElementVector woodAmounts, 
+			ElementVector barkAmounts, 
+			CATCompatibleTree tree,
+			StatusClass statusClass,
+			WoodyDebrisProcessorID woodyDebrisType) {
 		if (woodyDebrisType == null) {
 			throw new InvalidParameterException("The woodyDebrisType argument cannot be null!");
 		}
 		Processor processor = findWoodyDebrisProcessor(woodyDebrisType);
-		processAmountMap(processor, 
+		processAmounts(processor, 
 				dateIndex, 
 				samplingUnitID, 
-				amountMaps, 
+				woodAmounts, 
+				barkAmounts, 
 				tree.getSpeciesName(), 
 				tree.getSpeciesType(), 
 				statusClass, 
 				woodyDebrisType);
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected final Collection<CarbonUnit> processAmountMap(Processor processor, 
 			int dateIndex, 
 			String samplingUnitID,
@@ -687,17 +830,48 @@ public final class ProductionProcessorManager extends SystemManager implements M
 			SpeciesType speciesType,
 			StatusClass statusClass,
 			WoodyDebrisProcessorID woodyDebrisType) {
+		return processAmounts(processor, 
+				dateIndex, 
+				samplingUnitID, 
+				getElementVector(amountMaps, BiomassType.Wood), 
+				getElementVector(amountMaps, BiomassType.Bark), 
+				speciesName, 
+				speciesType, 
+				statusClass, 
+				woodyDebrisType);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected final Collection<CarbonUnit> processAmounts(Processor processor, 
+			int dateIndex, 
+			String samplingUnitID,
+			ElementVector woodAmounts, 
+			ElementVector barkAmounts, 
+			String speciesName, 
+			SpeciesType speciesType,
+			StatusClass statusClass,
+			WoodyDebrisProcessorID woodyDebrisType) {
 		List<ProcessUnit> inputUnits = new ArrayList<ProcessUnit>();
-		if (!amountMaps.isEmpty()) {
-			for (BiomassType bt : amountMaps.keySet()) {
-				inputUnits.add(new CarbonUnit(dateIndex, samplingUnitID, null, amountMaps.get(bt), speciesName, speciesType, statusClass, bt, woodyDebrisType));
+		Collection<CarbonUnit> processedUnits = new ArrayList<CarbonUnit>();
+		for (BiomassType bt : BiomassType.values()) {
+			ElementVector amounts = bt == BiomassType.Wood ? woodAmounts : barkAmounts;
+			if (amounts != null) {
+				CarbonUnit inputUnit = new CarbonUnit(dateIndex, samplingUnitID, null, new ElementVector(amounts), speciesName, speciesType, statusClass, bt, woodyDebrisType);
+				TransferVector transferVector = graphCompilationDisabled ? null : getGraphCompiler().getTransferVector(processor, inputUnit);
+				if (transferVector != null) {
+					processedUnits.addAll(transferVector.emit(inputUnit));
+				} else {		// the flux configuration cannot be compiled
+					inputUnits.add(inputUnit);
+				}
 			}
-			Collection<CarbonUnit> processedUnits = (Collection) processor.doProcess(inputUnits);
+		}
+		if (!inputUnits.isEmpty()) {
+			processedUnits.addAll((Collection) processor.doProcess(inputUnits));
+		}
+		if (!processedUnits.isEmpty()) {
 			getCarbonUnitMap().add(processedUnits);
-			return processedUnits;
-		} else {
-			return new ArrayList<CarbonUnit>();
 		}
+		return processedUnits;
 	}
 
 	/**
@@ -734,11 +908,17 @@ public final class ProductionProcessorManager extends SystemManager implements M
 		CarbonUnitList list = getCarbonUnits(type);
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, getClass().getSimpleName(),
 				"Carbon units of type " + type.name() + ". Before actualization, " + list.toString());
-		for (int i = 0; i < list.size(); i++) { // the condition based on the size of the list makes sure that newly
-												// created HWPs will be actualized.
-			CarbonUnit carbonUnit = list.get(i);
-			carbonUnit.actualizeCarbon(compartmentManager);
-		}
+		int i = 0;
+		do {
+			for (; i < list.size(); i++) { // the condition based on the size of the list makes sure that newly
+											// created HWPs will be actualized.
+				CarbonUnit carbonUnit = list.get(i);
+				carbonUnit.actualizeCarbon(compartmentManager);
+			}
+			if (!getDisposalCascade().isEmpty()) {	// the disposed products are processed once all the units of the list have been actualized
+				getCarbonUnitMap().add(getDisposalCascade().flush(graphCompilationDisabled ? null : getGraphCompiler()));
+			}
+		} while (i < list.size());
 
 		REpiceaLogManager.logMessage(CarbonAccountingTool.LOGGER_NAME, Level.FINEST, getClass().getSimpleName(),
 				"Carbon units of type " + type.name() + " actualized. After actualization, " + list.toString());
@@ -804,6 +984,7 @@ public final class ProductionProcessorManager extends SystemManager implements M
 	@Override
 	public void reset() {
 		super.reset();
+		getGraphCompiler().clear();
 		logCategoryProcessors.clear();
 		actualizeTreeLoggerParameters();
 	}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import lerfob.carbonbalancetool.CATSettings;
+import lerfob.carbonbalancetool.CATSettings.GWP;
 import repicea.io.javacsv.CSVReader;
 import repicea.util.ObjectUtility;
 import repicea.util.REpiceaTranslator;
@@ -102,8 +103,18 @@ public class CombustionEmissions {
 	 * @return a double
 	 */
 	public double getEmissionFactorInCO2EqForOneMgOfDryBiomass() {
-		double ch4Part = ch4EmissionMg_MgDryBiomassFactor * (CATSettings.getGlobalWarmingPotential().getCH4Factor() - 1); 
-		double coPart = coEmissionMg_MgDryBiomassFactor * (CATSettings.getGlobalWarmingPotential().getCOFactor() - 1); 
+		return getEmissionFactorInCO2EqForOneMgOfDryBiomass(CATSettings.getGlobalWarmingPotential());
+	}
+
+	/**
+	 * This method returns the total emissions in Mg of CO2 eq. by other gases than CO2 for
+	 * the combustion of 1 Mg of dry biomass. 
+	 * @param gwp the Global Warming Potential factors
+	 * @return a double
+	 */
+	public double getEmissionFactorInCO2EqForOneMgOfDryBiomass(GWP gwp) {
+		double ch4Part = ch4EmissionMg_MgDryBiomassFactor * (gwp.getCH4Factor() - 1); 
+		double coPart = coEmissionMg_MgDryBiomassFactor * (gwp.getCOFactor() - 1); 
 		double vocPart = vocEmissionMg_MgDryBiomassFactor * (5 - 1);	// GWP estimated to 5 for VOC
 		return ch4Part + coPart + vocPart;
 	}
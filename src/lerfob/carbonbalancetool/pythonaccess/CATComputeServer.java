@@ -0,0 +1,475 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.pythonaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import lerfob.carbonbalancetool.CATCompatibleStand;
+import lerfob.carbonbalancetool.biomassparameters.BiomassParameters;
+import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
+import lerfob.carbonbalancetool.pythonaccess.PythonAccessPoint.BatchWorker;
+import repicea.gui.permissions.DefaultREpiceaGUIPermission;
+import repicea.lang.REpiceaSystem;
+import repicea.simulation.species.REpiceaSpecies.Species;
+import repicea.util.ObjectUtility;
+
+/**
+ * The CATComputeServer class is a long-lived headless server that processes 
+ * stand lists sent over a local HTTP connection. <p>
+ * The server keeps a pool of CarbonAccountingTool instances, each one with its own context. These 
+ * instances are initialized once and keep their production lines and biomass parameters as well as 
+ * the static resources (e.g. the combustion factors) loaded across the jobs. The production lines and 
+ * the biomass parameters are only reloaded when a job refers to other files. <p>
+ * A job is sent as a POST request to /run. The query string contains the configuration references: 
+ * the species (beech, pine, douglas or oak), the area of the plot in ha (areaHa, 1 by default) and, 
+ * optionally, the production lines (prl) and the biomass parameters (bpf) if they differ from the default 
+ * ones of the species. These two parameters are the names of the files bundled with this package
+ * (e.g. prl=maritimepine.prl). Other files are rejected. Each file is parsed once and the parsed 
+ * settings are then unpacked into the worker instances. The body is a semicolon-separated table with the header
+ * StandID;Year;NbTrees;DBHmy;DBHect;Wtrunk;Wcrown;Wroots. The fields have the same meaning as in the input maps
+ * of the {@link PythonAccessPoint#processStandList(String, Map)} method. A row with an empty NbTrees 
+ * field is a year without harvest. <p>
+ * The stands of a job are processed concurrently and the results are streamed back as soon as a stand 
+ * is completed. The response is a semicolon-separated table with the header StandID;Year followed by 
+ * the same variables as in the PythonAccessPoint class. A stand that cannot be processed results in a 
+ * line that starts with #. A GET request to /status returns the counters of the server.
+ * @author Mathieu Fortin - March 2025
+ */
+public class CATComputeServer {
+
+	private static final String PORT = "-port";
+	private static final String THREADS = "-threads";
+	private static final String JOBS = "-jobs";
+	private static final String SPECIES = "-species";
+
+	/**
+	 * The default port of the server.
+	 */
+	public static final int DefaultPort = 25335;
+
+	static final String Separator = ";";
+	static final String StandIDField = "StandID";
+	static final String YearField = "Year";
+	static final String NbTreesField = "NbTrees";
+	static final List<String> HarvestFields = Arrays.asList(new String[] {NbTreesField, "DBHmy", "DBHect", "Wtrunk", "Wcrown", "Wroots"});
+
+	private static final String KeyFirstInnerMap = "RECOLTE";
+
+	/**
+	 * The production lines that a job can refer to.
+	 */
+	static final List<String> BundledProductionManagerFilenames = Arrays.asList(new String[] {"Douglas_20170622_P_EOL.prl",
+			"Douglas_20170622_P_EOL_Constr.prl",
+			"Douglas_20170703_P_EOL.prl",
+			"Douglas_20170703_P_EOL_Constr.prl",
+			"Douglas_20170703_P_EOL_simplified.prl",
+			"GrandEstForestSector.prl",
+			"europeanbeech.prl",
+			"maritimepine.prl"});
+
+	/**
+	 * The biomass parameters that a job can refer to.
+	 */
+	static final List<String> BundledBiomassParametersFilenames = Arrays.asList(new String[] {"biomassParametersBeechPine.bpf",
+			"biomassParametersDouglasFir.bpf"});
+
+	private static class StandResult {
+		final String standID;
+		final List<Integer> years;
+		final double[][] values;
+		final String errorMessage;
+
+		StandResult(String standID, List<Integer> years, double[][] values, String errorMessage) {
+			this.standID = standID;
+			this.years = years;
+			this.values = values;
+			this.errorMessage = errorMessage;
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService jobExecutor;
+	private final ExecutorService computeExecutor;
+	private final List<BatchWorker> workers;
+	private final BlockingQueue<BatchWorker> idleWorkers;
+	private final AtomicLong nbJobs;
+	private final AtomicLong nbStands;
+	private final AtomicLong nbFailures;
+	private final Map<String, ProductionProcessorManager> productionManagers;
+	private final Map<String, BiomassParameters> biomassParameters;
+
+	/**
+	 * Constructor.<p>
+	 * The worker instances are initialized with the settings of the species so that the 
+	 * first jobs do not have to load them.
+	 * @param port the port of the server (0 for an ephemeral port)
+	 * @param nbThreads the number of worker threads, that is the number of stands that can be processed at the same time
+	 * @param maxConcurrentJobs the number of jobs that can be handled at the same time. The other jobs wait in the backlog of the server.
+	 * @param species the species whose settings are loaded at once (beech, pine, douglas or oak) 
+	 * @throws Exception if the server cannot be bound or the workers cannot be initialized
+	 */
+	public CATComputeServer(int port, int nbThreads, int maxConcurrentJobs, String species) throws Exception {
+		if (nbThreads < 1 || maxConcurrentJobs < 1) {
+			throw new InvalidParameterException("The nbThreads and maxConcurrentJobs arguments must be equal to or greater than 1!");
+		}
+		Species speciesCode = PythonAccessPoint.getSpecies(species);
+		productionManagers = new HashMap<String, ProductionProcessorManager>();
+		biomassParameters = new HashMap<String, BiomassParameters>();
+		workers = new ArrayList<BatchWorker>();
+		idleWorkers = new LinkedBlockingQueue<BatchWorker>();
+		for (int i = 0; i < nbThreads; i++) {
+			BatchWorker worker = new BatchWorker(PythonAccessPoint.getTreeLoggerDescriptions());
+			worker.setSettings(PythonAccessPoint.getProductionManagerFilename(speciesCode), 
+					PythonAccessPoint.getBiomassParametersFilename(speciesCode));
+			workers.add(worker);
+			idleWorkers.add(worker);
+		}
+		nbJobs = new AtomicLong();
+		nbStands = new AtomicLong();
+		nbFailures = new AtomicLong();
+		computeExecutor = Executors.newFixedThreadPool(nbThreads);
+		jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/run", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					handleJob(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.createContext("/status", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					handleStatus(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(jobExecutor);
+	}
+
+	/**
+	 * Start the server.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Provide the port the server is bound to.
+	 * @return an integer
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop the server and shut down the worker instances.
+	 */
+	public void stop() {
+		server.stop(0);
+		jobExecutor.shutdown();
+		computeExecutor.shutdown();
+		for (BatchWorker worker : workers) {
+			worker.tool.requestShutdown();
+		}
+	}
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("workers=" + workers.size() + System.lineSeparator());
+		sb.append("idleWorkers=" + idleWorkers.size() + System.lineSeparator());
+		sb.append("jobs=" + nbJobs.get() + System.lineSeparator());
+		sb.append("stands=" + nbStands.get() + System.lineSeparator());
+		sb.append("failures=" + nbFailures.get() + System.lineSeparator());
+		sendMessage(exchange, 200, sb.toString());
+	}
+
+	private static void sendMessage(HttpExchange exchange, int code, String message) throws IOException {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.flush();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void handleJob(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			sendMessage(exchange, 405, "Jobs must be sent through a POST request!");
+			return;
+		}
+		final Species species;
+		final double areaHa;
+		final String productionManagerFilename;
+		final String biomassParametersFilename;
+		Map<String, Map> inputMaps;
+		try {
+			Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+			species = PythonAccessPoint.getSpecies(parameters.get("species"));
+			areaHa = parameters.containsKey("areaHa") ? Double.parseDouble(parameters.get("areaHa")) : 1d;
+			productionManagerFilename = parameters.containsKey("prl") ? 
+					getBundledFilename(parameters.get("prl"), BundledProductionManagerFilenames) : 
+						PythonAccessPoint.getProductionManagerFilename(species);
+			biomassParametersFilename = parameters.containsKey("bpf") ? 
+					getBundledFilename(parameters.get("bpf"), BundledBiomassParametersFilenames) : 
+						PythonAccessPoint.getBiomassParametersFilename(species);
+			inputMaps = parseInputMaps(new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			sendMessage(exchange, 400, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+			return;
+		}
+		nbJobs.incrementAndGet();
+
+		CompletionService<StandResult> completionService = new ExecutorCompletionService<StandResult>(computeExecutor);
+		for (final String standID : inputMaps.keySet()) {
+			final Map inputMap = inputMaps.get(standID);
+			completionService.submit(new Callable<StandResult>() {
+				@Override
+				public StandResult call() throws Exception {
+					return processStand(standID, inputMap, species, areaHa, productionManagerFilename, biomassParametersFilename);
+				}
+			});
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);	// chunked so that the results are streamed
+		Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+		StringBuilder header = new StringBuilder(StandIDField + Separator + YearField);
+		for (String variableName : PythonAccessPoint.OutputVariableNames) {
+			header.append(Separator + variableName);
+		}
+		writer.write(header.toString() + "\n");
+		for (int i = 0; i < inputMaps.size(); i++) {
+			StandResult result;
+			try {
+				result = completionService.take().get();
+			} catch (Exception e) {
+				writer.write("# " + e.getMessage() + "\n");
+				continue;
+			}
+			nbStands.incrementAndGet();
+			if (result.errorMessage != null) {
+				nbFailures.incrementAndGet();
+				writer.write("# " + result.standID + Separator + result.errorMessage.replace('\n', ' ') + "\n");
+			} else {
+				for (int j = 0; j < result.years.size(); j++) {
+					StringBuilder sb = new StringBuilder(result.standID + Separator + result.years.get(j));
+					for (double value : result.values[j]) {
+						sb.append(Separator).append(value);
+					}
+					writer.write(sb.append("\n").toString());
+				}
+			}
+			writer.flush();
+		}
+		writer.close();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private StandResult processStand(String standID, 
+			Map inputMap, 
+			Species species, 
+			double areaHa, 
+			String productionManagerFilename, 
+			String biomassParametersFilename) throws InterruptedException {
+		BatchWorker worker = idleWorkers.take();
+		try {
+			List<CATCompatibleStand> standList = PythonAccessPoint.createStandList(species, areaHa, standID, inputMap);
+			worker.setSettings(productionManagerFilename, 
+					getProductionManager(productionManagerFilename), 
+					biomassParametersFilename, 
+					getBiomassParameters(biomassParametersFilename));
+			List<Integer> outputYears = new ArrayList<Integer>();
+			double[][] values = worker.process(standList, outputYears);
+			return new StandResult(standID, outputYears, values, null);
+		} catch (Exception e) {
+			return new StandResult(standID, null, null, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+		} finally {
+			idleWorkers.put(worker);
+		}
+	}
+
+	/*
+	 * The file name is checked against the list of bundled files so that a job cannot make 
+	 * the server read an arbitrary file.
+	 */
+	static String getBundledFilename(String filename, List<String> bundledFilenames) {
+		if (!bundledFilenames.contains(filename)) {
+			throw new InvalidParameterException("The file " + filename + " is not available! It must be one of these files: " + bundledFilenames);
+		}
+		return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + filename;
+	}
+
+	/*
+	 * The settings are parsed once per file. The parsed instances are not modified afterwards.
+	 */
+	private synchronized ProductionProcessorManager getProductionManager(String filename) throws IOException {
+		ProductionProcessorManager manager = productionManagers.get(filename);
+		if (manager == null) {
+			manager = new ProductionProcessorManager(new DefaultREpiceaGUIPermission(false));
+			manager.setAvailableTreeLoggers(PythonAccessPoint.getTreeLoggerDescriptions());
+			manager.load(filename);
+			productionManagers.put(filename, manager);
+		}
+		return manager;
+	}
+
+	private synchronized BiomassParameters getBiomassParameters(String filename) throws IOException {
+		BiomassParameters parameters = biomassParameters.get(filename);
+		if (parameters == null) {
+			parameters = new BiomassParameters(new DefaultREpiceaGUIPermission(false));
+			parameters.load(filename);
+			biomassParameters.put(filename, parameters);
+		}
+		return parameters;
+	}
+
+	static Map<String, String> parseQuery(String rawQuery) throws IOException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (rawQuery != null) {
+			for (String pair : rawQuery.split("&")) {
+				int index = pair.indexOf('=');
+				if (index > 0) {
+					parameters.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"), 
+							URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+				}
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Read the stand data of a job.
+	 * @param reader a BufferedReader instance
+	 * @return a Map whose keys are the stand ids and whose values are input maps 
+	 * (see the {@link PythonAccessPoint#processStandList(String, Map)} method)
+	 * @throws IOException if the data cannot be read
+	 */
+	@SuppressWarnings("rawtypes")
+	static Map<String, Map> parseInputMaps(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if (line == null) {
+			throw new InvalidParameterException("The job contains no stand data!");
+		}
+		List<String> fieldNames = Arrays.asList(line.trim().split(Separator, -1));
+		int standIDIndex = fieldNames.indexOf(StandIDField);
+		int yearIndex = fieldNames.indexOf(YearField);
+		if (standIDIndex == -1 || yearIndex == -1 || fieldNames.indexOf(NbTreesField) == -1) {
+			throw new InvalidParameterException("The header must contain at least the " + StandIDField + ", " + YearField + " and " + NbTreesField + " fields!");
+		}
+		Map<String, Map> inputMaps = new LinkedHashMap<String, Map>();
+		int lineNumber = 1;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split(Separator, -1);
+			if (fields.length != fieldNames.size()) {
+				throw new InvalidParameterException("Line " + lineNumber + " does not have the same number of fields as the header!");
+			}
+			String standID = fields[standIDIndex].trim();
+			int year;
+			try {
+				year = Integer.parseInt(fields[yearIndex].trim());
+			} catch (NumberFormatException e) {
+				throw new InvalidParameterException("The year at line " + lineNumber + " is not an integer!");
+			}
+			if (!inputMaps.containsKey(standID)) {
+				inputMaps.put(standID, new TreeMap<Integer, Map<String, Map<String, String>>>());
+			}
+			@SuppressWarnings("unchecked")
+			Map<Integer, Map<String, Map<String, String>>> inputMap = inputMaps.get(standID);
+			Map<String, Map<String, String>> yearMap = new HashMap<String, Map<String, String>>();
+			inputMap.put(year, yearMap);
+			if (!fields[fieldNames.indexOf(NbTreesField)].trim().isEmpty()) {
+				Map<String, String> harvestMap = new HashMap<String, String>();
+				for (String harvestField : HarvestFields) {
+					int index = fieldNames.indexOf(harvestField);
+					if (index != -1 && !fields[index].trim().isEmpty()) {
+						harvestMap.put(harvestField, fields[index].trim());
+					}
+				}
+				yearMap.put(KeyFirstInnerMap, harvestMap);
+			}
+		}
+		return inputMaps;
+	}
+
+	/**
+	 * Start the server.
+	 * @param args the parameters of the server (-port, -threads, -jobs and -species)
+	 */
+	public static void main(String[] args) {
+		List<String> argumentList = Arrays.asList(args);
+		try {
+			String portStr = REpiceaSystem.retrieveArgument(PORT, argumentList);
+			int port = portStr != null ? Integer.parseInt(portStr) : DefaultPort;
+			String threadsStr = REpiceaSystem.retrieveArgument(THREADS, argumentList);
+			int nbThreads = threadsStr != null ? Integer.parseInt(threadsStr) : Runtime.getRuntime().availableProcessors();
+			String jobsStr = REpiceaSystem.retrieveArgument(JOBS, argumentList);
+			int maxConcurrentJobs = jobsStr != null ? Integer.parseInt(jobsStr) : 4;
+			String species = REpiceaSystem.retrieveArgument(SPECIES, argumentList);
+			CATComputeServer server = new CATComputeServer(port, nbThreads, maxConcurrentJobs, species != null ? species : "pine");
+			server.start();
+			System.out.println("CAT compute server started on port " + server.getPort() + " with " + nbThreads + " worker thread(s)...");
+		} catch (Exception e) {
+			System.out.println("An error occurred while starting the CAT compute server!");
+			e.printStackTrace();
+		}
+	}
+}
@@ -25,18 +25,25 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lerfob.carbonbalancetool.CATCompartment.CompartmentInfo;
 import lerfob.carbonbalancetool.CATCompatibleStand;
+import lerfob.carbonbalancetool.CATRunContext;
 import lerfob.carbonbalancetool.CATSimulationResult;
 import lerfob.carbonbalancetool.CATUtilityMaps.MonteCarloEstimateMap;
 import lerfob.carbonbalancetool.CATUtilityMaps.UseClassSpeciesMonteCarloEstimateMap;
 import lerfob.carbonbalancetool.CarbonAccountingTool;
+import lerfob.carbonbalancetool.biomassparameters.BiomassParameters;
 import lerfob.carbonbalancetool.catdiameterbasedtreelogger.CATDiameterBasedTreeLogger;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
-import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
+import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
 import lerfob.treelogger.basictreelogger.BasicTreeLogger;
 import lerfob.treelogger.douglasfirfcba.DouglasFCBATreeLogger;
 import lerfob.treelogger.europeanbeech.EuropeanBeechBasicTreeLogger;
@@ -55,7 +62,8 @@ import repicea.util.ObjectUtility;
 
 /**
  * This class is the entry point for a coupling with a Python application. Once exported as a .jar with the main function set to this
- * class, the entry point should use the method processStandList(Map myMap).
+ * class, the entry point should use the method processStandList(Map myMap) or, for several stand lists, 
+ * the method processStandLists(List standIDs, List inputMaps, int nbThreads).
  * @author Mathieu Fortin - May 2014
  */
 public class PythonAccessPoint extends CarbonAccountingTool {
@@ -64,10 +72,108 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	private static final String CALLBACK = "-callback";
 	private static final String VERBOSE = "-verbose";
 
+	static final List<String> OutputVariableNames = new ArrayList<String>();
+	static {
+		for (UseClass useClass : UseClass.values()) {
+			if (useClass != UseClass.EXTRACTIVE) {
+				OutputVariableNames.add("BiomassMgHa" + useClass.name().toUpperCase());
+			}
+		}
+		OutputVariableNames.add("CurrentCarbonHWPMgHa");
+		OutputVariableNames.add("LandfillCarbonNDMgHa");
+		OutputVariableNames.add("LandfillCarbonDegMgHa");
+		OutputVariableNames.add("CEqEmissionTransMgHa");
+	}
+
+	/**
+	 * A CarbonAccountingTool instance with its own context that processes 
+	 * the stand lists of a batch. The production lines and the biomass 
+	 * parameters are only loaded if they differ from the current ones. <p>
+	 * A worker is checked out of the pool of idle workers for the whole batch 
+	 * so that two concurrent batches never share a worker.
+	 */
+	static class BatchWorker {
+		final CarbonAccountingTool tool;
+		String productionManagerFilename;
+		String biomassParametersFilename;
+		boolean released;
+
+		BatchWorker(Vector<TreeLoggerDescription> treeLoggerDescriptions) throws Exception {
+			tool = new CarbonAccountingTool(CATMode.SCRIPT, new CATRunContext());
+			tool.initializeTool(null);
+			tool.getCarbonToolSettings().setTreeLoggerDescriptions(treeLoggerDescriptions);
+		}
+
+		void setSettings(String productionManagerFilename, String biomassParametersFilename) throws InterruptedException {
+			if (!productionManagerFilename.equals(this.productionManagerFilename)) {
+				tool.setProductionManager(productionManagerFilename);
+				this.productionManagerFilename = productionManagerFilename;
+			}
+			if (!biomassParametersFilename.equals(this.biomassParametersFilename)) {
+				tool.setBiomassParameters(biomassParametersFilename);
+				this.biomassParametersFilename = biomassParametersFilename;
+			}
+		}
+
+		/**
+		 * Set the production lines and the biomass parameters from instances that have already 
+		 * been loaded, so that the files are not parsed again. <p>
+		 * The instances are unpacked into the customized settings of the tool. The processors are
+		 * then shared with the loaded instance since they are not modified during a simulation. The 
+		 * files are read instead if the customized settings have not been selected yet or if the 
+		 * processors cannot be shared.
+		 * @param productionManagerFilename the filename of the production lines
+		 * @param productionManager the ProductionProcessorManager instance loaded from this file
+		 * @param biomassParametersFilename the filename of the biomass parameters
+		 * @param biomassParameters the BiomassParameters instance loaded from this file
+		 * @throws InterruptedException if the engine is inadvertently unlocked
+		 */
+		void setSettings(String productionManagerFilename, 
+				ProductionProcessorManager productionManager, 
+				String biomassParametersFilename, 
+				BiomassParameters biomassParameters) throws InterruptedException {
+			if (!productionManagerFilename.equals(this.productionManagerFilename)) {
+				if (this.productionManagerFilename != null && productionManager.areProcessorsShareable()) {
+					tool.getCarbonToolSettings().getCurrentProductionProcessorManager().unpackMemorizerPackage(productionManager.getMemorizerPackage());
+				} else {
+					tool.setProductionManager(productionManagerFilename);
+				}
+				this.productionManagerFilename = productionManagerFilename;
+			}
+			if (!biomassParametersFilename.equals(this.biomassParametersFilename)) {
+				if (this.biomassParametersFilename != null) {
+					tool.getCarbonToolSettings().getCurrentBiomassParameters().unpackMemorizerPackage(biomassParameters.getMemorizerPackage());
+				} else {
+					tool.setBiomassParameters(biomassParametersFilename);
+				}
+				this.biomassParametersFilename = biomassParametersFilename;
+			}
+		}
+
+		/**
+		 * Process a stand list.
+		 * @param standList a List of CATCompatibleStand instances
+		 * @param outputYears an empty list that is filled with the output years
+		 * @return the output values (years x variables)
+		 * @throws Exception if the simulation fails
+		 */
+		double[][] process(List<CATCompatibleStand> standList, List<Integer> outputYears) throws Exception {
+			tool.setStandList(standList);
+			tool.calculateCarbon();
+			CATSimulationResult simulationResult = tool.retrieveSimulationSummary();
+			outputYears.addAll(getOutputYears(simulationResult));
+			return getOutputValues(simulationResult, outputYears);
+		}
+	}
+
 	private final boolean verbose;
 	
 	protected Species speciesForSimulation; 
 	protected double areaHa = 1d;
+	private String productionManagerFilename;
+	private String biomassParametersFilename;
+	private final List<BatchWorker> idleBatchWorkers = new ArrayList<BatchWorker>();
+	private final List<BatchWorker> busyBatchWorkers = new ArrayList<BatchWorker>();
 	
 	/**
 	 * Main constructor.
@@ -95,8 +201,14 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	 * @throws InterruptedException if the engine is inadvertently unlocked
 	 */
 	public void setSpecies(String species) throws InterruptedException {
+		setSpeciesAndSettings(getSpecies(species));
+	}
+
+	static Species getSpecies(String species) {
 		Species speciesCode;
-		if (species.toLowerCase().trim().equals("beech")) {
+		if (species == null) {
+			throw new InvalidParameterException("Only beech, pine, douglas and oak are accepted as species!");
+		} else if (species.toLowerCase().trim().equals("beech")) {
 			speciesCode = Species.Fagus_sylvatica;
 		} else if (species.toLowerCase().trim().equals("pine")) {
 			speciesCode = Species.Pinus_pinaster;
@@ -107,7 +219,7 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 		} else {
 			throw new InvalidParameterException("Only beech, pine, douglas and oak are accepted as species!");
 		}
-		setSpeciesAndSettings(speciesCode);
+		return speciesCode;
 	}
 
 
@@ -122,6 +234,10 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	
 	@Override
 	protected Vector<TreeLoggerDescription> findMatchingTreeLoggers(TreeLoggerCompatibilityCheck referent) {
+		return getTreeLoggerDescriptions();
+	}
+
+	static Vector<TreeLoggerDescription> getTreeLoggerDescriptions() {
 		Vector<TreeLoggerDescription> defaultTreeLoggerDescriptions = new Vector<TreeLoggerDescription>();
 		defaultTreeLoggerDescriptions.add(new TreeLoggerDescription(BasicTreeLogger.class));
 		defaultTreeLoggerDescriptions.add(new TreeLoggerDescription(MaritimePineBasicTreeLogger.class));
@@ -134,35 +250,44 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	private void setSpeciesAndSettings(Species speciesCode) throws InterruptedException {
 		if (!speciesCode.equals(speciesForSimulation)) {
 			speciesForSimulation = speciesCode;
-			String filename;
-			if (speciesForSimulation.equals(Species.Pinus_pinaster)) {
-				filename = ObjectUtility.getRelativePackagePath(getClass()) + "maritimepine.prl";
-			} else if (speciesForSimulation.equals(Species.Pseudotsuga_menziesii)) {
-				filename = ObjectUtility.getRelativePackagePath(getClass()) + "Douglas_20170703_P_EOL_simplified.prl";
-			} else if (speciesForSimulation.equals(Species.Fagus_sylvatica)) {
-				filename = ObjectUtility.getRelativePackagePath(getClass()) + "europeanbeech.prl";;
-			} else if (speciesForSimulation.equals(Species.Quercus_spp)) {
-				filename = ObjectUtility.getRelativePackagePath(getClass()) + "GrandEstForestSector.prl";;
-			} else {
-				throw new InvalidParameterException("The species is not recognized!");
-			}
+			String filename = getProductionManagerFilename(speciesForSimulation);
 			System.out.println("Loading settings : " + filename);
 			setProductionManager(filename);
+			productionManagerFilename = filename;
 		}
-		String biomassFilename;
-		if (speciesForSimulation.equals(Species.Pseudotsuga_menziesii)) {
-			biomassFilename = ObjectUtility.getRelativePackagePath(getClass()) + "biomassParametersDouglasFir.bpf"; // in this one, the basic densities are the default ones
+		String biomassFilename = getBiomassParametersFilename(speciesForSimulation);
+		setBiomassParameters(biomassFilename);
+		biomassParametersFilename = biomassFilename;
+	}
+
+	static String getProductionManagerFilename(Species species) {
+		if (species.equals(Species.Pinus_pinaster)) {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "maritimepine.prl";
+		} else if (species.equals(Species.Pseudotsuga_menziesii)) {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "Douglas_20170703_P_EOL_simplified.prl";
+		} else if (species.equals(Species.Fagus_sylvatica)) {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "europeanbeech.prl";
+		} else if (species.equals(Species.Quercus_spp)) {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "GrandEstForestSector.prl";
 		} else {
-			biomassFilename = ObjectUtility.getRelativePackagePath(getClass()) + "biomassParametersBeechPine.bpf";	// in this one, the basic densities are provided by the tree
+			throw new InvalidParameterException("The species is not recognized!");
+		}
+	}
+
+	static String getBiomassParametersFilename(Species species) {
+		if (species.equals(Species.Pseudotsuga_menziesii)) {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "biomassParametersDouglasFir.bpf"; // in this one, the basic densities are the default ones
+		} else {
+			return ObjectUtility.getRelativePackagePath(PythonAccessPoint.class) + "biomassParametersBeechPine.bpf";	// in this one, the basic densities are provided by the tree
 		}
-		setBiomassParameters(biomassFilename);
 	}
 
 	
 	@Override
 	protected void shutdown(int shutdownCode) {
 		System.out.println("Shutting down CAT...");
-		CATSensitivityAnalysisSettings.getInstance().clear();
+		releaseBatchWorkers();
+		getRunContext().getSensitivitySettings().clear();
 		System.exit(shutdownCode);
 	}
 
@@ -177,6 +302,19 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	
 	
 	protected List<CATCompatibleStand> createStandList(String standID, Map inputMap) {
+		return createStandList(speciesForSimulation, areaHa, standID, inputMap);
+	}
+
+	/**
+	 * Create a stand list from an input map.
+	 * @param speciesForSimulation the species
+	 * @param areaHa the area of the plot (ha)
+	 * @param standID the stand id
+	 * @param inputMap a Map whose keys are the years and whose values are maps with the harvested trees under the "RECOLTE" key
+	 * @return a List of CATCompatibleStand instances
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static List<CATCompatibleStand> createStandList(Species speciesForSimulation, double areaHa, String standID, Map inputMap) {
 		List<Integer> years = new ArrayList<Integer>();
 		years.addAll(inputMap.keySet());
 		Collections.sort(years);
@@ -268,47 +406,208 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 		setStandList(standList);
 		calculateCarbon();
 		CATSimulationResult simulationResult = retrieveSimulationSummary();
-		Map<Integer, UseClassSpeciesMonteCarloEstimateMap> productEvolutionMap = simulationResult.getProductEvolutionPerHa();
+		List<Integer> outputYears = getOutputYears(simulationResult);
+		double[][] outputValues = getOutputValues(simulationResult, outputYears);
 		
+		Map<Integer, Map<String, Double>> outputMap = new TreeMap<Integer, Map<String, Double>>();
+		for (int i = 0; i < outputYears.size(); i++) { 
+			Map<String, Double> innerOutputMap = new TreeMap<String, Double>();
+			outputMap.put(outputYears.get(i), innerOutputMap);
+			for (int j = 0; j < OutputVariableNames.size(); j++) {
+				innerOutputMap.put(OutputVariableNames.get(j), outputValues[i][j]);
+			}
+		}
+		System.out.println("Stand " + standID + " processed...");
+		if (verbose) {
+			long totalTime = System.currentTimeMillis() - initTime;
+			System.out.println("Time to process stand list " + totalTime + " ms. - Current memory load = " + REpiceaSystem.getCurrentMemoryLoadMb() + " Mb");
+		}
+		return outputMap;
+	}
+	
+	private static List<Integer> getOutputYears(CATSimulationResult simulationResult) {
+		List<Integer> outputYears = new ArrayList<Integer>(simulationResult.getProductEvolutionPerHa().keySet());
+		Collections.sort(outputYears);
+		return outputYears;
+	}
+	
+	/*
+	 * The rows of the matrices of the evolution map follow the sorted output years so that the 
+	 * values can be retrieved by index.
+	 */
+	private static double[][] getOutputValues(CATSimulationResult simulationResult, List<Integer> outputYears) {
+		Map<Integer, UseClassSpeciesMonteCarloEstimateMap> productEvolutionMap = simulationResult.getProductEvolutionPerHa();
 		Matrix carbonInHWP = simulationResult.getEvolutionMap().get(CompartmentInfo.TotalProducts).getMean();
-		
 		Matrix permanentSeqInLandfill = simulationResult.getEvolutionMap().get(CompartmentInfo.LfillND).getMean();
 		Matrix landfillCarbonDegradable = simulationResult.getEvolutionMap().get(CompartmentInfo.LfillDeg).getMean();
 		Matrix emissionDueToTransformation = simulationResult.getEvolutionMap().get(CompartmentInfo.CarbEmis).getMean();
 
-		List<Integer> outputYears = new ArrayList<Integer>(productEvolutionMap.keySet());
-		Collections.sort(outputYears);
-		
-		Map<Integer, Map<String, Double>> outputMap = new TreeMap<Integer, Map<String, Double>>();
-		
-		for (Integer year : outputYears) { 
-			if (!outputMap.containsKey(year)) {
-				outputMap.put(year, new TreeMap<String, Double>());
-			}
-			Map<String, Double> innerOutputMap1 = outputMap.get(year);
-			UseClassSpeciesMonteCarloEstimateMap innerInputMap2 = productEvolutionMap.get(year);
+		double[][] outputValues = new double[outputYears.size()][OutputVariableNames.size()];
+		for (int i = 0; i < outputYears.size(); i++) {
+			double[] values = outputValues[i];
+			UseClassSpeciesMonteCarloEstimateMap innerInputMap = productEvolutionMap.get(outputYears.get(i));
+			int j = 0;
 			for (UseClass useClass : UseClass.values()) {
 				if (useClass != UseClass.EXTRACTIVE) {
-					String key = "BiomassMgHa" + useClass.name().toUpperCase();
-					if (innerInputMap2 != null && innerInputMap2.containsKey(useClass)) {
-						MonteCarloEstimateMap amountMap = innerInputMap2.get(useClass).getSumAcrossSpecies();
-						innerOutputMap1.put(key, amountMap.get(Element.Biomass).getMean().getValueAt(0, 0));
+					if (innerInputMap != null && innerInputMap.containsKey(useClass)) {
+						MonteCarloEstimateMap amountMap = innerInputMap.get(useClass).getSumAcrossSpecies();
+						values[j++] = amountMap.get(Element.Biomass).getMean().getValueAt(0, 0);
 					} else {
-						innerOutputMap1.put(key, 0d);
+						values[j++] = 0d;
 					}
 				}
 			}
-			innerOutputMap1.put("CurrentCarbonHWPMgHa", carbonInHWP.getValueAt(outputYears.indexOf(year), 0));
-			innerOutputMap1.put("LandfillCarbonNDMgHa", permanentSeqInLandfill.getValueAt(outputYears.indexOf(year), 0));
-			innerOutputMap1.put("LandfillCarbonDegMgHa", landfillCarbonDegradable.getValueAt(outputYears.indexOf(year), 0));
-			innerOutputMap1.put("CEqEmissionTransMgHa", emissionDueToTransformation.getValueAt(outputYears.indexOf(year), 0));
+			values[j++] = carbonInHWP.getValueAt(i, 0);
+			values[j++] = permanentSeqInLandfill.getValueAt(i, 0);
+			values[j++] = landfillCarbonDegradable.getValueAt(i, 0);
+			values[j++] = emissionDueToTransformation.getValueAt(i, 0);
 		}
-		System.out.println("Stand " + standID + " processed...");
+		return outputValues;
+	}
+
+	/**
+	 * Process several stand lists in a single call.<p>
+	 * The stand lists are processed in parallel by worker instances that have their own context. These
+	 * workers are created on the first call and then kept for the subsequent calls (see the 
+	 * {@link PythonAccessPoint#releaseBatchWorkers()} method). They rely on the same species, area, production 
+	 * lines and biomass parameters as this instance. A stand list that cannot be processed does not 
+	 * stop the batch. Its status is set to FAILED in the result. 
+	 * @param standIDs a List of stand ids
+	 * @param inputMaps a List of input maps with the same structure as in the {@link PythonAccessPoint#processStandList(String, Map)} method
+	 * @param nbThreads the number of worker threads
+	 * @return a PythonBatchResult instance
+	 * @throws Exception if the workers cannot be initialized
+	 */
+	@SuppressWarnings("rawtypes")
+	public PythonBatchResult processStandLists(List<String> standIDs, List<Map> inputMaps, int nbThreads) throws Exception {
+		if (standIDs == null || inputMaps == null || standIDs.size() != inputMaps.size()) {
+			throw new InvalidParameterException("The standIDs and inputMaps arguments must be non null lists of the same size!");
+		}
+		if (speciesForSimulation == null) {
+			throw new InvalidParameterException("The species must be set before processing the stand lists!");
+		}
+		long initTime = -1;
+		if (verbose) {
+			initTime = System.currentTimeMillis();
+		}
+		int nbStands = standIDs.size();
+		int nbWorkers = Math.max(1, Math.min(nbThreads, nbStands));
+		
+		final int[][] yearsByStand = new int[nbStands][];
+		final double[][][] valuesByStand = new double[nbStands][][];
+		final String[] errorMessages = new String[nbStands];
+		final AtomicInteger nextStand = new AtomicInteger(0);
+		
+		String productionManagerFilename = this.productionManagerFilename;
+		String biomassParametersFilename = this.biomassParametersFilename;
+		List<BatchWorker> workers = checkOutBatchWorkers(nbWorkers);
+		ExecutorService executor = Executors.newFixedThreadPool(nbWorkers);
+		try {
+			for (BatchWorker worker : workers) {
+				worker.setSettings(productionManagerFilename, biomassParametersFilename);
+			}
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (final BatchWorker worker : workers) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						int i;
+						while ((i = nextStand.getAndIncrement()) < nbStands) {
+							try {
+								List<CATCompatibleStand> standList = createStandList(standIDs.get(i), inputMaps.get(i));
+								List<Integer> outputYears = new ArrayList<Integer>();
+								valuesByStand[i] = worker.process(standList, outputYears);
+								int[] years = new int[outputYears.size()];
+								for (int j = 0; j < years.length; j++) {
+									years[j] = outputYears.get(j);
+								}
+								yearsByStand[i] = years;
+							} catch (Exception e) {
+								errorMessages[i] = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+			checkInBatchWorkers(workers);
+		}
+		
+		TreeSet<Integer> allYears = new TreeSet<Integer>();
+		for (int[] years : yearsByStand) {
+			if (years != null) {
+				for (int year : years) {
+					allYears.add(year);
+				}
+			}
+		}
+		int[] years = new int[allYears.size()];
+		int k = 0;
+		for (Integer year : allYears) {
+			years[k++] = year;
+		}
+		PythonBatchResult result = new PythonBatchResult(standIDs.toArray(new String[nbStands]), 
+				years, 
+				OutputVariableNames.toArray(new String[OutputVariableNames.size()]));
+		for (int i = 0; i < nbStands; i++) {
+			if (yearsByStand[i] != null) {
+				result.setValues(i, yearsByStand[i], valuesByStand[i]);
+			} else {
+				result.setFailure(i, errorMessages[i]);
+			}
+		}
+		System.out.println(nbStands + " stand(s) processed with " + result.getNumberOfFailures() + " failure(s)...");
 		if (verbose) {
 			long totalTime = System.currentTimeMillis() - initTime;
-			System.out.println("Time to process stand list " + totalTime + " ms. - Current memory load = " + REpiceaSystem.getCurrentMemoryLoadMb() + " Mb");
+			System.out.println("Time to process the stand lists " + totalTime + " ms. - Current memory load = " + REpiceaSystem.getCurrentMemoryLoadMb() + " Mb");
+		}
+		return result;
+	}
+
+	/*
+	 * The workers are removed from the pool of idle workers until the batch is completed. New workers
+	 * are created if there are not enough idle workers.
+	 */
+	private synchronized List<BatchWorker> checkOutBatchWorkers(int nbWorkers) throws Exception {
+		List<BatchWorker> workers = new ArrayList<BatchWorker>();
+		while (workers.size() < nbWorkers) {
+			if (!idleBatchWorkers.isEmpty()) {
+				workers.add(idleBatchWorkers.remove(idleBatchWorkers.size() - 1));
+			} else {
+				workers.add(new BatchWorker(getTreeLoggerDescriptions()));
+			}
+		}
+		busyBatchWorkers.addAll(workers);
+		return workers;
+	}
+
+	private synchronized void checkInBatchWorkers(List<BatchWorker> workers) {
+		busyBatchWorkers.removeAll(workers);
+		for (BatchWorker worker : workers) {
+			if (worker.released) {
+				worker.tool.requestShutdown();
+			} else {
+				idleBatchWorkers.add(worker);
+			}
+		}
+	}
+
+	/**
+	 * Shut down the worker instances created by the {@link PythonAccessPoint#processStandLists(List, List, int)} method. <p>
+	 * The workers that are processing a batch are shut down once the batch is completed.
+	 */
+	public synchronized void releaseBatchWorkers() {
+		for (BatchWorker worker : idleBatchWorkers) {
+			worker.tool.requestShutdown();
+		}
+		idleBatchWorkers.clear();
+		for (BatchWorker worker : busyBatchWorkers) {
+			worker.released = true;
 		}
-		return outputMap;
 	}
 	
 	protected static double getAverageDryBiomassByTree(double kgM2, double nbTreesHa) {
@@ -345,7 +644,7 @@ public class PythonAccessPoint extends CarbonAccountingTool {
 	}
 	
 	
-	private List<TreeFeatures> splitIntoTrees(double nbHa, double meanDbhCm, double stdDev, int nbIntervals) {
+	private static List<TreeFeatures> splitIntoTrees(double nbHa, double meanDbhCm, double stdDev, int nbIntervals) {
 		List<TreeFeatures> fList = new ArrayList<TreeFeatures>();
 		double q99 = GaussianUtility.getQuantile(0.995);
 		double min = meanDbhCm - q99 * stdDev;
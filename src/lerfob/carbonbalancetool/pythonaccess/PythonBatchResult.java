@@ -0,0 +1,159 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.pythonaccess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The PythonBatchResult class contains the results of a batch of stand lists processed
+ * through the {@link PythonAccessPoint#processStandLists(java.util.List, java.util.List, int)} method. <p>
+ * The values are stored in a flat array ordered by stand, then by year and then by variable. The
+ * header, that is the stand ids, the years and the variable names, gives the dimensions of this array. 
+ * Years for which a stand has no output and stands that could not be processed are set to NaN. <p>
+ * Since Py4J copies byte arrays at once whereas other arrays are accessed element by element, the 
+ * values and the status should be retrieved as byte arrays on the Python side (e.g. numpy.frombuffer(bytes, dtype='<f8')).
+ * @author Mathieu Fortin - March 2025
+ */
+public class PythonBatchResult {
+
+	/**
+	 * Status of a stand that has been successfully processed.
+	 */
+	public static final byte PROCESSED = 1;
+
+	/**
+	 * Status of a stand whose processing has failed.
+	 */
+	public static final byte FAILED = 0;
+
+	private final String[] standIDs;
+	private final int[] years;
+	private final String[] variableNames;
+	private final double[] values;
+	private final byte[] status;
+	private final String[] errorMessages;
+
+	PythonBatchResult(String[] standIDs, int[] years, String[] variableNames) {
+		this.standIDs = standIDs;
+		this.years = years;
+		this.variableNames = variableNames;
+		values = new double[standIDs.length * years.length * variableNames.length];
+		Arrays.fill(values, Double.NaN);
+		status = new byte[standIDs.length];
+		errorMessages = new String[standIDs.length];
+	}
+
+	/**
+	 * Store the values of a stand.
+	 * @param standIndex the index of the stand
+	 * @param standYears the years of the stand output
+	 * @param standValues a two-dimension array of values (years x variables)
+	 */
+	void setValues(int standIndex, int[] standYears, double[][] standValues) {
+		for (int i = 0; i < standYears.length; i++) {
+			int yearIndex = Arrays.binarySearch(years, standYears[i]);
+			System.arraycopy(standValues[i], 0, values, getIndex(standIndex, yearIndex, 0), variableNames.length);
+		}
+		status[standIndex] = PROCESSED;
+	}
+
+	void setFailure(int standIndex, String message) {
+		status[standIndex] = FAILED;
+		errorMessages[standIndex] = message;
+	}
+
+	private int getIndex(int standIndex, int yearIndex, int variableIndex) {
+		return (standIndex * years.length + yearIndex) * variableNames.length + variableIndex;
+	}
+
+	/**
+	 * Provide the ids of the stands in the same order as in the call.
+	 * @return an array of String
+	 */
+	public String[] getStandIDs() {return standIDs;}
+
+	/**
+	 * Provide the years of the output. These are the union of the years of all the stands.
+	 * @return an array of int sorted in ascending order
+	 */
+	public int[] getYears() {return years;}
+
+	/**
+	 * Provide the names of the output variables. These are the same as the keys of 
+	 * the inner maps returned by the {@link PythonAccessPoint#processStandList(String, java.util.Map)} method.
+	 * @return an array of String
+	 */
+	public String[] getVariableNames() {return variableNames;}
+
+	/**
+	 * Provide the values in a flat array ordered by stand, year and variable.
+	 * @return an array of double
+	 */
+	public double[] getValues() {return values;}
+
+	/**
+	 * Provide the values in a flat array of little-endian doubles.
+	 * @return an array of byte
+	 */
+	public byte[] getValuesAsBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asDoubleBuffer().put(values);
+		return buffer.array();
+	}
+
+	/**
+	 * Provide a particular value.
+	 * @param standIndex the index of the stand
+	 * @param yearIndex the index of the year
+	 * @param variableIndex the index of the variable
+	 * @return a double
+	 */
+	public double getValue(int standIndex, int yearIndex, int variableIndex) {
+		return values[getIndex(standIndex, yearIndex, variableIndex)];
+	}
+
+	/**
+	 * Provide the status of the stands (see the PROCESSED and FAILED constants).
+	 * @return an array of byte
+	 */
+	public byte[] getStatus() {return status;}
+
+	/**
+	 * Provide the error messages of the stands that could not be processed.
+	 * @return an array of String whose slots are null for the stands that have been processed
+	 */
+	public String[] getErrorMessages() {return errorMessages;}
+
+	/**
+	 * Provide the number of stands that could not be processed.
+	 * @return an integer
+	 */
+	public int getNumberOfFailures() {
+		int nbFailures = 0;
+		for (byte b : status) {
+			if (b == FAILED) {
+				nbFailures++;
+			}
+		}
+		return nbFailures;
+	}
+}
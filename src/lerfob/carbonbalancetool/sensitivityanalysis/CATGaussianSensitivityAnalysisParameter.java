@@ -18,6 +18,8 @@
  */
 package lerfob.carbonbalancetool.sensitivityanalysis;
 
+import java.util.Random;
+
 import repicea.stats.estimates.GaussianEstimate;
 
 @SuppressWarnings("serial")
@@ -33,5 +35,10 @@ public class CATGaussianSensitivityAnalysisParameter extends CATSensitivityAnaly
 	protected void setMultiplier(double multiplier) {
 		super.setMultiplier(multiplier / 1.96); 		// 1.96 to ensure the 0.95 confidence interval 
 	}
-	
+
+	@Override
+	protected double drawStandardDeviate(Random random) {
+		return random.nextGaussian();
+	}
+
 }
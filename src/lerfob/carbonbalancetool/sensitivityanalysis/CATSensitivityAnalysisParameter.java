@@ -18,9 +18,12 @@
  */
 package lerfob.carbonbalancetool.sensitivityanalysis;
 
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
 import repicea.math.Matrix;
 import repicea.math.SymmetricMatrix;
-import repicea.simulation.MonteCarloSimulationCompliantObject;
 import repicea.simulation.SensitivityAnalysisParameter;
 import repicea.stats.estimates.Estimate;
 
@@ -28,6 +31,11 @@ import repicea.stats.estimates.Estimate;
 public abstract class CATSensitivityAnalysisParameter<E extends Estimate<Matrix, SymmetricMatrix, ?>> extends SensitivityAnalysisParameter<E> {
 
 	private double multiplier;
+	
+	/**
+	 * The standard deviates already drawn. The first key is the subject id and the second is the realization id.
+	 */
+	private transient Map<String, Map<Integer, Double>> standardDeviates;
 
 	protected CATSensitivityAnalysisParameter(boolean isParametersVariabilityEnabled) {
 		super(isParametersVariabilityEnabled);
@@ -39,16 +47,78 @@ public abstract class CATSensitivityAnalysisParameter<E extends Estimate<Matrix,
 	
 	protected double getMultiplier() {return multiplier;}
 	
-	protected double getParameterValueForThisSubject(MonteCarloSimulationCompliantObject subject) {
+	private Map<String, Map<Integer, Double>> getStandardDeviates() {
+		if (standardDeviates == null) {
+			standardDeviates = new ConcurrentHashMap<String, Map<Integer, Double>>();
+		}
+		return standardDeviates;
+	}
+	
+	/**
+	 * Provide the modifier for a particular subject and a particular realization. <p>
+	 * The standard deviate behind the modifier is drawn from a random stream that only depends on the 
+	 * source seed, the subject id and the realization id. Consequently, the modifier does not depend on
+	 * the order in which the subjects and the realizations are processed. This ensures that the results 
+	 * are the same whether the realizations are run sequentially or in parallel.
+	 * @param sourceSeed the seed of the variability source
+	 * @param subjectId the subject id (can be null)
+	 * @param realizationId the Monte Carlo realization id
+	 * @return the modifier (1 if the variability is disabled)
+	 */
+	protected double getParameterValueForThisSubject(long sourceSeed, String subjectId, int realizationId) {
 		if (isParametersVariabilityEnabled) {
-			return getParametersForThisRealization(subject).scalarMultiply(getMultiplier()).scalarAdd(1d).getValueAt(0, 0);
+			return 1d + getStandardDeviate(sourceSeed, subjectId == null ? "" : subjectId, realizationId) * getMultiplier();
 		} else {
 			return 1d;
 		}
 	}
 
+	private double getStandardDeviate(long sourceSeed, String subjectId, int realizationId) {
+		Map<Integer, Double> innerMap = getStandardDeviates().get(subjectId);
+		if (innerMap == null) {
+			getStandardDeviates().putIfAbsent(subjectId, new ConcurrentHashMap<Integer, Double>());
+			innerMap = getStandardDeviates().get(subjectId);
+		}
+		Double deviate = innerMap.get(realizationId);
+		if (deviate == null) {
+			deviate = drawStandardDeviate(new Random(getStreamSeed(sourceSeed, subjectId, realizationId)));
+			innerMap.put(realizationId, deviate); // no need to synchronize here since the deviate is the same whatever the thread
+		}
+		return deviate;
+	}
+
+	/**
+	 * Draw a standard deviate from the distribution of this parameter.
+	 * @param random the Random instance of the stream
+	 * @return a double
+	 */
+	protected abstract double drawStandardDeviate(Random random);
+	
+	/**
+	 * Clear the deviates that have been drawn so far. This method must be called 
+	 * whenever the seed changes. 
+	 */
+	protected void clearDeviates() {
+		getStandardDeviates().clear();
+	}
+
+	/*
+	 * The SplitMix64 finalizer is used to spread the bits of the seed. 
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static long getStreamSeed(long sourceSeed, String subjectId, int realizationId) {
+		return mix(mix(sourceSeed + subjectId.hashCode()) + realizationId);
+	}
+	
 	protected void setParametersVariabilityEnabled(boolean enabled) {
 		this.isParametersVariabilityEnabled = enabled;
 	}
 
+	protected boolean isVariabilityEnabled() {return isParametersVariabilityEnabled;}
+
 }
@@ -41,7 +41,6 @@ import repicea.gui.REpiceaPanel;
 import repicea.gui.REpiceaUIObject;
 import repicea.gui.UIControlManager;
 import repicea.gui.components.REpiceaSlider;
-import repicea.simulation.HierarchicalLevel;
 import repicea.simulation.MonteCarloSimulationCompliantObject;
 import repicea.stats.Distribution;
 import repicea.util.REpiceaTranslator;
@@ -172,34 +171,12 @@ public class CATSensitivityAnalysisParameterWrapper implements REpiceaUIObject {
 	
 	
 	
-	class MonteCarloSimulationCompliantObjectImpl implements MonteCarloSimulationCompliantObject {
-
-		final MonteCarloSimulationCompliantObject root;
-		final String subjectId;
-		
-		MonteCarloSimulationCompliantObjectImpl(MonteCarloSimulationCompliantObject root, String subjectId) {
-			this.root = root;
-			this.subjectId = subjectId;
-		}
-		
-		@Override
-		public String getSubjectId() {return subjectId;}
-
-		@Override
-		public HierarchicalLevel getHierarchicalLevel() {return null;}
-
-		@Override
-		public int getMonteCarloRealizationId() {return root.getMonteCarloRealizationId();}
-		
-	}
-	
 	private final VariabilitySource source;
 	
 	@SuppressWarnings("rawtypes")
 	private final Map<Distribution.Type, CATSensitivityAnalysisParameter> parameterMap;
 	protected Distribution.Type selectedDistributionType = Distribution.Type.UNIFORM; // default value
 	private transient REpiceaPanel guiInterface;
-	private final Map<String, MonteCarloSimulationCompliantObject> subjectMap;
 	
 	
 		
@@ -207,7 +184,6 @@ public class CATSensitivityAnalysisParameterWrapper implements REpiceaUIObject {
 	protected CATSensitivityAnalysisParameterWrapper(VariabilitySource source) {
 		this.source = source;
 		parameterMap = new HashMap<Distribution.Type, CATSensitivityAnalysisParameter>();
-		subjectMap = new HashMap<String, MonteCarloSimulationCompliantObject>();
 		double initialValue = source.getSuggestedIPCCValue() * .01;
 		for (Distribution.Type type : Distribution.Type.values()) {
 			switch(type) {
@@ -230,17 +206,26 @@ public class CATSensitivityAnalysisParameterWrapper implements REpiceaUIObject {
 	}
 
 	
-	protected double getValue(MonteCarloSimulationCompliantObject subject, String subjectId) {
-		MonteCarloSimulationCompliantObject realSubject;
-		if (subjectId != null) {
-			if (!subjectMap.containsKey(subjectId)) {
-				subjectMap.put(subjectId, new MonteCarloSimulationCompliantObjectImpl(subject, subjectId));
-			}
-			realSubject = subjectMap.get(subjectId);
-		} else {
-			realSubject = subject;
+	/**
+	 * Provide the modifier for this source of variability.
+	 * @param subject a MonteCarloSimulationCompliantObject instance which provides the realization id
+	 * @param subjectId the subject id (if null, the subject id of the subject argument is used)
+	 * @param seed the seed of the sensitivity analysis
+	 * @return a double
+	 */
+	protected double getValue(MonteCarloSimulationCompliantObject subject, String subjectId, long seed) {
+		String realSubjectId = subjectId != null ? subjectId : subject.getSubjectId();
+		long sourceSeed = CATSensitivityAnalysisParameter.mix(seed + source.ordinal());
+		return parameterMap.get(selectedDistributionType).getParameterValueForThisSubject(sourceSeed, realSubjectId, subject.getMonteCarloRealizationId());
+	}
+	
+	/**
+	 * Clear the deviates drawn so far.
+	 */
+	protected void clearDeviates() {
+		for (CATSensitivityAnalysisParameter<?> param : parameterMap.values()) {
+			param.clearDeviates();
 		}
-		return parameterMap.get(selectedDistributionType).getParameterValueForThisSubject(realSubject);
 	}
 	
 	@Override
@@ -24,6 +24,7 @@ import java.awt.Window;
 import java.security.InvalidParameterException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import repicea.gui.REpiceaShowableUIWithParent;
 import repicea.simulation.MonteCarloSimulationCompliantObject;
@@ -89,8 +90,15 @@ public class CATSensitivityAnalysisSettings implements REpiceaShowableUIWithPare
 	
 	protected int nbMonteCarloRealizations;
 	protected boolean isModelStochastic;
+	private long randomSeed;
 	
-	private CATSensitivityAnalysisSettings() {
+	/**
+	 * Constructor.<p>
+	 * Each CATRunContext instance has its own settings. The singleton instance
+	 * is used by the default context.
+	 * @see CATSensitivityAnalysisSettings#getInstance()
+	 */
+	public CATSensitivityAnalysisSettings() {
 		sensitivityParameterMap = new HashMap<VariabilitySource, CATSensitivityAnalysisParameterWrapper>();
 		initialize();
 	}
@@ -99,6 +107,7 @@ public class CATSensitivityAnalysisSettings implements REpiceaShowableUIWithPare
 		for (VariabilitySource source : VariabilitySource.values()) {
 			sensitivityParameterMap.put(source, new CATSensitivityAnalysisParameterWrapper(source));
 		}
+		randomSeed = new Random().nextLong();
 	}
 	
 	@Override
@@ -118,7 +127,7 @@ public class CATSensitivityAnalysisSettings implements REpiceaShowableUIWithPare
 	 * This method returns the singleton instance of the CATSensitivityAnalysisSettings class.
 	 * @return a CATSensitivityAnalysisSettings instance
 	 */
-	public static CATSensitivityAnalysisSettings getInstance() {
+	public static synchronized CATSensitivityAnalysisSettings getInstance() {
 		if (settings == null) {
 			settings = new CATSensitivityAnalysisSettings();
 		}
@@ -133,7 +142,59 @@ public class CATSensitivityAnalysisSettings implements REpiceaShowableUIWithPare
 	 * @return the modifier
 	 */
 	public double getModifier(VariabilitySource source, MonteCarloSimulationCompliantObject subject, String groupID) {
-		return sensitivityParameterMap.get(source).getValue(subject, groupID);
+		return sensitivityParameterMap.get(source).getValue(subject, groupID, randomSeed);
+	}
+	
+	/**
+	 * Set the seed of the random deviates. <p>
+	 * The deviates only depend on this seed, the variability source, the group id and the 
+	 * realization id. Two simulations with the same seed and the same settings therefore 
+	 * produce the same results, whether the realizations are run sequentially or in parallel.
+	 * The deviates drawn so far are cleared.
+	 * @param randomSeed a long
+	 */
+	public void setRandomSeed(long randomSeed) {
+		this.randomSeed = randomSeed;
+		clearDeviates();
+	}
+
+	/**
+	 * Clear the standard deviates drawn so far. <p>
+	 * Since the deviates only depend on the seed, the subject and the realization, clearing them 
+	 * does not change the results. This method is called at the beginning of each run so that the 
+	 * deviates do not accumulate across runs.
+	 */
+	public void clearDeviates() {
+		for (CATSensitivityAnalysisParameterWrapper wrapper : sensitivityParameterMap.values()) {
+			wrapper.clearDeviates();
+		}
+	}
+	
+	/**
+	 * Provide the seed of the random deviates. <p>
+	 * By default, the seed is randomly set when the settings are initialized or cleared.
+	 * @return a long
+	 */
+	public long getRandomSeed() {return randomSeed;}
+
+	/**
+	 * Provide a signature of these settings. <p>
+	 * Two settings instances with the same signature produce the same modifiers. The
+	 * number of Monte Carlo realizations is not part of the signature.
+	 * @return a String
+	 */
+	public String getSignature() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(randomSeed).append(";").append(isModelStochastic);
+		for (VariabilitySource source : VariabilitySource.values()) {
+			CATSensitivityAnalysisParameterWrapper wrapper = sensitivityParameterMap.get(source);
+			if (wrapper != null) {
+				CATSensitivityAnalysisParameter<?> parm = wrapper.getParameter(wrapper.selectedDistributionType);
+				sb.append(";").append(source.name()).append(",").append(wrapper.selectedDistributionType)
+					.append(",").append(parm.isVariabilityEnabled()).append(",").append(parm.getMultiplier());
+			}
+		}
+		return sb.toString();
 	}
 	
 	@Override
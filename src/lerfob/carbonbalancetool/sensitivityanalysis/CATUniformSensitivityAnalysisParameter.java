@@ -18,6 +18,8 @@
  */
 package lerfob.carbonbalancetool.sensitivityanalysis;
 
+import java.util.Random;
+
 import repicea.math.Matrix;
 import repicea.stats.estimates.UniformEstimate;
 
@@ -34,4 +36,9 @@ public class CATUniformSensitivityAnalysisParameter extends CATSensitivityAnalys
 		setMultiplier(initialValue);
 	}
 
+	@Override
+	protected double drawStandardDeviate(Random random) {
+		return 2d * random.nextDouble() - 1d;	// uniform between -1 and 1
+	}
+
 }
@@ -0,0 +1,58 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+/**
+ * The MEMSInstrumentation interface makes it possible to collect timings from
+ * the SoilCarbonPredictor class. <p>
+ * The predictor does not call the timer as long as no instrumentation has been set 
+ * (see {@link SoilCarbonPredictor#setInstrumentation(MEMSInstrumentation)}). Otherwise,
+ * the timings are aggregated over the days of an annual call and passed on to the 
+ * instrumentation once per call.
+ * @author Mathieu Fortin - March 2025
+ */
+public interface MEMSInstrumentation {
+
+	/**
+	 * The groups of equations that are timed.
+	 */
+	public static enum EquationGroup {
+		/**
+		 * The daily temperature modifier.
+		 */
+		TemperatureModifier,
+		/**
+		 * The daily changes in the compartments (Eq. 1 to 46).
+		 */
+		DailyChanges,
+		/**
+		 * The update of the stocks.
+		 */
+		StockUpdate;
+	}
+
+	/**
+	 * Record the timings of an annual call to the predictor.
+	 * @param nbDays the number of simulated days
+	 * @param elapsedNanos an array of elapsed times in nanoseconds whose indices are the ordinals of the EquationGroup enum
+	 */
+	public void recordAnnualCall(int nbDays, long[] elapsedNanos);
+
+}
@@ -19,6 +19,9 @@
  */
 package lerfob.mems;
 
+import java.io.IOException;
+
+import repicea.math.Matrix;
 import repicea.stats.estimators.mcmc.MetropolisHastingsAlgorithm;
 import repicea.util.REpiceaTranslator;
 import repicea.util.REpiceaTranslator.TextableEnum;
@@ -40,18 +43,81 @@ public class MEMSSite {
     
     final MetropolisHastingsAlgorithm mha;
     final SoilCarbonPredictorInput inputs;
+    private Matrix finalParameterEstimates;
+    private String binaryFilename;
+    private double[][] parameterDraws;
     
     MEMSSite(MetropolisHastingsAlgorithm mha, SoilCarbonPredictorInput inputs) {
     	this.mha = mha;
     	this.inputs = inputs;
     }
 
+    /**
+     * Constructor for a site read from a binary file.
+     * @param inputs a SoilCarbonPredictorInput instance
+     * @param finalParameterEstimates the final parameter estimates
+     * @param binaryFilename the file from which the parameter draws are read if needed
+     * @see MEMSSiteBinaryFormat
+     */
+    MEMSSite(SoilCarbonPredictorInput inputs, Matrix finalParameterEstimates, String binaryFilename) {
+    	this.mha = null;
+    	this.inputs = inputs;
+    	this.finalParameterEstimates = finalParameterEstimates;
+    	this.binaryFilename = binaryFilename;
+    }
+
+    /**
+     * Constructor for a site whose parameter draws are already in memory.
+     * @param inputs a SoilCarbonPredictorInput instance
+     * @param finalParameterEstimates the final parameter estimates
+     * @param parameterDraws an array of arrays (draws x parameters)
+     * @see SoilCarbonPredictorMultiChainCalibration
+     */
+    MEMSSite(SoilCarbonPredictorInput inputs, Matrix finalParameterEstimates, double[][] parameterDraws) {
+    	this.mha = null;
+    	this.inputs = inputs;
+    	this.finalParameterEstimates = finalParameterEstimates;
+    	this.parameterDraws = parameterDraws;
+    }
+
     public SoilCarbonPredictorInput getInputs() {
         return inputs;
     }
 
+    /**
+     * Provide the MetropolisHastingsAlgorithm instance.
+     * @return a MetropolisHastingsAlgorithm instance or null if the site was read from a binary file
+     */
     public MetropolisHastingsAlgorithm getMetropolisHastingsAlgorithm() {
         return mha;
     }
+
+    /**
+     * Provide the final parameter estimates.
+     * @return a Matrix instance
+     */
+    public synchronized Matrix getFinalParameterEstimates() {
+    	if (finalParameterEstimates == null) {
+    		finalParameterEstimates = mha.getFinalParameterEstimates();
+    	}
+    	return finalParameterEstimates;
+    }
+
+    /**
+     * Provide the parameter draws of the Markov chain. <p>
+     * The draws are loaded on the first call. The array should not be modified.
+     * @return an array of arrays (draws x parameters)
+     * @throws IOException if the site was read from a binary file and the draws cannot be read from this file
+     */
+    public synchronized double[][] getParameterDraws() throws IOException {
+    	if (parameterDraws == null) {
+    		if (mha != null) {
+    			parameterDraws = MEMSSiteBinaryFormat.getParameterDraws(mha);
+    		} else {
+    			parameterDraws = MEMSSiteBinaryFormat.readParameterDraws(binaryFilename);
+    		}
+    	}
+    	return parameterDraws;
+    }
     
 }
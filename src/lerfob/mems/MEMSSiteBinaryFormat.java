@@ -0,0 +1,273 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.security.InvalidParameterException;
+import java.util.List;
+
+import lerfob.mems.MEMSSite.SiteType;
+import lerfob.mems.SoilCarbonPredictor.MCParam;
+import lerfob.mems.SoilCarbonPredictorInput.LandType;
+import repicea.math.Matrix;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.stats.estimates.MonteCarloEstimate;
+import repicea.stats.estimators.mcmc.MetropolisHastingsAlgorithm;
+import repicea.util.ObjectUtility;
+
+/**
+ * The MEMSSiteBinaryFormat class reads and writes MEMSSite instances in a compact binary format. <p>
+ * Contrary to the zml files, which contain the whole MetropolisHastingsAlgorithm instance, the binary
+ * files only contain the site inputs, the final parameter estimates and the parameter draws of the
+ * Markov chain. The draws are read only when they are requested for the first time. <p>
+ * The layout of the file is as follows (big-endian):
+ * <ul>
+ * <li>the magic number and the version of the format (two integers)
+ * <li>the site type and the land type (two UTF strings)
+ * <li>the daily input, the depth, the pH, the bulk density, the sand and rock proportions (six doubles)
+ * <li>the number of parameters followed by their names (integer and UTF strings)
+ * <li>the final parameter estimates (doubles)
+ * <li>the number of draws followed by the draws, row by row (integer and doubles)
+ * </ul>
+ * @author Mathieu Fortin - March 2025
+ */
+public final class MEMSSiteBinaryFormat {
+
+	/**
+	 * The extension of the binary files.
+	 */
+	public static final String FileExtension = ".memsbin";
+
+	static final int MagicNumber = 0x4D454D53;	// MEMS
+	static final int Version = 1;
+
+	private MEMSSiteBinaryFormat() {}
+
+	/**
+	 * Provide the path of the file of a particular site without the extension.
+	 * @param siteType a SiteType enum
+	 * @return a String
+	 */
+	public static String getSiteFilenameWithoutExtension(SiteType siteType) {
+		String sitesPath = ObjectUtility.getRelativePackagePath(SoilCarbonPredictor.class) + "data" + ObjectUtility.PathSeparator + "sites" + ObjectUtility.PathSeparator;
+		return sitesPath + "mcmcMems_" + siteType.name();
+	}
+
+	/**
+	 * Write a MEMSSite instance in the binary format.
+	 * @param site a MEMSSite instance
+	 * @param siteType the SiteType enum of this site
+	 * @param filename the name of the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(MEMSSite site, SiteType siteType, String filename) throws IOException {
+		Matrix parms = site.getFinalParameterEstimates();
+		double[][] draws = site.getParameterDraws();
+		if (parms.m_iRows != MCParam.values().length) {
+			throw new InvalidParameterException("The number of parameters is inconsistent with the MCParam enum!");
+		}
+		SoilCarbonPredictorInput inputs = site.getInputs();
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			dos.writeInt(MagicNumber);
+			dos.writeInt(Version);
+			dos.writeUTF(siteType.name());
+			dos.writeUTF(inputs.landType.name());
+			dos.writeDouble(inputs.originalCT_i);
+			dos.writeDouble(inputs.depthCm == null ? 15d : inputs.depthCm);
+			dos.writeDouble(inputs.soil_pH);
+			dos.writeDouble(inputs.bulkDensity);
+			dos.writeDouble(inputs.sandProportion);
+			dos.writeDouble(inputs.rockProportion);
+			dos.writeInt(parms.m_iRows);
+			for (MCParam p : MCParam.values()) {
+				dos.writeUTF(p.name());
+			}
+			for (int i = 0; i < parms.m_iRows; i++) {
+				dos.writeDouble(parms.getValueAt(i, 0));
+			}
+			dos.writeInt(draws.length);
+			for (double[] draw : draws) {
+				for (double value : draw) {
+					dos.writeDouble(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a MEMSSite instance from a binary file.<p>
+	 * Only the header is read. The parameter draws are read on the first call to 
+	 * the {@link MEMSSite#getParameterDraws()} method.
+	 * @param filename the name of the file
+	 * @return a MEMSSite instance
+	 * @throws IOException if the file cannot be read or if its format is not supported
+	 */
+	public static MEMSSite read(String filename) throws IOException {
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(openStream(filename)))) {
+			Header header = readHeader(dis);
+			return new MEMSSite(header.inputs, header.parms, filename);
+		}
+	}
+
+	private static class Header {
+		SoilCarbonPredictorInput inputs;
+		Matrix parms;
+	}
+
+	private static Header readHeader(DataInputStream dis) throws IOException {
+		if (dis.readInt() != MagicNumber) {
+			throw new IOException("This is not a MEMS site file!");
+		}
+		int version = dis.readInt();
+		if (version != Version) {
+			throw new IOException("The version " + version + " of the MEMS site format is not supported!");
+		}
+		dis.readUTF();	// the site type
+		LandType landType = LandType.valueOf(dis.readUTF());
+		double CT_i = dis.readDouble();
+		double depthCm = dis.readDouble();
+		double soil_pH = dis.readDouble();
+		double bulkDensity = dis.readDouble();
+		double sandProportion = dis.readDouble();
+		double rockProportion = dis.readDouble();
+		int nbParms = dis.readInt();
+		if (nbParms != MCParam.values().length) {
+			throw new IOException("The number of parameters is inconsistent with the MCParam enum!");
+		}
+		for (MCParam p : MCParam.values()) {
+			if (!p.name().equals(dis.readUTF())) {
+				throw new IOException("The parameters are not in the order of the MCParam enum!");
+			}
+		}
+		Header header = new Header();
+		header.inputs = new SoilCarbonPredictorInput(landType, CT_i, depthCm, soil_pH, bulkDensity, sandProportion, rockProportion);
+		header.parms = new Matrix(nbParms, 1);
+		for (int i = 0; i < nbParms; i++) {
+			header.parms.setValueAt(i, 0, dis.readDouble());
+		}
+		return header;
+	}
+
+	/**
+	 * Read the parameter draws of a binary file.
+	 * @param filename the name of the file
+	 * @return an array of arrays (draws x parameters)
+	 * @throws IOException if the file cannot be read
+	 */
+	static double[][] readParameterDraws(String filename) throws IOException {
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(openStream(filename)))) {
+			Header header = readHeader(dis);
+			int nbParms = header.parms.m_iRows;
+			int nbDraws = dis.readInt();
+			byte[] bytes = new byte[nbDraws * nbParms * Double.BYTES];
+			dis.readFully(bytes);
+			DoubleBuffer buffer = ByteBuffer.wrap(bytes).asDoubleBuffer();
+			double[][] draws = new double[nbDraws][nbParms];
+			for (int i = 0; i < nbDraws; i++) {
+				buffer.get(draws[i]);
+			}
+			return draws;
+		}
+	}
+
+	/**
+	 * Check if a file or a resource exists.
+	 * @param filename the name of the file
+	 * @return a boolean
+	 */
+	static boolean exists(String filename) {
+		if (new File(filename).isFile()) {
+			return true;
+		}
+		return MEMSSiteBinaryFormat.class.getClassLoader().getResource(getResourceName(filename)) != null;
+	}
+
+	private static String getResourceName(String filename) {
+		String resourceName = filename.replace(File.separatorChar, '/');
+		while (resourceName.startsWith("/")) {
+			resourceName = resourceName.substring(1);
+		}
+		return resourceName;
+	}
+
+	private static InputStream openStream(String filename) throws IOException {
+		File file = new File(filename);
+		if (file.isFile()) {
+			return new FileInputStream(file);
+		}
+		InputStream is = MEMSSiteBinaryFormat.class.getClassLoader().getResourceAsStream(getResourceName(filename));
+		if (is == null) {
+			throw new IOException("Unable to find " + filename);
+		}
+		return is;
+	}
+
+	/**
+	 * Extract the parameter draws from a MetropolisHastingsAlgorithm instance.
+	 * @param mha a MetropolisHastingsAlgorithm instance
+	 * @return an array of arrays (draws x parameters)
+	 */
+	static double[][] getParameterDraws(MetropolisHastingsAlgorithm mha) {
+		List<Matrix> realizations = ((MonteCarloEstimate) mha.getParameterEstimates()).getRealizations();
+		double[][] draws = new double[realizations.size()][];
+		for (int i = 0; i < draws.length; i++) {
+			Matrix realization = realizations.get(i);
+			draws[i] = new double[realization.m_iRows];
+			for (int j = 0; j < draws[i].length; j++) {
+				draws[i][j] = realization.getValueAt(j, 0);
+			}
+		}
+		return draws;
+	}
+
+	/**
+	 * Export the zml files of all the sites to the binary format.<p>
+	 * The binary files are written in the same directory as the zml files. The cold-start
+	 * time of both formats is displayed.
+	 * @param args the directory of the zml files (optional)
+	 * @throws Exception if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws Exception {
+		for (SiteType siteType : SiteType.values()) {
+			String filenameWithoutExtension = args.length > 0 ?
+					args[0] + File.separator + "mcmcMems_" + siteType.name() :
+						getSiteFilenameWithoutExtension(siteType);
+			long initTime = System.nanoTime();
+			MEMSSite site = (MEMSSite) new XmlDeserializer(filenameWithoutExtension + ".zml").readObject();
+			double zmlTimeMillis = (System.nanoTime() - initTime) * 1E-6;
+			String outputFilename = filenameWithoutExtension + FileExtension;
+			write(site, siteType, outputFilename);
+			initTime = System.nanoTime();
+			read(outputFilename).getParameterDraws();
+			double binaryTimeMillis = (System.nanoTime() - initTime) * 1E-6;
+			System.out.println(siteType.name() + ": zml loaded in " + zmlTimeMillis + " ms; binary loaded in " + binaryTimeMillis + " ms (" + new File(outputFilename).length() + " bytes)");
+		}
+	}
+}
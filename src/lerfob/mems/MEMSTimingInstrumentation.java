@@ -0,0 +1,128 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import lerfob.mems.MEMSInstrumentation.EquationGroup;
+
+/**
+ * The MEMSTimingInstrumentation class accumulates the timings of the annual calls to 
+ * the SoilCarbonPredictor class. <p>
+ * An instance can be shared by several predictors running in different threads.
+ * @author Mathieu Fortin - March 2025
+ */
+public class MEMSTimingInstrumentation implements MEMSInstrumentation {
+
+	/**
+	 * A snapshot of the timings.
+	 */
+	public static class Report {
+
+		private final long nbAnnualCalls;
+		private final long nbDays;
+		private final long[] elapsedNanos;
+
+		private Report(long nbAnnualCalls, long nbDays, long[] elapsedNanos) {
+			this.nbAnnualCalls = nbAnnualCalls;
+			this.nbDays = nbDays;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * Provide the number of annual calls.
+		 * @return a long
+		 */
+		public long getNbAnnualCalls() {return nbAnnualCalls;}
+
+		/**
+		 * Provide the number of simulated days.
+		 * @return a long
+		 */
+		public long getNbDays() {return nbDays;}
+
+		/**
+		 * Provide the total elapsed time for a group of equations.
+		 * @param group an EquationGroup enum
+		 * @return the elapsed time in milliseconds
+		 */
+		public double getElapsedTimeMillis(EquationGroup group) {
+			return elapsedNanos[group.ordinal()] * 1E-6;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("MEMS timings: " + nbAnnualCalls + " annual call(s), " + nbDays + " day(s)");
+			for (EquationGroup group : EquationGroup.values()) {
+				sb.append(System.lineSeparator() + "  " + group.name() + " = " + getElapsedTimeMillis(group) + " ms");
+			}
+			return sb.toString();
+		}
+	}
+
+	private final LongAdder nbAnnualCalls;
+	private final LongAdder nbDays;
+	private final LongAdder[] elapsedNanos;
+
+	/**
+	 * Constructor.
+	 */
+	public MEMSTimingInstrumentation() {
+		nbAnnualCalls = new LongAdder();
+		nbDays = new LongAdder();
+		elapsedNanos = new LongAdder[EquationGroup.values().length];
+		for (int i = 0; i < elapsedNanos.length; i++) {
+			elapsedNanos[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public void recordAnnualCall(int nbDays, long[] elapsedNanos) {
+		nbAnnualCalls.increment();
+		this.nbDays.add(nbDays);
+		for (int i = 0; i < this.elapsedNanos.length; i++) {
+			this.elapsedNanos[i].add(elapsedNanos[i]);
+		}
+	}
+
+	/**
+	 * Provide a snapshot of the timings.
+	 * @return a Report instance
+	 */
+	public Report getReport() {
+		long[] totals = new long[elapsedNanos.length];
+		for (int i = 0; i < totals.length; i++) {
+			totals[i] = elapsedNanos[i].sum();
+		}
+		return new Report(nbAnnualCalls.sum(), nbDays.sum(), totals);
+	}
+
+	/**
+	 * Reset the timings.
+	 */
+	public void reset() {
+		nbAnnualCalls.reset();
+		nbDays.reset();
+		for (LongAdder adder : elapsedNanos) {
+			adder.reset();
+		}
+	}
+}
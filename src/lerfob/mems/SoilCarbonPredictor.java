@@ -53,8 +53,6 @@ import static lerfob.mems.SoilCarbonPredictorEquation.Eq31_getDailyCarbonStockTr
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq32_getDailyCarbonStockTransferFromC5ToC8;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq33_getDailyCarbonStockTransferFromC6ToC8;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq34_getDailyCarbonStockTransferFromC10ToC8;
-import static lerfob.mems.SoilCarbonPredictorEquation.Eq35_getBindingAffinityL_k_lm;
-import static lerfob.mems.SoilCarbonPredictorEquation.Eq36_getMaximumSorptionCapacityQ_max;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq37_getSorption;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq38_getDailyCarbonStockTransferFromC1ToC7;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq39_getDailyCarbonStockTransferFromC2ToC7;
@@ -65,7 +63,6 @@ import static lerfob.mems.SoilCarbonPredictorEquation.Eq43_getDailyCarbonStockTr
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq44_getDailyCarbonStockTransferFromC9ToC7;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq45_getDailyCarbonStockTransferFromC10ToC7;
 import static lerfob.mems.SoilCarbonPredictorEquation.Eq46_getK3Estimate;
-import static lerfob.mems.SoilCarbonPredictorEquation.Weibull_getTemperatureModifier;
 
 import java.security.InvalidParameterException;
 
@@ -364,7 +361,19 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 	double sigma2Litter = 400.0;
 	double sigma2Soil = 400.0;
 
-	long[] elapsedTimes = new long[10];
+	/**
+	 * The maximum number of days in a step of the exponential integrator.
+	 */
+	private static final int MaxNbDaysPerStep = 64;
+
+	/**
+	 * The absolute part (g C/m2) of the error estimate of the exponential integrator. It prevents 
+	 * nearly empty compartments from forcing daily steps.
+	 */
+	private static final double AbsoluteErrorFloor = 1d;
+
+	private MEMSInstrumentation instrumentation;
+	private double adaptiveTolerance;
 	
 	
 	/**
@@ -401,6 +410,42 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 	@Override
 	protected void init() {}
 
+	/**
+	 * Set an instrumentation that collects the timings of the annual calls.
+	 * @param instrumentation a MEMSInstrumentation instance or null to disable the timings (default)
+	 */
+	public void setInstrumentation(MEMSInstrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	/**
+	 * Provide the instrumentation of this predictor.
+	 * @return a MEMSInstrumentation instance or null if the timings are disabled
+	 */
+	public MEMSInstrumentation getInstrumentation() {return instrumentation;}
+
+	/**
+	 * Set the tolerance of the exponential integrator.<p>
+	 * If the tolerance is strictly positive, the annual predictions rely on steps of variable length in which
+	 * the linear transfers between the compartments are integrated in closed form. The relative error of each 
+	 * step is controlled by step doubling. Otherwise, the stocks are integrated on a daily basis, which is 
+	 * the reference.
+	 * @param adaptiveTolerance the tolerance on the relative error of a step (0 by default)
+	 * @see SoilCarbonPredictor#predictAnnualCStocks(SoilCarbonPredictorCompartments, SoilCarbonPredictorInput)
+	 */
+	public void setAdaptiveTolerance(double adaptiveTolerance) {
+		if (adaptiveTolerance < 0d) {
+			throw new InvalidParameterException("The adaptiveTolerance argument must be equal to or greater than 0!");
+		}
+		this.adaptiveTolerance = adaptiveTolerance;
+	}
+
+	/**
+	 * Provide the tolerance of the exponential integrator.
+	 * @return a double (0 means that the stocks are integrated on a daily basis)
+	 */
+	public double getAdaptiveTolerance() {return adaptiveTolerance;}
+
 	/**
 	 * Predict the daily changes in the different compartments.
 	 * @param compartments a SoilCarbonPredictorCompartments instance that contains the initial carbon stocks
@@ -417,8 +462,6 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 	 * @param Tmod the temperature modifier to be applied (1.0 means no change)
 	 */
 	protected void predictDailyCStockChanges(SoilCarbonPredictorCompartments compartments, SoilCarbonPredictorInput inputs, double Tmod) {
-		long initTime = System.currentTimeMillis();
-
 		this.Tmod = Tmod;
 
 //		SoilCarbonPredictorCompartments pred = new SoilCarbonPredictorCompartments(0d);
@@ -470,10 +513,6 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 		double C8_C6_in = Eq33_getDailyCarbonStockTransferFromC6ToC8(this, compartments);
 		compartments.deltaC6 = Eq06_getDailyChangeC6(this, compartments, C6_i_in, C6_C1_in, C6_C2_in, C6_C3_in, C6_C4_in, C8_C6_in);
 
-		elapsedTimes[0] += (System.currentTimeMillis() - initTime);
-		
-		initTime = System.currentTimeMillis();
-		
 		// Eq07
 		//double uB = Eq19_getModifier(this, compartments, N_lit);
 		//double la_4 = Eq22_getLeachingLA4(this, compartments, N_lit);
@@ -496,9 +535,7 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 		//double C8_C6_in = Eq33_getDailyCarbonStockTransferFromC6ToC8(this, compartments);
 		double C8_C10_in = Eq34_getDailyCarbonStockTransferFromC10ToC8(this, compartments);
 
-		double K_lm = Eq35_getBindingAffinityL_k_lm(inputs.soil_pH);
-		double Q_max = Eq36_getMaximumSorptionCapacityQ_max(inputs.bulkDensity, inputs.sandProportion, inputs.rockProportion);
-		double sorption = Eq37_getSorption(compartments, K_lm, Q_max);
+		double sorption = Eq37_getSorption(compartments, inputs.K_lm, inputs.Q_max);
 		compartments.deltaC8 = Eq08_getDailyChangeC8(this, compartments, C8_C5_in, C8_C6_in, C8_C10_in, sorption);
 
 		// Eq09
@@ -513,9 +550,6 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 		// Eq11
 		compartments.deltaC11 = Eq11_getDailyChangeC11(this, compartments);
 
-		elapsedTimes[1] += (System.currentTimeMillis() - initTime);
-
-		
 //		return pred;
 	}
 
@@ -535,23 +569,322 @@ public class SoilCarbonPredictor extends REpiceaPredictor  {
 	/**
 	 * Predict the stocks on an annual basis. <p>
 	 * If the dailySoilTemperatureC is null, the method relies on the mean temperature and range to
-	 * estimate the daily temperature.
+	 * estimate the daily temperature. If the tolerance of the exponential integrator is strictly positive, the
+	 * stocks are integrated with steps of variable length.
 	 * @param compartments a SoilCarbonPredictorCompartments instance that contains the initial carbon stocks
 	 * @param inputs a SoilCarbonPredictorInput instance
+	 * @see SoilCarbonPredictor#setAdaptiveTolerance(double)
 	 */
 	public void predictAnnualCStocks(SoilCarbonPredictorCompartments compartments, SoilCarbonPredictorInput inputs) {
-		for (int day = 0; day < compartments.dailySoilTemperature.length; day++) {
-			double TmodLocal = 0.0;
-			long initTime = System.currentTimeMillis();
-			TmodLocal = Weibull_getTemperatureModifier(this, compartments.dailySoilTemperature[day]);
-			elapsedTimes[2] += (System.currentTimeMillis() - initTime);
+		MEMSInstrumentation instrumentation = this.instrumentation;
+		if (instrumentation != null) {
+			predictAnnualCStocksWithInstrumentation(compartments, inputs, instrumentation);
+		} else if (adaptiveTolerance > 0d) {
+			predictAnnualCStocksWithExponentialSteps(compartments, inputs, compartments.getDailyTemperatureModifiers());
+		} else {
+			double[] dailyTmod = compartments.getDailyTemperatureModifiers();
+			for (int day = 0; day < dailyTmod.length; day++) {
+				double TmodLocal = dailyTmod[day];
+				if (TmodLocal > 0.0) {
+					predictDailyCStocks(compartments, inputs, TmodLocal);
+				}
+			}
+		}
+	}
 
-			initTime = System.currentTimeMillis();
+	/*
+	 * Same as predictAnnualCStocks but with the timer calls. The timings are aggregated
+	 * over the year and passed on to the instrumentation once. The steps of the exponential 
+	 * integrator are all timed as daily changes.
+	 */
+	private void predictAnnualCStocksWithInstrumentation(SoilCarbonPredictorCompartments compartments, 
+			SoilCarbonPredictorInput inputs, 
+			MEMSInstrumentation instrumentation) {
+		long[] elapsedNanos = new long[MEMSInstrumentation.EquationGroup.values().length];
+		long initTime = System.nanoTime();
+		double[] dailyTmod = compartments.getDailyTemperatureModifiers();
+		elapsedNanos[MEMSInstrumentation.EquationGroup.TemperatureModifier.ordinal()] += System.nanoTime() - initTime;
+		int nbDays = dailyTmod.length;
+		if (adaptiveTolerance > 0d) {
+			initTime = System.nanoTime();
+			predictAnnualCStocksWithExponentialSteps(compartments, inputs, dailyTmod);
+			elapsedNanos[MEMSInstrumentation.EquationGroup.DailyChanges.ordinal()] += System.nanoTime() - initTime;
+			instrumentation.recordAnnualCall(nbDays, elapsedNanos);
+			return;
+		}
+		for (int day = 0; day < nbDays; day++) {
+			initTime = System.nanoTime();
+			double TmodLocal = dailyTmod[day];
+			long time = System.nanoTime();
+			elapsedNanos[MEMSInstrumentation.EquationGroup.TemperatureModifier.ordinal()] += time - initTime;
 			if (TmodLocal > 0.0) {
-				predictDailyCStocks(compartments, inputs, TmodLocal);
+				initTime = time;
+				predictDailyCStockChanges(compartments, inputs, TmodLocal);
+				time = System.nanoTime();
+				elapsedNanos[MEMSInstrumentation.EquationGroup.DailyChanges.ordinal()] += time - initTime;
+				initTime = time;
+				compartments.updateStocks();
+				elapsedNanos[MEMSInstrumentation.EquationGroup.StockUpdate.ordinal()] += System.nanoTime() - initTime;
+			}
+		}
+		instrumentation.recordAnnualCall(nbDays, elapsedNanos);
+	}
+
+	/*
+	 * Same as predictAnnualCStocks but with steps of variable length. Each step is compared with two half 
+	 * steps. The step is accepted if the difference is below the tolerance, in which case the stocks of the 
+	 * half steps are kept, and the length of the next step is adapted to the difference. The half steps of a 
+	 * two-day step are daily steps. The integration then falls back to daily steps where the temperature 
+	 * modifiers change too sharply for longer steps.
+	 */
+	private void predictAnnualCStocksWithExponentialSteps(SoilCarbonPredictorCompartments compartments, 
+			SoilCarbonPredictorInput inputs, 
+			double[] dailyTmod) {
+		int nbDays = dailyTmod.length;
+		int nbDaysPerStep = 2;
+		int day = 0;
+		while (day < nbDays) {
+			int nbDaysThisStep = Math.min(nbDaysPerStep, nbDays - day);
+			if (nbDaysThisStep == 1) {
+				predictCStocksWithExponentialStep(compartments, inputs, dailyTmod, day, 1);
+				day++;
+				continue;
+			}
+			int nbDaysFirstHalf = nbDaysThisStep / 2;
+			double[] initialStocks = compartments.getStocks();
+			predictCStocksWithExponentialStep(compartments, inputs, dailyTmod, day, nbDaysThisStep);
+			double[] fullStepStocks = compartments.getStocks();
+			compartments.setStocks(initialStocks);
+			predictCStocksWithExponentialStep(compartments, inputs, dailyTmod, day, nbDaysFirstHalf);
+			predictCStocksWithExponentialStep(compartments, inputs, dailyTmod, day + nbDaysFirstHalf, nbDaysThisStep - nbDaysFirstHalf);
+			double error = getStepError(fullStepStocks, compartments.getStocks());
+			if (error <= adaptiveTolerance || nbDaysThisStep == 2) {	// the half steps are kept
+				day += nbDaysThisStep;
+			} else {
+				compartments.setStocks(initialStocks);
+			}
+			// the local error of a step is of the second order
+			double factor = error == 0d ? 2d : Math.min(2d, Math.max(.25, .9 * Math.sqrt(adaptiveTolerance / error)));
+			nbDaysPerStep = Math.max(2, Math.min(MaxNbDaysPerStep, (int) (nbDaysThisStep * factor)));
+		}
+	}
+
+	/*
+	 * The days with a null temperature modifier are skipped as in the daily integration. The modifiers
+	 * uk and uB, the leaching proportions la_1 and la_4 and the estimate of parmK3 are the costly part of 
+	 * the daily equations. They only depend on C2 and C3 and they vary slowly. They are evaluated at the 
+	 * beginning and at the end of the step and interpolated in between. The slow litter compartments C2 
+	 * and C3 and the light particulate organic matter (C10) are solved in closed form with the mean 
+	 * temperature modifier of the step. Their outflows are then spread over the days in proportion to the 
+	 * daily modifiers and to their interpolated stocks. The other compartments either flush most of their 
+	 * content within a few days (C1, C4 and C6) or depend on the sorption (C8 and C9 and then C5, which 
+	 * feeds C8). They are integrated day by day with the interpolated coefficients, which does not require 
+	 * any exponential. The coefficients must remain consistent with Eq01 to Eq45. The carbon emitted into 
+	 * C7 is the balance, so that the carbon is preserved. A step of a single day reproduces the daily 
+	 * integration. So does a step in which a daily loss rate of C2, C3 or C10 is not within the (0,1) 
+	 * interval.
+	 */
+	private void predictCStocksWithExponentialStep(SoilCarbonPredictorCompartments compartments, 
+			SoilCarbonPredictorInput inputs, 
+			double[] dailyTmod,
+			int firstDay,
+			int nbDays) {
+		int n = 0;
+		double sumTmod = 0d;
+		double sumIndexedTmod = 0d;
+		for (int day = firstDay; day < firstDay + nbDays; day++) {
+			if (dailyTmod[day] > 0d) {
+				sumTmod += dailyTmod[day];
+				sumIndexedTmod += n * dailyTmod[day];
+				n++;
+			}
+		}
+		if (n == 0) {
+			return;
+		}
+
+		double T = sumTmod / n;
+		double N_lit = inputs.landType.N_lit;
+		double LCI_lit = Eq16_getLCI(compartments);
+		double K3 = Eq46_getK3Estimate(this, LCI_lit);
+		double uk = Eq20_getModifier(this, compartments, N_lit, LCI_lit);
+
+		// daily loss rates of C2, C3 and C10 under the mean modifier
+		double r2 = (uk * parmK2 + LIT_frg) * T;
+		double r3 = (K3 + LIT_frg) * T;
+		double r10 = parmK10 * T;
+		if (n == 1 || !isWithinUnitInterval(r2) || !isWithinUnitInterval(r3) || !isWithinUnitInterval(r10)) {
+			for (int day = firstDay; day < firstDay + nbDays; day++) {
+				if (dailyTmod[day] > 0d) {
+					predictDailyCStocks(compartments, inputs, dailyTmod[day]);
+				}
+			}
+			return;
+		}
+		double uB = Eq19_getModifier(this, compartments, N_lit);
+		double la_1 = Eq21_getLeachingLA1(this, compartments, N_lit);
+		double la_4 = Eq22_getLeachingLA4(this, compartments, N_lit);
+
+		// daily inputs (Eq12 to Eq15)
+		double i1 = Eq12_getDailyInputInC1(this, inputs);
+		double i2 = Eq13_getDailyInputInC2(inputs.CT_i, inputs.landType.f_sol, inputs.landType.f_lig);
+		double i3 = Eq14_getDailyInputInC3(inputs.CT_i, inputs.landType.f_lig);
+		double i6 = Eq15_calculate(this, inputs.CT_i, inputs.landType.f_sol);
+
+		double c2 = compartments.C2;
+		double c3 = compartments.C3;
+		double c10 = compartments.C10;
+		double c2End = getStockAfterExponentialStep(c2, r2, n, n * i2, i2, i2);
+		double out2 = c2 + n * i2 - c2End;
+		double c3End = getStockAfterExponentialStep(c3, r3, n, n * i3, i3, i3);
+		double out3 = c3 + n * i3 - c3End;
+		double f2_10 = (1 - POM_split) * LIT_frg * T / r2;			// Eq26
+		double f3_10 = (1 - POM_split) * LIT_frg * T / r3;			// Eq27
+		double in10 = f2_10 * out2 + f3_10 * out3;
+		double c10End = getStockAfterExponentialStep(c10, r10, n, in10, 
+				f2_10 * r2 * c2 + f3_10 * r3 * c3, 
+				f2_10 * r2 * c2End + f3_10 * r3 * c3End);
+		double out10 = c10 + in10 - c10End;
+
+		compartments.C2 = c2End;
+		compartments.C3 = c3End;
+		compartments.C10 = c10End;
+		double LCI_litEnd = Eq16_getLCI(compartments);
+		double K3End = Eq46_getK3Estimate(this, LCI_litEnd);
+		double ukEnd = Eq20_getModifier(this, compartments, N_lit, LCI_litEnd);
+		double uBEnd = Eq19_getModifier(this, compartments, N_lit);
+		double la_1End = Eq21_getLeachingLA1(this, compartments, N_lit);
+		double la_4End = Eq22_getLeachingLA4(this, compartments, N_lit);
+		double r2End = ukEnd * parmK2 + LIT_frg;
+		double r3End = K3End + LIT_frg;
+
+		// shares of the outflows of C2 and C3 and their daily increments
+		double f2_4 = uB * parmB2 * (1 - la_1) * uk * parmK2 * T / r2;	// Eq18
+		double f2_5 = POM_split * LIT_frg * T / r2;					// Eq24
+		double f2_6 = la_1 * uk * parmK2 * T / r2;					// Eq29
+		double f3_5 = POM_split * LIT_frg * T / r3;					// Eq25
+		double f3_6 = la_3 * K3 * T / r3;							// Eq30
+		double df2_4 = (uBEnd * parmB2 * (1 - la_1End) * ukEnd * parmK2 / r2End - f2_4) / n;
+		double df2_6 = (la_1End * ukEnd * parmK2 / r2End - f2_6) / n;
+		double df3_6 = (la_3 * K3End / r3End - f3_6) / n;
+
+		// transfer coefficients from C1 (Eq01, Eq17 and Eq28) and their daily increments
+		double k1 = uk * parmK1;
+		double k1_4 = uB * parmB1 * (1 - la_4) * uk * parmK1;
+		double k1_6 = la_4 * uk * parmK1;
+		double dk1 = (ukEnd * parmK1 - k1) / n;
+		double dk1_4 = (uBEnd * parmB1 * (1 - la_4End) * ukEnd * parmK1 - k1_4) / n;
+		double dk1_6 = (la_4End * ukEnd * parmK1 - k1_6) / n;
+
+		double k4_5 = parmB3 * (1 - la_2) * parmK4;				// Eq23
+		double k4_6 = la_2 * parmK4;							// Eq31
+		double k5_8 = la_3 * parmK5;							// Eq32
+		double f10_8 = la_3;									// Eq34
+
+		double slope2 = (c2End - c2) / n;
+		double slope3 = (c3End - c3) / n;
+		double slope10 = (c10End - c10) / n;
+		double weight2 = getOutflowWeight(out2, c2, slope2, sumTmod, sumIndexedTmod);
+		double weight3 = getOutflowWeight(out3, c3, slope3, sumTmod, sumIndexedTmod);
+		double weight10 = getOutflowWeight(out10, c10, slope10, sumTmod, sumIndexedTmod);
+
+		double c1 = compartments.C1;
+		double c4 = compartments.C4;
+		double c5 = compartments.C5;
+		double c6 = compartments.C6;
+		double c8 = compartments.C8;
+		double c9 = compartments.C9;
+		double leached = 0d;
+		int s = 0;
+		for (int day = firstDay; day < firstDay + nbDays; day++) {
+			double dayTmod = dailyTmod[day];
+			if (dayTmod > 0d) {
+				double C2Outflow = (c2 + slope2 * s) * dayTmod * weight2;
+				double C3Outflow = (c3 + slope3 * s) * dayTmod * weight3;
+				double C10Outflow = (c10 + slope10 * s) * dayTmod * weight10;
+				double C1Flux = c1 * dayTmod;
+				double C4Flux = c4 * dayTmod;
+				double C5Flux = c5 * dayTmod;
+				double C6Outflow = DOC_frg * c6 * dayTmod;		// Eq33
+				double C8Flux = c8 * dayTmod;
+				double sorption = Eq37_getSorption(c8, c9, inputs.K_lm, inputs.Q_max) * dayTmod;
+				c1 += i1 - k1 * C1Flux;
+				c4 += k1_4 * C1Flux + f2_4 * C2Outflow - parmK4 * C4Flux;
+				c5 += f2_5 * C2Outflow + f3_5 * C3Outflow + k4_5 * C4Flux - parmK5 * C5Flux;
+				c6 += i6 + k1_6 * C1Flux + f2_6 * C2Outflow + f3_6 * C3Outflow + k4_6 * C4Flux - C6Outflow;
+				c8 += k5_8 * C5Flux + C6Outflow + f10_8 * C10Outflow - sorption - (DOC_lch + parmK8) * C8Flux;
+				c9 += sorption - parmK9 * c9 * dayTmod;
+				leached += DOC_lch * C8Flux;					// Eq11
+				s++;
+				f2_4 += df2_4;
+				f2_6 += df2_6;
+				f3_6 += df3_6;
+				k1 += dk1;
+				k1_4 += dk1_4;
+				k1_6 += dk1_6;
+			}
+		}
+
+		double totalInput = n * (i1 + i2 + i3 + i6);
+		compartments.C7 += totalInput - leached 
+				- (c1 - compartments.C1) - (c2End - c2) - (c3End - c3) - (c4 - compartments.C4) - (c5 - compartments.C5) 
+				- (c6 - compartments.C6) - (c8 - compartments.C8) - (c9 - compartments.C9) - (c10End - c10);
+		compartments.C1 = c1;
+		compartments.C4 = c4;
+		compartments.C5 = c5;
+		compartments.C6 = c6;
+		compartments.C8 = c8;
+		compartments.C9 = c9;
+		compartments.C11 += leached;
+		this.Tmod = T;
+		this.parmK3 = K3End;
+	}
+
+	/*
+	 * Provide the factor that converts the product of the daily modifier and the interpolated stock
+	 * into the daily outflow, so that the daily outflows sum up to the outflow of the step.
+	 */
+	private static double getOutflowWeight(double outflow, double initialStock, double slope, double sumTmod, double sumIndexedTmod) {
+		return outflow == 0d ? 0d : outflow / (initialStock * sumTmod + slope * sumIndexedTmod);
+	}
+
+	private static boolean isWithinUnitInterval(double rate) {
+		return rate > 0d && rate < 1d;
+	}
+
+	/*
+	 * Solve the daily map x(s+1) = (1 - rate) * x(s) + u(s) over n days in closed form. The inflow u(s) 
+	 * is linear in s. It starts from and ends up at the rates of the upstream compartments at the beginning 
+	 * and at the end of the step and it sums up to the total inflow.
+	 */
+	private static double getStockAfterExponentialStep(double initialStock, 
+			double rate, 
+			int n, 
+			double totalInflow, 
+			double startInflow, 
+			double endInflow) {
+		double decay = Math.exp(n * Math.log(1 - rate)) - 1;		// (1 - rate)^n - 1
+		double s0 = -decay / rate;							// sum of (1 - rate)^(n - 1 - s) for s = 0 to n - 1
+		double s1 = (n - s0) / rate;						// sum of s * (1 - rate)^(n - 1 - s) for s = 0 to n - 1
+		double slope = (endInflow - startInflow) / n;
+		double intercept = (totalInflow - slope * n * (n - 1) * .5) / n;
+		return initialStock + decay * initialStock + intercept * s0 + slope * s1;
+	}
+
+	/*
+	 * Provide the largest relative difference across the compartments. A negative stock
+	 * makes the step fail.
+	 */
+	private static double getStepError(double[] fullStepStocks, double[] halfStepStocks) {
+		double maxError = 0d;
+		for (int i = 0; i < halfStepStocks.length; i++) {
+			if (fullStepStocks[i] < 0d || halfStepStocks[i] < 0d) {
+				return Double.POSITIVE_INFINITY;
 			}
-			elapsedTimes[3] += (System.currentTimeMillis() - initTime);
+			double error = Math.abs(fullStepStocks[i] - halfStepStocks[i]) / (halfStepStocks[i] + AbsoluteErrorFloor);
+			maxError = Math.max(maxError, error);
 		}
+		return maxError;
 	}
 
 }
@@ -53,6 +53,7 @@ public class SoilCarbonPredictorCompartments implements MonteCarloSimulationComp
 //    double Trange;                      // The difference between the maximum daily soil temperature and the minimum daily soil temperature in Celsius
 
 	double[] dailySoilTemperature;
+	double[] dailyTemperatureModifiers;		// computed from dailySoilTemperature on demand and never modified afterwards
 	
 	public double C1;     // Water soluble litter
     public double C2;     // Acid-soluble litter
@@ -167,6 +168,35 @@ public class SoilCarbonPredictorCompartments implements MonteCarloSimulationComp
         return result;
     }
 
+    /**
+     * Provide the carbon stocks of compartments C1 to C11.
+     * @return an 11-slot array of double
+     */
+    double[] getStocks() {
+    	return new double[] {C1, C2, C3, C4, C5, C6, C7, C8, C9, C10, C11};
+    }
+
+    /**
+     * Set the carbon stocks of compartments C1 to C11.
+     * @param stocks an 11-slot array of double
+     */
+    void setStocks(double[] stocks) {
+    	if (stocks.length != 11) {
+    		throw new InvalidParameterException("The stocks array is expected to have 11 slots!");
+    	}
+    	C1 = stocks[0];
+    	C2 = stocks[1];
+    	C3 = stocks[2];
+    	C4 = stocks[3];
+    	C5 = stocks[4];
+    	C6 = stocks[5];
+    	C7 = stocks[6];
+    	C8 = stocks[7];
+    	C9 = stocks[8];
+    	C10 = stocks[9];
+    	C11 = stocks[10];
+    }
+
     /**
      * Returns the sum of litter bins
      * @return the sum of the litter bins in grams of carbon per squared meter
@@ -237,6 +267,7 @@ public class SoilCarbonPredictorCompartments implements MonteCarloSimulationComp
         	if (clone.dailySoilTemperature != null) {
         		clone.dailySoilTemperature = Arrays.copyOf(dailySoilTemperature, dailySoilTemperature.length);
         	}
+        	clone.dailyTemperatureModifiers = getDailyTemperatureModifiers();	// the table is shared since it is never modified
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException("Could not clone SoilCarbonPredictorCompartments instance");
@@ -251,6 +282,7 @@ public class SoilCarbonPredictorCompartments implements MonteCarloSimulationComp
     public void setSoilTemperature(double mean, double range) {
     	if (dailySoilTemperature == null || dailySoilTemperature.length != 365) {
     		dailySoilTemperature = createDailyTemperatureFromMeanAndRange(mean, range);
+    		dailyTemperatureModifiers = null;
     	}
     }
 
@@ -284,6 +316,34 @@ public class SoilCarbonPredictorCompartments implements MonteCarloSimulationComp
     	dailySoilTemperature = fromAir ?
     			convertAirTemperatureToSoilTemperatureC(dailyTemperatureC) :
     				dailyTemperatureC;
+    	dailyTemperatureModifiers = null;
+    }
+
+    /**
+     * Set the daily soil temperature over the year and the corresponding
+     * temperature modifiers.<p>
+     * The modifiers are not recomputed. 
+     * @param temperatureModifiers a SoilCarbonPredictorTemperatureModifiers instance
+     */
+    public void setSoilTemperature(SoilCarbonPredictorTemperatureModifiers temperatureModifiers) {
+    	if (temperatureModifiers == null) {
+    		throw new InvalidParameterException("The temperatureModifiers argument cannot be null!");
+    	}
+    	dailySoilTemperature = temperatureModifiers.dailySoilTemperature;
+    	dailyTemperatureModifiers = temperatureModifiers.dailyTemperatureModifiers;
+    }
+
+    /**
+     * Provide the daily temperature modifiers.<p>
+     * The modifiers are computed from the daily soil temperature on the first call
+     * and then reused until the temperature changes.
+     * @return an array of double or null if the daily soil temperature has not been set
+     */
+    double[] getDailyTemperatureModifiers() {
+    	if (dailyTemperatureModifiers == null && dailySoilTemperature != null) {
+    		dailyTemperatureModifiers = SoilCarbonPredictorEquation.Weibull_getDailyTemperatureModifiers(dailySoilTemperature);
+    	}
+    	return dailyTemperatureModifiers;
     }
     
     
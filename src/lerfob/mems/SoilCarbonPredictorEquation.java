@@ -594,8 +594,18 @@ class SoilCarbonPredictorEquation {
      * return the actual sorption
      */
     static double Eq37_getSorption(SoilCarbonPredictorCompartments compartments, double K_lm, double Q_max) {
-        double C8 = compartments.C8;
-        double C9 = compartments.C9;
+        return Eq37_getSorption(compartments.C8, compartments.C9, K_lm, Q_max);
+    }
+
+    /**
+     * Calculate the sorption.
+     * @param C8 the carbon stock in compartment C8
+     * @param C9 the carbon stock in compartment C9
+     * @param K_lm the binding affinity factor (Eq.35)
+     * @param Q_max the sorption capacity (Eq.36)
+     * @return the actual sorption
+     */
+    static double Eq37_getSorption(double C8, double C9, double K_lm, double Q_max) {
         // TODO : check if K_lm and j_K_lm are really the same variable here
         return C8 * (K_lm * Q_max * C8 / (1 + K_lm * C8) - C9) / Q_max;
     }
@@ -729,6 +739,21 @@ class SoilCarbonPredictorEquation {
     	return soilT <= 0.0 ? 0.0 : 1.0 - Math.exp(-soilT * 0.125 * soilT * 0.125);
     }
 
+    /**
+     * Tabulate the temperature modifier over the days of a year.<p>
+     * The modifier does not depend on the parameters of the model. The table can therefore be shared
+     * by all the parameter vectors.
+     * @param dailySoilTemperature an array of daily soil temperatures (C)
+     * @return an array of daily temperature modifiers with the same length
+     */
+    static double[] Weibull_getDailyTemperatureModifiers(double[] dailySoilTemperature) {
+    	double[] dailyTemperatureModifiers = new double[dailySoilTemperature.length];
+    	for (int day = 0; day < dailySoilTemperature.length; day++) {
+    		dailyTemperatureModifiers[day] = Weibull_getTemperatureModifier(null, dailySoilTemperature[day]);
+    	}
+    	return dailyTemperatureModifiers;
+    }
+
     /**
      * Calculate the soil temperature
      * @param julianDay the julian day index to get the temperature for
@@ -0,0 +1,153 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+/**
+ * The SoilCarbonPredictorEquilibrium class provides the carbon stocks of the compartments
+ * under constant inputs and a constant annual temperature profile. <p>
+ * The stocks can be obtained either through a spin-up, i.e. a fixed number of annual
+ * iterations, or through a steady-state solver. The solver iterates the annual map and
+ * applies an Aitken extrapolation to each compartment every two years. The compartments
+ * C7 (emitted CO2) and C11 (leached DOM) are cumulative sinks that do not affect the
+ * dynamics of the other compartments. They are therefore not considered in the
+ * convergence criterion and they do not reach a steady state.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class SoilCarbonPredictorEquilibrium {
+
+	/**
+	 * The methods available to estimate the initial carbon stocks.
+	 */
+	public static enum SpinUpMethod {
+		/**
+		 * A fixed number of annual iterations.
+		 */
+		BruteForce,
+		/**
+		 * Annual iterations with Aitken extrapolation until the stocks stabilize.
+		 */
+		SteadyState;
+	}
+
+	/**
+	 * The number of annual iterations of the original spin-up.
+	 */
+	public static final int DefaultNbYears = 1000;
+
+	/**
+	 * The default tolerance on the relative annual change of the stocks.
+	 */
+	public static final double DefaultTolerance = 1E-9;
+
+	/**
+	 * The indices of the compartments that reach a steady state (all but C7 and C11).
+	 */
+	private static final int[] StateIndices = new int[] {0, 1, 2, 3, 4, 5, 7, 8, 9};
+
+	private SoilCarbonPredictorEquilibrium() {}
+
+	/**
+	 * Run the predictor for a fixed number of years.
+	 * @param predictor a SoilCarbonPredictor instance
+	 * @param compartments a SoilCarbonPredictorCompartments instance whose stocks are updated
+	 * @param inputs a SoilCarbonPredictorInput instance
+	 * @param nbYears the number of years
+	 */
+	public static void spinUp(SoilCarbonPredictor predictor,
+			SoilCarbonPredictorCompartments compartments,
+			SoilCarbonPredictorInput inputs,
+			int nbYears) {
+		for (int i = 0; i < nbYears; i++) {
+			predictor.predictAnnualCStocks(compartments, inputs);
+		}
+	}
+
+	/**
+	 * Iterate the annual map until the stocks of the compartments stabilize. <p>
+	 * An Aitken extrapolation is applied to each compartment whose successive changes decrease
+	 * geometrically. The extrapolation is abandoned if it increases the annual change of the stocks,
+	 * in which case the method falls back on plain annual iterations.
+	 * @param predictor a SoilCarbonPredictor instance
+	 * @param compartments a SoilCarbonPredictorCompartments instance whose stocks are updated
+	 * @param inputs a SoilCarbonPredictorInput instance
+	 * @param tolerance the tolerance on the relative annual change of the stocks
+	 * @param maxNbYears the maximum number of annual iterations
+	 * @return the number of annual iterations
+	 */
+	public static int solve(SoilCarbonPredictor predictor,
+			SoilCarbonPredictorCompartments compartments,
+			SoilCarbonPredictorInput inputs,
+			double tolerance,
+			int maxNbYears) {
+		double[] x0 = compartments.getStocks();
+		boolean accelerationEnabled = true;
+		double previousChange = Double.POSITIVE_INFINITY;
+		int nbYears = 0;
+		while (nbYears < maxNbYears) {
+			predictor.predictAnnualCStocks(compartments, inputs);
+			double[] x1 = compartments.getStocks();
+			predictor.predictAnnualCStocks(compartments, inputs);
+			double[] x2 = compartments.getStocks();
+			nbYears += 2;
+			double relativeChange = getRelativeChange(x1, x2);
+			if (relativeChange < tolerance) {
+				break;
+			}
+			if (relativeChange > previousChange) {	// the extrapolation does not help
+				accelerationEnabled = false;
+			}
+			previousChange = relativeChange;
+			if (accelerationEnabled) {
+				double[] xa = x2.clone();
+				for (int i : StateIndices) {
+					double d1 = x1[i] - x0[i];
+					double d2 = x2[i] - x1[i];
+					if (d1 != 0d) {
+						double ratio = d2 / d1;
+						if (ratio > 0d && ratio < 1d) {	// geometric convergence
+							double extrapolatedValue = x2[i] + d2 * ratio / (1d - ratio);
+							if (extrapolatedValue >= 0d) {
+								xa[i] = extrapolatedValue;
+							}
+						}
+					}
+				}
+				compartments.setStocks(xa);
+				x0 = xa;
+			} else {
+				x0 = x2;
+			}
+		}
+		return nbYears;
+	}
+
+	/**
+	 * Provide the maximum absolute change of the state compartments relative to the maximum stock.
+	 */
+	static double getRelativeChange(double[] before, double[] after) {
+		double maxChange = 0d;
+		double maxStock = 0d;
+		for (int i : StateIndices) {
+			maxChange = Math.max(maxChange, Math.abs(after[i] - before[i]));
+			maxStock = Math.max(maxStock, Math.abs(after[i]));
+		}
+		return maxStock == 0d ? maxChange : maxChange / maxStock;
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.InvalidParameterException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import lerfob.mems.SoilCarbonPredictorEquilibrium.SpinUpMethod;
+import repicea.math.Matrix;
+import repicea.util.REpiceaLogManager;
+
+/**
+ * The SoilCarbonPredictorEquilibriumCache class stores the initial carbon stocks of the
+ * compartments so that the spin-up is run only once for a given set of conditions. <p>
+ * The stocks are identified by a hash of the parameter vector, the inputs, the daily soil
+ * temperature, the initial stocks and the spin-up method. They are kept in memory and, if a
+ * directory has been set, on disk as well, so that they can be reused across sessions.
+ * The cache is thread-safe. <p>
+ * The stocks are estimated through the brute-force spin-up by default. The steady-state solver
+ * is faster but it is an opt-in through the {@link #setSpinUpMethod(SpinUpMethod)} method.
+ * @author Mathieu Fortin - March 2025
+ */
+public class SoilCarbonPredictorEquilibriumCache {
+
+	private static final String FileExtension = ".mems";
+	private static final String LoggerName = "mems.log";
+
+	private final Map<String, double[]> stocksMap;
+	private SpinUpMethod method;
+	private File directory;
+
+	/**
+	 * Constructor for an in-memory cache that relies on the brute-force spin-up.
+	 */
+	public SoilCarbonPredictorEquilibriumCache() {
+		stocksMap = new ConcurrentHashMap<String, double[]>();
+		method = SpinUpMethod.BruteForce;
+	}
+
+	/**
+	 * Set the directory in which the stocks are saved.
+	 * @param directory a File instance or null to disable the on-disk cache
+	 */
+	public void setDirectory(File directory) {
+		if (directory != null && !directory.isDirectory()) {
+			throw new InvalidParameterException("The directory " + directory.getAbsolutePath() + " does not exist!");
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * Set the method used to estimate the initial stocks.
+	 * @param method a SpinUpMethod enum
+	 */
+	public void setSpinUpMethod(SpinUpMethod method) {
+		if (method == null) {
+			throw new InvalidParameterException("The method argument cannot be null!");
+		}
+		this.method = method;
+	}
+
+	/**
+	 * Provide the method used to estimate the initial stocks.
+	 * @return a SpinUpMethod enum
+	 */
+	public SpinUpMethod getSpinUpMethod() {return method;}
+
+	/**
+	 * Provide the initial carbon stocks.<p>
+	 * The stocks are retrieved from the cache if they have already been estimated. Otherwise, they are
+	 * estimated using the spin-up method of this cache and then stored.
+	 * @param parms the parameter vector (see {@link SoilCarbonPredictor#setParms(Matrix)})
+	 * @param initialCompartments a SoilCarbonPredictorCompartments instance with the stocks and the daily soil temperature at the beginning of the spin-up
+	 * @param inputs a SoilCarbonPredictorInput instance
+	 * @return a new SoilCarbonPredictorCompartments instance
+	 */
+	public SoilCarbonPredictorCompartments getInitialCompartments(Matrix parms,
+			SoilCarbonPredictorCompartments initialCompartments,
+			SoilCarbonPredictorInput inputs) {
+		SpinUpMethod currentMethod = method;
+		String key = getKey(parms, initialCompartments, inputs, currentMethod);
+		double[] stocks = stocksMap.get(key);
+		if (stocks == null) {
+			stocks = readStocks(key);
+			if (stocks == null) {
+				stocks = estimateStocks(parms, initialCompartments, inputs, currentMethod);
+				writeStocks(key, stocks);
+			}
+			stocksMap.put(key, stocks);
+		}
+		SoilCarbonPredictorCompartments compartments = initialCompartments.clone();
+		compartments.setStocks(stocks);
+		return compartments;
+	}
+
+	private static double[] estimateStocks(Matrix parms,
+			SoilCarbonPredictorCompartments initialCompartments,
+			SoilCarbonPredictorInput inputs,
+			SpinUpMethod method) {
+		SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+		predictor.setParms(parms);
+		SoilCarbonPredictorCompartments compartments = initialCompartments.clone();
+		switch(method) {
+		case BruteForce:
+			SoilCarbonPredictorEquilibrium.spinUp(predictor, compartments, inputs, SoilCarbonPredictorEquilibrium.DefaultNbYears);
+			break;
+		case SteadyState:
+			SoilCarbonPredictorEquilibrium.solve(predictor, compartments, inputs, SoilCarbonPredictorEquilibrium.DefaultTolerance, SoilCarbonPredictorEquilibrium.DefaultNbYears);
+			break;
+		}
+		return compartments.getStocks();
+	}
+
+	/**
+	 * Provide the number of stocks in memory.
+	 * @return an integer
+	 */
+	public int size() {return stocksMap.size();}
+
+	/**
+	 * Clear the stocks in memory. The stocks saved on disk are not deleted.
+	 */
+	public void clear() {
+		stocksMap.clear();
+	}
+
+	static String getKey(Matrix parms,
+			SoilCarbonPredictorCompartments initialCompartments,
+			SoilCarbonPredictorInput inputs,
+			SpinUpMethod method) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {	// every implementation of the Java platform supports SHA-256
+			throw new InternalError(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES);
+		digest.update(method.name().getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < parms.m_iRows; i++) {
+			update(digest, buffer, parms.getValueAt(i, 0));
+		}
+		digest.update(inputs.landType.name().getBytes(StandardCharsets.UTF_8));
+		update(digest, buffer, inputs.CT_i);
+		update(digest, buffer, inputs.depthCm == null ? 0d : inputs.depthCm);
+		update(digest, buffer, inputs.soil_pH);
+		update(digest, buffer, inputs.bulkDensity);
+		update(digest, buffer, inputs.sandProportion);
+		update(digest, buffer, inputs.rockProportion);
+		for (double value : initialCompartments.getStocks()) {
+			update(digest, buffer, value);
+		}
+		if (initialCompartments.dailySoilTemperature != null) {
+			for (double value : initialCompartments.dailySoilTemperature) {
+				update(digest, buffer, value);
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer buffer, double value) {
+		buffer.clear();
+		buffer.putDouble(value);
+		digest.update(buffer.array());
+	}
+
+	/*
+	 * The on-disk cache is optional. A file that cannot be read or written does not stop the 
+	 * simulation but it is reported in the log.
+	 */
+	private double[] readStocks(String key) {
+		File directory = this.directory;
+		if (directory != null) {
+			File file = new File(directory, key + FileExtension);
+			if (file.exists()) {
+				try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+					double[] stocks = new double[11];
+					for (int i = 0; i < stocks.length; i++) {
+						stocks[i] = dis.readDouble();
+					}
+					return stocks;
+				} catch (IOException e) {
+					REpiceaLogManager.logMessage(LoggerName, Level.WARNING, getClass().getSimpleName(), 
+							"Unable to read the stocks in file " + file.getAbsolutePath() + ": " + e.getMessage());
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void writeStocks(String key, double[] stocks) {
+		File directory = this.directory;
+		if (directory != null) {
+			File tmpFile = null;
+			try {
+				tmpFile = File.createTempFile(key, ".tmp", directory);
+				try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(tmpFile))) {
+					for (double value : stocks) {
+						dos.writeDouble(value);
+					}
+				}
+				Files.move(tmpFile.toPath(), new File(directory, key + FileExtension).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				REpiceaLogManager.logMessage(LoggerName, Level.WARNING, getClass().getSimpleName(), 
+						"Unable to save the stocks in directory " + directory.getAbsolutePath() + ": " + e.getMessage());
+				if (tmpFile != null) {
+					tmpFile.delete();
+				}
+			}
+		}
+	}
+}
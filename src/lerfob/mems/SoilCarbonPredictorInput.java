@@ -60,6 +60,8 @@ public class SoilCarbonPredictorInput implements PostUnmarshalling {
     final double sandProportion;	// contenu en sable (%) du sol simule [0-100]
     final double rockProportion;  // fraction de roches (%) du sol simule [0-100]
     Double depthCm;
+    double K_lm;					// binding affinity (Eq35), which depends on the soil only
+    double Q_max;					// maximum sorption capacity (Eq36), which depends on the soil only
     
     /**
      * Constructor.
@@ -86,6 +88,12 @@ public class SoilCarbonPredictorInput implements PostUnmarshalling {
         this.bulkDensity = bulkDensity;
         this.sandProportion = sandProportion;
         this.rockProportion = rockProportion;
+        setSorptionConstants();
+    }
+
+    private void setSorptionConstants() {
+    	K_lm = SoilCarbonPredictorEquation.Eq35_getBindingAffinityL_k_lm(soil_pH);
+    	Q_max = SoilCarbonPredictorEquation.Eq36_getMaximumSorptionCapacityQ_max(bulkDensity, sandProportion, rockProportion);
     }
 
     /**
@@ -116,6 +124,21 @@ public class SoilCarbonPredictorInput implements PostUnmarshalling {
     		rockProportion);
     }
     
+    /**
+     * Copy constructor.<p>
+     * The daily input of the copy is set to the original daily input.
+     * @param original the SoilCarbonPredictorInput instance to be copied
+     */
+    public SoilCarbonPredictorInput(SoilCarbonPredictorInput original) {
+    	this(original.landType,
+    		original.originalCT_i,
+    		original.depthCm,
+    		original.soil_pH,
+    		original.bulkDensity,
+    		original.sandProportion,
+    		original.rockProportion);
+    }
+    
     static double getCT_iFromAnnualNPP(LandType landType, double depth_cm, double Annual_NPP_aboveGround_CgM2, double Annual_NPP_belowGround_CgM2) {
         double correctedDailyBelowGroundCarbon = SoilCarbonPredictorEquation.Eq53_getCorrectedBelowGroundCarbonInput(Annual_NPP_belowGround_CgM2 / 365.0, 
         		depth_cm, 
@@ -139,6 +162,7 @@ public class SoilCarbonPredictorInput implements PostUnmarshalling {
 		if (originalCT_i == 0d) {
 			originalCT_i = CT_i;
 		}
+		setSorptionConstants();
 	}
 	
 	public void reset() {
@@ -27,13 +27,29 @@ import repicea.stats.distributions.GaussianDistribution;
 import repicea.stats.estimators.mcmc.*;
 import repicea.stats.distributions.UniformDistribution;
 
+import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * An implementation of MetropolisHastingsCompatibleModel for MEMS.
+ * An implementation of MetropolisHastingsCompatibleModel for MEMS.<p>
+ * By default, the likelihood of a parameter vector is based on the stocks after a 500-year spin-up. If a
+ * convergence tolerance is set, the spin-up is replaced by the steady-state solver of the
+ * SoilCarbonPredictorEquilibrium class, which stops as soon as the stocks stabilize. The solver can 
+ * then be warm-started from the equilibrium of the current state of the chain, since the successive 
+ * proposals of the Markov chain are small perturbations of this state. The chain must notify the model
+ * of each accepted proposal through the acceptLastEvaluation method. The warm start makes the 
+ * log-likelihood of a proposal depend on the current state of the chain within the convergence tolerance. 
+ * The chain then no longer satisfies the detailed balance exactly and it samples an approximation of 
+ * the posterior. The approximation error is bounded by the tolerance and the sampler is exact only 
+ * without the warm start.<p>
+ * A surrogate log-likelihood, which relies on the steady-state solver with a loose tolerance, can also 
+ * be enabled. It allows the chain to screen the proposals before evaluating the full log-likelihood 
+ * (delayed acceptance). The surrogate is always evaluated from the same reference state, so that it 
+ * only depends on the parameters. This condition is required for the delayed acceptance to leave the 
+ * target distribution unchanged.
  * @author Jean-Francois Lavoie - March 2024
  */
 public class SoilCarbonPredictorMetropolisHastingsModel implements MetropolisHastingsCompatibleModel {
@@ -51,13 +67,96 @@ public class SoilCarbonPredictorMetropolisHastingsModel implements MetropolisHas
     double meanSoil;
     double meanLitter;
 
+    /**
+     * The number of years of the original spin-up.
+     */
+    static final int DefaultNbYears = 500;
+
+    private double tolerance;
+    private boolean warmStartEnabled;
+    private transient double[] lastEquilibriumStocks;
+    private transient double[] acceptedEquilibriumStocks;
+    private transient long nbSimulatedYears;
+
+    private double surrogateTolerance;
+    private transient double[] referenceSurrogateStocks;
+
     SoilCarbonPredictorMetropolisHastingsModel(SoilCarbonPredictorCompartments compartments, SoilCarbonPredictorInput input) {
         this.compartments = compartments;
+        compartments.getDailyTemperatureModifiers();	// computed once and shared by the clones of the likelihood evaluations
         this.input = input;
 
         predictor = new SoilCarbonPredictor(false);
     }
 
+    /**
+     * Set the tolerance on the relative annual change of the stocks.<p>
+     * A tolerance greater than 0 replaces the 500-year spin-up by the steady-state solver, which 
+     * runs at most 500 years.
+     * @param tolerance a double (0 to use the original spin-up)
+     * @see SoilCarbonPredictorEquilibrium#solve(SoilCarbonPredictor, SoilCarbonPredictorCompartments, SoilCarbonPredictorInput, double, int)
+     */
+    public void setConvergenceTolerance(double tolerance) {
+    	if (tolerance < 0d) {
+    		throw new InvalidParameterException("The tolerance argument must be equal to or greater than 0!");
+    	}
+    	this.tolerance = tolerance;
+    	lastEquilibriumStocks = null;
+    	acceptedEquilibriumStocks = null;
+    }
+
+    /**
+     * Enable or disable the warm start of the steady-state solver.<p>
+     * The warm start has no effect as long as the convergence tolerance is 0. Otherwise, the chain samples
+     * an approximation of the posterior (see the class documentation).
+     * @param warmStartEnabled a boolean
+     * @see SoilCarbonPredictorMetropolisHastingsModel#setConvergenceTolerance(double)
+     */
+    public void setWarmStartEnabled(boolean warmStartEnabled) {
+    	this.warmStartEnabled = warmStartEnabled;
+    	lastEquilibriumStocks = null;
+    	acceptedEquilibriumStocks = null;
+    }
+
+    /**
+     * Enable or disable the surrogate log-likelihood.<p>
+     * The surrogate relies on the steady-state solver with a tolerance that should be much looser than 
+     * the convergence tolerance (e.g. 1E-4). The solver always starts from a reference state, which is the 
+     * surrogate equilibrium of the first parameters evaluated after this call. This reference is never 
+     * updated afterwards, even if the chain moves away from these parameters.
+     * @param surrogateTolerance the tolerance on the relative annual change of the stocks (0 to disable the surrogate)
+     * @see SoilCarbonPredictorMetropolisHastingsModel#getSurrogateLogLikelihood(Matrix)
+     */
+    public void setSurrogateTolerance(double surrogateTolerance) {
+    	if (surrogateTolerance < 0d) {
+    		throw new InvalidParameterException("The surrogateTolerance argument must be equal to or greater than 0!");
+    	}
+    	this.surrogateTolerance = surrogateTolerance;
+    	referenceSurrogateStocks = null;
+    }
+
+    /**
+     * Indicate whether the surrogate log-likelihood is enabled.
+     * @return a boolean
+     */
+    public boolean isSurrogateEnabled() {return surrogateTolerance > 0d;}
+
+    /**
+     * Notify the model that the parameters of the last evaluation have become the current state of the chain.<p>
+     * The equilibrium stocks of this evaluation are then used to warm-start the solver in the next evaluations.
+     * The log-likelihood of the accepted parameters must have been evaluated last. The surrogate log-likelihood
+     * is not affected.
+     */
+    public void acceptLastEvaluation() {
+    	acceptedEquilibriumStocks = lastEquilibriumStocks;
+    }
+
+    /**
+     * Provide the number of years simulated in the likelihood evaluations so far.
+     * @return a long
+     */
+    long getNbSimulatedYears() {return nbSimulatedYears;}
+
     // MetropolisHastingsCompatibleModel implementation
     @Override
     public double getLogLikelihood(Matrix parms) {
@@ -65,10 +164,50 @@ public class SoilCarbonPredictorMetropolisHastingsModel implements MetropolisHas
 
         SoilCarbonPredictorCompartments localCompartments = compartments.clone();
 
-        for (int i = 0; i < 500; i++) {
-            predictor.predictAnnualCStocks(localCompartments, input);
+        if (tolerance > 0d) {
+        	if (warmStartEnabled && acceptedEquilibriumStocks != null) {
+        		localCompartments.setStocks(acceptedEquilibriumStocks);
+        	}
+        	nbSimulatedYears += SoilCarbonPredictorEquilibrium.solve(predictor, localCompartments, input, tolerance, DefaultNbYears);
+        	if (warmStartEnabled) {
+        		lastEquilibriumStocks = localCompartments.getStocks();
+        	}
+        } else {
+        	SoilCarbonPredictorEquilibrium.spinUp(predictor, localCompartments, input, DefaultNbYears);
+        	nbSimulatedYears += DefaultNbYears;
         }
 
+        return getLogLikelihood(parms, localCompartments);
+    }
+
+    /**
+     * Provide a cheap approximation of the log-likelihood.<p>
+     * The steady-state solver stops as soon as the relative annual change of the stocks is below the 
+     * surrogate tolerance, which requires far fewer simulated years than the full log-likelihood. The 
+     * solver starts from the reference state and not from the current state of the chain, so that the 
+     * surrogate is a deterministic function of the parameters.
+     * @param parms the parameters
+     * @return a double
+     * @see SoilCarbonPredictorMetropolisHastingsModel#setSurrogateTolerance(double)
+     */
+    public double getSurrogateLogLikelihood(Matrix parms) {
+    	if (!isSurrogateEnabled()) {
+    		throw new UnsupportedOperationException("The surrogate log-likelihood has not been enabled!");
+    	}
+    	predictor.setParms(parms);
+
+    	SoilCarbonPredictorCompartments localCompartments = compartments.clone();
+    	if (referenceSurrogateStocks == null) {	// the reference is the equilibrium of the first parameters
+    		SoilCarbonPredictorEquilibrium.solve(predictor, localCompartments, input, surrogateTolerance, DefaultNbYears);
+    		referenceSurrogateStocks = localCompartments.getStocks();
+    	}
+    	localCompartments.setStocks(referenceSurrogateStocks);
+    	SoilCarbonPredictorEquilibrium.solve(predictor, localCompartments, input, surrogateTolerance, DefaultNbYears);
+
+    	return getLogLikelihood(parms, localCompartments);
+    }
+
+    private double getLogLikelihood(Matrix parms, SoilCarbonPredictorCompartments localCompartments) {
         meanSoil = localCompartments.getSoilBinsgCm2() / 100.0;
         meanLitter = localCompartments.getLitterBinsgCm2() / 100.0;
 
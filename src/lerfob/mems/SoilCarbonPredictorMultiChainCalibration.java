@@ -0,0 +1,626 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import lerfob.mems.MEMSSite.SiteType;
+import lerfob.mems.SoilCarbonPredictor.MCParam;
+import repicea.math.Matrix;
+import repicea.util.REpiceaLogManager;
+
+/**
+ * The SoilCarbonPredictorMultiChainCalibration class calibrates MEMS with several independent 
+ * Metropolis-Hastings chains running in parallel. <p>
+ * Each chain has its own SoilCarbonPredictorMetropolisHastingsModel instance, and consequently its 
+ * own SoilCarbonPredictor instance, and its own random generator, whose seed derives from the seed
+ * of the calibration. The chains use a random-walk proposal whose scale is adapted during 
+ * the burn-in and uniform priors over the ranges of the MCParam enum. If the surrogate log-likelihood is 
+ * enabled, the proposals go through a two-stage delayed acceptance: they are first screened with the 
+ * surrogate and the full log-likelihood is evaluated only for those that pass the screen. The second stage
+ * corrects for the surrogate, which is evaluated from a fixed reference state, so that the delayed acceptance 
+ * does not change the distribution targeted by the chains. This distribution is the exact posterior only if the 
+ * full log-likelihood is not warm-started. With the warm start, the log-likelihood of a proposal depends on the 
+ * current state of the chain within the convergence tolerance and the chains sample an approximation of the 
+ * posterior. <p>
+ * The chains are run by blocks of iterations. After each block, the Gelman-Rubin statistic (R-hat) and 
+ * the pooled effective sample size are computed from running sums that are updated with each retained draw, 
+ * so that the cost of a convergence check does not grow with the number of draws. The calibration stops 
+ * as soon as all the R-hat values are below a threshold and the smallest effective sample size is 
+ * above a minimum, or when the maximum number of iterations is reached. The pooled draws can be 
+ * written directly in the compact site format.
+ * @author Mathieu Fortin - March 2025
+ * @see MEMSSiteBinaryFormat
+ */
+public class SoilCarbonPredictorMultiChainCalibration {
+
+	private static final String LoggerName = "mh.log";
+	private static final double TargetAcceptanceRate = 0.234;
+
+	/**
+	 * The maximum lag of the autocorrelations in the effective sample size.
+	 */
+	static final int MaxLag = 500;
+
+	/**
+	 * The running sums of the retained draws of a chain. <p>
+	 * The draws are centered on the first one to limit the round-off errors. The products of the draws 
+	 * at lags 1 to MaxLag are accumulated as the draws are added, along with the first and last MaxLag draws 
+	 * that are needed to center the autocovariances on the mean.
+	 */
+	static class RunningStatistics {
+
+		private final int nbParms;
+		private double[] origin;
+		private final double[] sums;
+		private final double[] sumsOfSquares;
+		private final double[][] laggedProducts;	// parameters x lags
+		private final double[][] firstDraws;		// the first MaxLag centered draws
+		private final double[][] lastDraws;			// circular buffer of the last MaxLag centered draws
+		private int n;
+
+		RunningStatistics(int nbParms) {
+			this.nbParms = nbParms;
+			sums = new double[nbParms];
+			sumsOfSquares = new double[nbParms];
+			laggedProducts = new double[nbParms][MaxLag + 1];
+			firstDraws = new double[MaxLag][];
+			lastDraws = new double[MaxLag][];
+		}
+
+		void add(double[] draw) {
+			if (origin == null) {
+				origin = draw.clone();
+			}
+			double[] y = new double[nbParms];
+			for (int p = 0; p < nbParms; p++) {
+				y[p] = draw[p] - origin[p];
+				sums[p] += y[p];
+				sumsOfSquares[p] += y[p] * y[p];
+			}
+			int maxLag = Math.min(MaxLag, n);
+			for (int lag = 1; lag <= maxLag; lag++) {
+				double[] previous = lastDraws[(n - lag) % MaxLag];
+				for (int p = 0; p < nbParms; p++) {
+					laggedProducts[p][lag] += previous[p] * y[p];
+				}
+			}
+			if (n < MaxLag) {
+				firstDraws[n] = y;
+			}
+			lastDraws[n % MaxLag] = y;
+			n++;
+		}
+
+		int getNumberOfDraws() {return n;}
+
+		double getMean(int p) {
+			return origin[p] + sums[p] / n;
+		}
+
+		/*
+		 * The sum of squared deviations from the mean.
+		 */
+		double getSumOfSquares(int p) {
+			double centeredMean = sums[p] / n;
+			return Math.max(0d, sumsOfSquares[p] - n * centeredMean * centeredMean);
+		}
+
+		/*
+		 * The autocovariances of lags 1 to maxLag, divided by n as in the usual estimator.
+		 */
+		double[] getAutocovariances(int p, int maxLag) {
+			double m = sums[p] / n;
+			double[] autocovariances = new double[maxLag + 1];
+			double sumOfFirst = 0d;
+			double sumOfLast = 0d;
+			for (int lag = 1; lag <= maxLag; lag++) {
+				sumOfFirst += firstDraws[lag - 1][p];
+				sumOfLast += lastDraws[(n - lag) % MaxLag][p];
+				double sumOfLeading = sums[p] - sumOfLast;	// draws 0 to n - lag - 1
+				double sumOfTrailing = sums[p] - sumOfFirst;	// draws lag to n - 1
+				autocovariances[lag] = (laggedProducts[p][lag] - m * (sumOfLeading + sumOfTrailing) + (n - lag) * m * m) / n;
+			}
+			return autocovariances;
+		}
+	}
+
+	/**
+	 * A single Metropolis-Hastings chain.
+	 */
+	private static class Chain implements Callable<Void> {
+
+		private final SoilCarbonPredictorMetropolisHastingsModel model;
+		private final Random random;
+		private final double[] proposalScales;
+		private final List<double[]> draws;
+		private final RunningStatistics statistics;
+		private double[] currentParms;
+		private double currentLlk;
+		private double currentSurrogateLlk;
+		private int nbIterations;
+		private int nbFullEvaluations;
+		private int nbAccepted;
+		private int nbAcceptedInBlock;
+		private int nbIterationsForThisBlock;
+		private boolean isInBurnIn;
+		private int oneEach;
+
+		private Chain(SoilCarbonPredictorMetropolisHastingsModel model, long seed, double proposalScale) {
+			this.model = model;
+			random = new Random(seed);
+			MCParam[] parms = MCParam.values();
+			proposalScales = new double[parms.length];
+			currentParms = new double[parms.length];
+			for (MCParam p : parms) {
+				double range = p.getRangeMax() - p.getRangeMin();
+				proposalScales[p.ordinal()] = range * proposalScale;
+				// overdispersed starting values around the initial values
+				double value = p.getInitialValue() + (random.nextDouble() - .5) * .2 * range;
+				currentParms[p.ordinal()] = Math.min(p.getRangeMax(), Math.max(p.getRangeMin(), value));
+			}
+			draws = new ArrayList<double[]>();
+			statistics = new RunningStatistics(parms.length);
+			currentLlk = Double.NaN;
+		}
+
+		private static Matrix toMatrix(double[] parms) {
+			Matrix m = new Matrix(parms.length, 1);
+			for (int i = 0; i < parms.length; i++) {
+				m.setValueAt(i, 0, parms[i]);
+			}
+			return m;
+		}
+
+		private static boolean isWithinPriorRanges(double[] parms) {
+			for (MCParam p : MCParam.values()) {
+				double value = parms[p.ordinal()];
+				if (value <= p.getRangeMin() || value >= p.getRangeMax()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Void call() {
+			boolean isSurrogateEnabled = model.isSurrogateEnabled();
+			if (Double.isNaN(currentLlk)) {
+				Matrix parms = toMatrix(currentParms);
+				currentLlk = model.getLogLikelihood(parms);
+				nbFullEvaluations++;
+				if (isSurrogateEnabled) {
+					currentSurrogateLlk = model.getSurrogateLogLikelihood(parms);
+				}
+				model.acceptLastEvaluation();
+			}
+			nbAcceptedInBlock = 0;
+			for (int iter = 0; iter < nbIterationsForThisBlock; iter++) {
+				double[] proposal = new double[currentParms.length];
+				for (int i = 0; i < proposal.length; i++) {
+					proposal[i] = currentParms[i] + random.nextGaussian() * proposalScales[i];
+				}
+				if (isWithinPriorRanges(proposal)) {	// uniform priors
+					Matrix parms = toMatrix(proposal);
+					double surrogateLogRatio = 0d;
+					double proposalSurrogateLlk = Double.NaN;
+					boolean isScreenPassed = true;
+					if (isSurrogateEnabled) {	// first stage of the delayed acceptance
+						proposalSurrogateLlk = model.getSurrogateLogLikelihood(parms);
+						surrogateLogRatio = proposalSurrogateLlk - currentSurrogateLlk;
+						isScreenPassed = Math.log(random.nextDouble()) < surrogateLogRatio;
+					}
+					if (isScreenPassed) {
+						double proposalLlk = model.getLogLikelihood(parms);
+						nbFullEvaluations++;
+						if (Math.log(random.nextDouble()) < proposalLlk - currentLlk - surrogateLogRatio) {
+							currentParms = proposal;
+							currentLlk = proposalLlk;
+							currentSurrogateLlk = proposalSurrogateLlk;
+							model.acceptLastEvaluation();
+							nbAccepted++;
+							nbAcceptedInBlock++;
+						}
+					}
+				}
+				nbIterations++;
+				if (!isInBurnIn && nbIterations % oneEach == 0) {
+					draws.add(currentParms.clone());
+					statistics.add(currentParms);
+				}
+			}
+			if (isInBurnIn) {	// scale adaptation
+				double acceptanceRate = (double) nbAcceptedInBlock / nbIterationsForThisBlock;
+				double factor = Math.exp(acceptanceRate - TargetAcceptanceRate);
+				for (int i = 0; i < proposalScales.length; i++) {
+					proposalScales[i] *= factor;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final List<Chain> chains;
+	private final SoilCarbonPredictorInput inputs;
+	private int nbThreads;
+	private int nbBurnIn;
+	private int blockSize;
+	private int oneEach;
+	private int maxNbIterations;
+	private double rHatThreshold;
+	private double minEffectiveSampleSize;
+	private double[] lastRHat;
+	private double[] lastEffectiveSampleSize;
+
+	/**
+	 * Constructor.
+	 * @param compartments a SoilCarbonPredictorCompartments instance with the initial stocks and the daily soil temperature
+	 * @param inputs a SoilCarbonPredictorInput instance
+	 * @param dataFilename the file that contains the observed carbon stocks 
+	 * @param nbChains the number of chains
+	 * @param seed the seed of the random generators
+	 * @throws Exception if the data file cannot be read
+	 */
+	public SoilCarbonPredictorMultiChainCalibration(SoilCarbonPredictorCompartments compartments, 
+			SoilCarbonPredictorInput inputs, 
+			String dataFilename, 
+			int nbChains, 
+			long seed) throws Exception {
+		if (nbChains < 2) {
+			throw new InvalidParameterException("The nbChains argument must be equal to or greater than 2!");
+		}
+		this.inputs = inputs;
+		chains = new ArrayList<Chain>();
+		Random seedGenerator = new Random(seed);
+		for (int k = 0; k < nbChains; k++) {
+			SoilCarbonPredictorMetropolisHastingsModel model = new SoilCarbonPredictorMetropolisHastingsModel(compartments.clone(), new SoilCarbonPredictorInput(inputs));
+			model.readFile(dataFilename);
+			chains.add(new Chain(model, seedGenerator.nextLong(), .01));
+		}
+		nbThreads = Math.min(nbChains, Runtime.getRuntime().availableProcessors());
+		nbBurnIn = 20000;
+		blockSize = 1000;
+		oneEach = 50;
+		maxNbIterations = 520000;
+		rHatThreshold = 1.05;
+		minEffectiveSampleSize = 1000;
+	}
+
+	/**
+	 * Set the number of threads.
+	 * @param nbThreads an integer equal to or greater than 1
+	 */
+	public void setNumberOfThreads(int nbThreads) {
+		if (nbThreads < 1) {
+			throw new InvalidParameterException("The nbThreads argument must be equal to or greater than 1!");
+		}
+		this.nbThreads = nbThreads;
+	}
+
+	/**
+	 * Set the number of iterations of each chain.
+	 * @param nbBurnIn the number of burn-in iterations (must be a multiple of the block size)
+	 * @param blockSize the number of iterations between two convergence checks
+	 * @param oneEach the thinning of the retained draws
+	 * @param maxNbIterations the maximum number of iterations including the burn-in
+	 */
+	public void setIterations(int nbBurnIn, int blockSize, int oneEach, int maxNbIterations) {
+		if (blockSize < 1 || oneEach < 1 || nbBurnIn < 0 || nbBurnIn % blockSize != 0 || maxNbIterations <= nbBurnIn) {
+			throw new InvalidParameterException("The number of iterations are inconsistent!");
+		}
+		this.nbBurnIn = nbBurnIn;
+		this.blockSize = blockSize;
+		this.oneEach = oneEach;
+		this.maxNbIterations = maxNbIterations;
+	}
+
+	/**
+	 * Set the convergence criteria.
+	 * @param rHatThreshold the threshold of the Gelman-Rubin statistic (e.g. 1.05)
+	 * @param minEffectiveSampleSize the minimum pooled effective sample size
+	 */
+	public void setConvergenceCriteria(double rHatThreshold, double minEffectiveSampleSize) {
+		if (rHatThreshold <= 1d || minEffectiveSampleSize <= 0d) {
+			throw new InvalidParameterException("The convergence criteria are inconsistent!");
+		}
+		this.rHatThreshold = rHatThreshold;
+		this.minEffectiveSampleSize = minEffectiveSampleSize;
+	}
+
+	/**
+	 * Set the steady-state solver of the likelihood of each chain.
+	 * @param tolerance the tolerance on the relative annual change of the stocks
+	 * @param warmStartEnabled a boolean true to warm-start the solver, in which case the chains sample an approximation of the posterior 
+	 * @see SoilCarbonPredictorMetropolisHastingsModel#setConvergenceTolerance(double)
+	 */
+	public void setConvergenceTolerance(double tolerance, boolean warmStartEnabled) {
+		for (Chain chain : chains) {
+			chain.model.setConvergenceTolerance(tolerance);
+			chain.model.setWarmStartEnabled(warmStartEnabled);
+			chain.currentLlk = Double.NaN;
+		}
+	}
+
+	/**
+	 * Enable or disable the delayed acceptance.
+	 * @param surrogateTolerance the tolerance of the steady-state solver of the surrogate log-likelihood (0 to disable the delayed acceptance)
+	 * @see SoilCarbonPredictorMetropolisHastingsModel#setSurrogateTolerance(double)
+	 */
+	public void setDelayedAcceptance(double surrogateTolerance) {
+		for (Chain chain : chains) {
+			chain.model.setSurrogateTolerance(surrogateTolerance);
+			chain.currentLlk = Double.NaN;	// the current state must be evaluated with the surrogate
+		}
+	}
+
+	/**
+	 * Run the chains until convergence or until the maximum number of iterations is reached.
+	 * @return true if the convergence criteria have been met
+	 * @throws Exception if one of the chains fails
+	 */
+	public boolean run() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		try {
+			int nbIterations = 0;
+			while (nbIterations < maxNbIterations) {
+				int nbIterationsForThisBlock = Math.min(blockSize, maxNbIterations - nbIterations);
+				boolean isInBurnIn = nbIterations < nbBurnIn;
+				for (Chain chain : chains) {
+					chain.nbIterationsForThisBlock = nbIterationsForThisBlock;
+					chain.isInBurnIn = isInBurnIn;
+					chain.oneEach = oneEach;
+				}
+				List<Future<Void>> futures = executor.invokeAll(chains);
+				for (Future<Void> future : futures) {
+					future.get();	// to propagate the exceptions
+				}
+				nbIterations += nbIterationsForThisBlock;
+				if (!isInBurnIn && chains.get(0).draws.size() >= 4) {	// all the chains have the same number of draws
+					RunningStatistics[] statistics = new RunningStatistics[chains.size()];
+					for (int k = 0; k < statistics.length; k++) {
+						statistics[k] = chains.get(k).statistics;
+					}
+					lastRHat = getRHat(statistics);
+					lastEffectiveSampleSize = getEffectiveSampleSize(statistics);
+					REpiceaLogManager.logMessage(LoggerName, Level.FINE, getClass().getSimpleName(), 
+							"Iteration " + nbIterations + ": max R-hat = " + max(lastRHat) + "; min ESS = " + min(lastEffectiveSampleSize));
+					if (max(lastRHat) < rHatThreshold && min(lastEffectiveSampleSize) >= minEffectiveSampleSize) {
+						return true;
+					}
+				}
+			}
+			return false;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static double max(double[] values) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (double v : values) {
+			max = Math.max(max, v);
+		}
+		return max;
+	}
+
+	private static double min(double[] values) {
+		double min = Double.POSITIVE_INFINITY;
+		for (double v : values) {
+			min = Math.min(min, v);
+		}
+		return min;
+	}
+
+	private static RunningStatistics[] getStatistics(double[][][] draws) {
+		RunningStatistics[] statistics = new RunningStatistics[draws.length];
+		for (int k = 0; k < draws.length; k++) {
+			statistics[k] = new RunningStatistics(draws[k][0].length);
+			for (double[] draw : draws[k]) {
+				statistics[k].add(draw);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Provide the Gelman-Rubin statistic of each parameter.
+	 * @param draws an array chains x draws x parameters
+	 * @return an array of double
+	 */
+	static double[] getRHat(double[][][] draws) {
+		return getRHat(getStatistics(draws));
+	}
+
+	private static double[] getRHat(RunningStatistics[] statistics) {
+		int nbChains = statistics.length;
+		int n = statistics[0].getNumberOfDraws();
+		int nbParms = statistics[0].nbParms;
+		double[] rHat = new double[nbParms];
+		for (int p = 0; p < nbParms; p++) {
+			double[] means = new double[nbChains];
+			double w = 0d;
+			for (int k = 0; k < nbChains; k++) {
+				means[k] = statistics[k].getMean(p);
+				w += statistics[k].getSumOfSquares(p) / (n - 1);
+			}
+			w /= nbChains;
+			double grandMean = 0d;
+			for (double m : means) {
+				grandMean += m;
+			}
+			grandMean /= nbChains;
+			double b = 0d;
+			for (double m : means) {
+				b += (m - grandMean) * (m - grandMean);
+			}
+			b *= (double) n / (nbChains - 1);
+			double varHat = (n - 1d) / n * w + b / n;
+			rHat[p] = w > 0d ? Math.sqrt(varHat / w) : 1d;
+		}
+		return rHat;
+	}
+
+	/**
+	 * Provide the pooled effective sample size of each parameter.<p>
+	 * The autocorrelations are averaged across the chains and summed up to the first lag at which the sum
+	 * of two consecutive autocorrelations becomes negative (Geyer's initial positive sequence) or up to 
+	 * the lag MaxLag.
+	 * @param draws an array chains x draws x parameters
+	 * @return an array of double
+	 */
+	static double[] getEffectiveSampleSize(double[][][] draws) {
+		return getEffectiveSampleSize(getStatistics(draws));
+	}
+
+	private static double[] getEffectiveSampleSize(RunningStatistics[] statistics) {
+		int nbChains = statistics.length;
+		int n = statistics[0].getNumberOfDraws();
+		int nbParms = statistics[0].nbParms;
+		int maxLag = Math.min(MaxLag, n - 1);
+		double[] ess = new double[nbParms];
+		for (int p = 0; p < nbParms; p++) {
+			double[] meanAutocorrelations = new double[maxLag + 1];
+			int nbChainsWithVariance = 0;
+			for (int k = 0; k < nbChains; k++) {
+				double variance = statistics[k].getSumOfSquares(p) / n;
+				if (variance > 0d) {
+					double[] autocovariances = statistics[k].getAutocovariances(p, maxLag);
+					for (int lag = 1; lag <= maxLag; lag++) {
+						meanAutocorrelations[lag] += autocovariances[lag] / variance;
+					}
+					nbChainsWithVariance++;
+				}
+			}
+			for (int lag = 1; lag <= maxLag; lag++) {
+				meanAutocorrelations[lag] = nbChainsWithVariance > 0 ? meanAutocorrelations[lag] / nbChainsWithVariance : 1d;
+			}
+			double sumRho = 0d;
+			for (int lag = 1; lag < maxLag; lag += 2) {
+				double pair = meanAutocorrelations[lag] + meanAutocorrelations[lag + 1];
+				if (pair < 0d) {
+					break;
+				}
+				sumRho += pair;
+			}
+			ess[p] = nbChains * n / (1d + 2d * sumRho);
+		}
+		return ess;
+	}
+
+	/**
+	 * Provide the R-hat values of the last convergence check.
+	 * @return an array of double or null if no check has been made yet
+	 */
+	public double[] getRHat() {return lastRHat;}
+
+	/**
+	 * Provide the pooled effective sample sizes of the last convergence check.
+	 * @return an array of double or null if no check has been made yet
+	 */
+	public double[] getEffectiveSampleSize() {return lastEffectiveSampleSize;}
+
+	/**
+	 * Provide the acceptance rate of each chain.
+	 * @return an array of double
+	 */
+	public double[] getAcceptanceRates() {
+		double[] rates = new double[chains.size()];
+		for (int k = 0; k < rates.length; k++) {
+			Chain chain = chains.get(k);
+			rates[k] = chain.nbIterations == 0 ? 0d : (double) chain.nbAccepted / chain.nbIterations;
+		}
+		return rates;
+	}
+
+	/**
+	 * Provide the number of evaluations of the full log-likelihood of each chain.<p>
+	 * With the delayed acceptance, the proposals rejected by the surrogate do not require any evaluation of the 
+	 * full log-likelihood.
+	 * @return an array of integers
+	 */
+	public int[] getNbFullEvaluations() {
+		int[] nbEvaluations = new int[chains.size()];
+		for (int k = 0; k < nbEvaluations.length; k++) {
+			nbEvaluations[k] = chains.get(k).nbFullEvaluations;
+		}
+		return nbEvaluations;
+	}
+
+	/**
+	 * Provide the pooled draws of all the chains.
+	 * @return an array draws x parameters
+	 */
+	public double[][] getPooledDraws() {
+		List<double[]> pooledDraws = new ArrayList<double[]>();
+		for (Chain chain : chains) {
+			pooledDraws.addAll(chain.draws);
+		}
+		return pooledDraws.toArray(new double[pooledDraws.size()][]);
+	}
+
+	/**
+	 * Provide a MEMSSite instance with the pooled draws and their mean as final parameter estimates.<p>
+	 * If the chains have not produced any draw yet, the final parameter estimates are the mean of 
+	 * the current states of the chains and the site has no draw.
+	 * @return a MEMSSite instance
+	 */
+	public MEMSSite getSite() {
+		double[][] pooledDraws = getPooledDraws();
+		List<double[]> states = new ArrayList<double[]>();
+		if (pooledDraws.length > 0) {
+			states.addAll(Arrays.asList(pooledDraws));
+		} else {
+			for (Chain chain : chains) {
+				states.add(chain.currentParms);
+			}
+		}
+		int nbParms = MCParam.values().length;
+		Matrix mean = new Matrix(nbParms, 1);
+		for (double[] state : states) {
+			for (int i = 0; i < nbParms; i++) {
+				mean.setValueAt(i, 0, mean.getValueAt(i, 0) + state[i]);
+			}
+		}
+		for (int i = 0; i < nbParms; i++) {
+			mean.setValueAt(i, 0, mean.getValueAt(i, 0) / states.size());
+		}
+		return new MEMSSite(new SoilCarbonPredictorInput(inputs), mean, pooledDraws);
+	}
+
+	/**
+	 * Write the pooled posterior in the compact site format.
+	 * @param siteType a SiteType enum
+	 * @param filename the name of the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeSite(SiteType siteType, String filename) throws IOException {
+		MEMSSiteBinaryFormat.write(getSite(), siteType, filename);
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * The SoilCarbonPredictorTemperatureModifiers class holds the daily soil temperature of a year 
+ * and the corresponding daily temperature modifiers. <p>
+ * The modifiers depend on the soil temperature only. They are computed once in the constructor and
+ * they can then be bound to any number of compartments through the 
+ * {@link SoilCarbonPredictorCompartments#setSoilTemperature(SoilCarbonPredictorTemperatureModifiers)} 
+ * method, whatever the parameter vector of the predictor. Instances are immutable.
+ * @author Mathieu Fortin - March 2025
+ */
+public final class SoilCarbonPredictorTemperatureModifiers {
+
+	final double[] dailySoilTemperature;
+	final double[] dailyTemperatureModifiers;
+
+	/**
+	 * Constructor.
+	 * @param dailyTemperatureC an array of double with 365 or 366 slots
+	 * @param fromAir true if the temperature is air temperature. Otherwise, it is assumed to be soil temperature.
+	 */
+	public SoilCarbonPredictorTemperatureModifiers(double[] dailyTemperatureC, boolean fromAir) {
+		if (dailyTemperatureC == null || (dailyTemperatureC.length != 365 && dailyTemperatureC.length != 366)) {
+			throw new InvalidParameterException("The dailyTemperatureC array is expected to have either 365 or 366 slots!");
+		}
+		dailySoilTemperature = fromAir ?
+				SoilCarbonPredictorCompartments.convertAirTemperatureToSoilTemperatureC(dailyTemperatureC) :
+					Arrays.copyOf(dailyTemperatureC, dailyTemperatureC.length);
+		dailyTemperatureModifiers = SoilCarbonPredictorEquation.Weibull_getDailyTemperatureModifiers(dailySoilTemperature);
+	}
+
+	/**
+	 * Provide the number of days.
+	 * @return an integer
+	 */
+	public int getNbDays() {return dailySoilTemperature.length;}
+
+	/**
+	 * Provide the temperature modifier of a particular day.
+	 * @param day the index of the day (0 is January 1st)
+	 * @return a double between 0 and 1
+	 */
+	public double getTemperatureModifier(int day) {return dailyTemperatureModifiers[day];}
+
+}
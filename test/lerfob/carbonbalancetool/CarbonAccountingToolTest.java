@@ -21,22 +21,42 @@ package lerfob.carbonbalancetool;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import lerfob.carbonbalancetool.CATCompartment.CompartmentInfo;
+import lerfob.carbonbalancetool.CATTask.Task;
+import lerfob.carbonbalancetool.CATUtilityMaps.CATSpeciesAmountMap;
+import lerfob.carbonbalancetool.CATUtilityMaps.CATUseClassSpeciesAmountMap;
 import lerfob.carbonbalancetool.CATUtility.BiomassParametersName;
 import lerfob.carbonbalancetool.CATUtility.ProductionManagerName;
 import lerfob.carbonbalancetool.CarbonAccountingTool.CATMode;
 import lerfob.carbonbalancetool.io.CATGrowthSimulationRecordReader;
 import lerfob.carbonbalancetool.io.CATYieldTableRecordReader;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.CarbonUnitList;
 import lerfob.carbonbalancetool.productionlines.DecayFunctionTest;
+import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnit;
+import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
 import lerfob.carbonbalancetool.productionlines.ProductionProcessorManager;
 import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
 import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings.VariabilitySource;
@@ -889,7 +909,473 @@ public class CarbonAccountingToolTest {
 		cat.requestShutdown();
 	}
 
+	@Test
+	public void test22ParallelRealizationsSameAsSequential() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "ipcc2014_en.prl";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		CATSensitivityAnalysisSettings.getInstance().setNumberOfMonteCarloRealizations(10);
+		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.BasicDensity, Type.GAUSSIAN, true, 0.3);
+		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.CarbonContent, Type.UNIFORM, true, 0.1);
+		CATSensitivityAnalysisSettings.getInstance().setRandomSeed(12345L);
+
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> refMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		CATSensitivityAnalysisSettings.getInstance().setNumberOfMonteCarloRealizations(10);
+		CATSensitivityAnalysisSettings.getInstance().setRandomSeed(12345L);
+		cat.setNumberOfThreads(4);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> obsMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+
+		int nbCompartmentChecked = 0;
+		Assert.assertTrue("Testing the size of the map", refMap.size() == obsMap.size());
+		for (CompartmentInfo key : refMap.keySet()) {
+			Assert.assertEquals("Testing mean of compartment " + key.name(), 
+					refMap.get(key).getMean().getValueAt(0, 0), 
+					obsMap.get(key).getMean().getValueAt(0, 0), 
+					0d);
+			Assert.assertEquals("Testing variance of compartment " + key.name(), 
+					refMap.get(key).getVariance().getValueAt(0, 0), 
+					obsMap.get(key).getVariance().getValueAt(0, 0), 
+					0d);
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+		cat.requestShutdown();
+	}
+	
+	@Test
+	public void test23IndependentRunContexts() throws Exception {
+		CATRunContext context1 = new CATRunContext();
+		CATRunContext context2 = new CATRunContext();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> map1 = runWithVariabilityInThisContext(context1, 12345L);
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> map2 = runWithVariabilityInThisContext(context2, 12345L);
+		Assert.assertTrue("Testing that the contexts do not share their settings", 
+				context1.getSensitivitySettings() != context2.getSensitivitySettings());
+		boolean isThereVariance = false;
+		Assert.assertTrue("Testing the size of the map", map1.size() == map2.size());
+		for (CompartmentInfo key : map1.keySet()) {
+			Assert.assertEquals("Testing mean of compartment " + key.name(), 
+					map1.get(key).getMean().getValueAt(0, 0), 
+					map2.get(key).getMean().getValueAt(0, 0), 
+					0d);
+			if (map1.get(key).getVariance().getValueAt(0, 0) > 0d) {
+				isThereVariance = true;
+			}
+		}
+		Assert.assertTrue("Testing that the variability of the context has been accounted for", isThereVariance);
+	}
+
+	private Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> runWithVariabilityInThisContext(CATRunContext context, long seed) throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "ipcc2014_en.prl";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT, context);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		context.getSensitivitySettings().setNumberOfMonteCarloRealizations(10);
+		context.getSensitivitySettings().setVariabilitySource(VariabilitySource.BasicDensity, Type.GAUSSIAN, true, 0.3);
+		context.setRandomSeed(seed);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> budgetMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		cat.requestShutdown();
+		return budgetMap;
+	}
 	
+	@Test
+	public void test27ConcurrentRunContexts() throws Exception {
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> refMap1 = runWithVariabilityInThisContext(new CATRunContext(), 12345L);
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> refMap2 = runWithVariabilityInThisContext(new CATRunContext(), 54321L);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Future<Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>>> future1 = executor.submit(new Callable<Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>>>() {
+			@Override
+			public Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> call() throws Exception {
+				return runWithVariabilityInThisContext(new CATRunContext(), 12345L);
+			}
+		});
+		Future<Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>>> future2 = executor.submit(new Callable<Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>>>() {
+			@Override
+			public Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> call() throws Exception {
+				return runWithVariabilityInThisContext(new CATRunContext(), 54321L);
+			}
+		});
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> map1 = future1.get();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> map2 = future2.get();
+		executor.shutdown();
+
+		boolean areSeedsDistinguishable = false;
+		for (CompartmentInfo key : refMap1.keySet()) {
+			Assert.assertEquals("Testing mean of compartment " + key.name() + " in the first context", 
+					refMap1.get(key).getMean().getValueAt(0, 0), 
+					map1.get(key).getMean().getValueAt(0, 0), 
+					0d);
+			Assert.assertEquals("Testing variance of compartment " + key.name() + " in the first context", 
+					refMap1.get(key).getVariance().getValueAt(0, 0), 
+					map1.get(key).getVariance().getValueAt(0, 0), 
+					0d);
+			Assert.assertEquals("Testing mean of compartment " + key.name() + " in the second context", 
+					refMap2.get(key).getMean().getValueAt(0, 0), 
+					map2.get(key).getMean().getValueAt(0, 0), 
+					0d);
+			Assert.assertEquals("Testing variance of compartment " + key.name() + " in the second context", 
+					refMap2.get(key).getVariance().getValueAt(0, 0), 
+					map2.get(key).getVariance().getValueAt(0, 0), 
+					0d);
+			if (refMap1.get(key).getVariance().getValueAt(0, 0) != refMap2.get(key).getVariance().getValueAt(0, 0)) {
+				areSeedsDistinguishable = true;
+			}
+		}
+		Assert.assertTrue("Testing that the two contexts produce different results", areSeedsDistinguishable);
+	}
+
+	@Test
+	public void test24StageCacheSameResults() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "ipcc2014_en.prl";
+		CATRunContext context = new CATRunContext();
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT, context);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		context.getSensitivitySettings().setNumberOfMonteCarloRealizations(10);
+		context.getSensitivitySettings().setVariabilitySource(VariabilitySource.BasicDensity, Type.GAUSSIAN, true, 0.3);
+		context.setRandomSeed(12345L);
+		cat.setStageCacheEnabled(true);
+		CATStageCache stageCache = cat.getCarbonCompartmentManager().getStageCache();
+
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> refMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		Assert.assertEquals("Testing the number of hits after the first run", 0, stageCache.getNbHits(Task.GENERATE_WOODPRODUCTS));
+		Assert.assertEquals("Testing the number of misses after the first run", 10, stageCache.getNbMisses(Task.GENERATE_WOODPRODUCTS));
+
+		cat.setNumberOfThreads(4);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> obsMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		Assert.assertEquals("Testing the number of log-and-buck hits after the second run", 10, stageCache.getNbHits(Task.LOG_AND_BUCK_TREES));
+		Assert.assertEquals("Testing the number of wood product hits after the second run", 10, stageCache.getNbHits(Task.GENERATE_WOODPRODUCTS));
+		Assert.assertEquals("Testing the number of wood product misses after the second run", 10, stageCache.getNbMisses(Task.GENERATE_WOODPRODUCTS));
+
+		int nbCompartmentChecked = 0;
+		Assert.assertTrue("Testing the size of the map", refMap.size() == obsMap.size());
+		for (CompartmentInfo key : refMap.keySet()) {
+			double expectedMean = refMap.get(key).getMean().getValueAt(0, 0);
+			Assert.assertEquals("Testing mean of compartment " + key.name(), 
+					expectedMean, 
+					obsMap.get(key).getMean().getValueAt(0, 0), 
+					Math.abs(expectedMean) * 1E-10 + 1E-12);
+			double expectedVariance = refMap.get(key).getVariance().getValueAt(0, 0);
+			Assert.assertEquals("Testing variance of compartment " + key.name(), 
+					expectedVariance, 
+					obsMap.get(key).getVariance().getValueAt(0, 0), 
+					Math.abs(expectedVariance) * 1E-8 + 1E-12);
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+
+		context.getSensitivitySettings().setVariabilitySource(VariabilitySource.BasicDensity, Type.GAUSSIAN, true, 0.2);
+		cat.calculateCarbon();
+		Assert.assertEquals("Testing the number of log-and-buck hits after changing the settings", 20, stageCache.getNbHits(Task.LOG_AND_BUCK_TREES));
+		Assert.assertEquals("Testing the number of wood product misses after changing the settings", 20, stageCache.getNbMisses(Task.GENERATE_WOODPRODUCTS));
+		Assert.assertEquals("Testing that the wood products of the former settings have been evicted", 20, stageCache.size());
+		cat.requestShutdown();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void test25RealizationInvariantTreeLoggerLogsEachTreeOnce() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "ipcc2014_en.prl";
+		CATRunContext context = new CATRunContext();
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT, context);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		context.getSensitivitySettings().setNumberOfMonteCarloRealizations(10);
+		context.getSensitivitySettings().setVariabilitySource(VariabilitySource.BasicDensity, Type.GAUSSIAN, true, 0.3);
+		context.setRandomSeed(12345L);
+		cat.setNumberOfThreads(4);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> refMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+
+		int nbCutTrees = 0;
+		for (CATCompatibleStand stand : cat.getCarbonCompartmentManager().completeStandList) {
+			nbCutTrees += ((Collection<CATCompatibleTree>) stand.getTrees(StatusClass.cut)).size();
+		}
+		Assert.assertTrue("Testing that there are cut trees", nbCutTrees > 0);
+		Assert.assertEquals("Testing that each cut tree has been logged in each realization by default", 
+				nbCutTrees * 10, 
+				cat.getCarbonCompartmentManager().getNbLoggedTrees());
+		Assert.assertTrue("Testing that the wood pieces have not been shared by default", 
+				cat.getCarbonCompartmentManager().getSharedWoodPieces().isEmpty());
+
+		cat.setBasicTreeLoggerRealizationInvariant(true);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> obsMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		Assert.assertEquals("Testing that each cut tree has been logged once", 
+				nbCutTrees, 
+				cat.getCarbonCompartmentManager().getNbLoggedTrees());
+		Assert.assertEquals("Testing the number of trees whose wood pieces are shared", 
+				nbCutTrees, 
+				cat.getCarbonCompartmentManager().getSharedWoodPieces().size());
+
+		int nbCompartmentChecked = 0;
+		Assert.assertEquals("Testing the size of the map", refMap.size(), obsMap.size());
+		for (CompartmentInfo key : refMap.keySet()) {
+			Assert.assertEquals("Testing mean of compartment " + key.name(), 
+					refMap.get(key).getMean().getValueAt(0, 0), 
+					obsMap.get(key).getMean().getValueAt(0, 0), 
+					0d);
+			Assert.assertEquals("Testing variance of compartment " + key.name(), 
+					refMap.get(key).getVariance().getValueAt(0, 0), 
+					obsMap.get(key).getVariance().getValueAt(0, 0), 
+					0d);
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+		cat.requestShutdown();
+	}
+
+	/*
+	 * Each tree of the SaMARE simulation is split into two identical trees that represent
+	 * half of the original number so that the compression has something to group.
+	 */
+	@Test
+	public void test26TreeCompressionSameTotals() throws Exception {
+		String originalFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "SimulSamareForm.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "AssociationSaMARE.ife";
+		String speciesMatchFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "Association especes.xml";
+		File splitFile = File.createTempFile("SimulSamareFormSplit", ".csv");
+		splitFile.deleteOnExit();
+		List<String> lines = Files.readAllLines(new File(originalFilename).toPath(), StandardCharsets.ISO_8859_1);
+		List<String> splitLines = new ArrayList<String>();
+		splitLines.add(lines.get(0));
+		int numberIndex = Arrays.asList(lines.get(0).split(";")).indexOf("Nombre");
+		for (int i = 1; i < lines.size(); i++) {
+			String[] fields = lines.get(i).split(";", -1);
+			fields[numberIndex] = Double.toString(Double.parseDouble(fields[numberIndex]) * .5);
+			String splitLine = String.join(";", fields);
+			splitLines.add(splitLine);
+			splitLines.add(splitLine);
+		}
+		Files.write(splitFile.toPath(), splitLines, StandardCharsets.ISO_8859_1);
+
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATGrowthSimulationRecordReader recordReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, splitFile.getAbsolutePath());
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		recordReader.getSelector().load(speciesMatchFilename);
+		cat.setStandList(recordReader.getStandList());
+		cat.calculateCarbon();
+		Map<CompartmentInfo, MonteCarloEstimate> refMap = cat.getCarbonCompartmentManager().getSimulationSummary().getEvolutionMap();
+		int nbTreesUncompressed = cat.getCarbonCompartmentManager().treeCollManager.getAllTreesOfThisStatus(StatusClass.alive).size();
+
+		cat.setTreeCompressionEnabled(true);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, MonteCarloEstimate> obsMap = cat.getCarbonCompartmentManager().getSimulationSummary().getEvolutionMap();
+		int nbTreesCompressed = cat.getCarbonCompartmentManager().treeCollManager.getAllTreesOfThisStatus(StatusClass.alive).size();
+		Assert.assertEquals("Testing the number of tree classes", nbTreesUncompressed, nbTreesCompressed * 2);
+
+		int nbCompartmentChecked = 0;
+		Assert.assertTrue("Testing the size of the map", refMap.size() == obsMap.size());
+		for (CompartmentInfo key : refMap.keySet()) {
+			Matrix expected = refMap.get(key).getMean();
+			Matrix actual = obsMap.get(key).getMean();
+			for (int i = 0; i < expected.m_iRows; i++) {
+				Assert.assertEquals("Testing compartment " + key.name() + " at index " + i, 
+						expected.getValueAt(i, 0), 
+						actual.getValueAt(i, 0), 
+						Math.abs(expected.getValueAt(i, 0)) * 1E-10 + 1E-12);
+			}
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+		cat.requestShutdown();
+	}
+
+	/*
+	 * Test that the stock compartments computed through the cohort convolutions are the same as the 
+	 * sum of the per-unit carbon arrays, including their truncation at VERY_SMALL.
+	 */
+	@Test
+	public void test28CohortStocksSameAsPerUnitArrays() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.calculateCarbon();
+		int nbCompartmentChecked = 0;
+		for (CompartmentInfo key : new CompartmentInfo[] {CompartmentInfo.DeadBiom, CompartmentInfo.Products, CompartmentInfo.LfillDeg}) {
+			CATCompartment compartment = cat.getCarbonCompartmentManager().getCompartments().get(key);
+			double[] observed = compartment.getCarbonArray();
+			double[] expected = new double[observed.length];
+			for (Collection<? extends CarbonUnit> carbonUnits : compartment.getCarbonUnitsArray()) {
+				if (carbonUnits != null) {
+					for (CarbonUnit carbonUnit : carbonUnits) {
+						double[] currentCarbon = carbonUnit.getCurrentCarbonArray();
+						for (int i = 0; i < expected.length; i++) {
+							expected[i] += currentCarbon[i];
+						}
+					}
+				}
+			}
+			for (int i = 0; i < expected.length; i++) {
+				Assert.assertEquals("Testing compartment " + key.name() + " at index " + i, 
+						expected[i], 
+						observed[i], 
+						Math.abs(expected[i]) * 1E-10 + 1E-12);
+			}
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+		cat.requestShutdown();
+	}
+
+	/*
+	 * Test that the date, use class and species map is the same as the one of the former implementation
+	 * based on the filterList method.
+	 */
+	@Test
+	public void test29DateUseClassSpeciesMapSameAsFilterList() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "ExampleYieldTable.ife";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.calculateCarbon();
+		CATCompartmentManager manager = cat.getCarbonCompartmentManager();
+		List<String> speciesList = manager.getSpeciesList();
+		CATTimeTable timeTable = manager.getTimeTable();
+		CarbonUnitList carbonUnits = new CarbonUnitList();
+		carbonUnits.addAll(manager.getCarbonToolSettings().getCurrentProductionProcessorManager().getCarbonUnits(CarbonUnitStatus.EndUseWoodProduct));
+		carbonUnits.addAll(manager.getCarbonToolSettings().getCurrentProductionProcessorManager().getCarbonUnits(CarbonUnitStatus.IndustrialLosses));
+		Assert.assertTrue("Testing that there are wood products", !carbonUnits.isEmpty());
+
+		Map<Integer, CATUseClassSpeciesAmountMap> expected = new HashMap<Integer, CATUseClassSpeciesAmountMap>();
+		for (int i = 0; i < timeTable.size(); i++) {
+			int dateYr = timeTable.getDateYrAtThisIndex(i);
+			CarbonUnitList subList = carbonUnits.filterList(CarbonUnit.class, "getCreationDate", dateYr);
+			for (UseClass useClass : UseClass.values()) {
+				CarbonUnitList subSubList = subList.filterList(EndUseWoodProductCarbonUnit.class, "getUseClass", useClass);
+				CATSpeciesAmountMap oMap = CATUtilityMaps.convertToSpeciesMap(subSubList, speciesList);
+				if (!oMap.isEmpty()) {
+					if (!expected.containsKey(dateYr)) {
+						expected.put(dateYr, new CATUseClassSpeciesAmountMap(speciesList));
+					}
+					expected.get(dateYr).put(useClass, oMap);
+				}
+			}
+		}
+		Map<Integer, CATUseClassSpeciesAmountMap> actual = CATUtilityMaps.convertToDateUseClassSpeciesMap(timeTable, speciesList, carbonUnits);
+		Assert.assertEquals("Testing the dates", expected.keySet(), actual.keySet());
+		for (Integer dateYr : expected.keySet()) {
+			Assert.assertEquals("Testing the use classes at date " + dateYr, expected.get(dateYr).keySet(), actual.get(dateYr).keySet());
+			for (UseClass useClass : expected.get(dateYr).keySet()) {
+				CATSpeciesAmountMap expectedSpeciesMap = expected.get(dateYr).get(useClass);
+				CATSpeciesAmountMap actualSpeciesMap = actual.get(dateYr).get(useClass);
+				Assert.assertEquals("Testing the species at date " + dateYr, expectedSpeciesMap.keySet(), actualSpeciesMap.keySet());
+				for (String speciesName : expectedSpeciesMap.keySet()) {
+					for (Element e : expectedSpeciesMap.get(speciesName).keySet()) {
+						double expectedValue = expectedSpeciesMap.get(speciesName).get(e);
+						Assert.assertEquals("Testing element " + e.name() + " at date " + dateYr, 
+								expectedValue, 
+								actualSpeciesMap.get(speciesName).get(e), 
+								Math.abs(expectedValue) * 1E-12);
+					}
+				}
+			}
+		}
+		cat.requestShutdown();
+	}
+
+	/*
+	 * Test that the Monte Carlo summary of a growth simulation read one realization at a time 
+	 * is the same as that of the growth simulation read at once (see test19).
+	 */
+	@Test
+	public void test30WithSaMARESimulationReadByRealization() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "SimulSamareForm.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "AssociationSaMARE.ife";
+		String speciesMatchFilename = ObjectUtility.getPackagePath(getClass()) + "io" + File.separator + "Association especes.xml";
+		List<String> lines = Files.readAllLines(new File(filename).toPath(), StandardCharsets.ISO_8859_1);
+		String header = lines.remove(0);
+		Collections.sort(lines, new Comparator<String>() {
+			@Override
+			public int compare(String line1, String line2) {
+				return Integer.compare(Integer.parseInt(line1.split(";")[2]), Integer.parseInt(line2.split(";")[2]));	// the realization field
+			}
+		});
+		lines.add(0, header);
+		File sortedFile = File.createTempFile("SimulSamareFormSortedByRealization", ".csv");
+		sortedFile.deleteOnExit();
+		Files.write(sortedFile.toPath(), lines, StandardCharsets.ISO_8859_1);
+
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATGrowthSimulationRecordReader recordReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, sortedFile.getAbsolutePath());
+		recordReader.initInScriptMode(ifm);
+		recordReader.scanSpecies();
+		recordReader.getSelector().load(speciesMatchFilename);
+		cat.calculateCarbonByRealization(recordReader);
+		Assert.assertTrue("Testing that the stands have been released", recordReader.getStandList().isEmpty());
+		CATSingleSimulationResult result = cat.getCarbonCompartmentManager().getSimulationSummary();
+		Map<CompartmentInfo, MonteCarloEstimate> obsMap = result.getEvolutionMap();
+		Assert.assertTrue("Testing that the summary gathers all the realizations", obsMap.get(CompartmentInfo.LivingBiomass).getNumberOfRealizations() > 1);
+		Matrix meanLivingBiomass = obsMap.get(CompartmentInfo.LivingBiomass).getMean();
+		Assert.assertEquals("Testing initial carbon in living biomass", 
+				96.63099889669157, 
+				meanLivingBiomass.getValueAt(0, 0), 1E-8);
+		Assert.assertEquals("Testing final carbon in living biomass", 
+				129.0050315845228, 
+				meanLivingBiomass.getValueAt(40, 0), 1E-8);
+		Matrix DOM = obsMap.get(CompartmentInfo.DeadBiom).getMean();
+		Assert.assertEquals("Testing carbon at time 5 in DOM", 
+				2.8130016088871543, 
+				DOM.getValueAt(5, 0), 1E-8);
+		Assert.assertEquals("Testing final carbon in DOM", 
+				22.204097338361034, 
+				DOM.getValueAt(40, 0), 1E-8);
+		cat.requestShutdown();
+	}
+
 	public static void main(String[] args) throws Exception {
 		CarbonAccountingToolTest test = new CarbonAccountingToolTest();
 		test.test07MemoryLeakage();
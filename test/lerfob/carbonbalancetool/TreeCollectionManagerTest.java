@@ -0,0 +1,122 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.species.REpiceaSpecies.Species;
+import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+
+public class TreeCollectionManagerTest {
+
+	static {
+		System.out.println("RUNNING " + TreeCollectionManagerTest.class.getName());
+	}
+
+	/*
+	 * Test that the columnar registry returns the trees by status and stand, including when the
+	 * registrations of a stand are interleaved with those of another stand.
+	 */
+	@Test
+	public void test01RegistryByStatusAndStand() {
+		TreeCollectionManager manager = new TreeCollectionManager();
+		CarbonToolCompatibleStandImpl stand1 = new CarbonToolCompatibleStandImpl("beech", "stand1", 1d, 2000, 50);
+		CarbonToolCompatibleStandImpl stand2 = new CarbonToolCompatibleStandImpl("beech", "stand2", 1d, 2010, 60);
+		List<CATCompatibleTree> aliveTrees1 = new ArrayList<CATCompatibleTree>();
+		List<CATCompatibleTree> aliveTrees2 = new ArrayList<CATCompatibleTree>();
+		List<CATCompatibleTree> cutTrees2 = new ArrayList<CATCompatibleTree>();
+		for (int i = 0; i < 5; i++) {
+			CATCompatibleTree tree1 = new CarbonToolCompatibleTreeImpl(.1 * (i + 1), Species.Fagus_sylvatica, SpeciesLocale.IPCC);
+			aliveTrees1.add(tree1);
+			manager.add(StatusClass.alive, stand1, tree1);
+			CATCompatibleTree tree2 = new CarbonToolCompatibleTreeImpl(.2 * (i + 1), Species.Abies_spp, SpeciesLocale.IPCC);
+			aliveTrees2.add(tree2);
+			manager.add(StatusClass.alive, stand2, tree2);
+		}
+		for (CATCompatibleTree tree : aliveTrees1) {
+			manager.add(StatusClass.cut, stand2, tree);
+			manager.add(StatusClass.cut, stand2, tree);		// a second registration must be ignored
+			cutTrees2.add(tree);
+		}
+		Assert.assertEquals("Testing the number of registrations", 15, manager.size());
+		Assert.assertEquals("Testing alive trees in stand 1", aliveTrees1, new ArrayList<CATCompatibleTree>(manager.getTreeOfThisStatusInThisStand(StatusClass.alive, stand1)));
+		Assert.assertEquals("Testing alive trees in stand 2", aliveTrees2, new ArrayList<CATCompatibleTree>(manager.getTreeOfThisStatusInThisStand(StatusClass.alive, stand2)));
+		Assert.assertEquals("Testing cut trees in stand 2", cutTrees2, new ArrayList<CATCompatibleTree>(manager.getTreeOfThisStatusInThisStand(StatusClass.cut, stand2)));
+		Assert.assertTrue("Testing cut trees in stand 1", manager.getTreeOfThisStatusInThisStand(StatusClass.cut, stand1).isEmpty());
+		Assert.assertSame("Testing the stand of a cut tree", stand2, manager.getStandOfThisTree(aliveTrees1.get(0), StatusClass.cut));
+		Assert.assertSame("Testing the stand of an alive tree", stand1, manager.getStandOfThisTree(aliveTrees1.get(0), StatusClass.alive));
+		for (int id : manager.getTreeIdsOfThisStatusInThisStand(StatusClass.alive, stand2)) {
+			Assert.assertEquals("Testing the species", Species.Abies_spp.getLatinName(), manager.getSpeciesName(id));
+			Assert.assertEquals("Testing the status", StatusClass.alive, manager.getStatusClass(id));
+			Assert.assertSame("Testing the stand", stand2, manager.getStand(id));
+		}
+		Collection<CATCompatibleTree> allCutTrees = manager.getAllTreesOfThisStatus(StatusClass.cut);
+		Assert.assertEquals("Testing all the cut trees", cutTrees2, new ArrayList<CATCompatibleTree>(allCutTrees));
+		Assert.assertEquals("Testing the number of trees in the biomass cache", 10, manager.getBiomassCache().size());
+		manager.clear();
+		Assert.assertEquals("Testing the registry after clearing", 0, manager.size());
+		Assert.assertTrue("Testing the stands after clearing", manager.getStandsWithTreesOfThisStatus(StatusClass.alive).isEmpty());
+		Assert.assertEquals("Testing the biomass cache after clearing", 0, manager.getBiomassCache().size());
+	}
+
+	/*
+	 * Test that the trees of a stand are provided through a read-only view of the registry and that 
+	 * the four-level map built from the registry contains the same trees.
+	 */
+	@Test
+	public void test02ReadOnlyViewsAndFourLevelMap() {
+		TreeCollectionManager manager = new TreeCollectionManager();
+		CarbonToolCompatibleStandImpl stand = new CarbonToolCompatibleStandImpl("beech", "stand1", 1d, 2000, 50);
+		List<CATCompatibleTree> beechTrees = new ArrayList<CATCompatibleTree>();
+		List<CATCompatibleTree> firTrees = new ArrayList<CATCompatibleTree>();
+		for (int i = 0; i < 3; i++) {
+			CATCompatibleTree beech = new CarbonToolCompatibleTreeImpl(.1 * (i + 1), Species.Fagus_sylvatica, SpeciesLocale.IPCC);
+			beechTrees.add(beech);
+			manager.add(StatusClass.alive, stand, beech);
+			CATCompatibleTree fir = new CarbonToolCompatibleTreeImpl(.2 * (i + 1), Species.Abies_spp, SpeciesLocale.IPCC);
+			firTrees.add(fir);
+			manager.add(StatusClass.alive, stand, fir);
+		}
+		Collection<CATCompatibleTree> trees = manager.getTreeOfThisStatusInThisStand(StatusClass.alive, stand);
+		manager.add(StatusClass.alive, stand, new CarbonToolCompatibleTreeImpl(.5, Species.Abies_spp, SpeciesLocale.IPCC));
+		Assert.assertEquals("Testing that the view follows the registry", 7, trees.size());
+		try {
+			trees.clear();
+			Assert.fail("The view should be read-only!");
+		} catch (UnsupportedOperationException e) {}
+		Assert.assertEquals("Testing that the registry is unchanged", 7, manager.getTreeOfThisStatusInThisStand(StatusClass.alive, stand).size());
+
+		Map<CATCompatibleStand, Map<String, Map<String, Collection<CATCompatibleTree>>>> treeMap = manager.getTrees(StatusClass.alive);
+		Assert.assertEquals("Testing the number of stands", 1, treeMap.size());
+		Map<String, Collection<CATCompatibleTree>> speciesMap = treeMap.get(stand).get("");
+		Assert.assertEquals("Testing the beech trees", beechTrees, speciesMap.get(Species.Fagus_sylvatica.getLatinName()));
+		Assert.assertEquals("Testing the fir trees", 4, speciesMap.get(Species.Abies_spp.getLatinName()).size());
+		Assert.assertEquals("Testing the first fir trees", firTrees, new ArrayList<CATCompatibleTree>(speciesMap.get(Species.Abies_spp.getLatinName())).subList(0, 3));
+		Assert.assertTrue("Testing the cut trees", manager.getTrees(StatusClass.cut).isEmpty());
+	}
+
+}
@@ -0,0 +1,544 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lerfob.carbonbalancetool.CATCompartment.CompartmentInfo;
+import lerfob.carbonbalancetool.CATSimulationResult;
+import lerfob.carbonbalancetool.CATTimeTable;
+import lerfob.carbonbalancetool.CATUtilityMaps.MonteCarloEstimateMap;
+import lerfob.carbonbalancetool.CATUtilityMaps.SpeciesMonteCarloEstimateMap;
+import lerfob.carbonbalancetool.CATUtilityMaps.UseClassSpeciesMonteCarloEstimateMap;
+import lerfob.carbonbalancetool.io.CATExportRowWriter.FieldType;
+import lerfob.carbonbalancetool.io.CATExportTool.ExportOption;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
+import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
+import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
+import repicea.math.Matrix;
+import repicea.math.SymmetricMatrix;
+import repicea.stats.estimates.Estimate;
+import repicea.stats.estimates.MonteCarloEstimate;
+
+/**
+ * The CATExportToolBaseline class builds the records of the export options as CATExportTool 
+ * did before the rows were streamed through a CATExportRowWriter instance. <p>
+ * The record-building code is kept as it was, except that the GExportRecord and GExportFieldDetails 
+ * classes are replaced by light equivalents and that the field names are in English. It serves as 
+ * golden output in CATExportToolTest.
+ * @author Mathieu Fortin - March 2025
+ */
+class CATExportToolBaseline {
+
+	private static final String AllSpecies = "All species";
+	
+	private static final List<CompartmentInfo> SOIL_COMPARTMENTS = new ArrayList<CompartmentInfo>();
+	static {
+		SOIL_COMPARTMENTS.add(CompartmentInfo.Soil);
+		SOIL_COMPARTMENTS.add(CompartmentInfo.MineralSoil);
+		SOIL_COMPARTMENTS.add(CompartmentInfo.Humus);
+	}
+
+	private static class Field {
+		private final String name;
+		private final Object value;
+		
+		private Field(String name, Object value) {
+			this.name = name;
+			this.value = value;
+		}
+	}
+	
+	private static class Record {
+		private final List<Field> fields = new ArrayList<Field>();
+		
+		private void addField(Field field) {
+			fields.add(field);
+		}
+	}
+	
+	private final CATSimulationResult summary;
+	private final List<Record> records;
+	
+	CATExportToolBaseline(CATSimulationResult summary) {
+		this.summary = summary;
+		records = new ArrayList<Record>();
+	}
+
+	/**
+	 * Write the records of an export option in a CATExportRowWriter instance. The writer is closed 
+	 * at the end. The header is written only if there is at least one record.
+	 * @param option an ExportOption enum
+	 * @param writer a CATExportRowWriter instance
+	 * @throws Exception if the records cannot be written
+	 */
+	void export(ExportOption option, CATExportRowWriter writer) throws Exception {
+		records.clear();
+		switch (option) {
+		case CarbonStockAndFluxEvolution:
+			createCarbonStockAndFluxEvolutionRecordSet();
+			break;
+		case AverageCarbonStocksAndFluxes:
+			createAverageCarbonStocksAndFluxesRecordSet();
+			break;
+		case DifferenceCarbonStocksAndFluxes:
+			createAverageCarbonStocksAndFluxesRecordSet();
+			break;
+		case TotalHWPbyCategories:
+			createTotalHWPbyCategoriesRecordSet();
+			break;
+		case AnnualVolumeNutrientFluxes:
+			createAnnualVolumeNutrientFluxesRecordSet();
+			break;
+		case TotalLogVolumeByCategories:
+			createTotalLogVolumeByCategoriesRecordSet();
+			break;
+		case HWPEvolution:
+			createHWPEvolutionRecordSet();
+			break;
+		case HeatProduction:
+			createCumulativeHeatProductionRecordSet();
+			break;
+		case SoilCarbonInput:
+			createSoilCarbonInputRecordSet();
+			break;
+		default:
+			throw new Exception("Unrecognized Export Format");
+		}
+		try {
+			for (int k = 0; k < records.size(); k++) {
+				List<Field> fields = records.get(k).fields;
+				if (k == 0) {
+					String[] fieldNames = new String[fields.size()];
+					FieldType[] fieldTypes = new FieldType[fields.size()];
+					for (int i = 0; i < fields.size(); i++) {
+						fieldNames[i] = fields.get(i).name;
+						Object value = fields.get(i).value;
+						fieldTypes[i] = value instanceof Integer ? FieldType.Integer : 
+							value instanceof Double ? FieldType.Double : FieldType.String;
+					}
+					writer.writeHeader(fieldNames, fieldTypes);
+				}
+				for (int i = 0; i < fields.size(); i++) {
+					Object value = fields.get(i).value;
+					if (value instanceof Integer) {
+						writer.setInt(i, (Integer) value);
+					} else if (value instanceof Double) {
+						writer.setDouble(i, (Double) value);
+					} else {
+						writer.setString(i, (String) value);
+					}
+				}
+				writer.writeRow();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void createSoilCarbonInputRecordSet() throws Exception {
+		Record r;
+		CATTimeTable timeTable = summary.getTimeTable();			
+		
+		Matrix meanHumus = summary.getHumusCarbonInputMgHa().getMean();
+		Matrix meanMineralSoil = summary.getMineralSoilCarbonInputMgHa().getMean();
+		
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		
+		Field standIDField = new Field("StandID", standID);
+		int lastDateYr = -1;
+		for (int i = 0; i < timeTable.size(); i++) {
+			int currentDateYr = timeTable.getDateYrAtThisIndex(i);
+			if (currentDateYr != lastDateYr) {
+				r = new Record();
+				r.addField(standIDField);
+				r.addField(new Field("DateYr", currentDateYr));
+				r.addField(new Field("HumusCMgHa", meanHumus.getValueAt(i, 0)));
+				r.addField(new Field("MineralSoilCMgHa", meanMineralSoil.getValueAt(i, 0)));
+				records.add(r);
+				lastDateYr = currentDateYr;
+			}
+		}
+	}
+
+	
+	private void createCumulativeHeatProductionRecordSet() throws Exception {
+		Record r;
+		
+		CATTimeTable timeScale = summary.getTimeTable();
+		
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		
+		Field standIDField = new Field("StandID", standID);
+		MonteCarloEstimate estimate = summary.getHeatProductionEvolutionKWhPerHa();
+		int nbRealizations = estimate.getNumberOfRealizations();
+		for (int i = 0; i < timeScale.size(); i++) {
+			for (int j = 0; j < nbRealizations; j++) {
+				double value = estimate.getRealizations().get(j).getValueAt(i, 0);
+				if (summary.isEvenAged() && i == 0) {
+					r = new Record();
+					r.addField(standIDField);
+					r.addField(new Field("Year", (Integer) 0));
+					r.addField(new Field("MgWhHaMean", (Double) 0d));
+					if (nbRealizations > 0) {
+						r.addField(new Field("RealizationID", (Integer) j+1));
+					}
+					records.add(r);
+				}
+				r = new Record();
+				r.addField(standIDField);
+				r.addField(new Field("Year", timeScale.getDateYrAtThisIndex(i)));
+				r.addField(new Field("MgWhHaMean", value));
+				if (nbRealizations > 0) {
+					r.addField(new Field("RealizationID", (Integer) j+1));
+				}
+
+				records.add(r);
+			}
+		}
+	}
+
+	private void createHWPEvolutionRecordSet() throws Exception {
+		Record r;
+					
+		Map<Integer, UseClassSpeciesMonteCarloEstimateMap> productMap = summary.getProductEvolutionPerHa();
+		
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		
+		Field standIDField = new Field("StandID", standID);
+		List<Integer> dates = new ArrayList<Integer>();
+		dates.addAll(productMap.keySet());
+		Collections.sort(dates);
+		
+		for (Integer date : dates) {
+			Field dateIDField = new Field("Date", date);
+			UseClassSpeciesMonteCarloEstimateMap innerMap = productMap.get(date);
+			for (UseClass useClass : UseClass.values()) {
+				if (innerMap.containsKey(useClass)) {
+					SpeciesMonteCarloEstimateMap smcem = innerMap.get(useClass);
+					for (String speciesName : getSpeciesList(smcem)) {
+						MonteCarloEstimateMap carrier;
+						if (speciesName.equals(AllSpecies)) {
+							carrier = smcem.getSumAcrossSpecies();
+						} else {
+							carrier = smcem.get(speciesName);
+						}
+						MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+						if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+							MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+							int nbRealizations = volumeEstimate.getNumberOfRealizations();
+							for (int j = 0; j < nbRealizations; j++) {
+								r = new Record();
+								r.addField(standIDField);
+								r.addField(dateIDField);
+								r.addField(new Field("UseClass", useClass.name()));
+								r.addField(new Field("Species", speciesName));
+								r.addField(new Field("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
+								r.addField(new Field("Biomass_kgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000));
+								if (nbRealizations > 0) {
+									r.addField(new Field("RealizationID", (Integer) j+1));
+								}
+								records.add(r);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private boolean shouldCompartmentBeIncludedInExport(CompartmentInfo compartmentInfo) {
+		return summary.isSoilModuleEnabled() || !SOIL_COMPARTMENTS.contains(compartmentInfo);
+	}
+	
+	private void createCarbonStockAndFluxEvolutionRecordSet() throws Exception {
+		Record r;
+		
+		CATTimeTable timeScale = summary.getTimeTable();
+		
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		
+		Field standIDField = new Field("StandID", standID);
+		for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
+			if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
+				MonteCarloEstimate estimate = summary.getEvolutionMap().get(compartmentInfo);
+				int nbRealizations = estimate.getNumberOfRealizations();
+				for (int i = 0; i < timeScale.size(); i++) {
+					for (int j = 0; j < nbRealizations; j++) {
+						double value = estimate.getRealizations().get(j).getValueAt(i, 0);
+						if (summary.isEvenAged() && i == 0) {
+							r = new Record();
+							r.addField(standIDField);
+							r.addField(new Field("Year", (Integer) 0));
+							r.addField(new Field("Compart", compartmentInfo.toString()));
+							r.addField(new Field("MgCHaMean", (Double) 0d));
+							if (nbRealizations > 0) {
+								r.addField(new Field("RealizationID", (Integer) j+1));
+							}
+							records.add(r);
+						}
+						r = new Record();
+						r.addField(standIDField);
+						r.addField(new Field("Year", timeScale.getDateYrAtThisIndex(i)));
+						r.addField(new Field("Compart", compartmentInfo.toString()));
+						r.addField(new Field("MgCHaMean", value));
+						if (nbRealizations > 0) {
+							r.addField(new Field("RealizationID", (Integer) j+1));
+						}
+				
+						records.add(r);
+					}
+				}
+			}
+		}
+	}
+	
+	
+	private void createAverageCarbonStocksAndFluxesRecordSet() throws Exception {
+		Record r;
+
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		Field standIDField = new Field("StandID", standID);
+
+		for (CompartmentInfo compartmentInfo : CompartmentInfo.values()) {
+			if (shouldCompartmentBeIncludedInExport(compartmentInfo)) {
+				Estimate<Matrix, SymmetricMatrix, ?> estimate = summary.getBudgetMap().get(compartmentInfo);
+				if (estimate instanceof MonteCarloEstimate) {
+					int nbRealizations = ((MonteCarloEstimate) estimate).getNumberOfRealizations();
+					for (int j = 0; j < nbRealizations; j++) {
+						double value = ((MonteCarloEstimate) estimate).getRealizations().get(j).getValueAt(0, 0);
+						r = new Record();
+						r.addField(standIDField);
+						r.addField(new Field("Compart", compartmentInfo.toString()));
+						r.addField(new Field("MgCHaMean", value));
+						if (nbRealizations > 0) {
+							r.addField(new Field("RealizationID", (Integer) j+1));
+						}
+						records.add(r);
+					}
+				} else {
+					r = new Record();
+					r.addField(standIDField);
+					r.addField(new Field("Compart", compartmentInfo.toString()));
+					r.addField(new Field("MgCHaMean", estimate.getMean().getValueAt(0, 0)));
+					r.addField(new Field("Variance", estimate.getVariance().getValueAt(0, 0)));
+				}
+			}
+		}
+	}
+	
+	
+	private List<String> getSpeciesList(SpeciesMonteCarloEstimateMap smcem) {
+		List<String> speciesList = new ArrayList<String>(smcem.keySet());
+		Collections.sort(speciesList);
+		speciesList.add(AllSpecies);
+		return speciesList;
+	}
+	
+	/**
+	 * Sum the different wood products by category over the simulation period. THe output is in terms of volume (m3/ha),
+	 * biomass (kg/ha) and C (kg/ha). 
+	 * @throws Exception
+	 */
+	private void createTotalHWPbyCategoriesRecordSet() throws Exception {
+		Record r;
+		Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = summary.getHWPPerHaByUseClass();		// no recycling
+		
+		double nutrientKg;
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		Field standIDField = new Field("StandID", standID);
+		
+		for (CarbonUnitStatus type : CarbonUnitStatus.values()) {
+			if (volumeProducts.containsKey(type)) {
+				UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
+				SpeciesMonteCarloEstimateMap smcem;
+				for (UseClass useClass : UseClass.values()) {
+					if (innerVolumeMap.containsKey(useClass)) {
+						smcem = innerVolumeMap.get(useClass);
+						List<String> speciesList = getSpeciesList(smcem);
+						MonteCarloEstimateMap carrier;
+						for (String speciesName : speciesList) {
+							if (speciesName.equals(AllSpecies)) {
+								carrier = smcem.getSumAcrossSpecies();
+							} else {
+								carrier = smcem.get(speciesName);
+							}
+							MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+							if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+								MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+								int nbRealizations = volumeEstimate.getNumberOfRealizations();
+								for (int j = 0; j < nbRealizations; j++) {
+									r = new Record();
+									r.addField(standIDField);
+									r.addField(new Field("Type", type.name()));
+									r.addField(new Field("Class", useClass.toString()));
+									r.addField(new Field("Species", speciesName));
+									r.addField(new Field("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
+									r.addField(new Field("Biomass_Mgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0)));
+									for (Element nutrient : Element.getNutrients()) {
+										nutrientKg = 0d;
+										if (carrier != null && carrier.containsKey(nutrient)) {
+											nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
+										}
+										if (nutrient.equals(Element.C)) {
+											nutrientKg *= 1000;
+										}
+										r.addField(new Field(nutrient.name() + "_kg_ha", (Double) nutrientKg));
+									}
+									if (nbRealizations > 0) {
+										r.addField(new Field("RealizationID", (Integer) j+1));
+									}
+									records.add(r);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	
+	private void createAnnualVolumeNutrientFluxesRecordSet() throws Exception {
+		Record r;
+		double annualFactor = 1d / summary.getRotationLength();
+		
+		Map<CarbonUnitStatus, UseClassSpeciesMonteCarloEstimateMap> volumeProducts = summary.getHWPPerHaByUseClass();
+		
+		double nutrientKg;
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		Field standIDField = new Field("StandID", standID);
+		
+		for (CarbonUnitStatus type : CarbonUnitStatus.values()) { 
+			if (volumeProducts.containsKey(type)) {
+				UseClassSpeciesMonteCarloEstimateMap innerVolumeMap = volumeProducts.get(type);
+				for (UseClass useClass : UseClass.values()) {
+					if (innerVolumeMap.containsKey(useClass)) {
+						SpeciesMonteCarloEstimateMap smcem = innerVolumeMap.get(useClass);
+						for (String speciesName : getSpeciesList(smcem)) {
+							MonteCarloEstimateMap carrier;
+							if (speciesName.equals(AllSpecies)) {
+								carrier = smcem.getSumAcrossSpecies();
+							} else {
+								carrier = smcem.get(speciesName);
+							}
+							MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+							if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+								MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+								int nbRealizations = volumeEstimate.getNumberOfRealizations();
+								for (int j = 0; j < nbRealizations; j++) {
+									r = new Record();
+									r.addField(standIDField);
+									r.addField(new Field("Type", type.name()));
+									r.addField(new Field("Class", useClass.toString()));
+									r.addField(new Field("Species", speciesName));
+									r.addField(new Field("Volume_m3hayr", volumeEstimate.getRealizations().get(j).getValueAt(0, 0) * annualFactor));
+									r.addField(new Field("Biomass_kghayr", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000 * annualFactor));
+									for (Element nutrient : Element.getNutrients()) {
+										nutrientKg = 0d;
+										if (carrier != null && carrier.containsKey(nutrient)) {
+											nutrientKg = carrier.get(nutrient).getRealizations().get(j).getValueAt(0, 0);
+										}
+										if (nutrient.equals(Element.C)) {
+											nutrientKg *= 1000;
+										}
+										r.addField(new Field(nutrient.name() + "_kghayr", (Double) (nutrientKg * annualFactor)));
+									}
+									if (nbRealizations > 0) {
+										r.addField(new Field("RealizationID", (Integer) j+1));
+									}
+									records.add(r);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void createTotalLogVolumeByCategoriesRecordSet() throws Exception {
+		Record r;
+		
+		String standID = summary.getStandID();
+		if (standID == null || standID.isEmpty()) {
+			standID = "Unknown";
+		}
+		Field standIDField = new Field("StandID", standID);
+		
+		List<String> logNames = new ArrayList<String>(summary.getLogGradePerHa().keySet());
+		Collections.sort(logNames);
+		
+		for (String logName : logNames) {
+			SpeciesMonteCarloEstimateMap smcem = summary.getLogGradePerHa().get(logName);
+			List<String> speciesList = getSpeciesList(smcem);
+			for (String speciesName : speciesList) {
+				MonteCarloEstimateMap carrier;
+				if (speciesName.equals(AllSpecies)) {
+					carrier = smcem.getSumAcrossSpecies();
+				} else {
+					carrier = smcem.get(speciesName);
+				}
+				MonteCarloEstimate volumeEstimate = carrier.get(Element.Volume);
+				if (volumeEstimate.getMean().getValueAt(0, 0) > 0d) {
+					MonteCarloEstimate biomassEstimate = carrier.get(Element.Biomass);
+					int nbRealizations = volumeEstimate.getNumberOfRealizations();
+					for (int j = 0; j < nbRealizations; j++) {
+						r = new Record();
+						r.addField(standIDField);
+						r.addField(new Field("LogCategory", logName));
+						r.addField(new Field("Species", speciesName));
+						r.addField(new Field("Volume_m3ha", volumeEstimate.getRealizations().get(j).getValueAt(0, 0)));
+						r.addField(new Field("Biomass_kgha", biomassEstimate.getRealizations().get(j).getValueAt(0, 0) * 1000));
+						if (nbRealizations > 0) {
+							r.addField(new Field("RealizationID", (Integer) j+1));
+						}
+				
+						records.add(r);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.carbonbalancetool.CATSimulationResult;
+import lerfob.carbonbalancetool.CarbonAccountingTool;
+import lerfob.carbonbalancetool.CarbonAccountingTool.CATMode;
+import lerfob.carbonbalancetool.io.CATExportRowWriter.FieldType;
+import lerfob.carbonbalancetool.io.CATExportTool.ExportOption;
+import repicea.io.javacsv.CSVReader;
+import repicea.io.tools.ImportFieldManager;
+import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvider.ApplicationScale;
+import repicea.simulation.covariateproviders.samplelevel.ManagementTypeProvider.ManagementType;
+import repicea.simulation.species.REpiceaSpecies.Species;
+import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.util.ObjectUtility;
+import repicea.util.REpiceaTranslator;
+import repicea.util.REpiceaTranslator.Language;
+
+public class CATExportToolTest {
+
+	static {
+		System.out.println("RUNNING " + CATExportToolTest.class.getName());
+	}
+
+	private static File createTempFile(String suffix) throws Exception {
+		File file = File.createTempFile("export", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+	
+	private static void writeRows(CATExportRowWriter writer, int nbRows) throws Exception {
+		writer.writeHeader(new String[] {"StandID", "Year", "Value"}, 
+				new FieldType[] {FieldType.String, FieldType.Integer, FieldType.Double});
+		for (int i = 0; i < nbRows; i++) {
+			writer.setString(0, i == 3 ? "Stand, \"3\"" : "Stand" + (i % 5));
+			writer.setInt(1, i);
+			writer.setDouble(2, i * Math.PI);
+			writer.writeRow();
+		}
+		writer.close();
+	}
+	
+	@Test
+	public void test01ColumnarWriterAndReader() throws Exception {
+		File file = createTempFile(".bin");
+		writeRows(new CATExportColumnarWriter(file, 100), 1050);
+		CATExportColumnarReader reader = new CATExportColumnarReader(file);
+		Assert.assertArrayEquals("Testing field names", new String[] {"StandID", "Year", "Value"}, reader.getFieldNames());
+		int i = 0;
+		while (reader.next()) {
+			Assert.assertEquals("Testing string of row " + i, i == 3 ? "Stand, \"3\"" : "Stand" + (i % 5), reader.getString(0));
+			Assert.assertEquals("Testing integer of row " + i, i, reader.getInt(1));
+			Assert.assertEquals("Testing double of row " + i, i * Math.PI, reader.getDouble(2), 0d);
+			i++;
+		}
+		reader.close();
+		Assert.assertEquals("Testing the number of rows", 1050, i);
+	}
+
+	@Test
+	public void test02CSVWriter() throws Exception {
+		File file = createTempFile(".csv");
+		writeRows(new CATExportCSVWriter(file), 5);
+		List<String> lines = Files.readAllLines(file.toPath());
+		Assert.assertEquals("Testing the number of lines", 6, lines.size());
+		Assert.assertEquals("Testing the header", "StandID,Year,Value", lines.get(0));
+		Assert.assertEquals("Testing a quoted string", "\"Stand, \"\"3\"\"\",3," + 3 * Math.PI, lines.get(4));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void test03StreamedRowsMatchRecordSet() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.ife";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.calculateCarbon();
+
+		File recordSetFile = createTempFile(".csv");
+		CATExportTool exportTool = cat.createExportTool();
+		List<Enum> selectedOptions = new ArrayList<Enum>();
+		selectedOptions.add(CATExportTool.ExportOption.CarbonStockAndFluxEvolution);
+		exportTool.setSelectedOptions(selectedOptions);
+		exportTool.setFilename(recordSetFile.getAbsolutePath());
+		exportTool.exportRecordSets();
+
+		File columnarFile = createTempFile(".bin");
+		cat.createExportTool().exportRows(CATExportTool.ExportOption.CarbonStockAndFluxEvolution, new CATExportColumnarWriter(columnarFile));
+		cat.requestShutdown();
+		
+		CSVReader csvReader = new CSVReader(recordSetFile.getAbsolutePath());
+		CATExportColumnarReader columnarReader = new CATExportColumnarReader(columnarFile);
+		int nbRecords = csvReader.getRecordCount();
+		Assert.assertTrue("Testing that records have been exported", nbRecords > 0);
+		for (int i = 0; i < nbRecords; i++) {
+			Object[] record = csvReader.nextRecord();
+			Assert.assertTrue("Testing that row " + i + " has been streamed", columnarReader.next());
+			Assert.assertEquals("Testing stand of row " + i, record[0].toString(), columnarReader.getString(0));
+			Assert.assertEquals("Testing year of row " + i, Integer.parseInt(record[1].toString()), columnarReader.getInt(1));
+			Assert.assertEquals("Testing compartment of row " + i, record[2].toString(), columnarReader.getString(2));
+			Assert.assertEquals("Testing carbon of row " + i, Double.parseDouble(record[3].toString()), columnarReader.getDouble(3), 1E-8);
+			Assert.assertEquals("Testing realization of row " + i, Integer.parseInt(record[4].toString()), columnarReader.getInt(4));
+		}
+		Assert.assertFalse("Testing that there is no additional row", columnarReader.next());
+		csvReader.close();
+		columnarReader.close();
+	}
+
+	/*
+	 * Compare the rows streamed by the exportRows method with the golden output of the record sets 
+	 * as they were built before the rows were streamed (see CATExportToolBaseline).
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void assertSameAsBaseline(CarbonAccountingTool cat, String simulationName) throws Exception {
+		CATExportTool exportTool = cat.createExportTool();
+		CATSimulationResult summary = cat.retrieveSimulationSummary();
+		for (Enum option : exportTool.setAllAvailableOptions()) {
+			File goldenFile = createTempFile(".csv");
+			new CATExportToolBaseline(summary).export((ExportOption) option, new CATExportCSVWriter(goldenFile));
+			List<String> expectedLines = Files.readAllLines(goldenFile.toPath());
+			File streamedFile = createTempFile(".csv");
+			exportTool.exportRows((ExportOption) option, new CATExportCSVWriter(streamedFile));
+			List<String> actualLines = Files.readAllLines(streamedFile.toPath());
+			if (expectedLines.isEmpty()) {	// the record set has no record and therefore no header
+				Assert.assertEquals("Testing that there is no row for option " + option.name() + " in " + simulationName, 1, actualLines.size());
+			} else {
+				Assert.assertEquals("Testing the number of lines for option " + option.name() + " in " + simulationName, expectedLines.size(), actualLines.size());
+				for (int i = 0; i < expectedLines.size(); i++) {
+					Assert.assertEquals("Testing line " + i + " for option " + option.name() + " in " + simulationName, expectedLines.get(i), actualLines.get(i));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void test04StreamedRowsSameAsBaseline() throws Exception {
+		Language languageBefore = REpiceaTranslator.getCurrentLanguage();
+		REpiceaTranslator.setCurrentLanguage(Language.English);	// the baseline field names are in English
+		try {
+			String filename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.csv";
+			String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.ife";
+			CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+			cat.initializeTool(null);
+			CATYieldTableRecordReader yieldTableReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+			yieldTableReader.initInScriptMode(ImportFieldManager.createImportFieldManager(yieldTableReader, ifeFilename, filename));
+			yieldTableReader.readAllRecords();
+			cat.setStandList(yieldTableReader.getStandList());
+			cat.calculateCarbon();
+			assertSameAsBaseline(cat, "yield table");
+
+			filename = ObjectUtility.getPackagePath(getClass()) + "SimulSamareForm.csv";
+			ifeFilename = ObjectUtility.getPackagePath(getClass()) + "AssociationSaMARE.ife";
+			String speciesMatchFilename = ObjectUtility.getPackagePath(getClass()) + "Association especes.xml";
+			CATGrowthSimulationRecordReader growthSimulationReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+			growthSimulationReader.initInScriptMode(ImportFieldManager.createImportFieldManager(growthSimulationReader, ifeFilename, filename));
+			growthSimulationReader.readAllRecords();
+			growthSimulationReader.getSelector().load(speciesMatchFilename);
+			cat.setStandList(growthSimulationReader.getStandList());
+			cat.calculateCarbon();
+			assertSameAsBaseline(cat, "stochastic growth simulation");
+			cat.requestShutdown();
+		} finally {
+			REpiceaTranslator.setCurrentLanguage(languageBefore);
+		}
+	}
+	
+}
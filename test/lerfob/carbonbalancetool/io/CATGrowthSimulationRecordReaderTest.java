@@ -0,0 +1,178 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.carbonbalancetool.CATCompatibleStand;
+import repicea.io.tools.ImportFieldManager;
+import repicea.simulation.covariateproviders.samplelevel.ApplicationScaleProvider.ApplicationScale;
+import repicea.simulation.covariateproviders.samplelevel.ManagementTypeProvider.ManagementType;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.util.ObjectUtility;
+
+public class CATGrowthSimulationRecordReaderTest {
+
+	static {
+		System.out.println("RUNNING " + CATGrowthSimulationRecordReaderTest.class.getName());
+	}
+
+	private static final int RealizationFieldIndex = 2;	// IterMC in SimulSamareForm.csv
+
+	/*
+	 * Copy the file with its records sorted by realization. The sort is stable so that the dates remain sorted within a realization.
+	 */
+	private static File createFileSortedByRealization(String filename) throws Exception {
+		List<String> lines = Files.readAllLines(new File(filename).toPath(), StandardCharsets.ISO_8859_1);
+		String header = lines.remove(0);
+		Collections.sort(lines, new Comparator<String>() {
+			@Override
+			public int compare(String line1, String line2) {
+				return Integer.compare(Integer.parseInt(line1.split(";")[RealizationFieldIndex]), 
+						Integer.parseInt(line2.split(";")[RealizationFieldIndex]));
+			}
+		});
+		lines.add(0, header);
+		File sortedFile = File.createTempFile("SimulSamareFormSortedByRealization", ".csv");
+		sortedFile.deleteOnExit();
+		Files.write(sortedFile.toPath(), lines, StandardCharsets.ISO_8859_1);
+		return sortedFile;
+	}
+
+	@Test
+	public void test01StreamingImportSameAsFullImport() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "SimulSamareForm.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "AssociationSaMARE.ife";
+		CATGrowthSimulationRecordReader fullReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		fullReader.initInScriptMode(ImportFieldManager.createImportFieldManager(fullReader, ifeFilename, filename));
+		fullReader.readAllRecords();
+		List<CATCompatibleStand> fullStandList = fullReader.getStandList();
+
+		final Map<Integer, List<CATCompatibleStand>> streamedStandLists = new HashMap<Integer, List<CATCompatibleStand>>();
+		File sortedFile = createFileSortedByRealization(filename);
+		CATGrowthSimulationRecordReader streamingReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		streamingReader.initInScriptMode(ImportFieldManager.createImportFieldManager(streamingReader, ifeFilename, sortedFile.getAbsolutePath()));
+		streamingReader.setRealizationListener(new CATGrowthSimulationRealizationListener() {
+			@Override
+			public void realizationRead(int realization, List<CATCompatibleStand> standList) throws Exception {
+				Assert.assertFalse("Testing that each realization is passed on once", streamedStandLists.containsKey(realization));
+				streamedStandLists.put(realization, standList);
+			}
+		});
+		streamingReader.readAllRecords();
+		Assert.assertTrue("Testing that the stands have been released", streamingReader.getStandList().isEmpty());
+
+		List<Integer> realizationIds = ((CATGrowthSimulationCompositeStand) fullStandList.get(0)).getRealizationIds();
+		Assert.assertEquals("Testing the number of realizations", realizationIds.size(), streamedStandLists.size());
+		for (Integer realization : realizationIds) {
+			List<CATCompatibleStand> streamedStandList = streamedStandLists.get(realization);
+			Assert.assertEquals("Testing the number of stands", fullStandList.size(), streamedStandList.size());
+			for (int i = 0; i < fullStandList.size(); i++) {
+				CATGrowthSimulationPlotSample expected = ((CATGrowthSimulationCompositeStand) fullStandList.get(i)).getRealization(realization);
+				CATGrowthSimulationCompositeStand actual = (CATGrowthSimulationCompositeStand) streamedStandList.get(i);
+				Assert.assertFalse("Testing that the streamed stand is deterministic", actual.isStochastic());
+				Assert.assertEquals("Testing the date", expected.getDateYr(), actual.getDateYr());
+				Assert.assertEquals("Testing the intervention result", fullStandList.get(i).isInterventionResult(), actual.isInterventionResult());
+				Assert.assertEquals("Testing the area", expected.getAreaHa(), actual.getAreaHa(), 1E-12);
+				for (StatusClass status : StatusClass.values()) {
+					Assert.assertEquals("Testing the number of trees with status " + status.name(), 
+							expected.getTrees(status).size(), 
+							actual.getTrees(status).size());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void test02CachedViewsAreUpdatedWhenTreesAreAdded() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "SimulSamareForm.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "AssociationSaMARE.ife";
+		CATGrowthSimulationRecordReader reader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		reader.initInScriptMode(ImportFieldManager.createImportFieldManager(reader, ifeFilename, filename));
+		reader.readAllRecords();
+		CATGrowthSimulationCompositeStand stand = (CATGrowthSimulationCompositeStand) reader.getStandList().get(0);
+		int nbTrees = stand.getTrees(StatusClass.alive).size();
+		Assert.assertSame("Testing that the view is cached", stand.getTrees(StatusClass.alive), stand.getTrees(StatusClass.alive));
+		CATGrowthSimulationPlotSample plotSample = stand.getRealization(stand.getRealizationIds().get(0));
+		double areaHa = plotSample.getAreaHa();
+		plotSample.createPlot("newPlot", 0.5, false);
+		Assert.assertEquals("Testing the updated area", areaHa + 0.5, plotSample.getAreaHa(), 1E-12);
+		CATGrowthSimulationPlot plot = plotSample.getPlot("newPlot");
+		CATGrowthSimulationTree tree = new ArrayList<CATGrowthSimulationTree>(stand.getTrees(StatusClass.alive)).get(0);
+		plot.addTree(tree);
+		Assert.assertEquals("Testing the updated number of trees", nbTrees + 1, stand.getTrees(StatusClass.alive).size());
+	}
+
+	@Test
+	public void test03ImportCacheSameAsFullImport() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "SimulSamareForm.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "AssociationSaMARE.ife";
+		File copy = new File(Files.createTempDirectory("catData").toFile(), "SimulSamareForm.csv");
+		Files.copy(new File(filename).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		copy.getParentFile().deleteOnExit();	// the files are deleted in the reverse order
+		copy.deleteOnExit();
+		File cacheDirectory = Files.createTempDirectory("catImportCache").toFile();
+		cacheDirectory.deleteOnExit();
+		File cacheFile = CATImportCache.getCacheFile(cacheDirectory, copy);
+		cacheFile.deleteOnExit();
+
+		CATGrowthSimulationRecordReader reader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+		reader.initInScriptMode(ImportFieldManager.createImportFieldManager(reader, ifeFilename, copy.getAbsolutePath()));
+		reader.readAllRecords();
+		List<CATCompatibleStand> expectedStands = reader.getStandList();
+
+		for (int k = 0; k < 2; k++) {	// the first reading writes the cache and the second one reads it
+			CATGrowthSimulationRecordReader cachedReader = new CATGrowthSimulationRecordReader(ApplicationScale.Stand, ManagementType.UnevenAged, SpeciesLocale.Quebec);
+			cachedReader.setImportCacheDirectory(cacheDirectory);
+			cachedReader.initInScriptMode(ImportFieldManager.createImportFieldManager(cachedReader, ifeFilename, copy.getAbsolutePath()));
+			cachedReader.readAllRecords();
+			Assert.assertTrue("Testing that the cache file exists", cacheFile.exists());
+			List<CATCompatibleStand> actualStands = cachedReader.getStandList();
+			Assert.assertEquals("Testing the number of stands", expectedStands.size(), actualStands.size());
+			for (int i = 0; i < expectedStands.size(); i++) {
+				CATGrowthSimulationCompositeStand expected = (CATGrowthSimulationCompositeStand) expectedStands.get(i);
+				CATGrowthSimulationCompositeStand actual = (CATGrowthSimulationCompositeStand) actualStands.get(i);
+				Assert.assertEquals("Testing the date", expected.getDateYr(), actual.getDateYr());
+				Assert.assertEquals("Testing the realizations", expected.getRealizationIds(), actual.getRealizationIds());
+				Assert.assertEquals("Testing the area", expected.getAreaHa(), actual.getAreaHa(), 0d);
+				for (StatusClass status : StatusClass.values()) {
+					Assert.assertEquals("Testing the number of trees with status " + status.name(), 
+							expected.getTrees(status).size(), 
+							actual.getTrees(status).size());
+				}
+			}
+			Assert.assertEquals("Testing the species", reader.getSpeciesList(), cachedReader.getSpeciesList());
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.carbonbalancetool.CATCompatibleStand;
+import repicea.io.tools.ImportFieldManager;
+import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
+import repicea.simulation.species.REpiceaSpecies.Species;
+import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.util.ObjectUtility;
+
+public class CATImportCacheTest {
+
+	static {
+		System.out.println("RUNNING " + CATImportCacheTest.class.getName());
+	}
+
+	private static File createImportedFile() throws Exception {
+		File importedFile = File.createTempFile("importedFile", ".csv");
+		importedFile.deleteOnExit();
+		Files.write(importedFile.toPath(), "Date;Volume\n10;25.5\n".getBytes("UTF-8"));
+		return importedFile;
+	}
+
+	private static File createCacheDirectory() throws Exception {
+		File cacheDirectory = Files.createTempDirectory("catImportCache").toFile();
+		cacheDirectory.deleteOnExit();
+		return cacheDirectory;
+	}
+
+	private static File getCacheFile(File cacheDirectory, File importedFile) {
+		File cacheFile = CATImportCache.getCacheFile(cacheDirectory, importedFile);
+		cacheFile.deleteOnExit();	// the files are deleted in the reverse order
+		return cacheFile;
+	}
+
+	@Test
+	public void test01WriteAndReadCache() throws Exception {
+		File importedFile = createImportedFile();
+		File cacheFile = getCacheFile(createCacheDirectory(), importedFile);
+		CATImportCache cache = new CATImportCache(2, 1);
+		for (int i = 0; i < 5000; i++) {
+			cache.addRecord(new int[] {i, cache.getStringIndex("species" + (i % 7))}, new double[] {i * Math.PI});
+		}
+		cache.write(cacheFile, importedFile, "signature");
+
+		CATImportCache cacheFromFile = CATImportCache.read(cacheFile, importedFile, "signature", 2, 1);
+		Assert.assertNotNull("Testing that the cache has been read", cacheFromFile);
+		Assert.assertEquals("Testing the number of records", 5000, cacheFromFile.getNbRecords());
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertEquals("Testing integer of record " + i, i, cacheFromFile.getInt(0, i));
+			Assert.assertEquals("Testing string of record " + i, "species" + (i % 7), cacheFromFile.getString(cacheFromFile.getInt(1, i)));
+			Assert.assertEquals("Testing double of record " + i, i * Math.PI, cacheFromFile.getDouble(0, i), 0d);
+		}
+		Files.move(cacheFile.toPath(), new File(cacheFile.getAbsolutePath() + ".moved").toPath());	// fails on Windows if the file is still open or mapped
+		Files.delete(new File(cacheFile.getAbsolutePath() + ".moved").toPath());
+	}
+
+	@Test
+	public void test02OutdatedCacheIsIgnored() throws Exception {
+		File importedFile = createImportedFile();
+		File cacheFile = getCacheFile(createCacheDirectory(), importedFile);
+		CATImportCache cache = new CATImportCache(1, 1);
+		cache.addRecord(new int[] {10}, new double[] {25.5});
+		cache.write(cacheFile, importedFile, "signature");
+		Assert.assertNull("Testing other signature", CATImportCache.read(cacheFile, importedFile, "otherSignature", 1, 1));
+		Assert.assertNull("Testing other columns", CATImportCache.read(cacheFile, importedFile, "signature", 2, 1));
+		long lastModified = importedFile.lastModified();
+		Files.write(importedFile.toPath(), "Date;Volume\n10;26.5\n".getBytes("UTF-8"));
+		importedFile.setLastModified(lastModified + 2000);
+		Assert.assertNull("Testing modified file", CATImportCache.read(cacheFile, importedFile, "signature", 1, 1));
+	}
+
+	/*
+	 * A file whose last modification time has changed but whose content has not is still read from the cache.
+	 */
+	@Test
+	public void test03TouchedFileStillMatches() throws Exception {
+		File importedFile = createImportedFile();
+		File cacheFile = getCacheFile(createCacheDirectory(), importedFile);
+		CATImportCache cache = new CATImportCache(1, 1);
+		cache.addRecord(new int[] {10}, new double[] {25.5});
+		cache.write(cacheFile, importedFile, "signature");
+		importedFile.setLastModified(importedFile.lastModified() + 2000);
+		CATImportCache cacheFromFile = CATImportCache.read(cacheFile, importedFile, "signature", 1, 1);
+		Assert.assertNotNull("Testing that the cache has been read", cacheFromFile);
+		Assert.assertEquals("Testing the double value", 25.5, cacheFromFile.getDouble(0, 0), 0d);
+	}
+
+	/*
+	 * A cache file that cannot be written throws an exception and leaves no temporary file behind.
+	 */
+	@Test
+	public void test04WriteErrorIsReported() throws Exception {
+		File importedFile = createImportedFile();
+		File cacheDirectory = createCacheDirectory();
+		File cacheFile = getCacheFile(cacheDirectory, importedFile);
+		File blockingFile = new File(cacheFile, "blockingFile");
+		Assert.assertTrue("Testing that the cache file location is blocked", cacheFile.mkdir() && blockingFile.createNewFile());	// a non-empty directory cannot be replaced by a file
+		CATImportCache cache = new CATImportCache(1, 1);
+		cache.addRecord(new int[] {10}, new double[] {25.5});
+		try {
+			cache.write(cacheFile, importedFile, "signature");
+			Assert.fail("The write method should have thrown an IOException");
+		} catch (IOException e) {}
+		Assert.assertEquals("Testing that the temporary file has been deleted", 1, cacheDirectory.listFiles().length);
+		Assert.assertTrue(blockingFile.delete() && cacheFile.delete());
+	}
+
+	private static void assertSameStands(List<CATCompatibleStand> expectedStands, List<CATCompatibleStand> actualStands) {
+		Assert.assertEquals("Testing the number of stands", expectedStands.size(), actualStands.size());
+		for (int i = 0; i < expectedStands.size(); i++) {
+			Assert.assertEquals("Testing the date", expectedStands.get(i).getDateYr(), actualStands.get(i).getDateYr());
+			Assert.assertEquals("Testing the intervention result", expectedStands.get(i).isInterventionResult(), actualStands.get(i).isInterventionResult());
+			for (StatusClass status : StatusClass.values()) {
+				Assert.assertEquals("Testing the number of trees", expectedStands.get(i).getTrees(status).size(), actualStands.get(i).getTrees(status).size());
+			}
+		}
+	}
+
+	@Test
+	public void test05YieldTableReaderWithImportCache() throws Exception {
+		String filename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(getClass()) + "ExampleYieldTable.ife";
+		File dataDirectory = Files.createTempDirectory("catData").toFile();
+		File copy = new File(dataDirectory, "ExampleYieldTable.csv");
+		Files.copy(new File(filename).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		dataDirectory.deleteOnExit();	// the files are deleted in the reverse order
+		copy.deleteOnExit();
+		File cacheDirectory = createCacheDirectory();
+		File cacheFile = getCacheFile(cacheDirectory, copy);
+
+		CATYieldTableRecordReader reader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		reader.initInScriptMode(ImportFieldManager.createImportFieldManager(reader, ifeFilename, copy.getAbsolutePath()));
+		reader.readAllRecords();
+		List<CATCompatibleStand> expectedStands = reader.getStandList();
+
+		CATYieldTableRecordReader cachedReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		cachedReader.setImportCacheDirectory(cacheDirectory);
+		cachedReader.initInScriptMode(ImportFieldManager.createImportFieldManager(cachedReader, ifeFilename, copy.getAbsolutePath()));
+		cachedReader.readAllRecords();	// writes the cache
+		Assert.assertTrue("Testing that the cache file exists", cacheFile.exists());
+		Assert.assertEquals("Testing that nothing has been written next to the data", 1, dataDirectory.listFiles().length);
+
+		CATYieldTableRecordReader otherCachedReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		otherCachedReader.setImportCacheDirectory(cacheDirectory);
+		otherCachedReader.initInScriptMode(ImportFieldManager.createImportFieldManager(otherCachedReader, ifeFilename, copy.getAbsolutePath()));
+		otherCachedReader.readAllRecords();	// reads the cache
+		assertSameStands(expectedStands, cachedReader.getStandList());
+		assertSameStands(expectedStands, otherCachedReader.getStandList());
+	}
+
+}
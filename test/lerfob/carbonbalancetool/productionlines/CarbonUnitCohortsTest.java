@@ -0,0 +1,98 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.carbonbalancetool.productionlines.DecayFunction.DecayFunctionType;
+import lerfob.carbonbalancetool.productionlines.DecayFunction.LifetimeMode;
+
+/**
+ * Test the convolution of the carbon unit cohorts.
+ * @author Mathieu Fortin - March 2025
+ */
+public class CarbonUnitCohortsTest {
+
+	static {
+		System.out.println("RUNNING " + CarbonUnitCohortsTest.class.getName());
+	}
+
+	@Test
+	public void test01FFTConvolutionSameAsDirectConvolution() {
+		int size = 300;
+		Random random = new Random(1234);
+		List<CarbonUnitCohorts.Cohort> cohorts = new ArrayList<CarbonUnitCohorts.Cohort>();
+		double[] expected = new double[size];
+		int i = 0;
+		for (DecayFunctionType type : DecayFunctionType.values()) {
+			for (double lifetime : new double[] {2d, 30d, 75d}) {
+				DecayFunction df = new DecayFunction(null, LifetimeMode.AVERAGE, type, lifetime);
+				double[] kernel = df.getSurvivalKernel(df.getAverageLifetimeYr(null), size - 1);
+				CarbonUnitCohorts.Cohort cohort = new CarbonUnitCohorts.Cohort(kernel, i % 2 == 0 ? size - 1 : 40 + i, size);
+				for (int j = 20 + i; j < size; j += 10) {
+					cohort.input[j] = random.nextDouble() * 100;
+				}
+				cohorts.add(cohort);
+				CarbonUnitCohorts.convolve(expected, cohort.input, kernel, cohort.lastAge);
+				i++;
+			}
+		}
+		double[] observed = new double[size];
+		CarbonUnitCohorts.convolveWithFFT(observed, cohorts);
+		for (int j = 0; j < size; j++) {
+			Assert.assertEquals("Testing carbon stock at index " + j, expected[j], observed[j], 1E-9);
+		}
+	}
+
+	/*
+	 * Test that the truncation age is the same as in the CarbonUnit.computeCarbonArrays method.
+	 */
+	@Test
+	public void test02TruncationAgeSameAsPerUnitArrays() {
+		int maxAge = 300;
+		for (DecayFunctionType type : DecayFunctionType.values()) {
+			for (double lifetime : new double[] {2d, 30d, 75d}) {
+				DecayFunction df = new DecayFunction(null, LifetimeMode.AVERAGE, type, lifetime);
+				double[] kernel = df.getSurvivalKernel(df.getAverageLifetimeYr(null), maxAge);
+				for (double initialCarbon : new double[] {0d, 1E-13, 1E-3, 1d, 1000d}) {
+					int expectedLastAge = maxAge;
+					double currentCarbon = initialCarbon;
+					for (int age = 1; age <= maxAge; age++) {	// as in CarbonUnit.computeCarbonArrays
+						if (currentCarbon > ProductionProcessorManager.VERY_SMALL) {
+							currentCarbon = initialCarbon * kernel[age];
+						} else {
+							expectedLastAge = age - 1;
+							break;
+						}
+					}
+					Assert.assertEquals("Testing last age for " + type.name() + ", lifetime " + lifetime + " and initial carbon " + initialCarbon, 
+							expectedLastAge, 
+							CarbonUnitCohorts.getLastAge(kernel, initialCarbon, maxAge));
+				}
+			}
+		}
+	}
+
+}
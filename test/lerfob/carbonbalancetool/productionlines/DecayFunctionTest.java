@@ -201,4 +201,53 @@ public class DecayFunctionTest {
 
 	}
 
+	@Test
+	public void test06SurvivalKernelSameAsDecayFunction() {
+		DecayKernelCache cache = new DecayKernelCache();
+		FakeCompartmentManager fakeManager = new FakeCompartmentManager();
+		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.Lifetime,
+				Distribution.Type.GAUSSIAN,
+				true,
+				0.4);
+		try {
+			for (DecayFunctionType type : DecayFunctionType.values()) {
+				DecayFunction df = new DecayFunction(new CarbonUnitFeature(null), LifetimeMode.AVERAGE, type, 25d);
+				for (int real = 0; real < 10; real++) {
+					fakeManager.mcReal = real;
+					double[] kernel = cache.getKernel(df, fakeManager, 150);
+					Assert.assertEquals("Testing kernel length", 151, kernel.length);
+					Assert.assertSame("Testing if the kernel is cached", kernel, cache.getKernel(df, fakeManager, 100));
+					for (int age = 0; age <= 150; age++) {
+						Assert.assertEquals("Testing survival at age " + age, 
+								df.getValueAtTime(age, fakeManager), 
+								kernel[age], 
+								0d);
+					}
+				}
+			}
+			Assert.assertEquals("Testing the number of kernels", 20, cache.size());
+			cache.clear();
+			Assert.assertEquals("Testing the number of kernels after clearing", 0, cache.size());
+		} finally {
+			CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.Lifetime,
+					Distribution.Type.GAUSSIAN,
+					false,
+					0.4);
+		}
+	}
+
+	/*
+	 * Test that the lifetime modifier id is built once. The time spent in the actualization of 
+	 * the carbon units is measured in the DecayKernelBenchmark class.
+	 */
+	@Test
+	public void test07LifetimeModifierIdBuiltOnce() {
+		DecayFunction df = new DecayFunction(new CarbonUnitFeature(null), LifetimeMode.AVERAGE, DecayFunctionType.Exponential, 25d);
+		String id = df.getLifetimeModifierId();
+		Assert.assertEquals("Testing the modifier id", 
+				CarbonUnitFeature.class.getCanonicalName() + df.feature.hashCode(), 
+				id);
+		Assert.assertSame("Testing that the modifier id is cached", id, df.getLifetimeModifierId());
+	}
+
 }
@@ -0,0 +1,166 @@
+/*
+ * This file is part of the CAT library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.carbonbalancetool.productionlines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import lerfob.carbonbalancetool.productionlines.DecayFunction.DecayFunctionType;
+import lerfob.carbonbalancetool.productionlines.DecayFunction.LifetimeMode;
+import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings;
+import lerfob.carbonbalancetool.sensitivityanalysis.CATSensitivityAnalysisSettings.VariabilitySource;
+import repicea.simulation.HierarchicalLevel;
+import repicea.simulation.MonteCarloSimulationCompliantObject;
+import repicea.stats.Distribution;
+
+/**
+ * A standalone benchmark that compares the actualization of the carbon units with the
+ * decay kernels against the former actualization, which evaluated the decay function twice
+ * per time step. <p>
+ * Building the carbon units requires a complete CAT run. The benchmark rather reproduces the loop
+ * of the CarbonUnit.computeCarbonArrays method on a set of synthetic units with an annual time table.
+ * The first path takes the survival fractions from a DecayKernelCache instance, which is cleared at
+ * each realization as in CATCompartmentManager. The second path calls
+ * the DecayFunction.getValueAtTime method for the current and the former dates. <p>
+ * Usage: DecayKernelBenchmark [nbUnits] [nbRealizations] <p>
+ * It is not a unit test and it is not run by the build.
+ * @author Mathieu Fortin - March 2025
+ */
+public class DecayKernelBenchmark {
+
+	private static final int HorizonYr = 150;
+	private static final int NbWarmUpRounds = 5;
+	private static final int NbMeasuredRounds = 20;
+
+	private static class Realization implements MonteCarloSimulationCompliantObject {
+
+		int mcReal;
+
+		@Override
+		public String getSubjectId() {return null;}
+
+		@Override
+		public HierarchicalLevel getHierarchicalLevel() {return null;}
+
+		@Override
+		public int getMonteCarloRealizationId() {return mcReal;}
+	}
+
+	private static class SyntheticUnit {
+		final DecayFunction decayFunction;
+		final int creationDate;
+		final double initialCarbon;
+		final double[] currentCarbonArray;
+
+		SyntheticUnit(DecayFunction decayFunction, int creationDate, double initialCarbon) {
+			this.decayFunction = decayFunction;
+			this.creationDate = creationDate;
+			this.initialCarbon = initialCarbon;
+			currentCarbonArray = new double[HorizonYr + 1];
+		}
+	}
+
+	private static double actualizeWithKernels(List<SyntheticUnit> units, DecayKernelCache cache, MonteCarloSimulationCompliantObject subject) {
+		double total = 0d;
+		for (SyntheticUnit unit : units) {
+			double[] kernel = cache.getKernel(unit.decayFunction, subject, HorizonYr);
+			double currentCarbon = unit.initialCarbon;
+			unit.currentCarbonArray[unit.creationDate] = currentCarbon;
+			for (int date = unit.creationDate + 1; date <= HorizonYr && currentCarbon > ProductionProcessorManager.VERY_SMALL; date++) {
+				currentCarbon = unit.currentCarbonArray[date - 1] * kernel[date - unit.creationDate] / kernel[date - 1 - unit.creationDate];
+				unit.currentCarbonArray[date] = currentCarbon;
+			}
+			total += currentCarbon;
+		}
+		return total;
+	}
+
+	private static double actualizeStepByStep(List<SyntheticUnit> units, MonteCarloSimulationCompliantObject subject) {
+		double total = 0d;
+		for (SyntheticUnit unit : units) {
+			double currentCarbon = unit.initialCarbon;
+			unit.currentCarbonArray[unit.creationDate] = currentCarbon;
+			for (int date = unit.creationDate + 1; date <= HorizonYr && currentCarbon > ProductionProcessorManager.VERY_SMALL; date++) {
+				double thisRemains = unit.decayFunction.getValueAtTime(date - unit.creationDate, subject);
+				double thatRemained = unit.decayFunction.getValueAtTime(date - 1 - unit.creationDate, subject);
+				currentCarbon = unit.currentCarbonArray[date - 1] * thisRemains / thatRemained;
+				unit.currentCarbonArray[date] = currentCarbon;
+			}
+			total += currentCarbon;
+		}
+		return total;
+	}
+
+	private static void runBenchmark(List<SyntheticUnit> units, int nbRealizations, String label) {
+		DecayKernelCache cache = new DecayKernelCache();
+		Realization subject = new Realization();
+		long kernelNs = 0;
+		long stepByStepNs = 0;
+		double maxRelativeDifference = 0d;
+		for (int round = 0; round < NbWarmUpRounds + NbMeasuredRounds; round++) {
+			for (int real = 0; real < nbRealizations; real++) {
+				subject.mcReal = real;
+				long start = System.nanoTime();
+				cache.clear();
+				double kernelTotal = actualizeWithKernels(units, cache, subject);
+				long kernelElapsed = System.nanoTime() - start;
+				start = System.nanoTime();
+				double stepByStepTotal = actualizeStepByStep(units, subject);
+				long stepByStepElapsed = System.nanoTime() - start;
+				if (round >= NbWarmUpRounds) {
+					kernelNs += kernelElapsed;
+					stepByStepNs += stepByStepElapsed;
+					maxRelativeDifference = Math.max(maxRelativeDifference, Math.abs(kernelTotal - stepByStepTotal) / stepByStepTotal);
+				}
+			}
+		}
+		double nbActualizations = (double) NbMeasuredRounds * nbRealizations * units.size();
+		System.out.println(label + ": " + String.format("%.1f", stepByStepNs / nbActualizations) + " ns per unit with getValueAtTime, " +
+				String.format("%.1f", kernelNs / nbActualizations) + " ns per unit with the kernels (speedup " +
+				String.format("%.2f", (double) stepByStepNs / kernelNs) + "x, max relative difference " + maxRelativeDifference + ")");
+	}
+
+	public static void main(String[] args) {
+		int nbUnits = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int nbRealizations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		Random random = new Random(1234);
+		List<DecayFunction> decayFunctions = new ArrayList<DecayFunction>();
+		for (DecayFunctionType type : DecayFunctionType.values()) {
+			for (double lifetime : new double[] {2d, 10d, 30d, 75d}) {
+				decayFunctions.add(new DecayFunction(new CarbonUnitFeature(null), LifetimeMode.AVERAGE, type, lifetime));
+			}
+		}
+		List<SyntheticUnit> units = new ArrayList<SyntheticUnit>();
+		for (int i = 0; i < nbUnits; i++) {
+			units.add(new SyntheticUnit(decayFunctions.get(random.nextInt(decayFunctions.size())),
+					random.nextInt(HorizonYr),
+					random.nextDouble() * 10d));
+		}
+		System.out.println("Actualizing " + nbUnits + " carbon units over " + HorizonYr + " years in " + nbRealizations + " realizations");
+		runBenchmark(units, nbRealizations, "Deterministic lifetimes");
+		CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.Lifetime, Distribution.Type.GAUSSIAN, true, 0.4);
+		try {
+			runBenchmark(units, nbRealizations, "Stochastic lifetimes");
+		} finally {
+			CATSensitivityAnalysisSettings.getInstance().setVariabilitySource(VariabilitySource.Lifetime, Distribution.Type.GAUSSIAN, false, 0.4);
+		}
+	}
+}
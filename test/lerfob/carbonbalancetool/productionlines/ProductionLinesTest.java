@@ -5,20 +5,32 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import lerfob.carbonbalancetool.CATCompartment.CompartmentInfo;
+import lerfob.carbonbalancetool.CATStageCache;
+import lerfob.carbonbalancetool.CATTask.Task;
 import lerfob.carbonbalancetool.CATCompatibleTree;
+import lerfob.carbonbalancetool.CarbonAccountingTool;
+import lerfob.carbonbalancetool.CarbonAccountingTool.CATMode;
+import lerfob.carbonbalancetool.CarbonAccountingToolTest;
+import lerfob.carbonbalancetool.io.CATYieldTableRecordReader;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.BiomassType;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.CarbonUnitStatus;
 import lerfob.carbonbalancetool.productionlines.CarbonUnit.Element;
 import lerfob.carbonbalancetool.productionlines.EndUseWoodProductCarbonUnitFeature.UseClass;
 import lerfob.carbonbalancetool.productionlines.WoodyDebrisProcessor.WoodyDebrisProcessorID;
 import quebecmrnfutility.treelogger.meristreelogger.MerisTreeLogger;
+import repicea.io.tools.ImportFieldManager;
+import repicea.math.Matrix;
+import repicea.math.SymmetricMatrix;
 import repicea.simulation.covariateproviders.treelevel.SpeciesTypeProvider.SpeciesType;
 import repicea.simulation.covariateproviders.treelevel.TreeStatusProvider.StatusClass;
 import repicea.simulation.processsystem.AmountMap;
@@ -26,6 +38,7 @@ import repicea.simulation.processsystem.ProcessUnit;
 import repicea.simulation.processsystem.Processor;
 import repicea.simulation.species.REpiceaSpecies.Species;
 import repicea.simulation.species.REpiceaSpecies.SpeciesLocale;
+import repicea.stats.estimates.Estimate;
 import repicea.util.ObjectUtility;
 
 @SuppressWarnings("deprecation")
@@ -757,4 +770,293 @@ public class ProductionLinesTest {
 		Assert.assertTrue("Testing that the number of left-hand side processors is smaller than 25", nbLeftHandSideProcessorsAfterAggregation < 25);
 	}
 
+	/*
+	 * Test that the compiled flux configuration yields the same amounts as the recursive implementation.
+	 */
+	@Test
+	public void test16CompiledFluxConfigurationSameAsRecursiveImplementation() throws IOException {
+		String[] filenames = new String[] {"20250717_schema_filiere_Prod_End_2020_groupes_essences_Henri.prl",
+				"testHardwoodRecyclingWithBroadleavedSorting.prl",
+				"testHardwoodSimpleWithDebarking.prl",
+				"testHardwood_simple_enWithEmissions.prl"};
+		for (String filename : filenames) {
+			String path = ObjectUtility.getPackagePath(getClass()) + filename;
+			Map<CarbonUnitStatus, double[]> expected = processWithAndWithoutCompilation(path, false);
+			Map<CarbonUnitStatus, double[]> actual = processWithAndWithoutCompilation(path, true);
+			for (CarbonUnitStatus status : CarbonUnitStatus.values()) {
+				for (int j = 0; j < 3; j++) {
+					Assert.assertEquals("Testing amount " + j + " for status " + status.name() + " in file " + filename, 
+							expected.get(status)[j], 
+							actual.get(status)[j], 
+							1E-10);
+				}
+				Assert.assertEquals("Testing the number of carbon units for status " + status.name() + " in file " + filename, 
+						expected.get(status)[3], 
+						actual.get(status)[3], 
+						0d);
+			}
+		}
+	}
+
+	/*
+	 * Test that the typed indexes of the CarbonUnitList class match the reflective filter, also after
+	 * the list has been modified through the methods that bypass the indexes.
+	 */
+	@Test
+	public void test17CarbonUnitListIndexesSameAsFilterList() throws IOException {
+		String path = ObjectUtility.getPackagePath(getClass()) + "testHardwoodRecyclingWithBroadleavedSorting.prl";
+		ProductionProcessorManager processorManager = new ProductionProcessorManager();
+		processorManager.load(path);
+		AmountMap<Element> woodAmountMap = new AmountMap<Element>();
+		woodAmountMap.put(Element.Volume, 1d);
+		woodAmountMap.put(Element.Biomass, .5);
+		woodAmountMap.put(Element.C, .25);
+		Map<BiomassType, AmountMap<Element>> amountMaps = new HashMap<BiomassType, AmountMap<Element>>();
+		amountMaps.put(BiomassType.Wood, woodAmountMap);
+		for (Processor p : processorManager.getPrimaryProcessors()) {
+			if (p instanceof LogCategoryProcessor && p.hasSubProcessors()) {
+				for (int dateIndex = 0; dateIndex < 3; dateIndex++) {
+					processorManager.processAmountMap(p, dateIndex, "mySamplingID", amountMaps, Species.Abies_spp.name(), Species.Abies_spp.getSpeciesType(), StatusClass.cut, null);
+					processorManager.processAmountMap(p, dateIndex, "mySamplingID", amountMaps, Species.Fagus_sylvatica.name(), Species.Fagus_sylvatica.getSpeciesType(), StatusClass.dead, null);
+				}
+			}
+		}
+		CarbonUnitList endUseProducts = processorManager.getCarbonUnits(CarbonUnitStatus.EndUseWoodProduct);
+		Assert.assertTrue("Testing that there are end use products", !endUseProducts.isEmpty());
+		for (int dateIndex = 0; dateIndex < 3; dateIndex++) {
+			Assert.assertEquals("Testing date index " + dateIndex, 
+					endUseProducts.filterList(CarbonUnit.class, "getIndexInTimeScale", dateIndex),
+					endUseProducts.getCarbonUnitsCreatedAt(dateIndex));
+		}
+		for (UseClass useClass : UseClass.values()) {
+			Assert.assertEquals("Testing use class " + useClass.name(), 
+					endUseProducts.filterList(EndUseWoodProductCarbonUnit.class, "getUseClass", useClass),
+					endUseProducts.getCarbonUnitsOfThisUseClass(useClass));
+		}
+		for (StatusClass statusClass : StatusClass.values()) {
+			Assert.assertEquals("Testing status class " + statusClass.name(), 
+					endUseProducts.filterList(CarbonUnit.class, "getStatusClass", statusClass),
+					endUseProducts.getCarbonUnitsOfThisStatusClass(statusClass));
+		}
+		Assert.assertEquals("Testing species", 
+				endUseProducts.filterList(CarbonUnit.class, "getSpeciesName", Species.Abies_spp.name()),
+				endUseProducts.getCarbonUnitsOfThisSpecies(Species.Abies_spp.name()));
+		Assert.assertEquals("Testing biomass type", 
+				endUseProducts.filterList(CarbonUnit.class, "getBiomassType", BiomassType.Wood),
+				endUseProducts.getCarbonUnitsOfThisBiomassType(BiomassType.Wood));
+		CarbonUnit removedUnit = endUseProducts.remove(0);
+		Iterator<CarbonUnit> iter = endUseProducts.iterator();
+		CarbonUnit otherRemovedUnit = iter.next();
+		iter.remove();
+		endUseProducts.removeIf(new Predicate<CarbonUnit>() {
+			@Override
+			public boolean test(CarbonUnit carbonUnit) {return carbonUnit.getIndexInTimeScale() == 1;}
+		});
+		endUseProducts.set(0, removedUnit);
+		endUseProducts.subList(1, 2).set(0, otherRemovedUnit);
+		for (int dateIndex = 0; dateIndex < 3; dateIndex++) {
+			Assert.assertEquals("Testing date index " + dateIndex + " after modifying the list", 
+					endUseProducts.filterList(CarbonUnit.class, "getIndexInTimeScale", dateIndex),
+					endUseProducts.getCarbonUnitsCreatedAt(dateIndex));
+		}
+		for (UseClass useClass : UseClass.values()) {
+			Assert.assertEquals("Testing use class " + useClass.name() + " after modifying the list", 
+					endUseProducts.filterList(EndUseWoodProductCarbonUnit.class, "getUseClass", useClass),
+					endUseProducts.getCarbonUnitsOfThisUseClass(useClass));
+		}
+		int size = endUseProducts.size();
+		Iterator<CarbonUnit> iter2 = endUseProducts.iterator();
+		CarbonUnit firstUnit = iter2.next();
+		CarbonUnit secondUnit = iter2.next();
+		iter2.remove();
+		endUseProducts.add(secondUnit);
+		Assert.assertEquals("Testing that the unit added after its removal is not merged", size, endUseProducts.size());
+		Assert.assertSame("Testing that the first unit is still in place", firstUnit, endUseProducts.get(0));
+		Assert.assertTrue("Testing the species index after adding the unit again", 
+				endUseProducts.getCarbonUnitsOfThisSpecies(secondUnit.getSpeciesName()).contains(secondUnit));
+		endUseProducts.clear();
+		Assert.assertTrue("Testing the index after clearing", endUseProducts.getCarbonUnitsCreatedAt(0).isEmpty());
+	}
+
+	/*
+	 * Test that the in-place operations of the ElementVector class produce the same amount maps 
+	 * as the operations on AmountMap instances.
+	 */
+	@Test
+	public void test18ElementVectorSameAsAmountMap() {
+		AmountMap<Element> woodAmountMap = new AmountMap<Element>();
+		woodAmountMap.put(Element.Volume, 1d);
+		woodAmountMap.put(Element.Biomass, .5);
+		woodAmountMap.put(Element.C, .25);
+		AmountMap<Element> concentrations = new AmountMap<Element>();
+		concentrations.put(Element.N, .002);
+		concentrations.put(Element.K, .001);
+
+		AmountMap<Element> expected = woodAmountMap.multiplyByAScalar(.3);
+		expected.putAll(concentrations.multiplyByAScalar(.5));
+		expected.add(Element.EmissionsCO2Eq, .1);
+
+		ElementVector actual = ElementVector.fromAmountMap(woodAmountMap).scale(.3);
+		actual.addScaled(ElementVector.fromAmountMap(concentrations), .5);
+		actual.add(Element.EmissionsCO2Eq, .1);
+		AmountMap<Element> actualMap = actual.toAmountMap();
+
+		Assert.assertEquals("Testing the keys", expected.keySet(), actualMap.keySet());
+		for (Element e : expected.keySet()) {
+			Assert.assertEquals("Testing element " + e.name(), expected.get(e), actualMap.get(e), 1E-12);
+		}
+		Assert.assertTrue("Testing undefined element", !actual.isDefined(Element.S));
+	}
+
+	/*
+	 * Test that the disposal cascade, which accumulates the disposed amounts by cohort, produces the 
+	 * same compartments as the former implementation, which processes a carbon unit for each product 
+	 * and each year of disposal.
+	 */
+	@Test
+	public void test19DisposalCascadeSameAsPerYearCarbonUnits() throws Exception {
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "hardwood_recycling_en.prl";
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> expected = runYieldTableWithDisposalCascade(prlFilename, false);
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> actual = runYieldTableWithDisposalCascade(prlFilename, true);
+		int nbCompartmentChecked = 0;
+		Assert.assertEquals("Testing the size of the map", expected.size(), actual.size());
+		for (CompartmentInfo key : expected.keySet()) {
+			double expectedValue = expected.get(key).getMean().getValueAt(0, 0);
+			Assert.assertEquals("Testing compartment " + key.name(), 
+					expectedValue, 
+					actual.get(key).getMean().getValueAt(0, 0), 
+					Math.abs(expectedValue) * 1E-10 + 1E-12);
+			nbCompartmentChecked++;
+		}
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+	}
+
+	private static Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> runYieldTableWithDisposalCascade(String prlFilename, boolean cascadeEnabled) throws Exception {
+		String filename = ObjectUtility.getPackagePath(CarbonAccountingToolTest.class) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(CarbonAccountingToolTest.class) + "io" + File.separator + "ExampleYieldTable.ife";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		ProductionProcessorManager processorManager = cat.getCarbonToolSettings().getCurrentProductionProcessorManager();
+		processorManager.setGraphCompilationEnabled(cascadeEnabled);
+		cat.calculateCarbon();
+		Assert.assertTrue("Testing that some products have been recycled", !processorManager.getCarbonUnits(CarbonUnitStatus.Recycled).isEmpty());
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> budgetMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		cat.requestShutdown();
+		return budgetMap;
+	}
+
+	/*
+	 * Test that the stage cache produces the same compartments as a cold run without the cache
+	 * when the production lines are changed between two runs. The wood products are then replayed
+	 * through the modified production lines.
+	 */
+	@Test
+	public void test20StageCacheAfterChangingProductionLinesSameAsColdRun() throws Exception {
+		String prlFilename = ObjectUtility.getRelativePackagePath(ProductionProcessorManager.class) + "library" + ObjectUtility.PathSeparator + "ipcc2014_en.prl";
+		CarbonAccountingTool cat = createYieldTableTool(prlFilename);
+		cat.setStageCacheEnabled(true);
+		cat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> formerMap = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		doubleTheLifetimes(cat.getCarbonToolSettings().getCurrentProductionProcessorManager());
+		cat.calculateCarbon();
+		CATStageCache stageCache = cat.getCarbonCompartmentManager().getStageCache();
+		Assert.assertEquals("Testing the number of log-and-buck hits", 1, stageCache.getNbHits(Task.LOG_AND_BUCK_TREES));
+		Assert.assertEquals("Testing the number of wood product hits", 1, stageCache.getNbHits(Task.GENERATE_WOODPRODUCTS));
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> actual = cat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		cat.requestShutdown();
+
+		CarbonAccountingTool coldCat = createYieldTableTool(prlFilename);
+		doubleTheLifetimes(coldCat.getCarbonToolSettings().getCurrentProductionProcessorManager());
+		coldCat.calculateCarbon();
+		Map<CompartmentInfo, Estimate<Matrix, SymmetricMatrix, ?>> expected = coldCat.getCarbonCompartmentManager().getSimulationSummary().getBudgetMap();
+		coldCat.requestShutdown();
+
+		int nbCompartmentChecked = 0;
+		boolean lifetimesHaveChangedTheResults = false;
+		Assert.assertEquals("Testing the size of the map", expected.size(), actual.size());
+		for (CompartmentInfo key : expected.keySet()) {
+			double expectedValue = expected.get(key).getMean().getValueAt(0, 0);
+			Assert.assertEquals("Testing compartment " + key.name(), 
+					expectedValue, 
+					actual.get(key).getMean().getValueAt(0, 0), 
+					Math.abs(expectedValue) * 1E-10 + 1E-12);
+			if (Math.abs(formerMap.get(key).getMean().getValueAt(0, 0) - expectedValue) > Math.abs(expectedValue) * 1E-6) {
+				lifetimesHaveChangedTheResults = true;
+			}
+			nbCompartmentChecked++;
+		}
+		Assert.assertTrue("Testing that the change in the production lines has changed the results", lifetimesHaveChangedTheResults);
+		System.out.println("Successfully tested this number of compartments " + nbCompartmentChecked);
+	}
+
+	private static CarbonAccountingTool createYieldTableTool(String prlFilename) throws Exception {
+		String filename = ObjectUtility.getPackagePath(CarbonAccountingToolTest.class) + "io" + File.separator + "ExampleYieldTable.csv";
+		String ifeFilename = ObjectUtility.getPackagePath(CarbonAccountingToolTest.class) + "io" + File.separator + "ExampleYieldTable.ife";
+		CarbonAccountingTool cat = new CarbonAccountingTool(CATMode.SCRIPT);
+		cat.initializeTool(null);
+		CATYieldTableRecordReader recordReader = new CATYieldTableRecordReader(Species.Abies_spp, SpeciesLocale.IPCC);
+		ImportFieldManager ifm = ImportFieldManager.createImportFieldManager(recordReader, ifeFilename, filename);
+		recordReader.initInScriptMode(ifm);
+		recordReader.readAllRecords();
+		cat.setStandList(recordReader.getStandList());
+		cat.setProductionManager(prlFilename);
+		return cat;
+	}
+
+	private static void doubleTheLifetimes(ProductionProcessorManager processorManager) {
+		for (Processor p : processorManager.getList()) {
+			if (p instanceof AbstractProductionLineProcessor) {
+				CarbonUnitFeature feature = ((AbstractProductionLineProcessor) p).getEndProductFeature();
+				if (feature != null) {
+					DecayFunction decayFunction = feature.getDecayFunction();
+					decayFunction.setAverageLifetimeYr(decayFunction.averageLifetimeYr * 2);
+				}
+			}
+		}
+	}
+
+	private Map<CarbonUnitStatus, double[]> processWithAndWithoutCompilation(String filename, boolean compilationEnabled) throws IOException {
+		ProductionProcessorManager processorManager = new ProductionProcessorManager();
+		processorManager.load(filename);
+		processorManager.setGraphCompilationEnabled(compilationEnabled);
+
+		AmountMap<Element> woodAmountMap = new AmountMap<Element>();
+		woodAmountMap.put(Element.Volume, 1d);
+		woodAmountMap.put(Element.Biomass, .5);
+		woodAmountMap.put(Element.C, .25);
+		AmountMap<Element> barkAmountMap = new AmountMap<Element>();
+		barkAmountMap.put(Element.Volume, .1);
+		barkAmountMap.put(Element.Biomass, .05);
+		barkAmountMap.put(Element.C, .025);
+		Map<BiomassType, AmountMap<Element>> amountMaps = new HashMap<BiomassType, AmountMap<Element>>();
+		amountMaps.put(BiomassType.Wood, woodAmountMap);
+		amountMaps.put(BiomassType.Bark, barkAmountMap);
+		for (Processor p : processorManager.getPrimaryProcessors()) {
+			if (p instanceof LogCategoryProcessor && p.hasSubProcessors()) {
+				processorManager.processAmountMap(p, 0, "mySamplingID", amountMaps, Species.Abies_spp.name(), Species.Abies_spp.getSpeciesType(), StatusClass.cut, null);
+				processorManager.processAmountMap(p, 0, "mySamplingID", amountMaps, Species.Fagus_sylvatica.name(), Species.Fagus_sylvatica.getSpeciesType(), StatusClass.dead, null);
+			}
+		}
+
+		Map<CarbonUnitStatus, double[]> outputMap = new HashMap<CarbonUnitStatus, double[]>();
+		for (CarbonUnitStatus status : CarbonUnitStatus.values()) {
+			double[] values = new double[4];
+			for (CarbonUnit cu : processorManager.getCarbonUnits(status)) {
+				values[0] += cu.getAmountMap().get(Element.Biomass);
+				values[1] += cu.getAmountMap().get(Element.C);
+				Double emissions = cu.getAmountMap().get(Element.EmissionsCO2Eq);
+				values[2] += emissions == null ? 0d : emissions;
+				values[3]++;
+			}
+			outputMap.put(status, values);
+		}
+		return outputMap;
+	}
+
 }
@@ -0,0 +1,303 @@
+package lerfob.carbonbalancetool.pythonaccess;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import repicea.lang.REpiceaSystem;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.util.ObjectUtility;
+
+public class CATComputeServerTest {
+
+	static {
+		System.out.println("RUNNING " + CATComputeServerTest.class.getName());
+	}
+
+	private static final String Sep = CATComputeServer.Separator;
+
+	@SuppressWarnings("rawtypes")
+	private synchronized static Map getInputMap() throws Exception {
+		if (PythonAccessTest.InputMap == null) {
+			String filename = ObjectUtility.getPackagePath(PythonAccessTest.class) + "testMapPythonAccess.ref";
+			XmlDeserializer deserializer = new XmlDeserializer(filename);
+			PythonAccessTest.InputMap = (Map) deserializer.readObject();
+		}
+		return PythonAccessTest.InputMap;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static String toRequestBody(Map<String, Map> inputMaps) {
+		StringBuilder sb = new StringBuilder(CATComputeServer.StandIDField + Sep + CATComputeServer.YearField);
+		for (String field : CATComputeServer.HarvestFields) {
+			sb.append(Sep + field);
+		}
+		sb.append("\n");
+		for (String standID : inputMaps.keySet()) {
+			Map inputMap = inputMaps.get(standID);
+			for (Object year : inputMap.keySet()) {
+				sb.append(standID + Sep + year);
+				Map innerMap = (Map) ((Map) inputMap.get(year)).get("RECOLTE");
+				for (String field : CATComputeServer.HarvestFields) {
+					sb.append(Sep);
+					if (innerMap != null && innerMap.get(field) != null) {
+						sb.append(innerMap.get(field).toString());
+					}
+				}
+				sb.append("\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Map<String, Map> createInputMaps(int nbStands) throws Exception {
+		Map<String, Map> inputMaps = new LinkedHashMap<String, Map>();
+		for (int i = 0; i < nbStands; i++) {
+			inputMaps.put("examplePine" + i, getInputMap());
+		}
+		return inputMaps;
+	}
+
+	private static List<String> postJob(int port, String query, String body) throws Exception {
+		URL url = new URL("http://127.0.0.1:" + port + "/run?" + query);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream os = connection.getOutputStream()) {
+			os.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		Assert.assertEquals("Testing the response code", 200, connection.getResponseCode());
+		List<String> lines = new ArrayList<String>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testServerSameResultsAsAccessPoint() throws Exception {
+		PythonAccessPoint pap = new PythonAccessPoint();
+		pap.setSpecies("pine");
+		pap.setAreaHA(0.1);
+		Map<Integer, Map<String, Double>> resultingMap = pap.processStandList("examplePine", getInputMap());
+
+		CATComputeServer server = new CATComputeServer(0, 2, 2, "pine");
+		server.start();
+		try {
+			Map<String, Map> inputMaps = createInputMaps(3);
+			List<String> lines = postJob(server.getPort(), "species=pine&areaHa=0.1", toRequestBody(inputMaps));
+			List<String> header = Arrays.asList(lines.get(0).split(Sep));
+			Assert.assertEquals("Testing the number of fields", PythonAccessPoint.OutputVariableNames.size() + 2, header.size());
+			Assert.assertEquals("Testing the number of lines", inputMaps.size() * resultingMap.size() + 1, lines.size());
+			int nbValuesCompared = 0;
+			for (int i = 1; i < lines.size(); i++) {
+				String[] fields = lines.get(i).split(Sep);
+				Assert.assertTrue("Testing the stand id", inputMaps.containsKey(fields[0]));
+				Map<String, Double> innerResultingMap = resultingMap.get(Integer.parseInt(fields[1]));
+				for (int j = 2; j < fields.length; j++) {
+					Assert.assertEquals("Comparing " + header.get(j), innerResultingMap.get(header.get(j)), Double.parseDouble(fields[j]), 1E-8);
+					nbValuesCompared++;
+				}
+			}
+			System.out.println("Successfully compared this number of values: " + nbValuesCompared);
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static int getResponseCode(int port, String query, String body) throws Exception {
+		URL url = new URL("http://127.0.0.1:" + port + "/run?" + query);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream os = connection.getOutputStream()) {
+			os.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return connection.getResponseCode();
+	}
+
+	/*
+	 * The production lines and the biomass parameters must be files bundled with the package.
+	 */
+	@Test
+	public void testServerRejectsFilesThatAreNotBundled() throws Exception {
+		CATComputeServer server = new CATComputeServer(0, 1, 1, "pine");
+		server.start();
+		try {
+			String body = toRequestBody(createInputMaps(1));
+			Assert.assertEquals("Testing a relative path", 
+					400, 
+					getResponseCode(server.getPort(), "species=pine&prl=" + URLEncoder.encode("../pythonaccess/maritimepine.prl", "UTF-8"), body));
+			Assert.assertEquals("Testing an absolute path", 
+					400, 
+					getResponseCode(server.getPort(), "species=pine&bpf=" + URLEncoder.encode(new File("biomassParametersBeechPine.bpf").getAbsolutePath(), "UTF-8"), body));
+			Assert.assertEquals("Testing a bundled file", 
+					200, 
+					getResponseCode(server.getPort(), "species=pine&areaHa=0.1&prl=maritimepine.prl&bpf=biomassParametersBeechPine.bpf", body));
+		} finally {
+			server.stop();
+		}
+	}
+
+	/*
+	 * The worker switches to other production lines and back. The second time, the settings 
+	 * are unpacked from the parsed files.
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testServerSameResultsAfterSwitchingProductionLines() throws Exception {
+		CATComputeServer server = new CATComputeServer(0, 1, 1, "pine");
+		server.start();
+		try {
+			Map<String, Map> inputMaps = createInputMaps(1);
+			List<String> expectedLines = postJob(server.getPort(), "species=pine&areaHa=0.1", toRequestBody(inputMaps));
+			postJob(server.getPort(), "species=pine&areaHa=0.1&prl=GrandEstForestSector.prl", toRequestBody(inputMaps));
+			List<String> actualLines = postJob(server.getPort(), "species=pine&areaHa=0.1&prl=maritimepine.prl", toRequestBody(inputMaps));
+			Assert.assertEquals("Testing the number of lines", expectedLines.size(), actualLines.size());
+			Assert.assertEquals("Comparing the headers", expectedLines.get(0), actualLines.get(0));
+			for (int i = 1; i < expectedLines.size(); i++) {
+				String[] expectedFields = expectedLines.get(i).split(Sep);
+				String[] actualFields = actualLines.get(i).split(Sep);
+				Assert.assertEquals("Comparing the stand id at line " + i, expectedFields[0], actualFields[0]);
+				Assert.assertEquals("Comparing the year at line " + i, expectedFields[1], actualFields[1]);
+				for (int j = 2; j < expectedFields.length; j++) {
+					Assert.assertEquals("Comparing field " + j + " at line " + i, 
+							Double.parseDouble(expectedFields[j]), 
+							Double.parseDouble(actualFields[j]), 
+							1E-8);
+				}
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+	/*
+	 * Cold-start path of the load test: one JVM per job.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void runSingleJob(String bodyFilename) throws Exception {
+		Map<String, Map> inputMaps;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(bodyFilename), StandardCharsets.UTF_8))) {
+			inputMaps = CATComputeServer.parseInputMaps(reader);
+		}
+		PythonAccessPoint pap = new PythonAccessPoint();
+		pap.setSpecies("pine");
+		pap.setAreaHA(0.1);
+		for (String standID : inputMaps.keySet()) {
+			pap.processStandList(standID, inputMaps.get(standID));
+		}
+	}
+
+	private static double runJobs(int nbJobs, int nbClients, Runnable job) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(nbClients);
+		long initTime = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < nbJobs; i++) {
+			futures.add(executor.submit(job));
+		}
+		for (Future<?> f : futures) {
+			f.get();
+		}
+		double elapsedSec = (System.nanoTime() - initTime) * 1E-9;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		return nbJobs / elapsedSec;
+	}
+
+	/**
+	 * Load test that compares the throughput of the compute server with that of the cold-start path, 
+	 * i.e. one JVM per job as with a scripted run. <p>
+	 * Options: -jobs (number of jobs, 20 by default), -clients (number of concurrent clients, 4 by default) 
+	 * and -stands (number of stands per job, 4 by default).
+	 * @param args the options of the load test
+	 * @throws Exception if a job fails
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void main(String[] args) throws Exception {
+		List<String> argumentList = Arrays.asList(args);
+		String singleJob = REpiceaSystem.retrieveArgument("-single", argumentList);
+		if (singleJob != null) {
+			runSingleJob(singleJob);
+			System.exit(0);
+		}
+		String jobsStr = REpiceaSystem.retrieveArgument("-jobs", argumentList);
+		int nbJobs = jobsStr != null ? Integer.parseInt(jobsStr) : 20;
+		String clientsStr = REpiceaSystem.retrieveArgument("-clients", argumentList);
+		int nbClients = clientsStr != null ? Integer.parseInt(clientsStr) : 4;
+		String standsStr = REpiceaSystem.retrieveArgument("-stands", argumentList);
+		int nbStands = standsStr != null ? Integer.parseInt(standsStr) : 4;
+
+		Map<String, Map> inputMaps = createInputMaps(nbStands);
+		final String body = toRequestBody(inputMaps);
+		final File bodyFile = File.createTempFile("catLoadTest", ".csv");
+		bodyFile.deleteOnExit();
+		Files.write(bodyFile.toPath(), body.getBytes(StandardCharsets.UTF_8));
+
+		final String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		final String classPath = System.getProperty("java.class.path");
+		double coldThroughput = runJobs(nbJobs, nbClients, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Process process = new ProcessBuilder(javaExecutable, "-cp", classPath, CATComputeServerTest.class.getName(), "-single", bodyFile.getAbsolutePath())
+							.redirectErrorStream(true)
+							.start();
+					InputStream is = process.getInputStream();
+					byte[] buffer = new byte[8192];
+					while (is.read(buffer) != -1) {}	// the output of the child JVM is discarded
+					if (process.waitFor() != 0) {
+						throw new RuntimeException("The cold-start job has failed!");
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		System.out.println("Cold-start path: " + coldThroughput + " job(s)/s");
+
+		final CATComputeServer server = new CATComputeServer(0, Runtime.getRuntime().availableProcessors(), nbClients, "pine");
+		server.start();
+		try {
+			double warmThroughput = runJobs(nbJobs, nbClients, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						postJob(server.getPort(), "species=pine&areaHa=0.1", body);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			System.out.println("Compute server: " + warmThroughput + " job(s)/s");
+			System.out.println("Speedup: " + warmThroughput / coldThroughput);
+		} finally {
+			server.stop();
+		}
+	}
+}
@@ -1,9 +1,16 @@
 package lerfob.carbonbalancetool.pythonaccess;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -161,4 +168,107 @@ public class PythonAccessMaritimePineTest {
 		System.out.println("Successfully compared this number of values: " + nbValuesCompared);
 	}
 
+	@SuppressWarnings({ "rawtypes" })
+	@Test
+	public void testBatchWithMaritimePine() throws Exception {
+		PythonAccessPoint pap = new PythonAccessPoint();
+		pap.setSpecies("pine");
+		pap.setAreaHA(0.1);
+		
+		Map<Integer, Map<String, Double>> resultingMap = pap.processStandList("examplePine", getInputMap());
+		
+		List<String> standIDs = new ArrayList<String>();
+		List<Map> inputMaps = new ArrayList<Map>();
+		for (int i = 0; i < 3; i++) {
+			standIDs.add("examplePine" + i);
+			inputMaps.add(getInputMap());
+		}
+		PythonBatchResult result = pap.processStandLists(standIDs, inputMaps, 2);
+		pap.releaseBatchWorkers();
+		
+		Assert.assertEquals("Testing the number of failures", 0, result.getNumberOfFailures());
+		Assert.assertEquals("Testing the number of years", resultingMap.size(), result.getYears().length);
+		double[] valuesFromBytes = new double[result.getValues().length];
+		ByteBuffer.wrap(result.getValuesAsBytes()).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(valuesFromBytes);
+		Assert.assertArrayEquals("Testing the byte array", result.getValues(), valuesFromBytes, 0d);
+		int nbValuesCompared = 0;
+		for (int i = 0; i < standIDs.size(); i++) {
+			for (int j = 0; j < result.getYears().length; j++) {
+				Map<String, Double> innerResultingMap = resultingMap.get(result.getYears()[j]);
+				Assert.assertEquals("Testing the number of variables", innerResultingMap.size(), result.getVariableNames().length);
+				for (int k = 0; k < result.getVariableNames().length; k++) {
+					String variableName = result.getVariableNames()[k];
+					Assert.assertEquals("Comparing " + variableName, innerResultingMap.get(variableName), result.getValue(i, j, k), 1E-8);
+					nbValuesCompared++;
+				}
+			}
+		}
+		System.out.println("Successfully compared this number of values: " + nbValuesCompared);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testBatchWithMaritimePineAndFailedStand() throws Exception {
+		PythonAccessPoint pap = new PythonAccessPoint();
+		pap.setSpecies("pine");
+		pap.setAreaHA(0.1);
+		
+		Map invalidInputMap = new HashMap();
+		invalidInputMap.put(2010, "notAMap");
+		List<String> standIDs = new ArrayList<String>();
+		List<Map> inputMaps = new ArrayList<Map>();
+		standIDs.add("examplePine0");
+		inputMaps.add(getInputMap());
+		standIDs.add("invalidStand");
+		inputMaps.add(invalidInputMap);
+		standIDs.add("examplePine2");
+		inputMaps.add(getInputMap());
+		PythonBatchResult result = pap.processStandLists(standIDs, inputMaps, 2);
+		pap.releaseBatchWorkers();
+		
+		Assert.assertEquals("Testing the number of failures", 1, result.getNumberOfFailures());
+		Assert.assertEquals("Testing the status of the first stand", PythonBatchResult.PROCESSED, result.getStatus()[0]);
+		Assert.assertEquals("Testing the status of the invalid stand", PythonBatchResult.FAILED, result.getStatus()[1]);
+		Assert.assertEquals("Testing the status of the last stand", PythonBatchResult.PROCESSED, result.getStatus()[2]);
+		Assert.assertNotNull("Testing the error message of the invalid stand", result.getErrorMessages()[1]);
+		for (int j = 0; j < result.getYears().length; j++) {
+			for (int k = 0; k < result.getVariableNames().length; k++) {
+				Assert.assertEquals("Comparing the processed stands", result.getValue(0, j, k), result.getValue(2, j, k), 0d);
+			}
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes" })
+	@Test
+	public void testConcurrentBatchesWithMaritimePine() throws Exception {
+		final PythonAccessPoint pap = new PythonAccessPoint();
+		pap.setSpecies("pine");
+		pap.setAreaHA(0.1);
+		
+		final List<String> standIDs = new ArrayList<String>();
+		final List<Map> inputMaps = new ArrayList<Map>();
+		for (int i = 0; i < 4; i++) {
+			standIDs.add("examplePine" + i);
+			inputMaps.add(getInputMap());
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<Future<PythonBatchResult>> futures = new ArrayList<Future<PythonBatchResult>>();
+		for (int i = 0; i < 2; i++) {
+			futures.add(executor.submit(new Callable<PythonBatchResult>() {
+				@Override
+				public PythonBatchResult call() throws Exception {
+					return pap.processStandLists(standIDs, inputMaps, 2);
+				}
+			}));
+		}
+		PythonBatchResult result1 = futures.get(0).get();
+		PythonBatchResult result2 = futures.get(1).get();
+		executor.shutdown();
+		pap.releaseBatchWorkers();
+
+		Assert.assertEquals("Testing the number of failures in the first batch", 0, result1.getNumberOfFailures());
+		Assert.assertEquals("Testing the number of failures in the second batch", 0, result2.getNumberOfFailures());
+		Assert.assertArrayEquals("Comparing the values of the two batches", result1.getValues(), result2.getValues(), 0d);
+	}
+
 }
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.mems.MEMSSite.SiteType;
+import repicea.math.Matrix;
+import repicea.serial.xml.XmlDeserializer;
+
+public class MEMSSiteBinaryFormatTest {
+
+	static {
+		System.out.println("RUNNING " + MEMSSiteBinaryFormatTest.class.getName());
+	}
+
+	private static long getUsedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	/*
+	 * Test that a site written in the binary format provides the same inputs, final estimates and draws
+	 * as the zml file. The cold-start time and the heap footprint of both formats are reported.
+	 */
+	@Test
+	public void test01BinaryFormatSameAsZml() throws Exception {
+		String filenameWithoutExtension = MEMSSiteBinaryFormat.getSiteFilenameWithoutExtension(SiteType.Montmorency);
+		long memoryBefore = getUsedMemory();
+		long initTime = System.nanoTime();
+		MEMSSite zmlSite = (MEMSSite) new XmlDeserializer(filenameWithoutExtension + ".zml").readObject();
+		Matrix expectedParms = zmlSite.getFinalParameterEstimates();
+		double zmlTimeMillis = (System.nanoTime() - initTime) * 1E-6;
+		long zmlFootprint = getUsedMemory() - memoryBefore;
+		double[][] expectedDraws = zmlSite.getParameterDraws();
+
+		File file = File.createTempFile("mcmcMems_Montmorency", MEMSSiteBinaryFormat.FileExtension);
+		file.deleteOnExit();
+		MEMSSiteBinaryFormat.write(zmlSite, SiteType.Montmorency, file.getAbsolutePath());
+
+		memoryBefore = getUsedMemory();
+		initTime = System.nanoTime();
+		MEMSSite binarySite = MEMSSiteBinaryFormat.read(file.getAbsolutePath());
+		Matrix actualParms = binarySite.getFinalParameterEstimates();
+		double binaryTimeMillis = (System.nanoTime() - initTime) * 1E-6;
+		double[][] actualDraws = binarySite.getParameterDraws();
+		long binaryFootprint = getUsedMemory() - memoryBefore;
+
+		System.out.println("Cold start: zml = " + zmlTimeMillis + " ms; binary = " + binaryTimeMillis + " ms (draws excluded)");
+		System.out.println("Heap footprint: zml = " + zmlFootprint / 1024 + " KB; binary = " + binaryFootprint / 1024 + " KB (draws included)");
+		System.out.println("File size: binary = " + file.length() / 1024 + " KB");
+
+		Assert.assertEquals("Testing the number of parameters", expectedParms.m_iRows, actualParms.m_iRows);
+		for (int i = 0; i < expectedParms.m_iRows; i++) {
+			Assert.assertEquals("Testing parameter " + i, expectedParms.getValueAt(i, 0), actualParms.getValueAt(i, 0), 0d);
+		}
+		Assert.assertEquals("Testing the number of draws", expectedDraws.length, actualDraws.length);
+		for (int i = 0; i < expectedDraws.length; i++) {
+			Assert.assertArrayEquals("Testing draw " + i, expectedDraws[i], actualDraws[i], 0d);
+		}
+		SoilCarbonPredictorInput expectedInputs = zmlSite.getInputs();
+		SoilCarbonPredictorInput actualInputs = binarySite.getInputs();
+		Assert.assertEquals("Testing the land type", expectedInputs.landType, actualInputs.landType);
+		Assert.assertEquals("Testing the daily input", expectedInputs.originalCT_i, actualInputs.originalCT_i, 0d);
+		Assert.assertEquals("Testing the pH", expectedInputs.soil_pH, actualInputs.soil_pH, 0d);
+		Assert.assertEquals("Testing the bulk density", expectedInputs.bulkDensity, actualInputs.bulkDensity, 0d);
+		Assert.assertEquals("Testing the sand proportion", expectedInputs.sandProportion, actualInputs.sandProportion, 0d);
+		Assert.assertEquals("Testing the rock proportion", expectedInputs.rockProportion, actualInputs.rockProportion, 0d);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.mems.SoilCarbonPredictorEquilibrium.SpinUpMethod;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.util.ObjectUtility;
+
+public class SoilCarbonPredictorEquilibriumTest {
+
+	static {
+		System.out.println("RUNNING " + SoilCarbonPredictorEquilibriumTest.class.getName());
+	}
+
+	private static final double MAT = 3.8;				// between Jan 1 2013 to Dec 31st 2016 at MM
+	private static final double Trange = 17.79 + 9.48;	// between Jan 1 2013 to Dec 31st 2016 at MM
+
+	private static SoilCarbonPredictorInput getMontmorencyInputs() {
+		return new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.MontmorencyForest, 304.0, 54.72, 15, 4.22, 0.7918, 66.97, 3.80);
+	}
+
+	/*
+	 * Test that the steady-state solver reaches a fixed point of the annual map.
+	 */
+	@Test
+	public void test01SteadyStateIsAFixedPoint() {
+		SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+		SoilCarbonPredictorInput inputs = getMontmorencyInputs();
+
+		SoilCarbonPredictorCompartments bruteForceCompartments = new SoilCarbonPredictorCompartments(1.0, MAT, Trange);
+		SoilCarbonPredictorEquilibrium.spinUp(predictor, bruteForceCompartments, inputs, SoilCarbonPredictorEquilibrium.DefaultNbYears);
+
+		SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, MAT, Trange);
+		int nbYears = SoilCarbonPredictorEquilibrium.solve(predictor, compartments, inputs, SoilCarbonPredictorEquilibrium.DefaultTolerance, SoilCarbonPredictorEquilibrium.DefaultNbYears);
+		System.out.println("Steady state reached in " + nbYears + " years.");
+		System.out.println("Litter bins: steady state = " + compartments.getLitterBinsgCm2() + "; spin-up = " + bruteForceCompartments.getLitterBinsgCm2());
+		System.out.println("Soil bins: steady state = " + compartments.getSoilBinsgCm2() + "; spin-up = " + bruteForceCompartments.getSoilBinsgCm2());
+
+		double[] before = compartments.getStocks();
+		predictor.predictAnnualCStocks(compartments, inputs);
+		double[] after = compartments.getStocks();
+		Assert.assertEquals("Testing the annual change at steady state", 0d, SoilCarbonPredictorEquilibrium.getRelativeChange(before, after), 1E-6);
+		Assert.assertEquals("Testing the litter bins against the spin-up", bruteForceCompartments.getLitterBinsgCm2(), compartments.getLitterBinsgCm2(), bruteForceCompartments.getLitterBinsgCm2() * 1E-3);
+	}
+
+	/*
+	 * Test that the cache runs the spin-up only once for the same conditions.
+	 */
+	@Test
+	public void test02CacheHit() throws Exception {
+		String filename = ObjectUtility.getRelativePackagePath(SoilCarbonPredictor.class) + 
+        		"data" + ObjectUtility.PathSeparator + 
+        		"sites" + ObjectUtility.PathSeparator + "mcmcMems_Montmorency.zml";
+		XmlDeserializer dser = new XmlDeserializer(filename);
+		MEMSSite site = (MEMSSite) dser.readObject();
+
+		SoilCarbonPredictorEquilibriumCache cache = new SoilCarbonPredictorEquilibriumCache();
+		SoilCarbonPredictorCompartments compartments1 = cache.getInitialCompartments(site.mha.getFinalParameterEstimates(), 
+				new SoilCarbonPredictorCompartments(1.0, MAT, Trange), 
+				getMontmorencyInputs());
+		SoilCarbonPredictorCompartments compartments2 = cache.getInitialCompartments(site.mha.getFinalParameterEstimates(), 
+				new SoilCarbonPredictorCompartments(1.0, MAT, Trange), 
+				getMontmorencyInputs());
+		Assert.assertEquals("Testing the size of the cache", 1, cache.size());
+		Assert.assertArrayEquals("Testing the stocks", compartments1.getStocks(), compartments2.getStocks(), 0d);
+		Assert.assertNotSame("Testing the instances", compartments1, compartments2);
+
+		cache.setSpinUpMethod(SpinUpMethod.SteadyState);
+		cache.getInitialCompartments(site.mha.getFinalParameterEstimates(), 
+				new SoilCarbonPredictorCompartments(1.0, MAT, Trange), 
+				getMontmorencyInputs());
+		Assert.assertEquals("Testing the size of the cache after changing the method", 2, cache.size());
+	}
+
+	/*
+	 * Test that the default cache provides the stocks of the brute-force spin-up for all the compartments.
+	 */
+	@Test
+	public void test03DefaultCacheSameAsSpinUp() throws Exception {
+		String filename = ObjectUtility.getRelativePackagePath(SoilCarbonPredictor.class) + 
+        		"data" + ObjectUtility.PathSeparator + 
+        		"sites" + ObjectUtility.PathSeparator + "mcmcMems_Montmorency.zml";
+		XmlDeserializer dser = new XmlDeserializer(filename);
+		MEMSSite site = (MEMSSite) dser.readObject();
+
+		SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+		predictor.setParms(site.mha.getFinalParameterEstimates());
+		SoilCarbonPredictorInput inputs = getMontmorencyInputs();
+		SoilCarbonPredictorCompartments bruteForceCompartments = new SoilCarbonPredictorCompartments(1.0, MAT, Trange);
+		SoilCarbonPredictorEquilibrium.spinUp(predictor, bruteForceCompartments, inputs, SoilCarbonPredictorEquilibrium.DefaultNbYears);
+
+		SoilCarbonPredictorEquilibriumCache cache = new SoilCarbonPredictorEquilibriumCache();
+		Assert.assertEquals("Testing the default method", SpinUpMethod.BruteForce, cache.getSpinUpMethod());
+		SoilCarbonPredictorCompartments compartments = cache.getInitialCompartments(site.mha.getFinalParameterEstimates(), 
+				new SoilCarbonPredictorCompartments(1.0, MAT, Trange), 
+				inputs);
+		Assert.assertArrayEquals("Testing the stocks of all the compartments", bruteForceCompartments.getStocks(), compartments.getStocks(), 0d);
+	}
+}
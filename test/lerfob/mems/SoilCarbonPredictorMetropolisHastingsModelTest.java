@@ -0,0 +1,183 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import repicea.math.Matrix;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.util.ObjectUtility;
+
+public class SoilCarbonPredictorMetropolisHastingsModelTest {
+
+	static {
+		System.out.println("RUNNING " + SoilCarbonPredictorMetropolisHastingsModelTest.class.getName());
+	}
+
+	private static String getDataFilename() {
+		return ObjectUtility.getPackagePath(SoilCarbonPredictorMetropolisHastingsModelTest.class) + "data" + ObjectUtility.PathSeparator + "HerefordFormatted.csv";
+	}
+
+	private static MEMSSite readHerefordSite() throws Exception {
+		String filename = MEMSSiteBinaryFormat.getSiteFilenameWithoutExtension(MEMSSite.SiteType.Hereford);
+		return MEMSSiteBinaryFormat.exists(filename + MEMSSiteBinaryFormat.FileExtension) ?
+				MEMSSiteBinaryFormat.read(filename + MEMSSiteBinaryFormat.FileExtension) :
+					(MEMSSite) new XmlDeserializer(filename + ".zml").readObject();
+	}
+
+	private static SoilCarbonPredictorMetropolisHastingsModel createModel(MEMSSite site) throws Exception {
+		SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, 3.8, 27.27);
+		SoilCarbonPredictorMetropolisHastingsModel model = new SoilCarbonPredictorMetropolisHastingsModel(compartments, new SoilCarbonPredictorInput(site.getInputs()));
+		model.readFile(getDataFilename());
+		return model;
+	}
+
+	/*
+	 * Test that the warm-started solver provides the same likelihoods as the solver started from the
+	 * initial stocks, while simulating fewer years. The number of likelihood evaluations per second
+	 * is reported for the original spin-up and the warm-started solver.
+	 */
+	@Test
+	public void test01WarmStartedLikelihood() throws Exception {
+		MEMSSite site = readHerefordSite();
+		double[][] draws = site.getParameterDraws();
+		int nbEvaluations = 20;
+
+		SoilCarbonPredictorMetropolisHastingsModel originalModel = createModel(site);
+		SoilCarbonPredictorMetropolisHastingsModel coldModel = createModel(site);
+		coldModel.setConvergenceTolerance(1E-9);
+		SoilCarbonPredictorMetropolisHastingsModel warmModel = createModel(site);
+		warmModel.setConvergenceTolerance(1E-9);
+		warmModel.setWarmStartEnabled(true);
+
+		long originalNanos = 0;
+		long warmNanos = 0;
+		for (int i = 0; i < nbEvaluations; i++) {
+			Matrix parms = new Matrix(draws[i * 10].length, 1);
+			for (int j = 0; j < parms.m_iRows; j++) {
+				parms.setValueAt(j, 0, draws[i * 10][j]);	// successive draws of the chain are close to one another
+			}
+			long initTime = System.nanoTime();
+			originalModel.getLogLikelihood(parms);
+			originalNanos += System.nanoTime() - initTime;
+			initTime = System.nanoTime();
+			double warmLlk = warmModel.getLogLikelihood(parms);
+			warmNanos += System.nanoTime() - initTime;
+			double coldLlk = coldModel.getLogLikelihood(parms);
+			Assert.assertEquals("Testing the log-likelihood of evaluation " + i, coldLlk, warmLlk, Math.abs(coldLlk) * 1E-6);
+		}
+		System.out.println("Years per evaluation: original = " + originalModel.getNbSimulatedYears() / nbEvaluations + 
+				"; cold solver = " + coldModel.getNbSimulatedYears() / nbEvaluations +
+				"; warm solver = " + warmModel.getNbSimulatedYears() / nbEvaluations);
+		System.out.println("Evaluations per second: original = " + nbEvaluations / (originalNanos * 1E-9) + 
+				"; warm solver = " + nbEvaluations / (warmNanos * 1E-9));
+		Assert.assertTrue("Testing that the warm start saves simulated years", warmModel.getNbSimulatedYears() < coldModel.getNbSimulatedYears());
+	}
+
+	/*
+	 * Test that the proposals accepted by the chain drive the warm start: the equilibrium of a 
+	 * rejected proposal must not be used as starting point.
+	 */
+	@Test
+	public void test02WarmStartFromAcceptedState() throws Exception {
+		MEMSSite site = readHerefordSite();
+		double[][] draws = site.getParameterDraws();
+		Matrix accepted = new Matrix(draws[0].length, 1);
+		Matrix rejected = new Matrix(draws[0].length, 1);
+		for (int j = 0; j < accepted.m_iRows; j++) {
+			accepted.setValueAt(j, 0, draws[0][j]);
+			rejected.setValueAt(j, 0, draws[draws.length - 1][j]);
+		}
+		SoilCarbonPredictorMetropolisHastingsModel model = createModel(site);
+		model.setConvergenceTolerance(1E-9);
+		model.setWarmStartEnabled(true);
+		model.getLogLikelihood(accepted);
+		model.acceptLastEvaluation();
+		model.getLogLikelihood(rejected);
+		long nbYearsBefore = model.getNbSimulatedYears();
+		model.getLogLikelihood(accepted);
+		long nbYearsFromAcceptedState = model.getNbSimulatedYears() - nbYearsBefore;
+		Assert.assertTrue("Testing that the solver restarts from the accepted equilibrium", nbYearsFromAcceptedState <= 4);
+	}
+
+	private static double runCalibration(MEMSSite site, double surrogateTolerance, String label) throws Exception {
+		SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, 3.8, 27.27);
+		SoilCarbonPredictorMultiChainCalibration calibration = new SoilCarbonPredictorMultiChainCalibration(compartments, 
+				new SoilCarbonPredictorInput(site.getInputs()), getDataFilename(), 2, 12345L);
+		calibration.setNumberOfThreads(1);
+		calibration.setIterations(100, 100, 1, 400);
+		calibration.setConvergenceCriteria(1.05, 1E6);	// never met so that all the iterations are run
+		calibration.setConvergenceTolerance(1E-9, true);
+		calibration.setDelayedAcceptance(surrogateTolerance);
+		long initTime = System.nanoTime();
+		calibration.run();
+		double elapsedSeconds = (System.nanoTime() - initTime) * 1E-9;
+		double minEss = Double.POSITIVE_INFINITY;
+		for (double ess : calibration.getEffectiveSampleSize()) {
+			minEss = Math.min(minEss, ess);
+		}
+		int[] nbFullEvaluations = calibration.getNbFullEvaluations();
+		System.out.println(label + ": min ESS = " + minEss + "; time = " + elapsedSeconds + " s; ESS per second = " + minEss / elapsedSeconds + 
+				"; full evaluations = " + (nbFullEvaluations[0] + nbFullEvaluations[1]));
+		return minEss / elapsedSeconds;
+	}
+
+	/*
+	 * Report the smallest effective sample size per second of a short calibration with and without the 
+	 * delayed acceptance. 
+	 */
+	@Test
+	public void test03EffectiveSamplesPerSecondWithDelayedAcceptance() throws Exception {
+		MEMSSite site = readHerefordSite();
+		double essPerSecondWithout = runCalibration(site, 0d, "Without delayed acceptance");
+		double essPerSecondWith = runCalibration(site, 1E-4, "With delayed acceptance");
+		Assert.assertTrue("Testing the ESS per second without delayed acceptance", essPerSecondWithout > 0d);
+		Assert.assertTrue("Testing the ESS per second with delayed acceptance", essPerSecondWith > 0d);
+	}
+
+	/*
+	 * Test that the surrogate log-likelihood only depends on the parameters: the accepted proposals 
+	 * and the other evaluations must not change the starting state of the surrogate solver.
+	 */
+	@Test
+	public void test04SurrogateFromFixedReferenceState() throws Exception {
+		MEMSSite site = readHerefordSite();
+		double[][] draws = site.getParameterDraws();
+		Matrix first = new Matrix(draws[0].length, 1);
+		Matrix other = new Matrix(draws[0].length, 1);
+		for (int j = 0; j < first.m_iRows; j++) {
+			first.setValueAt(j, 0, draws[0][j]);
+			other.setValueAt(j, 0, draws[draws.length - 1][j]);
+		}
+		SoilCarbonPredictorMetropolisHastingsModel model = createModel(site);
+		model.setConvergenceTolerance(1E-9);
+		model.setWarmStartEnabled(true);
+		model.setSurrogateTolerance(1E-4);
+		double otherSurrogateLlk = model.getSurrogateLogLikelihood(other);	// sets the reference state
+		model.getLogLikelihood(other);
+		model.acceptLastEvaluation();
+		double firstSurrogateLlk = model.getSurrogateLogLikelihood(first);
+		model.getLogLikelihood(first);
+		model.acceptLastEvaluation();
+		Assert.assertEquals("Testing the surrogate after accepting other parameters", otherSurrogateLlk, model.getSurrogateLogLikelihood(other), 0d);
+		Assert.assertEquals("Testing the surrogate of the first parameters", firstSurrogateLlk, model.getSurrogateLogLikelihood(first), 0d);
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of the mems library.
+ *
+ * Copyright (C) 2025 His Majesty the King in Right of Canada
+ * Author: Mathieu Fortin, Canadian Forest Service
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed with the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * Please see the license at http://www.gnu.org/copyleft/lesser.html.
+ */
+package lerfob.mems;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import lerfob.mems.MEMSSite.SiteType;
+import repicea.math.Matrix;
+import repicea.serial.xml.XmlDeserializer;
+import repicea.util.ObjectUtility;
+
+public class SoilCarbonPredictorMultiChainCalibrationTest {
+
+	static {
+		System.out.println("RUNNING " + SoilCarbonPredictorMultiChainCalibrationTest.class.getName());
+	}
+
+	private static double[][][] createChains(int nbChains, int n, double[] shifts, double phi, long seed) {
+		Random random = new Random(seed);
+		double[][][] draws = new double[nbChains][n][1];
+		for (int k = 0; k < nbChains; k++) {
+			double value = 0d;
+			for (int t = 0; t < n; t++) {
+				value = phi * value + random.nextGaussian();
+				draws[k][t][0] = value + shifts[k];
+			}
+		}
+		return draws;
+	}
+
+	/*
+	 * Test that independent draws from the same distribution yield an R-hat close to 1 and 
+	 * an effective sample size close to the total number of draws.
+	 */
+	@Test
+	public void test01DiagnosticsWithIndependentDraws() {
+		double[][][] draws = createChains(4, 2000, new double[4], 0d, 12345L);
+		double rHat = SoilCarbonPredictorMultiChainCalibration.getRHat(draws)[0];
+		double ess = SoilCarbonPredictorMultiChainCalibration.getEffectiveSampleSize(draws)[0];
+		System.out.println("R-hat = " + rHat + "; ESS = " + ess);
+		Assert.assertEquals("Testing R-hat", 1d, rHat, 0.01);
+		Assert.assertTrue("Testing ESS", ess > 8000 * .8 && ess < 8000 * 1.2);
+	}
+
+	/*
+	 * Test that chains stuck in different regions yield a large R-hat and that 
+	 * autocorrelated chains yield a smaller effective sample size.
+	 */
+	@Test
+	public void test02DiagnosticsWithShiftedAndAutocorrelatedChains() {
+		double[][][] shiftedDraws = createChains(4, 2000, new double[] {0d, 0d, 3d, 3d}, 0d, 12345L);
+		double rHat = SoilCarbonPredictorMultiChainCalibration.getRHat(shiftedDraws)[0];
+		Assert.assertTrue("Testing R-hat of shifted chains", rHat > 1.5);
+
+		double[][][] autocorrelatedDraws = createChains(4, 2000, new double[4], 0.9, 12345L);
+		double ess = SoilCarbonPredictorMultiChainCalibration.getEffectiveSampleSize(autocorrelatedDraws)[0];
+		System.out.println("ESS of autocorrelated chains = " + ess);
+		// the theoretical ESS of an AR(1) process is n (1 - phi) / (1 + phi), i.e. about 421 here
+		Assert.assertTrue("Testing ESS of autocorrelated chains", ess > 250 && ess < 700);
+	}
+
+	/*
+	 * Test that the running sums provide the same means, sums of squares and autocovariances
+	 * as a two-pass calculation.
+	 */
+	@Test
+	public void test03RunningSumsSameAsTwoPass() {
+		double[][][] draws = createChains(1, 1500, new double[] {1000d}, 0.9, 12345L);
+		int n = draws[0].length;
+		SoilCarbonPredictorMultiChainCalibration.RunningStatistics statistics = new SoilCarbonPredictorMultiChainCalibration.RunningStatistics(1);
+		for (double[] draw : draws[0]) {
+			statistics.add(draw);
+		}
+		double mean = 0d;
+		for (double[] draw : draws[0]) {
+			mean += draw[0];
+		}
+		mean /= n;
+		double ss = 0d;
+		for (double[] draw : draws[0]) {
+			ss += (draw[0] - mean) * (draw[0] - mean);
+		}
+		Assert.assertEquals("Testing the mean", mean, statistics.getMean(0), 1E-9);
+		Assert.assertEquals("Testing the sum of squares", ss, statistics.getSumOfSquares(0), ss * 1E-9);
+		double[] autocovariances = statistics.getAutocovariances(0, SoilCarbonPredictorMultiChainCalibration.MaxLag);
+		for (int lag = 1; lag <= SoilCarbonPredictorMultiChainCalibration.MaxLag; lag++) {
+			double sum = 0d;
+			for (int t = 0; t < n - lag; t++) {
+				sum += (draws[0][t][0] - mean) * (draws[0][t + lag][0] - mean);
+			}
+			Assert.assertEquals("Testing the autocovariance at lag " + lag, sum / n, autocovariances[lag], ss / n * 1E-9);
+		}
+	}
+
+	private static SoilCarbonPredictorMultiChainCalibration createCalibration(long seed) throws Exception {
+		String filename = MEMSSiteBinaryFormat.getSiteFilenameWithoutExtension(SiteType.Hereford);
+		MEMSSite site = MEMSSiteBinaryFormat.exists(filename + MEMSSiteBinaryFormat.FileExtension) ?
+				MEMSSiteBinaryFormat.read(filename + MEMSSiteBinaryFormat.FileExtension) :
+					(MEMSSite) new XmlDeserializer(filename + ".zml").readObject();
+		String dataFilename = ObjectUtility.getPackagePath(SoilCarbonPredictorMultiChainCalibrationTest.class) + "data" + ObjectUtility.PathSeparator + "HerefordFormatted.csv";
+		SoilCarbonPredictorMultiChainCalibration calibration = new SoilCarbonPredictorMultiChainCalibration(new SoilCarbonPredictorCompartments(1.0, 3.8, 27.27), 
+				new SoilCarbonPredictorInput(site.getInputs()), dataFilename, 2, seed);
+		calibration.setNumberOfThreads(2);
+		calibration.setIterations(100, 100, 5, 300);
+		calibration.setConvergenceCriteria(1.05, 1E6);	// never met so that all the iterations are run
+		calibration.setConvergenceTolerance(1E-9, true);
+		return calibration;
+	}
+
+	/*
+	 * Test a short calibration on the Hereford data and check the draws and the diagnostics.
+	 */
+	@Test
+	public void test04Run() throws Exception {
+		SoilCarbonPredictorMultiChainCalibration calibration = createCalibration(12345L);
+		Assert.assertNull("Testing that no check has been made yet", calibration.getRHat());
+		Assert.assertFalse("Testing that the criteria are not met", calibration.run());
+		Assert.assertEquals("Testing the number of pooled draws", 2 * 200 / 5, calibration.getPooledDraws().length);
+		Assert.assertEquals("Testing the number of R-hat values", SoilCarbonPredictor.MCParam.values().length, calibration.getRHat().length);
+		for (double ess : calibration.getEffectiveSampleSize()) {
+			Assert.assertTrue("Testing the effective sample size", ess > 0d && ess <= 2 * 200 / 5);
+		}
+		for (double rate : calibration.getAcceptanceRates()) {
+			Assert.assertTrue("Testing the acceptance rate", rate > 0d && rate < 1d);
+		}
+	}
+
+	/*
+	 * Test that two calibrations with the same seed provide the same draws although the chains run 
+	 * in different threads.
+	 */
+	@Test
+	public void test05SeedReproducibility() throws Exception {
+		SoilCarbonPredictorMultiChainCalibration calibration1 = createCalibration(54321L);
+		calibration1.run();
+		SoilCarbonPredictorMultiChainCalibration calibration2 = createCalibration(54321L);
+		calibration2.run();
+		double[][] draws1 = calibration1.getPooledDraws();
+		double[][] draws2 = calibration2.getPooledDraws();
+		Assert.assertEquals("Testing the number of draws", draws1.length, draws2.length);
+		for (int i = 0; i < draws1.length; i++) {
+			Assert.assertArrayEquals("Testing draw " + i, draws1[i], draws2[i], 0d);
+		}
+	}
+
+	/*
+	 * Test that the site written by the calibration can be read back with the same estimates and draws,
+	 * and that a site is available even before the chains have produced any draw.
+	 */
+	@Test
+	public void test06WriteSite() throws Exception {
+		SoilCarbonPredictorMultiChainCalibration calibration = createCalibration(12345L);
+		MEMSSite emptySite = calibration.getSite();
+		Assert.assertEquals("Testing the number of draws before the run", 0, emptySite.getParameterDraws().length);
+		Assert.assertEquals("Testing the number of estimates before the run", SoilCarbonPredictor.MCParam.values().length, emptySite.getFinalParameterEstimates().m_iRows);
+
+		calibration.run();
+		File file = File.createTempFile("mcmcMems_Hereford", MEMSSiteBinaryFormat.FileExtension);
+		file.deleteOnExit();
+		calibration.writeSite(SiteType.Hereford, file.getAbsolutePath());
+		MEMSSite expectedSite = calibration.getSite();
+		MEMSSite actualSite = MEMSSiteBinaryFormat.read(file.getAbsolutePath());
+		Matrix expectedParms = expectedSite.getFinalParameterEstimates();
+		Matrix actualParms = actualSite.getFinalParameterEstimates();
+		for (int i = 0; i < expectedParms.m_iRows; i++) {
+			Assert.assertEquals("Testing parameter " + i, expectedParms.getValueAt(i, 0), actualParms.getValueAt(i, 0), 0d);
+		}
+		double[][] expectedDraws = expectedSite.getParameterDraws();
+		double[][] actualDraws = actualSite.getParameterDraws();
+		Assert.assertEquals("Testing the number of draws", expectedDraws.length, actualDraws.length);
+		for (int i = 0; i < expectedDraws.length; i++) {
+			Assert.assertArrayEquals("Testing draw " + i, expectedDraws[i], actualDraws[i], 0d);
+		}
+	}
+}
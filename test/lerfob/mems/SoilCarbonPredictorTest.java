@@ -179,6 +179,126 @@ public class SoilCarbonPredictorTest {
         Assert.assertTrue("Performance test should execute a full 10 year cycle in less than 100 ms", elapsed < 100);
     }
 
+    @Test
+    public void IterationInstrumentationTest() {
+        SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, 10.0, 24.0);
+        SoilCarbonPredictorInput inputs = new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.Unknown, 10.0, 15d, 5.58, 1.21, 47.8, 7.62);
+
+        SoilCarbonPredictor instrumentedPredictor = new SoilCarbonPredictor(false);
+        MEMSTimingInstrumentation instrumentation = new MEMSTimingInstrumentation();
+        instrumentedPredictor.setInstrumentation(instrumentation);
+        SoilCarbonPredictorCompartments instrumentedCompartments = compartments.clone();
+
+        int nbYears = 20;
+        for (int i = 0; i < nbYears; i++) {
+            predictor.predictAnnualCStocks(compartments, inputs);
+            instrumentedPredictor.predictAnnualCStocks(instrumentedCompartments, inputs);
+        }
+        Assert.assertArrayEquals("The instrumentation should not change the predictions", compartments.getStocks(), instrumentedCompartments.getStocks(), 0d);
+        MEMSTimingInstrumentation.Report report = instrumentation.getReport();
+        System.out.println(report);
+        Assert.assertEquals("Testing the number of annual calls", nbYears, report.getNbAnnualCalls());
+        Assert.assertEquals("Testing the number of days", nbYears * 365, report.getNbDays());
+    }
+
+    /*
+     * Throughput of the default path, that is without instrumentation.
+     */
+    @Test
+    public void IterationThroughputTestAnnual() {
+        SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, 10.0, 24.0);
+        SoilCarbonPredictorInput inputs = new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.Unknown, 10.0, 15d, 5.58, 1.21, 47.8, 7.62);
+
+        for (int i = 0; i < 200; i++) {		// warm up
+            predictor.predictAnnualCStocks(compartments, inputs);
+        }
+
+        int nbYears = 1000;
+        long initTime = System.nanoTime();
+        for (int i = 0; i < nbYears; i++) {
+            predictor.predictAnnualCStocks(compartments, inputs);
+        }
+        double elapsedMillis = (System.nanoTime() - initTime) * 1E-6;
+        System.out.println("Throughput test executed " + nbYears + " annual calls in " + elapsedMillis + " ms (" + (nbYears / elapsedMillis * 1000) + " simulated years/s)");
+        Assert.assertTrue("Testing the throughput", elapsedMillis < 10000);
+    }
+
+    @Test
+    public void PrecomputedTemperatureModifiersTest() {
+        double[] dailyAirTemperature = SoilCarbonPredictorCompartments.createDailyTemperatureFromMeanAndRange(2.0, 30.0);
+        SoilCarbonPredictorTemperatureModifiers temperatureModifiers = new SoilCarbonPredictorTemperatureModifiers(dailyAirTemperature, true);
+        double[] dailySoilTemperature = SoilCarbonPredictorCompartments.convertAirTemperatureToSoilTemperatureC(dailyAirTemperature);
+        SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        for (int day = 0; day < temperatureModifiers.getNbDays(); day++) {
+            Assert.assertEquals("Testing modifier of day " + day,
+                    SoilCarbonPredictorEquation.Weibull_getTemperatureModifier(predictor, dailySoilTemperature[day]),
+                    temperatureModifiers.getTemperatureModifier(day),
+                    0d);
+        }
+        SoilCarbonPredictorInput inputs = new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.Unknown, 10.0, 15d, 5.58, 1.21, 47.8, 7.62);
+        SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, dailyAirTemperature, true);
+        SoilCarbonPredictorCompartments otherCompartments = new SoilCarbonPredictorCompartments(1.0, dailyAirTemperature, true);
+        otherCompartments.setSoilTemperature(temperatureModifiers);
+        for (int i = 0; i < 20; i++) {
+            predictor.predictAnnualCStocks(compartments, inputs);
+            predictor.predictAnnualCStocks(otherCompartments, inputs);
+        }
+        Assert.assertArrayEquals("The precomputed modifiers should not change the predictions", compartments.getStocks(), otherCompartments.getStocks(), 0d);
+    }
+
+    /*
+     * The exponential integrator should remain close to the daily integration in all the compartments
+     * and it should preserve the carbon balance.
+     */
+    @Test
+    public void AdaptiveIntegrationDeviationTest() {
+        SoilCarbonPredictorCompartments[] referenceCompartments = new SoilCarbonPredictorCompartments[] {
+                new SoilCarbonPredictorCompartments(1.0, 3.8, 27.27),
+                new SoilCarbonPredictorCompartments(1.0, 10.0, 24.0),
+                new SoilCarbonPredictorCompartments(5.0, -2.0, 30.0)};		// some days with a null temperature modifier
+        SoilCarbonPredictorInput[] inputs = new SoilCarbonPredictorInput[] {
+                new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.MontmorencyForest, 304.0, 54.72, 15, 4.22, 0.7918, 66.97, 3.80),
+                new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.Unknown, 10.0, 15d, 5.58, 1.21, 47.8, 7.62),
+                new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.ConiferousForest, 2.0, 15d, 5.58, 1.21, 47.8, 7.62)};
+        SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        SoilCarbonPredictor adaptivePredictor = new SoilCarbonPredictor(false);
+        adaptivePredictor.setAdaptiveTolerance(1E-2);
+        for (int j = 0; j < referenceCompartments.length; j++) {
+            SoilCarbonPredictorCompartments adaptiveCompartments = referenceCompartments[j].clone();
+            for (int y = 0; y < 100; y++) {
+                predictor.predictAnnualCStocks(referenceCompartments[j], inputs[j]);
+                adaptivePredictor.predictAnnualCStocks(adaptiveCompartments, inputs[j]);
+                double[] expected = referenceCompartments[j].getStocks();
+                double[] actual = adaptiveCompartments.getStocks();
+                for (int k = 0; k < expected.length; k++) {
+                    Assert.assertEquals("Testing compartment C" + (k + 1) + " of case " + j + " in year " + y, expected[k], actual[k], Math.abs(expected[k]) * 1E-2);
+                }
+            }
+            Assert.assertEquals("Testing the carbon balance of case " + j, referenceCompartments[j].getSum(), adaptiveCompartments.getSum(), referenceCompartments[j].getSum() * 1E-10);
+        }
+    }
+
+    /*
+     * With a null tolerance, the predictions should be those of the daily integration.
+     */
+    @Test
+    public void AdaptiveIntegrationDisabledTest() {
+        SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        SoilCarbonPredictorCompartments compartments = new SoilCarbonPredictorCompartments(1.0, 10.0, 24.0);
+        SoilCarbonPredictorInput inputs = new SoilCarbonPredictorInput(SoilCarbonPredictorInput.LandType.Unknown, 10.0, 15d, 5.58, 1.21, 47.8, 7.62);
+        SoilCarbonPredictor otherPredictor = new SoilCarbonPredictor(false);
+        otherPredictor.setAdaptiveTolerance(1E-2);
+        otherPredictor.setAdaptiveTolerance(0d);
+        SoilCarbonPredictorCompartments otherCompartments = compartments.clone();
+        for (int i = 0; i < 20; i++) {
+            predictor.predictAnnualCStocks(compartments, inputs);
+            otherPredictor.predictAnnualCStocks(otherCompartments, inputs);
+        }
+        Assert.assertArrayEquals("A null tolerance should not change the predictions", compartments.getStocks(), otherCompartments.getStocks(), 0d);
+    }
+
     @Test
     public void IterationStabilizationTestMontmorencyForest() {
         int nbYears = 1000;
@@ -186,6 +306,8 @@ public class SoilCarbonPredictorTest {
         Instant before, after;
 
         SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        MEMSTimingInstrumentation instrumentation = new MEMSTimingInstrumentation();
+        predictor.setInstrumentation(instrumentation);
 
         double MAT = 3.8;  // between Jan 1 2013 to Dec 31st 2016 at MM
         double MinTemp = -9.48; // between Jan 1 2013 to Dec 31st 2016 at MM
@@ -219,10 +341,7 @@ public class SoilCarbonPredictorTest {
         }
 
         System.out.println("IterationStabilizationTestMontmorencyForest C1-C6 : " + compartments.getLitterBinsgCm2() + ", C5-C9-C10 : " + compartments.getSoilBinsgCm2());
-        System.out.println("Elapsed time type 1 = " + predictor.elapsedTimes[0]);
-        System.out.println("Elapsed time type 2 = " + predictor.elapsedTimes[1]);
-        System.out.println("Elapsed time type 3 = " + predictor.elapsedTimes[2]);
-        System.out.println("Elapsed time type 4 = " + predictor.elapsedTimes[3]);
+        System.out.println(instrumentation.getReport());
     }
 
     @Test
@@ -232,6 +351,8 @@ public class SoilCarbonPredictorTest {
         Instant before, after;
 
         SoilCarbonPredictor predictor = new SoilCarbonPredictor(false);
+        MEMSTimingInstrumentation instrumentation = new MEMSTimingInstrumentation();
+        predictor.setInstrumentation(instrumentation);
 
         double MAT = 3.8;  // between Jan 1 2013 to Dec 31st 2016 at MM
         double MinTemp = -9.48; // between Jan 1 2013 to Dec 31st 2016 at MM
@@ -277,10 +398,7 @@ public class SoilCarbonPredictorTest {
         }
 
         System.out.println("IterationStabilizationTestMontmorencyForest C1-C6 : " + compartments.getLitterBinsgCm2() + ", C5-C9-C10 : " + compartments.getSoilBinsgCm2());
-        System.out.println("Elapsed time type 1 = " + predictor.elapsedTimes[0]);
-        System.out.println("Elapsed time type 2 = " + predictor.elapsedTimes[1]);
-        System.out.println("Elapsed time type 3 = " + predictor.elapsedTimes[2]);
-        System.out.println("Elapsed time type 4 = " + predictor.elapsedTimes[3]);
+        System.out.println(instrumentation.getReport());
     }
 
     @Test